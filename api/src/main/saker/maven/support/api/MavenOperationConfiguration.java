@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 
@@ -28,6 +29,7 @@ import saker.build.file.path.SakerPath;
 import saker.build.file.provider.SakerPathFiles;
 import saker.build.task.TaskContext;
 import saker.build.thirdparty.saker.util.ImmutableUtils;
+import saker.build.thirdparty.saker.util.ObjectUtils;
 import saker.build.thirdparty.saker.util.io.SerialUtils;
 
 /**
@@ -281,6 +283,9 @@ public final class MavenOperationConfiguration implements Externalizable {
 
 		private AuthenticationConfiguration authentication;
 
+		private int connectTimeout = -1;
+		private int readTimeout = -1;
+
 		/**
 		 * For {@link Externalizable}.
 		 * 
@@ -366,6 +371,40 @@ public final class MavenOperationConfiguration implements Externalizable {
 			this.authentication = auth;
 		}
 
+		/**
+		 * Creates a new configuration with the specified properties and network timeouts.
+		 * <p>
+		 * Negative timeout values cause the implementation dependent defaults to be used.
+		 * 
+		 * @param id
+		 *            The repository ID.
+		 * @param layout
+		 *            The repository layout type. Either <code>"default"</code> or <code>"legacy"</code>. If
+		 *            <code>null</code>, it will be set to <code>"default"</code>.
+		 * @param url
+		 *            The repository URL.
+		 * @param snapshotPolicy
+		 *            The snapshot policy. May be <code>null</code>.
+		 * @param releasePolicy
+		 *            The release policy. May be <code>null</code>.
+		 * @param auth
+		 *            The authentication configuration. May be <code>null</code>.
+		 * @param connectTimeout
+		 *            The connection timeout in milliseconds.
+		 * @param readTimeout
+		 *            The read timeout in milliseconds.
+		 * @throws NullPointerException
+		 *             If the URL is <code>null</code>.
+		 * @since saker.maven.support 0.8.7
+		 */
+		public RepositoryConfiguration(String id, String layout, String url,
+				RepositoryPolicyConfiguration snapshotPolicy, RepositoryPolicyConfiguration releasePolicy,
+				AuthenticationConfiguration auth, int connectTimeout, int readTimeout) throws NullPointerException {
+			this(id, layout, url, snapshotPolicy, releasePolicy, auth);
+			this.connectTimeout = connectTimeout < 0 ? -1 : connectTimeout;
+			this.readTimeout = readTimeout < 0 ? -1 : readTimeout;
+		}
+
 		/**
 		 * Gets the repository identifier.
 		 * <p>
@@ -463,6 +502,26 @@ public final class MavenOperationConfiguration implements Externalizable {
 			return authentication;
 		}
 
+		/**
+		 * Gets the timeout for establishing a connection to the repository.
+		 * 
+		 * @return The timeout in milliseconds or -1 if the implementation dependent default should be used.
+		 * @since saker.maven.support 0.8.7
+		 */
+		public int getConnectTimeout() {
+			return connectTimeout;
+		}
+
+		/**
+		 * Gets the timeout for waiting on data from the repository after the connection has been established.
+		 * 
+		 * @return The timeout in milliseconds or -1 if the implementation dependent default should be used.
+		 * @since saker.maven.support 0.8.7
+		 */
+		public int getReadTimeout() {
+			return readTimeout;
+		}
+
 		@Override
 		public void writeExternal(ObjectOutput out) throws IOException {
 			out.writeObject(id);
@@ -471,6 +530,8 @@ public final class MavenOperationConfiguration implements Externalizable {
 			out.writeObject(snapshotPolicy);
 			out.writeObject(releasePolicy);
 			out.writeObject(authentication);
+			out.writeInt(connectTimeout);
+			out.writeInt(readTimeout);
 		}
 
 		@Override
@@ -481,6 +542,8 @@ public final class MavenOperationConfiguration implements Externalizable {
 			snapshotPolicy = (RepositoryPolicyConfiguration) in.readObject();
 			releasePolicy = (RepositoryPolicyConfiguration) in.readObject();
 			authentication = (AuthenticationConfiguration) in.readObject();
+			connectTimeout = in.readInt();
+			readTimeout = in.readInt();
 		}
 
 		@Override
@@ -502,6 +565,8 @@ public final class MavenOperationConfiguration implements Externalizable {
 					return false;
 			} else if (!authentication.equals(other.authentication))
 				return false;
+			if (connectTimeout != other.connectTimeout)
+				return false;
 			if (id == null) {
 				if (other.id != null)
 					return false;
@@ -512,6 +577,8 @@ public final class MavenOperationConfiguration implements Externalizable {
 					return false;
 			} else if (!layout.equals(other.layout))
 				return false;
+			if (readTimeout != other.readTimeout)
+				return false;
 			if (releasePolicy == null) {
 				if (other.releasePolicy != null)
 					return false;
@@ -536,7 +603,9 @@ public final class MavenOperationConfiguration implements Externalizable {
 					+ (layout != null ? "layout=" + layout + ", " : "") + (url != null ? "url=" + url + ", " : "")
 					+ (snapshotPolicy != null ? "snapshotPolicy=" + snapshotPolicy + ", " : "")
 					+ (releasePolicy != null ? "releasePolicy=" + releasePolicy + ", " : "")
-					+ (authentication != null ? "authentication=" + authentication : "") + "]";
+					+ (authentication != null ? "authentication=" + authentication + ", " : "")
+					+ (connectTimeout >= 0 ? "connectTimeout=" + connectTimeout + ", " : "")
+					+ (readTimeout >= 0 ? "readTimeout=" + readTimeout : "") + "]";
 		}
 
 	}
@@ -820,6 +889,21 @@ public final class MavenOperationConfiguration implements Externalizable {
 
 	protected SakerPath localRepositoryPath;
 	protected Set<RepositoryConfiguration> repositories;
+	protected boolean parallelRepositoryProbing;
+	protected boolean adaptiveRepositoryOrdering;
+	protected int downloadThreads = -1;
+	protected int downloadThreadsPerHost = -1;
+	protected long segmentedDownloadThreshold = -1;
+	protected int segmentedDownloadConnections = -1;
+	protected boolean trustChecksumFiles;
+	protected String materializationStrategy;
+	protected SakerPath downloadCachePath;
+	protected List<SakerPath> baseRepositoryPaths = Collections.emptyList();
+	protected boolean simpleLocalRepositoryManager;
+	protected boolean localRepositoryCatalog;
+	protected boolean clusterArtifactSharing;
+	protected boolean relocatableLocalization;
+	protected boolean resumableHttpDownloads;
 
 	/**
 	 * For {@link Externalizable}.
@@ -859,24 +943,348 @@ public final class MavenOperationConfiguration implements Externalizable {
 		return repositories;
 	}
 
+	/**
+	 * Checks if the remote repositories should be probed in parallel for artifacts that are not available locally.
+	 * <p>
+	 * If enabled, all the eligible remote repositories are queried concurrently for the presence of an artifact before
+	 * it is retrieved. The artifact is then downloaded from the first repository that confirms its presence, and the
+	 * pending queries to other repositories are cancelled. If multiple repositories confirm the presence at the same
+	 * time, the one that is declared earlier in {@link #getRepositories()} is used.
+	 * <p>
+	 * If the download fails from the selected repository, the other repositories are still tried in their declared
+	 * order.
+	 * <p>
+	 * The default is <code>false</code>, in which case the repositories are tried one after the other.
+	 * 
+	 * @return <code>true</code> if the repositories are probed in parallel.
+	 * @since saker.maven.support 0.8.7
+	 */
+	public boolean isParallelRepositoryProbing() {
+		return parallelRepositoryProbing;
+	}
+
+	/**
+	 * Checks if the remote repositories should be ordered based on their observed performance.
+	 * <p>
+	 * If enabled, the latency, error rate and hit rate of the remote repositories are tracked during the lifetime of
+	 * the build environment, and the repositories are tried in the order of their expected cost when artifacts are
+	 * retrieved.
+	 * <p>
+	 * Repositories that repeatedly fail to respond are temporarily skipped for a cool-down period, unless all of the
+	 * repositories would be skipped.
+	 * <p>
+	 * The default is <code>false</code>, in which case the repositories are tried in their declared order.
+	 * 
+	 * @return <code>true</code> if the repositories are ordered adaptively.
+	 * @since saker.maven.support 0.8.7
+	 */
+	public boolean isAdaptiveRepositoryOrdering() {
+		return adaptiveRepositoryOrdering;
+	}
+
+	/**
+	 * Gets the maximum number of concurrent transfers when retrieving artifacts from a remote repository.
+	 * <p>
+	 * The value is used by the Maven Resolver to determine how many artifacts are downloaded in parallel in a single
+	 * operation.
+	 * 
+	 * @return The number of threads or -1 if the implementation dependent default should be used.
+	 * @since saker.maven.support 0.8.7
+	 */
+	public int getDownloadThreads() {
+		return downloadThreads;
+	}
+
+	/**
+	 * Gets the maximum number of concurrent transfers to a single remote host during an operation.
+	 * <p>
+	 * The limit applies to all repositories that are hosted on the same host, regardless of the
+	 * {@linkplain #getDownloadThreads() total download thread count}. Transfers that exceed the limit wait until a
+	 * previous transfer to the same host finishes.
+	 * 
+	 * @return The number of concurrent transfers or -1 if not limited.
+	 * @since saker.maven.support 0.8.7
+	 */
+	public int getDownloadThreadsPerHost() {
+		return downloadThreadsPerHost;
+	}
+
+	/**
+	 * Gets the size threshold above which the artifacts are downloaded in multiple segments in parallel.
+	 * <p>
+	 * If the size of an artifact reported by a HTTP(S) repository is at least the threshold, and the server supports
+	 * range requests, the artifact is downloaded using {@linkplain #getSegmentedDownloadConnections() multiple
+	 * connections}.
+	 * 
+	 * @return The threshold in bytes or -1 if segmented downloading is disabled.
+	 * @since saker.maven.support 0.8.7
+	 */
+	public long getSegmentedDownloadThreshold() {
+		return segmentedDownloadThreshold;
+	}
+
+	/**
+	 * Gets the number of parallel connections that are used to download a single artifact in segments.
+	 * 
+	 * @return The number of connections or -1 if the default should be used.
+	 * @see #getSegmentedDownloadThreshold()
+	 * @see MavenUtils#DEFAULT_SEGMENTED_DOWNLOAD_CONNECTIONS
+	 * @since saker.maven.support 0.8.7
+	 */
+	public int getSegmentedDownloadConnections() {
+		return segmentedDownloadConnections;
+	}
+
+	/**
+	 * Gets if the checksum files in the local repository should be trusted when computing the content descriptors of
+	 * the artifacts.
+	 * <p>
+	 * If enabled, the SHA-1 checksum file (<code>.sha1</code>) next to an artifact is used as its digest instead of
+	 * hashing the artifact. The checksum files are written by the Maven Resolver after the downloaded artifact has been
+	 * verified.
+	 * <p>
+	 * When a checksum file is used, the size, modification time, and file key of the artifact is recorded along with
+	 * the modification time of the checksum file. The digest is only reused while both files match the recorded state.
+	 * If the artifact is modified but the checksum file stays the same, the checksum file is no longer used and the
+	 * artifact is hashed. A checksum file that is older than the artifact is not used.
+	 * <p>
+	 * The setting should only be enabled if the artifacts in the local repository are not modified by other means
+	 * than downloading.
+	 * <p>
+	 * The default is <code>false</code>.
+	 * 
+	 * @return <code>true</code> if the checksum files are trusted.
+	 * @since saker.maven.support 0.8.7
+	 */
+	public boolean isTrustChecksumFiles() {
+		return trustChecksumFiles;
+	}
+
+	/**
+	 * Gets the strategy used to materialize the downloaded artifacts in the build directory.
+	 * <p>
+	 * The value is one of the <code>MATERIALIZATION_STRATEGY_*</code> constants in {@link MavenUtils}. If the
+	 * materialization with the specified strategy fails, the artifact is copied.
+	 * <p>
+	 * Linking the artifacts avoids copying them, but the linked files share their contents with the local repository.
+	 * It should only be used if the materialized artifacts are not modified in place.
+	 * <p>
+	 * The default is <code>null</code>, in which case {@link MavenUtils#DEFAULT_MATERIALIZATION_STRATEGY} is used.
+	 * 
+	 * @return The materialization strategy or <code>null</code> to use the default.
+	 * @since saker.maven.support 0.8.7
+	 */
+	public String getMaterializationStrategy() {
+		return materializationStrategy;
+	}
+
+	/**
+	 * Gets the local file system path of the download cache.
+	 * <p>
+	 * The cache contains the downloaded files keyed by their SHA-1 digest, and can be shared by multiple local
+	 * repositories. The digests of the verified downloads are recorded by their remote location, and if the cache
+	 * already contains the file for a location, it is copied from the cache instead of being downloaded.
+	 * <p>
+	 * The cache saves network transfers, not disk space. The files are copied into and out of the cache, so each local
+	 * repository still has its own copy of the files.
+	 * <p>
+	 * The default is <code>null</code>, in which case no download cache is used.
+	 * 
+	 * @return The local path of the cache or <code>null</code> if not used.
+	 * @since saker.maven.support 0.8.7
+	 */
+	public SakerPath getDownloadCachePath() {
+		return downloadCachePath;
+	}
+
+	/**
+	 * Gets the local file system paths of the read-only base repositories.
+	 * <p>
+	 * The base repositories are layered below the {@linkplain #getLocalRepositoryPath() local repository}. When an
+	 * artifact is looked up, the local repository is checked first, then the base repositories in order. The base
+	 * repositories are never written, the downloaded and installed artifacts are placed in the local repository.
+	 * <p>
+	 * The default is an empty list.
+	 * 
+	 * @return An immutable list of absolute local paths.
+	 * @since saker.maven.support 0.8.7
+	 */
+	public List<SakerPath> getBaseRepositoryPaths() {
+		return baseRepositoryPaths;
+	}
+
+	/**
+	 * Gets if the simple local repository manager should be used.
+	 * <p>
+	 * By default, the local repositories track the origin of the artifacts in <code>_remote.repositories</code>
+	 * files, which are read and written on the lookups of the artifacts. If the simple manager is used, the artifacts
+	 * are looked up by their layout path only, and no origin tracking files are used. This reduces the file system
+	 * operations and the lock contention during resolution, but an artifact in the local repository is used
+	 * regardless of the remote repository it was downloaded from.
+	 * <p>
+	 * The setting should only be enabled if the repositories are trusted.
+	 * <p>
+	 * The default is <code>false</code>.
+	 * 
+	 * @return <code>true</code> if the simple local repository manager is used.
+	 * @since saker.maven.support 0.8.7
+	 */
+	public boolean isSimpleLocalRepositoryManager() {
+		return simpleLocalRepositoryManager;
+	}
+
+	/**
+	 * Gets if a catalog of the present files should be maintained for the local repository.
+	 * <p>
+	 * The catalog is a memory mapped index of the files in the local repository. It is updated when artifacts are
+	 * downloaded or installed, and it is rebuilt periodically. The presence of the artifacts is verified by checking
+	 * the attributes of their files, so the modifications made by other tools are picked up as well.
+	 * <p>
+	 * If the {@linkplain #isSimpleLocalRepositoryManager() simple local repository manager} is used, the artifacts
+	 * that are present in the catalog and on the file system are used without reading the tracking files of the local
+	 * repository.
+	 * <p>
+	 * The default is <code>false</code>.
+	 * 
+	 * @return <code>true</code> if the local repository catalog is used.
+	 * @since saker.maven.support 0.8.7
+	 */
+	public boolean isLocalRepositoryCatalog() {
+		return localRepositoryCatalog;
+	}
+
+	/**
+	 * Gets if the artifacts should be shared between the machines of a build cluster.
+	 * <p>
+	 * If enabled together with {@linkplain #isRelocatableLocalization() relocatable localization}, the artifact
+	 * localization tasks may be dispatched to build clusters. The artifacts that are missing
+	 * from the local repository of a cluster are not retrieved from the remote repositories by the cluster itself.
+	 * They are downloaded on the coordinator machine of the build, and transferred to the cluster through the build
+	 * cluster connection. The transferred contents are verified against the SHA-1 digest computed on the coordinator
+	 * before they are installed in the local repository of the cluster.
+	 * <p>
+	 * The localization tasks are only dispatched to build clusters if the localization is relocatable, as the local
+	 * paths of a cluster are not usable on other machines. Without it, the tasks run on the coordinator, and the
+	 * artifacts are not transferred.
+	 * <p>
+	 * The default is <code>false</code>.
+	 * 
+	 * @return <code>true</code> if cluster artifact sharing is enabled.
+	 * @since saker.maven.support 0.8.7
+	 */
+	public boolean isClusterArtifactSharing() {
+		return clusterArtifactSharing;
+	}
+
+	/**
+	 * Gets if the artifact localization results should be relocatable.
+	 * <p>
+	 * By default, the localization results and the dependencies of the localization tasks contain the absolute paths
+	 * of the artifacts in the local repository. As the default local repository is in the home directory of the user,
+	 * the results of equivalent builds differ on different machines or for different users.
+	 * <p>
+	 * If enabled, the results record the identifier of the local repository, and the path of the artifact relative to
+	 * it. The
+	 * {@linkplain saker.maven.support.api.localize.ArtifactLocalizationWorkerTaskOutput#getLocalPath() absolute
+	 * path} is resolved on the machine that uses the result. This allows the results to be shared through build caches
+	 * between machines.
+	 * <p>
+	 * The default is <code>false</code>.
+	 * 
+	 * @return <code>true</code> if the localization results are relocatable.
+	 * @see saker.maven.support.api.localize.ArtifactLocalizationWorkerTaskOutput#getRepositoryIdentifier()
+	 * @since saker.maven.support 0.8.7
+	 */
+	public boolean isRelocatableLocalization() {
+		return relocatableLocalization;
+	}
+
+	/**
+	 * Gets if the interrupted downloads from HTTP(S) repositories should be resumed.
+	 * <p>
+	 * If enabled, the files are downloaded from HTTP(S) repositories using the built-in HTTP client of the JVM
+	 * instead of Wagon. The partially downloaded files are resumed using range requests in the next attempt, if the
+	 * remote file hasn't changed since. The checksums sent by the server in the response headers are also used to
+	 * verify the downloads.
+	 * <p>
+	 * Repositories that are accessed through a proxy or use other authentication than username and password are
+	 * always accessed using Wagon. The setting doesn't affect uploads.
+	 * <p>
+	 * {@linkplain #getSegmentedDownloadThreshold() Segmented downloads} are performed by the same client, so they are
+	 * also used if segmented downloads are enabled.
+	 * <p>
+	 * The default is <code>false</code>.
+	 * 
+	 * @return <code>true</code> if HTTP downloads should be resumed.
+	 * @since saker.maven.support 0.8.7
+	 */
+	public boolean isResumableHttpDownloads() {
+		return resumableHttpDownloads;
+	}
+
 	@Override
 	public void writeExternal(ObjectOutput out) throws IOException {
 		out.writeObject(localRepositoryPath);
 		SerialUtils.writeExternalCollection(out, repositories);
+		out.writeBoolean(parallelRepositoryProbing);
+		out.writeBoolean(adaptiveRepositoryOrdering);
+		out.writeInt(downloadThreads);
+		out.writeInt(downloadThreadsPerHost);
+		out.writeLong(segmentedDownloadThreshold);
+		out.writeInt(segmentedDownloadConnections);
+		out.writeBoolean(trustChecksumFiles);
+		out.writeObject(materializationStrategy);
+		out.writeObject(downloadCachePath);
+		SerialUtils.writeExternalCollection(out, baseRepositoryPaths);
+		out.writeBoolean(simpleLocalRepositoryManager);
+		out.writeBoolean(localRepositoryCatalog);
+		out.writeBoolean(clusterArtifactSharing);
+		out.writeBoolean(relocatableLocalization);
+		out.writeBoolean(resumableHttpDownloads);
 	}
 
 	@Override
 	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
 		localRepositoryPath = (SakerPath) in.readObject();
 		repositories = SerialUtils.readExternalImmutableLinkedHashSet(in);
+		parallelRepositoryProbing = in.readBoolean();
+		adaptiveRepositoryOrdering = in.readBoolean();
+		downloadThreads = in.readInt();
+		downloadThreadsPerHost = in.readInt();
+		segmentedDownloadThreshold = in.readLong();
+		segmentedDownloadConnections = in.readInt();
+		trustChecksumFiles = in.readBoolean();
+		materializationStrategy = (String) in.readObject();
+		downloadCachePath = (SakerPath) in.readObject();
+		baseRepositoryPaths = SerialUtils.readExternalImmutableList(in);
+		simpleLocalRepositoryManager = in.readBoolean();
+		localRepositoryCatalog = in.readBoolean();
+		clusterArtifactSharing = in.readBoolean();
+		relocatableLocalization = in.readBoolean();
+		resumableHttpDownloads = in.readBoolean();
 	}
 
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
+		result = prime * result + (adaptiveRepositoryOrdering ? 1231 : 1237);
 		result = prime * result + ((localRepositoryPath == null) ? 0 : localRepositoryPath.hashCode());
+		result = prime * result + (parallelRepositoryProbing ? 1231 : 1237);
 		result = prime * result + ((repositories == null) ? 0 : repositories.hashCode());
+		result = prime * result + downloadThreads;
+		result = prime * result + downloadThreadsPerHost;
+		result = prime * result + (int) (segmentedDownloadThreshold ^ (segmentedDownloadThreshold >>> 32));
+		result = prime * result + segmentedDownloadConnections;
+		result = prime * result + (trustChecksumFiles ? 1231 : 1237);
+		result = prime * result + ((materializationStrategy == null) ? 0 : materializationStrategy.hashCode());
+		result = prime * result + ((downloadCachePath == null) ? 0 : downloadCachePath.hashCode());
+		result = prime * result + ((baseRepositoryPaths == null) ? 0 : baseRepositoryPaths.hashCode());
+		result = prime * result + (simpleLocalRepositoryManager ? 1231 : 1237);
+		result = prime * result + (localRepositoryCatalog ? 1231 : 1237);
+		result = prime * result + (clusterArtifactSharing ? 1231 : 1237);
+		result = prime * result + (relocatableLocalization ? 1231 : 1237);
+		result = prime * result + (resumableHttpDownloads ? 1231 : 1237);
 		return result;
 	}
 
@@ -889,23 +1297,80 @@ public final class MavenOperationConfiguration implements Externalizable {
 		if (getClass() != obj.getClass())
 			return false;
 		MavenOperationConfiguration other = (MavenOperationConfiguration) obj;
+		if (adaptiveRepositoryOrdering != other.adaptiveRepositoryOrdering)
+			return false;
 		if (localRepositoryPath == null) {
 			if (other.localRepositoryPath != null)
 				return false;
 		} else if (!localRepositoryPath.equals(other.localRepositoryPath))
 			return false;
+		if (parallelRepositoryProbing != other.parallelRepositoryProbing)
+			return false;
 		if (repositories == null) {
 			if (other.repositories != null)
 				return false;
 		} else if (!repositories.equals(other.repositories))
 			return false;
+		if (downloadThreads != other.downloadThreads)
+			return false;
+		if (downloadThreadsPerHost != other.downloadThreadsPerHost)
+			return false;
+		if (segmentedDownloadThreshold != other.segmentedDownloadThreshold)
+			return false;
+		if (segmentedDownloadConnections != other.segmentedDownloadConnections)
+			return false;
+		if (trustChecksumFiles != other.trustChecksumFiles)
+			return false;
+		if (materializationStrategy == null) {
+			if (other.materializationStrategy != null)
+				return false;
+		} else if (!materializationStrategy.equals(other.materializationStrategy))
+			return false;
+		if (downloadCachePath == null) {
+			if (other.downloadCachePath != null)
+				return false;
+		} else if (!downloadCachePath.equals(other.downloadCachePath))
+			return false;
+		if (baseRepositoryPaths == null) {
+			if (other.baseRepositoryPaths != null)
+				return false;
+		} else if (!baseRepositoryPaths.equals(other.baseRepositoryPaths))
+			return false;
+		if (simpleLocalRepositoryManager != other.simpleLocalRepositoryManager)
+			return false;
+		if (localRepositoryCatalog != other.localRepositoryCatalog)
+			return false;
+		if (clusterArtifactSharing != other.clusterArtifactSharing)
+			return false;
+		if (relocatableLocalization != other.relocatableLocalization)
+			return false;
+		if (resumableHttpDownloads != other.resumableHttpDownloads)
+			return false;
 		return true;
 	}
 
 	@Override
 	public String toString() {
 		return getClass().getSimpleName() + "[localRepositoryPath=" + localRepositoryPath + ", repositories="
-				+ repositories + "]";
+				+ repositories + (parallelRepositoryProbing ? ", parallelRepositoryProbing" : "")
+				+ (adaptiveRepositoryOrdering ? ", adaptiveRepositoryOrdering" : "")
+				+ (downloadThreads > 0 ? ", downloadThreads=" + downloadThreads : "")
+				+ (downloadThreadsPerHost > 0 ? ", downloadThreadsPerHost=" + downloadThreadsPerHost : "")
+				+ (segmentedDownloadThreshold > 0 ? ", segmentedDownloadThreshold=" + segmentedDownloadThreshold : "")
+				+ (segmentedDownloadConnections > 0
+						? ", segmentedDownloadConnections=" + segmentedDownloadConnections
+						: "")
+				+ (trustChecksumFiles ? ", trustChecksumFiles" : "")
+				+ (materializationStrategy != null ? ", materializationStrategy=" + materializationStrategy : "")
+				+ (downloadCachePath != null ? ", downloadCachePath=" + downloadCachePath : "")
+				+ (!ObjectUtils.isNullOrEmpty(baseRepositoryPaths) ? ", baseRepositoryPaths=" + baseRepositoryPaths
+						: "")
+				+ (simpleLocalRepositoryManager ? ", simpleLocalRepositoryManager" : "")
+				+ (localRepositoryCatalog ? ", localRepositoryCatalog" : "")
+				+ (clusterArtifactSharing ? ", clusterArtifactSharing" : "")
+				+ (relocatableLocalization ? ", relocatableLocalization" : "")
+				+ (resumableHttpDownloads ? ", resumableHttpDownloads" : "")
+				+ "]";
 	}
 
 	/**
@@ -991,6 +1456,21 @@ public final class MavenOperationConfiguration implements Externalizable {
 	public static final class Builder {
 		private SakerPath localRepositoryPath;
 		private Set<RepositoryConfiguration> repositories;
+		private boolean parallelRepositoryProbing;
+		private boolean adaptiveRepositoryOrdering;
+		private int downloadThreads = -1;
+		private int downloadThreadsPerHost = -1;
+		private long segmentedDownloadThreshold = -1;
+		private int segmentedDownloadConnections = -1;
+		private boolean trustChecksumFiles;
+		private String materializationStrategy;
+		private SakerPath downloadCachePath;
+		private List<SakerPath> baseRepositoryPaths = Collections.emptyList();
+		private boolean simpleLocalRepositoryManager;
+		private boolean localRepositoryCatalog;
+		private boolean clusterArtifactSharing;
+		private boolean relocatableLocalization;
+		private boolean resumableHttpDownloads;
 
 		protected Builder() {
 		}
@@ -1003,6 +1483,21 @@ public final class MavenOperationConfiguration implements Externalizable {
 		protected Builder(MavenOperationConfiguration copy) {
 			this.localRepositoryPath = copy.localRepositoryPath;
 			this.repositories = copy.repositories;
+			this.parallelRepositoryProbing = copy.parallelRepositoryProbing;
+			this.adaptiveRepositoryOrdering = copy.adaptiveRepositoryOrdering;
+			this.downloadThreads = copy.downloadThreads;
+			this.downloadThreadsPerHost = copy.downloadThreadsPerHost;
+			this.segmentedDownloadThreshold = copy.segmentedDownloadThreshold;
+			this.segmentedDownloadConnections = copy.segmentedDownloadConnections;
+			this.trustChecksumFiles = copy.trustChecksumFiles;
+			this.materializationStrategy = copy.materializationStrategy;
+			this.downloadCachePath = copy.downloadCachePath;
+			this.baseRepositoryPaths = copy.baseRepositoryPaths;
+			this.simpleLocalRepositoryManager = copy.simpleLocalRepositoryManager;
+			this.localRepositoryCatalog = copy.localRepositoryCatalog;
+			this.clusterArtifactSharing = copy.clusterArtifactSharing;
+			this.relocatableLocalization = copy.relocatableLocalization;
+			this.resumableHttpDownloads = copy.resumableHttpDownloads;
 		}
 
 		/**
@@ -1026,6 +1521,21 @@ public final class MavenOperationConfiguration implements Externalizable {
 			return this;
 		}
 
+		/**
+		 * Sets the local repository path to the default location of the machine that performs the operation.
+		 * <p>
+		 * The {@linkplain MavenOperationConfiguration#getLocalRepositoryPath() local repository path} of the built
+		 * configuration will be <code>null</code>, so the configuration doesn't contain a machine specific path.
+		 * 
+		 * @return <code>this</code>
+		 * @see MavenUtils#getDefaultMavenLocalRepositoryLocation(TaskContext)
+		 * @since saker.maven.support 0.8.7
+		 */
+		public Builder setDefaultLocalRepositoryPath() {
+			this.localRepositoryPath = null;
+			return this;
+		}
+
 		/**
 		 * Sets the {@linkplain MavenOperationConfiguration#getRepositories() repositories}.
 		 * <p>
@@ -1045,6 +1555,228 @@ public final class MavenOperationConfiguration implements Externalizable {
 			return this;
 		}
 
+		/**
+		 * Sets whether or not the remote repositories should be
+		 * {@linkplain MavenOperationConfiguration#isParallelRepositoryProbing() probed in parallel}.
+		 * 
+		 * @param parallelRepositoryProbing
+		 *            <code>true</code> to enable parallel probing.
+		 * @return <code>this</code>
+		 * @since saker.maven.support 0.8.7
+		 */
+		public Builder setParallelRepositoryProbing(boolean parallelRepositoryProbing) {
+			this.parallelRepositoryProbing = parallelRepositoryProbing;
+			return this;
+		}
+
+		/**
+		 * Sets whether or not the remote repositories should be
+		 * {@linkplain MavenOperationConfiguration#isAdaptiveRepositoryOrdering() ordered adaptively}.
+		 * 
+		 * @param adaptiveRepositoryOrdering
+		 *            <code>true</code> to enable adaptive ordering.
+		 * @return <code>this</code>
+		 * @since saker.maven.support 0.8.7
+		 */
+		public Builder setAdaptiveRepositoryOrdering(boolean adaptiveRepositoryOrdering) {
+			this.adaptiveRepositoryOrdering = adaptiveRepositoryOrdering;
+			return this;
+		}
+
+		/**
+		 * Sets the {@linkplain MavenOperationConfiguration#getDownloadThreads() download thread count}.
+		 * 
+		 * @param downloadThreads
+		 *            The number of threads. Non-positive values cause the default to be used.
+		 * @return <code>this</code>
+		 * @since saker.maven.support 0.8.7
+		 */
+		public Builder setDownloadThreads(int downloadThreads) {
+			this.downloadThreads = downloadThreads <= 0 ? -1 : downloadThreads;
+			return this;
+		}
+
+		/**
+		 * Sets the {@linkplain MavenOperationConfiguration#getDownloadThreadsPerHost() per-host transfer limit}.
+		 * 
+		 * @param downloadThreadsPerHost
+		 *            The number of concurrent transfers. Non-positive values cause the transfers not to be limited.
+		 * @return <code>this</code>
+		 * @since saker.maven.support 0.8.7
+		 */
+		public Builder setDownloadThreadsPerHost(int downloadThreadsPerHost) {
+			this.downloadThreadsPerHost = downloadThreadsPerHost <= 0 ? -1 : downloadThreadsPerHost;
+			return this;
+		}
+
+		/**
+		 * Sets the {@linkplain MavenOperationConfiguration#getSegmentedDownloadThreshold() segmented download
+		 * threshold}.
+		 * 
+		 * @param segmentedDownloadThreshold
+		 *            The threshold in bytes. Non-positive values disable segmented downloading.
+		 * @return <code>this</code>
+		 * @since saker.maven.support 0.8.7
+		 */
+		public Builder setSegmentedDownloadThreshold(long segmentedDownloadThreshold) {
+			this.segmentedDownloadThreshold = segmentedDownloadThreshold <= 0 ? -1 : segmentedDownloadThreshold;
+			return this;
+		}
+
+		/**
+		 * Sets the {@linkplain MavenOperationConfiguration#getSegmentedDownloadConnections() segmented download
+		 * connection count}.
+		 * 
+		 * @param segmentedDownloadConnections
+		 *            The number of connections. Non-positive values cause the default to be used.
+		 * @return <code>this</code>
+		 * @since saker.maven.support 0.8.7
+		 */
+		public Builder setSegmentedDownloadConnections(int segmentedDownloadConnections) {
+			this.segmentedDownloadConnections = segmentedDownloadConnections <= 0 ? -1
+					: segmentedDownloadConnections;
+			return this;
+		}
+
+		/**
+		 * Sets if the {@linkplain MavenOperationConfiguration#isTrustChecksumFiles() checksum files should be trusted}.
+		 * 
+		 * @param trustChecksumFiles
+		 *            <code>true</code> to trust the checksum files.
+		 * @return <code>this</code>
+		 * @since saker.maven.support 0.8.7
+		 */
+		public Builder setTrustChecksumFiles(boolean trustChecksumFiles) {
+			this.trustChecksumFiles = trustChecksumFiles;
+			return this;
+		}
+
+		/**
+		 * Sets the {@linkplain MavenOperationConfiguration#getMaterializationStrategy() materialization strategy} of
+		 * the downloaded artifacts.
+		 * 
+		 * @param materializationStrategy
+		 *            The strategy or <code>null</code> to use the default.
+		 * @return <code>this</code>
+		 * @since saker.maven.support 0.8.7
+		 */
+		public Builder setMaterializationStrategy(String materializationStrategy) {
+			this.materializationStrategy = materializationStrategy;
+			return this;
+		}
+
+		/**
+		 * Sets the {@linkplain MavenOperationConfiguration#getDownloadCachePath() download cache path}.
+		 * 
+		 * @param downloadCachePath
+		 *            The absolute local path of the cache or <code>null</code> to not use a download cache.
+		 * @return <code>this</code>
+		 * @throws InvalidPathFormatException
+		 *             If the path is not absolute.
+		 * @since saker.maven.support 0.8.7
+		 */
+		public Builder setDownloadCachePath(SakerPath downloadCachePath) throws InvalidPathFormatException {
+			if (downloadCachePath != null) {
+				SakerPathFiles.requireAbsolutePath(downloadCachePath);
+			}
+			this.downloadCachePath = downloadCachePath;
+			return this;
+		}
+
+		/**
+		 * Sets the {@linkplain MavenOperationConfiguration#getBaseRepositoryPaths() base repository paths}.
+		 * 
+		 * @param baseRepositoryPaths
+		 *            The absolute local paths of the base repositories in lookup order. <code>null</code> will cause
+		 *            the base repositories to be cleared.
+		 * @return <code>this</code>
+		 * @throws InvalidPathFormatException
+		 *             If a path is not absolute.
+		 * @since saker.maven.support 0.8.7
+		 */
+		public Builder setBaseRepositoryPaths(List<? extends SakerPath> baseRepositoryPaths)
+				throws InvalidPathFormatException {
+			if (baseRepositoryPaths == null) {
+				this.baseRepositoryPaths = Collections.emptyList();
+				return this;
+			}
+			for (SakerPath path : baseRepositoryPaths) {
+				SakerPathFiles.requireAbsolutePath(path);
+			}
+			this.baseRepositoryPaths = ImmutableUtils.makeImmutableList(baseRepositoryPaths);
+			return this;
+		}
+
+		/**
+		 * Sets if the {@linkplain MavenOperationConfiguration#isSimpleLocalRepositoryManager() simple local repository
+		 * manager} should be used.
+		 * 
+		 * @param simpleLocalRepositoryManager
+		 *            <code>true</code> to use the simple local repository manager.
+		 * @return <code>this</code>
+		 * @since saker.maven.support 0.8.7
+		 */
+		public Builder setSimpleLocalRepositoryManager(boolean simpleLocalRepositoryManager) {
+			this.simpleLocalRepositoryManager = simpleLocalRepositoryManager;
+			return this;
+		}
+
+		/**
+		 * Sets if the {@linkplain MavenOperationConfiguration#isLocalRepositoryCatalog() local repository catalog}
+		 * should be used.
+		 * 
+		 * @param localRepositoryCatalog
+		 *            <code>true</code> to use the local repository catalog.
+		 * @return <code>this</code>
+		 * @since saker.maven.support 0.8.7
+		 */
+		public Builder setLocalRepositoryCatalog(boolean localRepositoryCatalog) {
+			this.localRepositoryCatalog = localRepositoryCatalog;
+			return this;
+		}
+
+		/**
+		 * Sets if the artifacts should be {@linkplain MavenOperationConfiguration#isClusterArtifactSharing() shared
+		 * between the machines of a build cluster}.
+		 * 
+		 * @param clusterArtifactSharing
+		 *            <code>true</code> to enable cluster artifact sharing.
+		 * @return <code>this</code>
+		 * @since saker.maven.support 0.8.7
+		 */
+		public Builder setClusterArtifactSharing(boolean clusterArtifactSharing) {
+			this.clusterArtifactSharing = clusterArtifactSharing;
+			return this;
+		}
+
+		/**
+		 * Sets if the artifact localization results should be
+		 * {@linkplain MavenOperationConfiguration#isRelocatableLocalization() relocatable}.
+		 * 
+		 * @param relocatableLocalization
+		 *            <code>true</code> to make the localization results relocatable.
+		 * @return <code>this</code>
+		 * @since saker.maven.support 0.8.7
+		 */
+		public Builder setRelocatableLocalization(boolean relocatableLocalization) {
+			this.relocatableLocalization = relocatableLocalization;
+			return this;
+		}
+
+		/**
+		 * Sets if the interrupted downloads from HTTP(S) repositories should be
+		 * {@linkplain MavenOperationConfiguration#isResumableHttpDownloads() resumed}.
+		 * 
+		 * @param resumableHttpDownloads
+		 *            <code>true</code> to resume the HTTP downloads.
+		 * @return <code>this</code>
+		 * @since saker.maven.support 0.8.7
+		 */
+		public Builder setResumableHttpDownloads(boolean resumableHttpDownloads) {
+			this.resumableHttpDownloads = resumableHttpDownloads;
+			return this;
+		}
+
 		/**
 		 * Builds the {@link MavenOperationConfiguration}.
 		 * <p>
@@ -1056,6 +1788,21 @@ public final class MavenOperationConfiguration implements Externalizable {
 			MavenOperationConfiguration result = new MavenOperationConfiguration();
 			result.localRepositoryPath = this.localRepositoryPath;
 			result.repositories = repositories;
+			result.parallelRepositoryProbing = parallelRepositoryProbing;
+			result.adaptiveRepositoryOrdering = adaptiveRepositoryOrdering;
+			result.downloadThreads = downloadThreads;
+			result.downloadThreadsPerHost = downloadThreadsPerHost;
+			result.segmentedDownloadThreshold = segmentedDownloadThreshold;
+			result.segmentedDownloadConnections = segmentedDownloadConnections;
+			result.trustChecksumFiles = trustChecksumFiles;
+			result.materializationStrategy = materializationStrategy;
+			result.downloadCachePath = downloadCachePath;
+			result.baseRepositoryPaths = baseRepositoryPaths;
+			result.simpleLocalRepositoryManager = simpleLocalRepositoryManager;
+			result.localRepositoryCatalog = localRepositoryCatalog;
+			result.clusterArtifactSharing = clusterArtifactSharing;
+			result.relocatableLocalization = relocatableLocalization;
+			result.resumableHttpDownloads = resumableHttpDownloads;
 			return result;
 		}
 	}
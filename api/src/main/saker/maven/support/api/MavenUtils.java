@@ -29,6 +29,157 @@ public class MavenUtils {
 	 */
 	public static final String MAVEN_CENTRAL_REPOSITORY_URL = "https://repo.maven.apache.org/maven2/";
 
+	/**
+	 * Build environment user parameter that specifies the maximum number of concurrent network transfers for all Maven
+	 * operations in the build environment.
+	 * <p>
+	 * The limit is shared by all build tasks that retrieve artifacts from remote repositories, regardless of their
+	 * {@linkplain MavenOperationConfiguration#getDownloadThreads() configured download threads}. The value should be a
+	 * positive integer. If not specified, {@value #DEFAULT_GLOBAL_TRANSFER_LIMIT} is used.
+	 * 
+	 * @since saker.maven.support 0.8.7
+	 */
+	public static final String ENVIRONMENT_PARAMETER_GLOBAL_TRANSFER_LIMIT = "saker.maven.support.transfer.limit";
+
+	/**
+	 * The default value for the {@link #ENVIRONMENT_PARAMETER_GLOBAL_TRANSFER_LIMIT} build environment user parameter.
+	 * 
+	 * @since saker.maven.support 0.8.7
+	 */
+	public static final int DEFAULT_GLOBAL_TRANSFER_LIMIT = 64;
+
+	/**
+	 * Build environment user parameter that specifies the cache directory of the embedded caching proxy.
+	 * <p>
+	 * If specified, a pull-through caching HTTP proxy is started in the build environment, and the HTTP(S) remote
+	 * repositories without authentication are accessed through it. The release artifacts are cached persistently in
+	 * the specified directory, and concurrent requests for the same file are only downloaded once. The files are only
+	 * cached if they match the <code>.sha1</code> checksum of the remote repository.
+	 * <p>
+	 * The proxy listens on the port specified by {@link #ENVIRONMENT_PARAMETER_CACHING_PROXY_PORT}. It only serves
+	 * the requests that contain its random access token, which is written to the <code>.saker.maven.proxy</code> file
+	 * in the cache directory along with the port. If the port is already used by the proxy of another build
+	 * environment on the same machine with the same cache directory, that proxy is used instead.
+	 * <p>
+	 * Only one proxy is started in a JVM. If the proxy is already running with different parameters, it is used, and a
+	 * warning is reported.
+	 * 
+	 * @since saker.maven.support 0.8.7
+	 */
+	public static final String ENVIRONMENT_PARAMETER_CACHING_PROXY_DIRECTORY = "saker.maven.support.proxy.directory";
+
+	/**
+	 * Build environment user parameter that specifies the port of the embedded caching proxy.
+	 * <p>
+	 * If not specified, {@value #DEFAULT_CACHING_PROXY_PORT} is used.
+	 * 
+	 * @see #ENVIRONMENT_PARAMETER_CACHING_PROXY_DIRECTORY
+	 * @since saker.maven.support 0.8.7
+	 */
+	public static final String ENVIRONMENT_PARAMETER_CACHING_PROXY_PORT = "saker.maven.support.proxy.port";
+
+	/**
+	 * Build environment user parameter that specifies the address the embedded caching proxy binds to.
+	 * <p>
+	 * The proxy binds to the loopback address by default. Specify <code>0.0.0.0</code> or the address of a network
+	 * interface to serve the cached artifacts to other machines on the network. The other machines need the access
+	 * token of the proxy, see {@link #ENVIRONMENT_PARAMETER_CACHING_PROXY_URL}. The proxy is accessed using plain
+	 * HTTP, it should only be exposed on trusted networks.
+	 * 
+	 * @see #ENVIRONMENT_PARAMETER_CACHING_PROXY_DIRECTORY
+	 * @since saker.maven.support 0.8.7
+	 */
+	public static final String ENVIRONMENT_PARAMETER_CACHING_PROXY_BIND_ADDRESS = "saker.maven.support.proxy.bind";
+
+	/**
+	 * Build environment user parameter that specifies the URL of a caching proxy started by another build environment.
+	 * <p>
+	 * The URL is in the format of <code>http://host:port/token/</code>, where the port and the access token are the
+	 * ones in the <code>.saker.maven.proxy</code> file in the cache directory of the proxy. If specified, the HTTP(S)
+	 * remote repositories without authentication are accessed through the specified proxy, and no proxy is started in
+	 * the build environment.
+	 * 
+	 * @see #ENVIRONMENT_PARAMETER_CACHING_PROXY_DIRECTORY
+	 * @since saker.maven.support 0.8.7
+	 */
+	public static final String ENVIRONMENT_PARAMETER_CACHING_PROXY_URL = "saker.maven.support.proxy.url";
+
+	/**
+	 * The default value for the {@link #ENVIRONMENT_PARAMETER_CACHING_PROXY_PORT} build environment user parameter.
+	 * 
+	 * @since saker.maven.support 0.8.7
+	 */
+	public static final int DEFAULT_CACHING_PROXY_PORT = 18731;
+
+	/**
+	 * The default number of connections used to download an artifact in segments.
+	 * 
+	 * @see MavenOperationConfiguration#getSegmentedDownloadConnections()
+	 * @since saker.maven.support 0.8.7
+	 */
+	public static final int DEFAULT_SEGMENTED_DOWNLOAD_CONNECTIONS = 4;
+
+	/**
+	 * Materialization strategy that creates a hard link to the artifact in the local repository.
+	 * <p>
+	 * Hard links can only be created if the local repository and the build directory are on the same file system.
+	 * <p>
+	 * The materialized file shares its contents with the artifact in the local repository. If it is modified in place,
+	 * the artifact in the local repository is modified as well.
+	 * 
+	 * @see MavenOperationConfiguration#getMaterializationStrategy()
+	 * @since saker.maven.support 0.8.7
+	 */
+	public static final String MATERIALIZATION_STRATEGY_HARDLINK = "hardlink";
+	/**
+	 * Materialization strategy that copies the artifact in the local repository using a file channel transfer.
+	 * <p>
+	 * The contents are copied by the operating system without passing through the build process. Depending on the
+	 * operating system and the file systems, this may be an in-kernel copy or a server side copy on network file
+	 * systems. It is not guaranteed to share the data blocks of the files on copy-on-write file systems.
+	 * 
+	 * @see MavenOperationConfiguration#getMaterializationStrategy()
+	 * @since saker.maven.support 0.8.7
+	 */
+	public static final String MATERIALIZATION_STRATEGY_TRANSFER = "transfer";
+	/**
+	 * Materialization strategy that creates a symbolic link to the artifact in the local repository.
+	 * <p>
+	 * Writing to the materialized file modifies the artifact in the local repository.
+	 * 
+	 * @see MavenOperationConfiguration#getMaterializationStrategy()
+	 * @since saker.maven.support 0.8.7
+	 */
+	public static final String MATERIALIZATION_STRATEGY_SYMLINK = "symlink";
+	/**
+	 * Materialization strategy that copies the artifact from the local repository.
+	 * 
+	 * @see MavenOperationConfiguration#getMaterializationStrategy()
+	 * @since saker.maven.support 0.8.7
+	 */
+	public static final String MATERIALIZATION_STRATEGY_COPY = "copy";
+
+	/**
+	 * The default materialization strategy of the downloaded artifacts.
+	 * <p>
+	 * The artifacts are copied by default, as modifying linked files would modify the local repository.
+	 * 
+	 * @see MavenOperationConfiguration#getMaterializationStrategy()
+	 * @since saker.maven.support 0.8.7
+	 */
+	public static final String DEFAULT_MATERIALIZATION_STRATEGY = MATERIALIZATION_STRATEGY_COPY;
+
+	/**
+	 * The repository identifier of the default Maven local repository.
+	 * <p>
+	 * The identifier refers to the {@linkplain #getDefaultMavenLocalRepositoryLocation() default local repository} of
+	 * the machine the path of an artifact is resolved on, rather than the one it was localized on.
+	 * 
+	 * @see saker.maven.support.api.localize.ArtifactLocalizationWorkerTaskOutput#getRepositoryIdentifier()
+	 * @since saker.maven.support 0.8.7
+	 */
+	public static final String LOCAL_REPOSITORY_IDENTIFIER_DEFAULT = "default";
+
 	/**
 	 * Gets the default Maven repository location on the local file system.
 	 * <p>
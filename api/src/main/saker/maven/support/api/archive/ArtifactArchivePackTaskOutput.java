@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.api.archive;
+
+import java.util.Collection;
+
+import saker.build.file.path.SakerPath;
+import saker.maven.support.api.ArtifactCoordinates;
+
+/**
+ * Output of the artifact archive packing task.
+ * <p>
+ * The archive contains the artifact files, the POMs that are needed to read their descriptors (including parent POMs
+ * and imported BOMs) and the checksum files with their local repository relative paths.
+ * <p>
+ * Clients shouldn't implement this interface.
+ *
+ * @since saker.maven.support 0.8.7
+ */
+public interface ArtifactArchivePackTaskOutput {
+	/**
+	 * Gets the path of the written archive.
+	 * <p>
+	 * The archive is an output file of the build execution.
+	 *
+	 * @return The absolute execution path.
+	 */
+	public SakerPath getArchivePath();
+
+	/**
+	 * Gets the coordinates of the artifacts that were packed.
+	 *
+	 * @return The artifact coordinates.
+	 */
+	public Collection<ArtifactCoordinates> getCoordinates();
+
+	/**
+	 * Gets the number of files in the archive.
+	 *
+	 * @return The number of files.
+	 */
+	public int getFileCount();
+
+	/**
+	 * Gets the size of the archive.
+	 *
+	 * @return The number of bytes.
+	 */
+	public long getArchiveSize();
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.api.archive;
+
+import saker.build.file.path.SakerPath;
+
+/**
+ * Output of the artifact archive restoration task.
+ * <p>
+ * Clients shouldn't implement this interface.
+ *
+ * @since saker.maven.support 0.8.7
+ */
+public interface ArtifactArchiveRestoreTaskOutput {
+	/**
+	 * Gets the local path of the repository the archive was restored to.
+	 *
+	 * @return The absolute local file system path.
+	 */
+	public SakerPath getLocalRepositoryPath();
+
+	/**
+	 * Gets the number of files that were written to the repository.
+	 *
+	 * @return The number of files.
+	 */
+	public int getRestoredFileCount();
+
+	/**
+	 * Gets the number of bytes that were written to the repository.
+	 *
+	 * @return The number of bytes.
+	 */
+	public long getRestoredBytes();
+
+	/**
+	 * Gets the number of files that were already present in the repository with the same contents.
+	 *
+	 * @return The number of files.
+	 */
+	public int getSkippedFileCount();
+}
@@ -18,6 +18,8 @@ package saker.maven.support.api.localize;
 import saker.build.file.content.ContentDescriptor;
 import saker.build.file.path.SakerPath;
 import saker.maven.support.api.ArtifactCoordinates;
+import saker.maven.support.api.MavenOperationConfiguration;
+import saker.maven.support.api.MavenUtils;
 
 /**
  * Represents the result of a single Maven artifact localization task.
@@ -36,11 +38,41 @@ public interface ArtifactLocalizationWorkerTaskOutput {
 
 	/**
 	 * Gets the absolute local file system path of the localized artifact.
+	 * <p>
+	 * If the output is {@linkplain MavenOperationConfiguration#isRelocatableLocalization() relocatable}, the path is
+	 * resolved on the machine this method is called on, based on the {@linkplain #getRepositoryIdentifier()
+	 * repository identifier} and the {@linkplain #getRepositoryRelativePath() repository relative path}.
 	 * 
 	 * @return The path.
 	 */
 	public SakerPath getLocalPath();
 
+	/**
+	 * Gets the identifier of the local repository that contains the artifact.
+	 * <p>
+	 * The identifier is {@link MavenUtils#LOCAL_REPOSITORY_IDENTIFIER_DEFAULT} if the artifact is in the default local
+	 * repository. Otherwise it is the absolute path of the configured local repository or base repository that
+	 * contains the artifact.
+	 * 
+	 * @return The repository identifier, or <code>null</code> if the output is not relocatable.
+	 * @see MavenOperationConfiguration#isRelocatableLocalization()
+	 * @since saker.maven.support 0.8.7
+	 */
+	public default String getRepositoryIdentifier() {
+		return null;
+	}
+
+	/**
+	 * Gets the path of the artifact relative to the local repository that contains it.
+	 * 
+	 * @return The relative path, or <code>null</code> if the output is not relocatable.
+	 * @see #getRepositoryIdentifier()
+	 * @since saker.maven.support 0.8.7
+	 */
+	public default SakerPath getRepositoryRelativePath() {
+		return null;
+	}
+
 	/**
 	 * Gets the content descriptor of the localized artifact.
 	 * 
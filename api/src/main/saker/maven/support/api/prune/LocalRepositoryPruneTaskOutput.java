@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.api.prune;
+
+import saker.build.file.path.SakerPath;
+
+/**
+ * Output of the local repository pruning task.
+ * <p>
+ * The interface provides access to the statistics of the pruning.
+ * <p>
+ * Clients shouldn't implement this interface.
+ *
+ * @since saker.maven.support 0.8.7
+ */
+public interface LocalRepositoryPruneTaskOutput {
+	/**
+	 * Gets the local path of the pruned repository.
+	 *
+	 * @return The absolute local file system path.
+	 */
+	public SakerPath getLocalRepositoryPath();
+
+	/**
+	 * Gets the number of bytes that were freed by removing artifacts.
+	 *
+	 * @return The number of bytes.
+	 */
+	public long getFreedBytes();
+
+	/**
+	 * Gets the number of artifact versions that were removed.
+	 *
+	 * @return The number of versions.
+	 */
+	public int getRemovedVersionCount();
+
+	/**
+	 * Gets the total size of the repository after the pruning.
+	 *
+	 * @return The number of bytes.
+	 */
+	public long getRemainingBytes();
+}
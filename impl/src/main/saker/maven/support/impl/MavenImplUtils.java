@@ -19,14 +19,22 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
+import saker.build.exception.MissingConfigurationException;
 import saker.build.file.SakerFile;
 import saker.build.file.path.SakerPath;
 import saker.build.file.provider.LocalFileProvider;
@@ -42,8 +50,18 @@ import saker.maven.support.api.MavenOperationConfiguration.PrivateKeyAuthenticat
 import saker.maven.support.api.MavenOperationConfiguration.RepositoryConfiguration;
 import saker.maven.support.api.MavenOperationConfiguration.RepositoryPolicyConfiguration;
 import saker.maven.support.api.MavenUtils;
+import saker.maven.support.impl.content.ArtifactDigests;
+import saker.maven.support.impl.content.DownloadCache;
 import saker.maven.support.impl.dependency.ModelPackagingCollectorArtifactDescriptorReaderDelegate;
 import saker.maven.support.impl.dependency.option.ExclusionOption;
+import saker.maven.support.impl.proxy.CachingProxyServer;
+import saker.maven.support.impl.repository.CatalogLocalRepositoryManager;
+import saker.maven.support.impl.repository.LayeredLocalRepositoryManager;
+import saker.maven.support.impl.repository.LocalRepositoryAccessLog;
+import saker.maven.support.impl.repository.LocalRepositoryCatalog;
+import saker.maven.support.impl.transport.MonitoringTransporterFactory;
+import saker.maven.support.impl.transport.RepositoryStatistics;
+import saker.maven.support.impl.transport.TransferScheduler;
 import saker.maven.support.thirdparty.org.apache.maven.model.Model;
 import saker.maven.support.thirdparty.org.apache.maven.model.building.DefaultModelBuildingRequest;
 import saker.maven.support.thirdparty.org.apache.maven.model.building.ModelBuilder;
@@ -60,16 +78,21 @@ import saker.maven.support.thirdparty.org.apache.maven.wagon.ConnectionException
 import saker.maven.support.thirdparty.org.apache.maven.wagon.Wagon;
 import saker.maven.support.thirdparty.org.apache.maven.wagon.providers.http.HttpWagon;
 import saker.maven.support.thirdparty.org.eclipse.aether.AbstractRepositoryListener;
+import saker.maven.support.thirdparty.org.eclipse.aether.ConfigurationProperties;
 import saker.maven.support.thirdparty.org.eclipse.aether.DefaultRepositorySystemSession;
 import saker.maven.support.thirdparty.org.eclipse.aether.RepositoryEvent;
+import saker.maven.support.thirdparty.org.eclipse.aether.RepositorySystem;
 import saker.maven.support.thirdparty.org.eclipse.aether.RepositorySystemSession;
 import saker.maven.support.thirdparty.org.eclipse.aether.artifact.Artifact;
 import saker.maven.support.thirdparty.org.eclipse.aether.connector.basic.BasicRepositoryConnectorFactory;
 import saker.maven.support.thirdparty.org.eclipse.aether.graph.Exclusion;
 import saker.maven.support.thirdparty.org.eclipse.aether.impl.DefaultServiceLocator;
 import saker.maven.support.thirdparty.org.eclipse.aether.internal.impl.DefaultChecksumPolicyProvider;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalRepository;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalRepositoryManager;
 import saker.maven.support.thirdparty.org.eclipse.aether.repository.RemoteRepository;
 import saker.maven.support.thirdparty.org.eclipse.aether.repository.RepositoryPolicy;
+import saker.maven.support.thirdparty.org.eclipse.aether.resolution.ArtifactResult;
 import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.RepositoryConnectorFactory;
 import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.checksum.ChecksumPolicy;
 import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.checksum.ChecksumPolicyProvider;
@@ -77,15 +100,28 @@ import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport
 import saker.maven.support.thirdparty.org.eclipse.aether.spi.log.LoggerFactory;
 import saker.maven.support.thirdparty.org.eclipse.aether.transfer.ChecksumFailureException;
 import saker.maven.support.thirdparty.org.eclipse.aether.transfer.TransferResource;
-import saker.maven.support.thirdparty.org.eclipse.aether.transport.file.FileTransporterFactory;
 import saker.maven.support.thirdparty.org.eclipse.aether.transport.wagon.WagonProvider;
-import saker.maven.support.thirdparty.org.eclipse.aether.transport.wagon.WagonTransporterFactory;
 import saker.maven.support.thirdparty.org.eclipse.aether.util.repository.AuthenticationBuilder;
 
 public class MavenImplUtils {
 	public static final String DEFAULT_CHECKSUM_POLICY = RepositoryPolicy.CHECKSUM_POLICY_WARN;
 	public static final String DEFAULT_UPDATE_POLICY = RepositoryPolicy.UPDATE_POLICY_DAILY;
 
+	/**
+	 * The configuration property of the basic repository connector that specifies the number of download threads.
+	 */
+	public static final String CONFIG_PROPERTY_BASIC_CONNECTOR_THREADS = "aether.connector.basic.threads";
+	/**
+	 * Configuration property to keep the partially downloaded files in the local repository, and resume them in the
+	 * next attempt using range requests.
+	 */
+	public static final String CONFIG_PROPERTY_RESUME_DOWNLOADS = "aether.connector.resumeDownloads";
+	/**
+	 * The content type of the local repositories that selects the simple local repository manager which doesn't track
+	 * the origin of the artifacts.
+	 */
+	public static final String LOCAL_REPOSITORY_CONTENT_TYPE_SIMPLE = "simple";
+
 	private MavenImplUtils() {
 		throw new UnsupportedOperationException();
 	}
@@ -94,6 +130,146 @@ public class MavenImplUtils {
 		return repositorybasedir.resolve("saker.m2.repository.lock");
 	}
 
+	/**
+	 * Loads the {@linkplain ArtifactDigests persisted artifact digests} of the argument local repository.
+	 * <p>
+	 * Should be called while the repository lock is held. Failures are reported as ignored exceptions, as the digests
+	 * can be recomputed.
+	 */
+	public static void loadArtifactDigestIndex(TaskContext taskcontext, Path repositorydir) {
+		try {
+			ArtifactDigests.loadIndex(repositorydir);
+		} catch (IOException e) {
+			taskcontext.getTaskUtilities().reportIgnoredException(e);
+		}
+	}
+
+	/**
+	 * Stores the {@linkplain ArtifactDigests artifact digests} of the argument local repository.
+	 * <p>
+	 * Should be called while the repository lock is held. Failures are reported as ignored exceptions.
+	 */
+	public static void storeArtifactDigestIndex(TaskContext taskcontext, Path repositorydir) {
+		try {
+			ArtifactDigests.storeIndex(repositorydir);
+		} catch (IOException e) {
+			taskcontext.getTaskUtilities().reportIgnoredException(e);
+		}
+	}
+
+	/**
+	 * Stores the {@linkplain ArtifactDigests artifact digests} of the local repository that contains the argument lock
+	 * file, while holding the repository lock.
+	 * <p>
+	 * Failures are reported as ignored exceptions.
+	 */
+	//suppress the unused FileLock warning
+	@SuppressWarnings("try")
+	public static void storeArtifactDigestIndex(TaskContext taskcontext, SakerPath lockfilepath,
+			Path lockfilelocalpath) {
+		synchronized (getLocalRepositoryAccessSyncLock(lockfilepath)) {
+			try (FileChannel lockchannel = FileChannel.open(lockfilelocalpath, StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE);
+					FileLock lock = lockchannel.lock(0, Long.MAX_VALUE, false)) {
+				ArtifactDigests.storeIndex(lockfilelocalpath.getParent());
+			} catch (IOException e) {
+				taskcontext.getTaskUtilities().reportIgnoredException(e);
+			}
+		}
+	}
+
+	/**
+	 * Computes the {@linkplain ArtifactDigests digests} of the resolved artifacts in parallel, so the content
+	 * descriptors of them can be retrieved without reading the files on the task thread.
+	 */
+	public static void computeArtifactDigests(List<ArtifactResult> resolvedartifacts, boolean trustchecksumfiles)
+			throws InterruptedException {
+		if (ObjectUtils.isNullOrEmpty(resolvedartifacts)) {
+			return;
+		}
+		List<Path> paths = new ArrayList<>();
+		for (ArtifactResult result : resolvedartifacts) {
+			Artifact artifact = result.getArtifact();
+			if (artifact == null) {
+				continue;
+			}
+			File file = artifact.getFile();
+			if (file != null) {
+				paths.add(file.toPath());
+			}
+		}
+		ArtifactDigests.computeAll(paths, trustchecksumfiles);
+	}
+
+	/**
+	 * Records the access of the resolved artifacts in the {@linkplain LocalRepositoryAccessLog access log} of the
+	 * argument local repository.
+	 * <p>
+	 * Should be called while the repository lock is held. Failures are reported as ignored exceptions.
+	 */
+	public static void recordArtifactAccess(TaskContext taskcontext, Path repositorydir,
+			List<ArtifactResult> resolvedartifacts) {
+		if (ObjectUtils.isNullOrEmpty(resolvedartifacts)) {
+			return;
+		}
+		List<Path> paths = new ArrayList<>();
+		for (ArtifactResult result : resolvedartifacts) {
+			Artifact artifact = result.getArtifact();
+			if (artifact == null) {
+				continue;
+			}
+			File file = artifact.getFile();
+			if (file != null) {
+				paths.add(file.toPath());
+			}
+		}
+		try {
+			LocalRepositoryAccessLog.recordAccess(repositorydir, paths,
+					taskcontext.getExecutionContext().getBuildTimeMillis());
+		} catch (IOException e) {
+			taskcontext.getTaskUtilities().reportIgnoredException(e);
+		}
+	}
+
+	/**
+	 * Records the access of the argument artifact in the {@linkplain LocalRepositoryAccessLog access log} of the
+	 * argument local repository, while holding the repository lock.
+	 * <p>
+	 * Used when the up-to-date state of an artifact is checked, so the artifacts of the tasks that don't need to run
+	 * are recorded as well. The repository lock is not acquired if the access was already recorded in the current
+	 * build execution, or the access logging is not {@linkplain LocalRepositoryAccessLog#enable(Path) enabled} for
+	 * the repository.
+	 *
+	 * @throws IOException
+	 *             If the access cannot be recorded.
+	 */
+	//suppress the unused FileLock warning
+	@SuppressWarnings("try")
+	public static void recordArtifactAccess(SakerPath repositorybasedir, Path artifactfile, long buildtime)
+			throws IOException {
+		if (LocalRepositoryAccessLog.isRecorded(artifactfile, buildtime)) {
+			return;
+		}
+		SakerPath lockfilepath = getAccessLockFilePathInRepository(repositorybasedir);
+		Path lockfilelocalpath = LocalFileProvider.toRealPath(lockfilepath);
+		if (!artifactfile.toAbsolutePath().normalize().startsWith(lockfilelocalpath.getParent())) {
+			//e.g. in a base repository
+			return;
+		}
+		if (!LocalRepositoryAccessLog.isEnabled(lockfilelocalpath.getParent())) {
+			//the repository is not pruned
+			return;
+		}
+		synchronized (getLocalRepositoryAccessSyncLock(lockfilepath)) {
+			try (FileChannel lockchannel = FileChannel.open(lockfilelocalpath, StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE);
+					FileLock lock = lockchannel.lock(0, Long.MAX_VALUE, false)) {
+				LocalRepositoryAccessLog.recordAccess(lockfilelocalpath.getParent(),
+						Collections.singleton(artifactfile), buildtime);
+			}
+		}
+	}
+
 	public static String getLocalRepositoryAccessSyncLock(SakerPath lockfilepath) {
 		//lock on a VM common object to avoid overlapped exceptions
 		return ("maven.repository.lock:" + lockfilepath).toLowerCase(Locale.ENGLISH).intern();
@@ -114,6 +290,130 @@ public class MavenImplUtils {
 		return MavenUtils.getDefaultMavenLocalRepositoryLocation(taskcontext);
 	}
 
+	/**
+	 * Gets the local repository base directory without reporting a dependency on the default location.
+	 * <p>
+	 * Used for relocatable localization, where the results don't depend on the location of the default local
+	 * repository, as it is resolved on the machine that uses them.
+	 */
+	public static SakerPath getRepositoryBaseDirectoryDefaulted(MavenOperationConfiguration config) {
+		SakerPath result = config.getLocalRepositoryPath();
+		if (result != null) {
+			return result;
+		}
+		return MavenUtils.getDefaultMavenLocalRepositoryLocation();
+	}
+
+	/**
+	 * Gets the repository identifier of a local or base repository for relocatable localization results.
+	 * <p>
+	 * The default local repository is identified by {@link MavenUtils#LOCAL_REPOSITORY_IDENTIFIER_DEFAULT}
+	 * regardless of whether it was specified explicitly, so the identifier doesn't contain the machine specific
+	 * path.
+	 * 
+	 * @see #resolveLocalRepositoryIdentifier(String)
+	 */
+	public static String getLocalRepositoryIdentifier(SakerPath repositorybasedir) {
+		if (repositorybasedir.equals(getDefaultMavenLocalRepositoryLocationOrNull())) {
+			return MavenUtils.LOCAL_REPOSITORY_IDENTIFIER_DEFAULT;
+		}
+		return repositorybasedir.toString();
+	}
+
+	/**
+	 * Removes the local repository path from the argument configuration if it is relocatable and the path is the
+	 * default location.
+	 * <p>
+	 * The default location is resolved on the machine that performs the operation, so equivalent relocatable
+	 * localizations on machines with different home directories have the same configuration.
+	 */
+	public static MavenOperationConfiguration toRelocatableConfiguration(MavenOperationConfiguration config) {
+		SakerPath localrepopath = config.getLocalRepositoryPath();
+		if (!config.isRelocatableLocalization() || localrepopath == null
+				|| !localrepopath.equals(getDefaultMavenLocalRepositoryLocationOrNull())) {
+			return config;
+		}
+		return MavenOperationConfiguration.builder(config).setDefaultLocalRepositoryPath().build();
+	}
+
+	private static SakerPath getDefaultMavenLocalRepositoryLocationOrNull() {
+		try {
+			return MavenUtils.getDefaultMavenLocalRepositoryLocation();
+		} catch (MissingConfigurationException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Resolves the base directory of a repository identifier on the current machine.
+	 * 
+	 * @see #getLocalRepositoryIdentifier(SakerPath)
+	 */
+	public static SakerPath resolveLocalRepositoryIdentifier(String repositoryidentifier) {
+		if (MavenUtils.LOCAL_REPOSITORY_IDENTIFIER_DEFAULT.equals(repositoryidentifier)) {
+			return MavenUtils.getDefaultMavenLocalRepositoryLocation();
+		}
+		return SakerPath.valueOf(repositoryidentifier);
+	}
+
+	/**
+	 * Creates the local repository manager for the argument local repository.
+	 * <p>
+	 * If the configuration specifies {@linkplain MavenOperationConfiguration#getBaseRepositoryPaths() base
+	 * repositories}, they are layered below the local repository using a {@link LayeredLocalRepositoryManager}.
+	 * 
+	 * @param config
+	 *            May be <code>null</code>. In that case no base repositories are used.
+	 */
+	public static LocalRepositoryManager createLocalRepositoryManager(RepositorySystem reposystem,
+			RepositorySystemSession session, SakerPath repositorybasedir, MavenOperationConfiguration config) {
+		//the simple manager only checks the layout paths, and doesn't use the _remote.repositories tracking files
+		String contenttype = config != null && config.isSimpleLocalRepositoryManager()
+				? LOCAL_REPOSITORY_CONTENT_TYPE_SIMPLE
+				: "";
+		LocalRepositoryManager result = reposystem.newLocalRepositoryManager(session,
+				new LocalRepository(new File(repositorybasedir.toString()), contenttype));
+		if (config == null) {
+			return result;
+		}
+		if (config.isLocalRepositoryCatalog()) {
+			result = new CatalogLocalRepositoryManager(result,
+					LocalRepositoryCatalog.get(LocalFileProvider.toRealPath(repositorybasedir)),
+					config.isSimpleLocalRepositoryManager());
+		}
+		List<LocalRepositoryManager> bases = new ArrayList<>();
+		for (SakerPath basepath : config.getBaseRepositoryPaths()) {
+			if (basepath.equals(repositorybasedir)) {
+				continue;
+			}
+			bases.add(reposystem.newLocalRepositoryManager(session,
+					new LocalRepository(new File(basepath.toString()), contenttype)));
+		}
+		if (bases.isEmpty()) {
+			return result;
+		}
+		return new LayeredLocalRepositoryManager(result, bases);
+	}
+
+	/**
+	 * Gets the base directory of the local or base repository that contains the argument artifact path.
+	 * 
+	 * @return The containing repository base directory, or the local repository base directory if none of them
+	 *             contain the path.
+	 */
+	public static SakerPath getContainingRepositoryBaseDirectory(SakerPath artifactpath, SakerPath repositorybasedir,
+			MavenOperationConfiguration config) {
+		if (artifactpath.startsWith(repositorybasedir)) {
+			return repositorybasedir;
+		}
+		for (SakerPath basepath : config.getBaseRepositoryPaths()) {
+			if (artifactpath.startsWith(basepath)) {
+				return basepath;
+			}
+		}
+		return repositorybasedir;
+	}
+
 	public static void reportConfgurationBuildTrace(MavenOperationConfiguration config) {
 		if (saker.build.meta.Versions.VERSION_FULL_COMPOUND < 8_006) {
 			return;
@@ -172,6 +472,55 @@ public class MavenImplUtils {
 			}
 			props.put("Remote repositories", reposlist);
 		}
+		if (config.isParallelRepositoryProbing()) {
+			props.put("Parallel repository probing", true);
+		}
+		if (config.isAdaptiveRepositoryOrdering()) {
+			props.put("Adaptive repository ordering", true);
+		}
+		if (config.getDownloadThreads() > 0) {
+			props.put("Download threads", config.getDownloadThreads());
+		}
+		if (config.getDownloadThreadsPerHost() > 0) {
+			props.put("Download threads per host", config.getDownloadThreadsPerHost());
+		}
+		if (config.isResumableHttpDownloads()) {
+			props.put("Resumable HTTP downloads", true);
+		}
+		if (config.getSegmentedDownloadThreshold() > 0) {
+			props.put("Segmented download threshold", config.getSegmentedDownloadThreshold());
+			int connections = config.getSegmentedDownloadConnections();
+			props.put("Segmented download connections",
+					connections > 0 ? connections : MavenUtils.DEFAULT_SEGMENTED_DOWNLOAD_CONNECTIONS);
+		}
+		if (config.isTrustChecksumFiles()) {
+			props.put("Trust checksum files", true);
+		}
+		if (config.isSimpleLocalRepositoryManager()) {
+			props.put("Simple local repository manager", true);
+		}
+		if (config.isLocalRepositoryCatalog()) {
+			props.put("Local repository catalog", true);
+		}
+		if (config.getMaterializationStrategy() != null) {
+			props.put("Materialization strategy", config.getMaterializationStrategy());
+		}
+		if (config.getDownloadCachePath() != null) {
+			props.put("Download cache path", config.getDownloadCachePath().toString());
+		}
+		if (config.isClusterArtifactSharing()) {
+			props.put("Cluster artifact sharing", true);
+		}
+		if (config.isRelocatableLocalization()) {
+			props.put("Relocatable localization", true);
+		}
+		if (!ObjectUtils.isNullOrEmpty(config.getBaseRepositoryPaths())) {
+			List<String> basepaths = new ArrayList<>();
+			for (SakerPath basepath : config.getBaseRepositoryPaths()) {
+				basepaths.add(basepath.toString());
+			}
+			props.put("Base repository paths", basepaths);
+		}
 		BuildTrace.setValues(Collections.singletonMap("Maven configuration", props), BuildTrace.VALUE_CATEGORY_TASK);
 	}
 
@@ -181,6 +530,12 @@ public class MavenImplUtils {
 		addRepositoryPolicyBuildTrace(repo.getSnapshotPolicy(), "Snapshot policy", repoprops);
 		addRepositoryPolicyBuildTrace(repo.getReleasePolicy(), "Release policy", repoprops);
 		addRepositoryAuthenticationBuildTrace(repo.getAuthentication(), repoprops);
+		if (repo.getConnectTimeout() >= 0) {
+			repoprops.put("Connect timeout", repo.getConnectTimeout() + " ms");
+		}
+		if (repo.getReadTimeout() >= 0) {
+			repoprops.put("Read timeout", repo.getReadTimeout() + " ms");
+		}
 		return repoprops;
 	}
 
@@ -221,8 +576,8 @@ public class MavenImplUtils {
 	public static DefaultServiceLocator getDefaultServiceLocator() {
 		DefaultServiceLocator serviceLocator = MavenRepositorySystemUtils.newServiceLocator();
 		serviceLocator.addService(RepositoryConnectorFactory.class, BasicRepositoryConnectorFactory.class);
-		serviceLocator.addService(TransporterFactory.class, FileTransporterFactory.class);
-		serviceLocator.addService(TransporterFactory.class, WagonTransporterFactory.class);
+		//the file and wagon transporters are created by the monitoring factory
+		serviceLocator.addService(TransporterFactory.class, MonitoringTransporterFactory.class);
 		serviceLocator.setServices(WagonProvider.class, new WagonProvider() {
 			@Override
 			public void release(Wagon wagon) {
@@ -270,10 +625,173 @@ public class MavenImplUtils {
 		//don't use pom repositories
 		session.setIgnoreArtifactDescriptorRepositories(true);
 		session.setRepositoryListener(new TaskContextRepositorySessionListener(taskcontext));
+		session.setConfigProperty(CONFIG_PROPERTY_RESUME_DOWNLOADS, true);
+
+		if (config != null) {
+			Set<? extends RepositoryConfiguration> repos = config.getRepositories();
+			if (repos != null) {
+				for (RepositoryConfiguration repoconfig : repos) {
+					setRepositoryTimeouts(session, repoconfig);
+				}
+			}
+			int downloadthreads = config.getDownloadThreads();
+			if (downloadthreads > 0) {
+				session.setConfigProperty(CONFIG_PROPERTY_BASIC_CONNECTOR_THREADS, downloadthreads);
+			}
+			int globaltransferlimit = getGlobalTransferLimit(taskcontext);
+			TransferScheduler scheduler = new TransferScheduler(config.getDownloadThreadsPerHost(),
+					globaltransferlimit);
+			if (scheduler.getGlobalTransferLimit() != globaltransferlimit) {
+				SakerLog.warning().out(taskcontext)
+						.println("Global transfer limit " + globaltransferlimit
+								+ " is ignored, as the limit has already been set to "
+								+ scheduler.getGlobalTransferLimit() + " in the JVM.");
+			}
+			scheduler.setSegmentedDownloads(config.getSegmentedDownloadThreshold(),
+					config.getSegmentedDownloadConnections());
+			scheduler.setResumableHttpDownloads(config.isResumableHttpDownloads());
+			session.setConfigProperty(TransferScheduler.SESSION_CONFIG_PROPERTY, scheduler);
+			SakerPath downloadcachepath = config.getDownloadCachePath();
+			if (downloadcachepath != null) {
+				session.setConfigProperty(DownloadCache.SESSION_CONFIG_PROPERTY,
+						new DownloadCache(LocalFileProvider.toRealPath(downloadcachepath)));
+			}
+		}
 
 		return session;
 	}
 
+	public static int getGlobalTransferLimit(TaskContext taskcontext) {
+		String param = taskcontext.getExecutionContext().getEnvironment().getUserParameters()
+				.get(MavenUtils.ENVIRONMENT_PARAMETER_GLOBAL_TRANSFER_LIMIT);
+		if (param == null) {
+			return MavenUtils.DEFAULT_GLOBAL_TRANSFER_LIMIT;
+		}
+		try {
+			int result = Integer.parseInt(param.trim());
+			if (result > 0) {
+				return result;
+			}
+		} catch (NumberFormatException e) {
+			//invalid format, warn below
+		}
+		SakerLog.warning().out(taskcontext).println("Invalid value for "
+				+ MavenUtils.ENVIRONMENT_PARAMETER_GLOBAL_TRANSFER_LIMIT + " environment parameter: " + param);
+		return MavenUtils.DEFAULT_GLOBAL_TRANSFER_LIMIT;
+	}
+
+	/**
+	 * Routes the HTTP(S) remote repositories through the caching proxy if it is configured in the build environment.
+	 * <p>
+	 * The repositories with authentication or proxy configuration are accessed directly, as the files cached by the
+	 * proxy are served to every client. The routed repositories are registered at the proxy, as it only serves the
+	 * registered upstream repositories. If the registration fails, the repository is accessed directly.
+	 * 
+	 * @see MavenUtils#ENVIRONMENT_PARAMETER_CACHING_PROXY_DIRECTORY
+	 * @see MavenUtils#ENVIRONMENT_PARAMETER_CACHING_PROXY_URL
+	 */
+	public static List<RemoteRepository> routeThroughCachingProxy(TaskContext taskcontext,
+			List<RemoteRepository> repositories) {
+		URI proxyuri = getCachingProxyUri(taskcontext);
+		if (proxyuri == null) {
+			return repositories;
+		}
+		List<RemoteRepository> result = new ArrayList<>(repositories.size());
+		for (RemoteRepository repo : repositories) {
+			String protocol = repo.getProtocol();
+			if (("http".equalsIgnoreCase(protocol) || "https".equalsIgnoreCase(protocol))
+					&& repo.getAuthentication() == null && repo.getProxy() == null) {
+				try {
+					repo = new RemoteRepository.Builder(repo)
+							.setUrl(CachingProxyServer.toProxiedUrl(proxyuri, repo.getUrl())).build();
+				} catch (IOException e) {
+					SakerLog.warning().out(taskcontext).println(
+							"Failed to route Maven repository through caching proxy: " + repo.getUrl() + " - " + e);
+				}
+			}
+			result.add(repo);
+		}
+		return result;
+	}
+
+	private static URI getCachingProxyUri(TaskContext taskcontext) {
+		Map<String, String> params = taskcontext.getExecutionContext().getEnvironment().getUserParameters();
+		String url = params.get(MavenUtils.ENVIRONMENT_PARAMETER_CACHING_PROXY_URL);
+		if (!ObjectUtils.isNullOrEmpty(url)) {
+			try {
+				return new URI(url.endsWith("/") ? url : url + "/");
+			} catch (URISyntaxException e) {
+				SakerLog.warning().out(taskcontext).println("Invalid value for "
+						+ MavenUtils.ENVIRONMENT_PARAMETER_CACHING_PROXY_URL + " environment parameter: " + url);
+				return null;
+			}
+		}
+		String directory = params.get(MavenUtils.ENVIRONMENT_PARAMETER_CACHING_PROXY_DIRECTORY);
+		if (ObjectUtils.isNullOrEmpty(directory)) {
+			return null;
+		}
+		int port = MavenUtils.DEFAULT_CACHING_PROXY_PORT;
+		String portparam = params.get(MavenUtils.ENVIRONMENT_PARAMETER_CACHING_PROXY_PORT);
+		if (portparam != null) {
+			try {
+				port = Integer.parseInt(portparam.trim());
+			} catch (NumberFormatException e) {
+				port = -1;
+			}
+			if (port <= 0 || port > 0xFFFF) {
+				SakerLog.warning().out(taskcontext).println("Invalid value for "
+						+ MavenUtils.ENVIRONMENT_PARAMETER_CACHING_PROXY_PORT + " environment parameter: " + portparam);
+				return null;
+			}
+		}
+		try {
+			return CachingProxyServer.startOrGet(Paths.get(directory),
+					params.get(MavenUtils.ENVIRONMENT_PARAMETER_CACHING_PROXY_BIND_ADDRESS), port,
+					SakerLog.warning().out(taskcontext)::println);
+		} catch (IOException | RuntimeException e) {
+			SakerLog.warning().out(taskcontext)
+					.println("Failed to start Maven caching proxy on port " + port + ": " + e);
+			return null;
+		}
+	}
+
+	public static void setRepositoryTimeouts(DefaultRepositorySystemSession session,
+			RepositoryConfiguration repoconfig) {
+		String id = repoconfig.getId();
+		if (id == null) {
+			return;
+		}
+		int connecttimeout = repoconfig.getConnectTimeout();
+		if (connecttimeout >= 0) {
+			session.setConfigProperty(ConfigurationProperties.CONNECT_TIMEOUT + "." + id, connecttimeout);
+		}
+		int readtimeout = repoconfig.getReadTimeout();
+		if (readtimeout >= 0) {
+			session.setConfigProperty(ConfigurationProperties.REQUEST_TIMEOUT + "." + id, readtimeout);
+		}
+	}
+
+	public static List<RemoteRepository> orderRemoteRepositoriesAdaptively(TaskContext taskcontext,
+			List<RemoteRepository> repositories) {
+		Map<RemoteRepository, Long> skipped = new LinkedHashMap<>();
+		List<RemoteRepository> result = RepositoryStatistics.orderRepositories(repositories, skipped);
+		if (!skipped.isEmpty()) {
+			Map<String, Object> skippedtrace = new LinkedHashMap<>();
+			for (Entry<RemoteRepository, Long> entry : skipped.entrySet()) {
+				RemoteRepository repo = entry.getKey();
+				long seconds = (entry.getValue() + 999) / 1000;
+				SakerLog.warning().out(taskcontext).println("Skipping Maven repository " + repo.getId() + " ("
+						+ repo.getUrl() + ") due to repeated failures. Retrying in " + seconds + " seconds.");
+				skippedtrace.put(repo.getId() + "\t" + repo.getUrl(), "Retrying in " + seconds + " seconds");
+			}
+			if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_006) {
+				BuildTrace.setValues(Collections.singletonMap("Skipped repositories", skippedtrace),
+						BuildTrace.VALUE_CATEGORY_TASK);
+			}
+		}
+		return result;
+	}
+
 	public static Exclusion toExclusion(ExclusionOption excloption) {
 		String groupid = excloption.getGroupId();
 		String artifactid = excloption.getArtifactId();
@@ -526,6 +1044,8 @@ public class MavenImplUtils {
 
 			@Override
 			public boolean onChecksumMatch(String algorithm, int kind) {
+				//unofficial checksums are the ones sent in the response headers by the server
+				//accept them as authoritative, so the separate checksum files are not requested
 				return true;
 			}
 
@@ -46,6 +46,13 @@ public class MavenSupportImpl {
 		return new ArtifactDownloadWorkerTaskFactory(workinglocation, repositorybasedir, artifactrelpath, coordinates);
 	}
 
+	public static TaskFactory<? extends ArtifactDownloadWorkerTaskOutput> createArtifactDownloadTaskFactory(
+			String workinglocation, SakerPath repositorybasedir, SakerPath artifactrelpath,
+			ArtifactCoordinates coordinates, boolean trustchecksumfiles, String materializationstrategy) {
+		return new ArtifactDownloadWorkerTaskFactory(workinglocation, repositorybasedir, artifactrelpath, coordinates,
+				trustchecksumfiles, materializationstrategy);
+	}
+
 	public static TaskIdentifier createArtifactDownloadTaskIdentifier(String workinglocation, SakerPath relpath) {
 		return new ArtifactDownloadTaskIdentifierImpl(workinglocation, relpath);
 	}
@@ -76,6 +83,12 @@ public class MavenSupportImpl {
 		return new DownloadArtifactsWorkerTaskFactory(config, coordinates);
 	}
 
+	public static TaskFactory<? extends ArtifactDownloadTaskOutput> createDownloadArtifactsTaskFactory(
+			MavenOperationConfiguration config, Set<? extends ArtifactCoordinates> coordinates, int priority,
+			Map<? extends ArtifactCoordinates, String> scopes) {
+		return new DownloadArtifactsWorkerTaskFactory(config, coordinates, priority, scopes);
+	}
+
 	public static TaskIdentifier createDownloadArtifactsTaskIdentifier(MavenOperationConfiguration config,
 			Set<? extends ArtifactCoordinates> coordinates) {
 		return new DownloadArtifactsWorkerTaskFactory(config, coordinates);
@@ -86,6 +99,12 @@ public class MavenSupportImpl {
 		return new LocalizeArtifactsWorkerTaskFactory(config, coordinates);
 	}
 
+	public static TaskFactory<? extends ArtifactLocalizationTaskOutput> createLocalizeArtifactsTaskFactory(
+			MavenOperationConfiguration config, Set<? extends ArtifactCoordinates> coordinates, int priority,
+			Map<? extends ArtifactCoordinates, String> scopes) {
+		return new LocalizeArtifactsWorkerTaskFactory(config, coordinates, priority, scopes);
+	}
+
 	public static TaskIdentifier createLocalizeArtifactsTaskIdentifier(MavenOperationConfiguration config,
 			Set<? extends ArtifactCoordinates> coordinates) {
 		return new LocalizeArtifactsWorkerTaskFactory(config, coordinates);
@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.archive;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import saker.build.thirdparty.saker.util.thread.ParallelExecutionException;
+import saker.build.thirdparty.saker.util.thread.ThreadUtils;
+import saker.build.thirdparty.saker.util.thread.ThreadUtils.ThreadWorkPool;
+import saker.maven.support.impl.content.ArtifactDigests;
+
+/**
+ * Uncompressed archive of local repository files.
+ * <p>
+ * The archive starts with a header and an index of the entries, followed by the contents of the entries. Each index
+ * entry contains the repository relative path, size, data offset, and the {@value ArtifactDigests#DIGEST_ALGORITHM}
+ * digest of the file. As the index is at the start of the archive, it can be read with a single sequential read, and
+ * the entries can be extracted in parallel using positional reads.
+ */
+public final class ArtifactArchive {
+	private static final long MAGIC = 0x73616b65726d7661L;
+	private static final int FORMAT_VERSION = 1;
+
+	private ArtifactArchive() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Writes an archive.
+	 *
+	 * @param archive
+	 *            The path of the archive to write.
+	 * @param entries
+	 *            The repository relative paths of the entries using forward slashes mapped to the files.
+	 * @return The number of bytes written.
+	 * @throws IOException
+	 *             If the archive cannot be written, or a file was modified concurrently.
+	 */
+	public static long write(Path archive, Map<String, Path> entries) throws IOException {
+		List<Path> files = new ArrayList<>(entries.values());
+		try {
+			ArtifactDigests.computeAll(files, false);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted.", e);
+		}
+
+		ByteArrayOutputStream indexbytes = new ByteArrayOutputStream();
+		List<Long> sizes = new ArrayList<>();
+		try (DataOutputStream indexout = new DataOutputStream(indexbytes)) {
+			long offset = 0;
+			for (Entry<String, Path> entry : entries.entrySet()) {
+				Path file = entry.getValue();
+				BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+				byte[] digest = ArtifactDigests.getOrCompute(file, attrs);
+				indexout.writeUTF(entry.getKey());
+				indexout.writeLong(attrs.size());
+				indexout.writeLong(offset);
+				indexout.writeShort(digest.length);
+				indexout.write(digest);
+				sizes.add(attrs.size());
+				offset += attrs.size();
+			}
+		}
+
+		Path parent = archive.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		Path tempfile = archive.resolveSibling(archive.getFileName() + "." + UUID.randomUUID() + ".tmp");
+		try {
+			try (FileChannel out = FileChannel.open(tempfile, StandardOpenOption.CREATE_NEW,
+					StandardOpenOption.WRITE)) {
+				ByteBuffer header = ByteBuffer.allocate(8 + 4 + 4 + 4);
+				header.putLong(MAGIC);
+				header.putInt(FORMAT_VERSION);
+				header.putInt(entries.size());
+				header.putInt(indexbytes.size());
+				header.flip();
+				writeFully(out, header);
+				writeFully(out, ByteBuffer.wrap(indexbytes.toByteArray()));
+
+				int idx = 0;
+				for (Path file : files) {
+					long size = sizes.get(idx++);
+					try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+						if (in.size() != size) {
+							throw new IOException("File modified concurrently: " + file);
+						}
+						long position = out.position();
+						for (long transferred = 0; transferred < size;) {
+							transferred += out.transferFrom(in, position + transferred, size - transferred);
+						}
+						out.position(position + size);
+					}
+				}
+			}
+			Files.move(tempfile, archive, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tempfile);
+		}
+		return Files.size(archive);
+	}
+
+	/**
+	 * Restores the contents of an archive to a local repository.
+	 * <p>
+	 * The entries are extracted in parallel. The files that are already present with the same digest are skipped.
+	 *
+	 * @param archive
+	 *            The path of the archive.
+	 * @param repositorydir
+	 *            The root directory of the local repository.
+	 * @return The restoration result.
+	 * @throws IOException
+	 *             If the archive cannot be read, or a file cannot be written.
+	 */
+	public static RestoreResult restore(Path archive, Path repositorydir) throws IOException {
+		Path normalizedrepodir = repositorydir.toAbsolutePath().normalize();
+		List<IndexEntry> index = new ArrayList<>();
+		long datastart;
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(archive), 64 * 1024))) {
+			if (in.readLong() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				throw new IOException("Unrecognized artifact archive format: " + archive);
+			}
+			int count = in.readInt();
+			int indexsize = in.readInt();
+			datastart = 8 + 4 + 4 + 4 + (long) indexsize;
+			for (int i = 0; i < count; ++i) {
+				String path = in.readUTF();
+				long size = in.readLong();
+				long offset = in.readLong();
+				byte[] digest = new byte[in.readUnsignedShort()];
+				in.readFully(digest);
+				Path target = normalizedrepodir.resolve(path).normalize();
+				if (!target.startsWith(normalizedrepodir) || target.equals(normalizedrepodir)) {
+					throw new IOException("Invalid artifact archive entry: " + path);
+				}
+				index.add(new IndexEntry(path, target, size, offset, digest));
+			}
+		}
+
+		ConcurrentLinkedQueue<String> restoredpaths = new ConcurrentLinkedQueue<>();
+		AtomicLong restoredbytes = new AtomicLong();
+		AtomicInteger skippedcount = new AtomicInteger();
+		try (FileChannel archivechannel = FileChannel.open(archive, StandardOpenOption.READ);
+				ThreadWorkPool pool = ThreadUtils.newFixedWorkPool("Maven artifact archive restore-")) {
+			for (IndexEntry entry : index) {
+				pool.offer(() -> {
+					if (isPresent(entry)) {
+						skippedcount.incrementAndGet();
+						return;
+					}
+					extract(archivechannel, datastart, entry);
+					restoredpaths.add(entry.path);
+					restoredbytes.addAndGet(entry.size);
+				});
+			}
+			pool.closeInterruptible();
+		} catch (ParallelExecutionException e) {
+			throw new IOException("Failed to restore artifact archive: " + archive, e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted.", e);
+		}
+		return new RestoreResult(new ArrayList<>(restoredpaths), restoredbytes.get(), skippedcount.get());
+	}
+
+	private static boolean isPresent(IndexEntry entry) {
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(entry.target, BasicFileAttributes.class);
+			if (!attrs.isRegularFile() || attrs.size() != entry.size) {
+				return false;
+			}
+			return Arrays.equals(entry.digest, ArtifactDigests.getOrCompute(entry.target, attrs));
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static void extract(FileChannel archivechannel, long datastart, IndexEntry entry) throws IOException {
+		Path target = entry.target;
+		Files.createDirectories(target.getParent());
+		Path tempfile = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+		try {
+			try (FileChannel out = FileChannel.open(tempfile, StandardOpenOption.CREATE_NEW,
+					StandardOpenOption.WRITE)) {
+				long position = datastart + entry.offset;
+				for (long transferred = 0; transferred < entry.size;) {
+					long count = archivechannel.transferTo(position + transferred, entry.size - transferred, out);
+					if (count <= 0) {
+						throw new IOException("Unexpected end of artifact archive.");
+					}
+					transferred += count;
+				}
+			}
+			Files.move(tempfile, target, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tempfile);
+		}
+		//the digest is known, no need to read the file again
+		ArtifactDigests.put(target, Files.readAttributes(target, BasicFileAttributes.class), entry.digest);
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buf) throws IOException {
+		while (buf.hasRemaining()) {
+			channel.write(buf);
+		}
+	}
+
+	public static final class RestoreResult {
+		private final List<String> restoredPaths;
+		private final long restoredBytes;
+		private final int skippedCount;
+
+		public RestoreResult(List<String> restoredPaths, long restoredBytes, int skippedCount) {
+			this.restoredPaths = restoredPaths;
+			this.restoredBytes = restoredBytes;
+			this.skippedCount = skippedCount;
+		}
+
+		/**
+		 * Gets the repository relative paths of the restored files using forward slashes.
+		 */
+		public List<String> getRestoredPaths() {
+			return restoredPaths;
+		}
+
+		public int getRestoredCount() {
+			return restoredPaths.size();
+		}
+
+		public long getRestoredBytes() {
+			return restoredBytes;
+		}
+
+		public int getSkippedCount() {
+			return skippedCount;
+		}
+	}
+
+	private static final class IndexEntry {
+		protected final String path;
+		protected final Path target;
+		protected final long size;
+		protected final long offset;
+		protected final byte[] digest;
+
+		public IndexEntry(String path, Path target, long size, long offset, byte[] digest) {
+			this.path = path;
+			this.target = target;
+			this.size = size;
+			this.offset = offset;
+			this.digest = digest;
+		}
+	}
+}
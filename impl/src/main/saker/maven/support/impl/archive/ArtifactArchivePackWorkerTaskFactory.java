@@ -0,0 +1,388 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.archive;
+
+import java.io.Externalizable;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import saker.build.file.SakerDirectory;
+import saker.build.file.SakerFile;
+import saker.build.file.path.SakerPath;
+import saker.build.file.provider.LocalFileProvider;
+import saker.build.file.provider.SakerPathFiles;
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.runtime.execution.SakerLog;
+import saker.build.task.Task;
+import saker.build.task.TaskContext;
+import saker.build.task.TaskFactory;
+import saker.build.task.identifier.TaskIdentifier;
+import saker.build.thirdparty.saker.util.ImmutableUtils;
+import saker.build.thirdparty.saker.util.io.SerialUtils;
+import saker.maven.support.api.ArtifactCoordinates;
+import saker.maven.support.api.MavenOperationConfiguration;
+import saker.maven.support.api.archive.ArtifactArchivePackTaskOutput;
+import saker.maven.support.api.localize.ArtifactLocalizationTaskOutput;
+import saker.maven.support.api.localize.ArtifactLocalizationWorkerTaskOutput;
+import saker.maven.support.impl.ArtifactUtils;
+import saker.maven.support.impl.MavenImplUtils;
+import saker.maven.support.impl.MavenSupportImpl;
+import saker.maven.support.main.archive.PackArtifactArchiveTaskFactory;
+import saker.maven.support.thirdparty.org.eclipse.aether.AbstractRepositoryListener;
+import saker.maven.support.thirdparty.org.eclipse.aether.DefaultRepositorySystemSession;
+import saker.maven.support.thirdparty.org.eclipse.aether.RepositoryEvent;
+import saker.maven.support.thirdparty.org.eclipse.aether.RepositorySystem;
+import saker.maven.support.thirdparty.org.eclipse.aether.artifact.Artifact;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalRepositoryManager;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.RemoteRepository;
+import saker.maven.support.thirdparty.org.eclipse.aether.resolution.ArtifactDescriptorException;
+import saker.maven.support.thirdparty.org.eclipse.aether.resolution.ArtifactDescriptorRequest;
+import saker.maven.support.thirdparty.org.eclipse.aether.util.listener.ChainedRepositoryListener;
+
+public class ArtifactArchivePackWorkerTaskFactory implements TaskFactory<ArtifactArchivePackTaskOutput>,
+		Task<ArtifactArchivePackTaskOutput>, Externalizable, TaskIdentifier {
+	private static final long serialVersionUID = 1L;
+
+	private static final String[] CHECKSUM_EXTENSIONS = { ".sha1", ".md5" };
+	private static final String REMOTE_REPOSITORIES_FILE_NAME = "_remote.repositories";
+	private static final String POM_EXTENSION = "pom";
+
+	protected MavenOperationConfiguration configuration;
+	protected Set<? extends ArtifactCoordinates> artifacts;
+	protected SakerPath outputPath;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public ArtifactArchivePackWorkerTaskFactory() {
+	}
+
+	public ArtifactArchivePackWorkerTaskFactory(MavenOperationConfiguration configuration,
+			Set<? extends ArtifactCoordinates> artifacts, SakerPath outputPath) {
+		Objects.requireNonNull(configuration, "configuration");
+		Objects.requireNonNull(artifacts, "artifacts");
+		SakerPathFiles.requireAbsolutePath(outputPath);
+		this.configuration = configuration;
+		this.artifacts = ImmutableUtils.makeImmutableLinkedHashSet(artifacts);
+		this.outputPath = outputPath;
+	}
+
+	@Override
+	public Task<? extends ArtifactArchivePackTaskOutput> createTask(ExecutionContext executioncontext) {
+		return this;
+	}
+
+	@Override
+	public ArtifactArchivePackTaskOutput run(TaskContext taskcontext) throws Exception {
+		taskcontext.setStandardOutDisplayIdentifier(PackArtifactArchiveTaskFactory.TASK_NAME);
+		MavenImplUtils.reportConfgurationBuildTrace(configuration);
+
+		//localize the artifacts first, so they are present in the local repository
+		TaskIdentifier localizetaskid = MavenSupportImpl.createLocalizeArtifactsTaskIdentifier(configuration,
+				artifacts);
+		taskcontext.startTask(localizetaskid,
+				MavenSupportImpl.createLocalizeArtifactsTaskFactory(configuration, artifacts), null);
+		ArtifactLocalizationTaskOutput localizeoutput = (ArtifactLocalizationTaskOutput) taskcontext
+				.getTaskResult(localizetaskid);
+
+		SakerPath repositorybasedir = MavenImplUtils.getRepositoryBaseDirectoryDefaulted(taskcontext, configuration);
+
+		//sorted by the relative paths, so the archive is the same for the same artifacts
+		Map<String, Path> entries = new TreeMap<>();
+		for (ArtifactCoordinates acoords : artifacts) {
+			ArtifactLocalizationWorkerTaskOutput artifactoutput = (ArtifactLocalizationWorkerTaskOutput) localizeoutput
+					.getLocalizationResult(acoords).toResult(taskcontext);
+			addRepositoryFile(entries, artifactoutput.getLocalPath(), repositorybasedir);
+		}
+		for (SakerPath pompath : collectPomClosure(taskcontext, repositorybasedir)) {
+			addRepositoryFile(entries, pompath, repositorybasedir);
+		}
+
+		//written to the mirror directory, and added to the build as an output file
+		SakerDirectory outputdir = taskcontext.getTaskUtilities().resolveDirectoryAtPathCreate(outputPath.getParent());
+		Path outputlocalpath = taskcontext.getExecutionContext().toMirrorPath(outputPath);
+		long archivesize = ArtifactArchive.write(outputlocalpath, entries);
+		SakerFile archivefile = taskcontext.getTaskUtilities().createProviderPathFile(outputPath.getFileName(),
+				LocalFileProvider.getInstance().getPathKey(outputlocalpath));
+		outputdir.add(archivefile);
+		archivefile.synchronize();
+		taskcontext.getTaskUtilities().reportOutputFileDependency(null, archivefile);
+
+		SakerLog.log().out(taskcontext).verbose().println("Packed " + artifacts.size() + " artifacts ("
+				+ entries.size() + " files) to " + outputPath + " (" + archivesize + " bytes)");
+
+		return new ArtifactArchivePackTaskOutputImpl(outputPath, artifacts, entries.size(), archivesize);
+	}
+
+	/**
+	 * Collects the POMs that are needed to read the descriptors of the artifacts.
+	 * <p>
+	 * The descriptors are read using the repository system, and the resolved POMs are recorded. These include the
+	 * POMs of the artifacts, their parents, and the imported BOMs.
+	 */
+	//suppress the unused FileLock warning
+	@SuppressWarnings("try")
+	private NavigableSet<SakerPath> collectPomClosure(TaskContext taskcontext, SakerPath repositorybasedir)
+			throws IOException {
+		NavigableSet<SakerPath> result = new ConcurrentSkipListSet<>();
+
+		List<RemoteRepository> repositories = MavenImplUtils.createRemoteRepositories(configuration);
+		repositories = MavenImplUtils.routeThroughCachingProxy(taskcontext, repositories);
+
+		RepositorySystem reposystem = MavenImplUtils.getDefaultServiceLocator().getService(RepositorySystem.class);
+		DefaultRepositorySystemSession reposession = MavenImplUtils.createNewSession(taskcontext, configuration);
+		reposession.setRepositoryListener(
+				new ChainedRepositoryListener(reposession.getRepositoryListener(), new AbstractRepositoryListener() {
+					@Override
+					public void artifactResolved(RepositoryEvent event) {
+						Artifact artifact = event.getArtifact();
+						File file = event.getFile();
+						if (file != null && artifact != null && POM_EXTENSION.equals(artifact.getExtension())) {
+							result.add(SakerPath.valueOf(file.getAbsolutePath()));
+						}
+					}
+				}));
+		LocalRepositoryManager localrepomanager = MavenImplUtils.createLocalRepositoryManager(reposystem,
+				reposession, repositorybasedir, configuration);
+		reposession.setLocalRepositoryManager(localrepomanager);
+		reposession.setReadOnly();
+
+		SakerPath lockfilepath = MavenImplUtils.getAccessLockFilePathInRepository(repositorybasedir);
+		Path lockfilelocalpath = LocalFileProvider.toRealPath(lockfilepath);
+		synchronized (MavenImplUtils.getLocalRepositoryAccessSyncLock(lockfilepath)) {
+			try (FileChannel lockchannel = FileChannel.open(lockfilelocalpath, StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE);
+					FileLock lock = lockchannel.lock(0, Long.MAX_VALUE, false)) {
+				for (ArtifactCoordinates acoords : artifacts) {
+					try {
+						reposystem.readArtifactDescriptor(reposession,
+								new ArtifactDescriptorRequest(ArtifactUtils.toArtifact(acoords), repositories, null));
+					} catch (ArtifactDescriptorException e) {
+						//the POMs that were resolved are still packed
+						taskcontext.getTaskUtilities().reportIgnoredException(e);
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	private void addRepositoryFile(Map<String, Path> entries, SakerPath path, SakerPath repositorybasedir) {
+		SakerPath containingbasedir = MavenImplUtils.getContainingRepositoryBaseDirectory(path, repositorybasedir,
+				configuration);
+		if (!path.startsWith(containingbasedir)) {
+			return;
+		}
+		SakerPath relativepath = containingbasedir.relativize(path);
+		Path localpath = LocalFileProvider.toRealPath(path);
+		addWithChecksums(entries, relativepath, localpath);
+		addIfExists(entries, relativepath.getParent().resolve(REMOTE_REPOSITORIES_FILE_NAME),
+				localpath.resolveSibling(REMOTE_REPOSITORIES_FILE_NAME));
+	}
+
+	private static void addWithChecksums(Map<String, Path> entries, SakerPath relativepath, Path file) {
+		if (!addIfExists(entries, relativepath, file)) {
+			return;
+		}
+		for (String ext : CHECKSUM_EXTENSIONS) {
+			addIfExists(entries, relativepath.getParent().resolve(relativepath.getFileName() + ext),
+					file.resolveSibling(file.getFileName() + ext));
+		}
+	}
+
+	private static boolean addIfExists(Map<String, Path> entries, SakerPath relativepath, Path file) {
+		if (!Files.isRegularFile(file)) {
+			return false;
+		}
+		entries.put(relativepath.toString(), file);
+		return true;
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeObject(configuration);
+		SerialUtils.writeExternalCollection(out, artifacts);
+		out.writeObject(outputPath);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		configuration = (MavenOperationConfiguration) in.readObject();
+		artifacts = SerialUtils.readExternalImmutableLinkedHashSet(in);
+		outputPath = (SakerPath) in.readObject();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((artifacts == null) ? 0 : artifacts.hashCode());
+		result = prime * result + ((configuration == null) ? 0 : configuration.hashCode());
+		result = prime * result + ((outputPath == null) ? 0 : outputPath.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ArtifactArchivePackWorkerTaskFactory other = (ArtifactArchivePackWorkerTaskFactory) obj;
+		if (artifacts == null) {
+			if (other.artifacts != null)
+				return false;
+		} else if (!artifacts.equals(other.artifacts))
+			return false;
+		if (configuration == null) {
+			if (other.configuration != null)
+				return false;
+		} else if (!configuration.equals(other.configuration))
+			return false;
+		if (outputPath == null) {
+			if (other.outputPath != null)
+				return false;
+		} else if (!outputPath.equals(other.outputPath))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + (outputPath != null ? "outputPath=" + outputPath + ", " : "")
+				+ (artifacts != null ? "artifacts=" + artifacts : "") + "]";
+	}
+
+	private static final class ArtifactArchivePackTaskOutputImpl
+			implements ArtifactArchivePackTaskOutput, Externalizable {
+		private static final long serialVersionUID = 1L;
+
+		private SakerPath archivePath;
+		private Set<ArtifactCoordinates> coordinates;
+		private int fileCount;
+		private long archiveSize;
+
+		/**
+		 * For {@link Externalizable}.
+		 */
+		public ArtifactArchivePackTaskOutputImpl() {
+		}
+
+		public ArtifactArchivePackTaskOutputImpl(SakerPath archivePath,
+				Collection<? extends ArtifactCoordinates> coordinates, int fileCount, long archiveSize) {
+			this.archivePath = archivePath;
+			this.coordinates = ImmutableUtils.makeImmutableLinkedHashSet(coordinates);
+			this.fileCount = fileCount;
+			this.archiveSize = archiveSize;
+		}
+
+		@Override
+		public SakerPath getArchivePath() {
+			return archivePath;
+		}
+
+		@Override
+		public Collection<ArtifactCoordinates> getCoordinates() {
+			return coordinates;
+		}
+
+		@Override
+		public int getFileCount() {
+			return fileCount;
+		}
+
+		@Override
+		public long getArchiveSize() {
+			return archiveSize;
+		}
+
+		@Override
+		public void writeExternal(ObjectOutput out) throws IOException {
+			out.writeObject(archivePath);
+			SerialUtils.writeExternalCollection(out, coordinates);
+			out.writeInt(fileCount);
+			out.writeLong(archiveSize);
+		}
+
+		@Override
+		public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+			archivePath = (SakerPath) in.readObject();
+			coordinates = SerialUtils.readExternalImmutableLinkedHashSet(in);
+			fileCount = in.readInt();
+			archiveSize = in.readLong();
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + ((archivePath == null) ? 0 : archivePath.hashCode());
+			result = prime * result + (int) (archiveSize ^ (archiveSize >>> 32));
+			result = prime * result + ((coordinates == null) ? 0 : coordinates.hashCode());
+			result = prime * result + fileCount;
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			ArtifactArchivePackTaskOutputImpl other = (ArtifactArchivePackTaskOutputImpl) obj;
+			if (archivePath == null) {
+				if (other.archivePath != null)
+					return false;
+			} else if (!archivePath.equals(other.archivePath))
+				return false;
+			if (archiveSize != other.archiveSize)
+				return false;
+			if (coordinates == null) {
+				if (other.coordinates != null)
+					return false;
+			} else if (!coordinates.equals(other.coordinates))
+				return false;
+			if (fileCount != other.fileCount)
+				return false;
+			return true;
+		}
+
+		@Override
+		public String toString() {
+			return getClass().getSimpleName() + "[archivePath=" + archivePath + ", fileCount=" + fileCount
+					+ ", archiveSize=" + archiveSize + "]";
+		}
+	}
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.archive;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.UUID;
+
+import saker.build.file.content.ContentDescriptor;
+import saker.build.file.path.SakerPath;
+import saker.build.file.provider.LocalFileProvider;
+import saker.build.file.provider.SakerPathFiles;
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.runtime.execution.SakerLog;
+import saker.build.task.Task;
+import saker.build.task.TaskContext;
+import saker.build.task.TaskFactory;
+import saker.build.task.identifier.TaskIdentifier;
+import saker.maven.support.api.MavenOperationConfiguration;
+import saker.maven.support.api.archive.ArtifactArchiveRestoreTaskOutput;
+import saker.maven.support.impl.MavenImplUtils;
+import saker.maven.support.impl.archive.ArtifactArchive.RestoreResult;
+import saker.maven.support.impl.repository.LocalRepositoryCatalog;
+import saker.maven.support.main.archive.RestoreArtifactArchiveTaskFactory;
+import saker.std.api.util.SakerStandardUtils;
+
+public class ArtifactArchiveRestoreWorkerTaskFactory implements TaskFactory<ArtifactArchiveRestoreTaskOutput>,
+		Task<ArtifactArchiveRestoreTaskOutput>, Externalizable, TaskIdentifier {
+	private static final long serialVersionUID = 1L;
+
+	protected MavenOperationConfiguration configuration;
+	protected SakerPath archivePath;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public ArtifactArchiveRestoreWorkerTaskFactory() {
+	}
+
+	public ArtifactArchiveRestoreWorkerTaskFactory(MavenOperationConfiguration configuration, SakerPath archivePath) {
+		Objects.requireNonNull(configuration, "configuration");
+		SakerPathFiles.requireAbsolutePath(archivePath);
+		//we dont need the remote repositories, clear them.
+		this.configuration = MavenOperationConfiguration.builder(configuration).setRepositories(Collections.emptySet())
+				.build();
+		this.archivePath = archivePath;
+	}
+
+	@Override
+	public Task<? extends ArtifactArchiveRestoreTaskOutput> createTask(ExecutionContext executioncontext) {
+		return this;
+	}
+
+	//suppress the unused FileLock warning
+	@SuppressWarnings("try")
+	@Override
+	public ArtifactArchiveRestoreTaskOutput run(TaskContext taskcontext) throws Exception {
+		taskcontext.setStandardOutDisplayIdentifier(RestoreArtifactArchiveTaskFactory.TASK_NAME);
+		MavenImplUtils.reportConfgurationBuildTrace(configuration);
+
+		ContentDescriptor archivecd = taskcontext.getTaskUtilities().getReportExecutionDependency(
+				SakerStandardUtils.createLocalFileContentDescriptorExecutionProperty(archivePath, UUID.randomUUID()));
+		if (archivecd == null) {
+			throw new IOException("Artifact archive not found: " + archivePath);
+		}
+
+		MavenOperationConfiguration config = this.configuration;
+
+		SakerPath repositorybasedir = MavenImplUtils.getRepositoryBaseDirectoryDefaulted(taskcontext, config);
+
+		SakerPath lockfilepath = MavenImplUtils.getAccessLockFilePathInRepository(repositorybasedir);
+		Path lockfilelocalpath = LocalFileProvider.toRealPath(lockfilepath);
+
+		LocalFileProvider localfp = LocalFileProvider.getInstance();
+		localfp.createDirectories(lockfilelocalpath.getParent());
+
+		Path archivelocalpath = LocalFileProvider.toRealPath(archivePath);
+		RestoreResult restoreresult;
+		synchronized (MavenImplUtils.getLocalRepositoryAccessSyncLock(lockfilepath)) {
+			try (FileChannel lockchannel = FileChannel.open(lockfilelocalpath, StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE);
+					FileLock lock = lockchannel.lock(0, Long.MAX_VALUE, false)) {
+				Path repositorylocalpath = lockfilelocalpath.getParent();
+				MavenImplUtils.loadArtifactDigestIndex(taskcontext, repositorylocalpath);
+
+				restoreresult = ArtifactArchive.restore(archivelocalpath, repositorylocalpath);
+
+				if (config.isLocalRepositoryCatalog()) {
+					LocalRepositoryCatalog catalog = LocalRepositoryCatalog.get(repositorylocalpath);
+					for (String path : restoreresult.getRestoredPaths()) {
+						catalog.recordAdded(path, Files.size(repositorylocalpath.resolve(path)));
+					}
+				}
+				MavenImplUtils.storeArtifactDigestIndex(taskcontext, repositorylocalpath);
+			}
+		}
+		SakerLog.log().out(taskcontext).verbose()
+				.println("Restored " + restoreresult.getRestoredCount() + " files (" + restoreresult.getRestoredBytes()
+						+ " bytes) from " + archivePath + " to " + repositorybasedir + ". ("
+						+ restoreresult.getSkippedCount() + " files already present)");
+
+		return new ArtifactArchiveRestoreTaskOutputImpl(repositorybasedir, restoreresult.getRestoredCount(),
+				restoreresult.getRestoredBytes(), restoreresult.getSkippedCount());
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeObject(configuration);
+		out.writeObject(archivePath);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		configuration = (MavenOperationConfiguration) in.readObject();
+		archivePath = (SakerPath) in.readObject();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((archivePath == null) ? 0 : archivePath.hashCode());
+		result = prime * result + ((configuration == null) ? 0 : configuration.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ArtifactArchiveRestoreWorkerTaskFactory other = (ArtifactArchiveRestoreWorkerTaskFactory) obj;
+		if (archivePath == null) {
+			if (other.archivePath != null)
+				return false;
+		} else if (!archivePath.equals(other.archivePath))
+			return false;
+		if (configuration == null) {
+			if (other.configuration != null)
+				return false;
+		} else if (!configuration.equals(other.configuration))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + (archivePath != null ? "archivePath=" + archivePath : "") + "]";
+	}
+
+	private static final class ArtifactArchiveRestoreTaskOutputImpl
+			implements ArtifactArchiveRestoreTaskOutput, Externalizable {
+		private static final long serialVersionUID = 1L;
+
+		private SakerPath localRepositoryPath;
+		private int restoredFileCount;
+		private long restoredBytes;
+		private int skippedFileCount;
+
+		/**
+		 * For {@link Externalizable}.
+		 */
+		public ArtifactArchiveRestoreTaskOutputImpl() {
+		}
+
+		public ArtifactArchiveRestoreTaskOutputImpl(SakerPath localRepositoryPath, int restoredFileCount,
+				long restoredBytes, int skippedFileCount) {
+			this.localRepositoryPath = localRepositoryPath;
+			this.restoredFileCount = restoredFileCount;
+			this.restoredBytes = restoredBytes;
+			this.skippedFileCount = skippedFileCount;
+		}
+
+		@Override
+		public SakerPath getLocalRepositoryPath() {
+			return localRepositoryPath;
+		}
+
+		@Override
+		public int getRestoredFileCount() {
+			return restoredFileCount;
+		}
+
+		@Override
+		public long getRestoredBytes() {
+			return restoredBytes;
+		}
+
+		@Override
+		public int getSkippedFileCount() {
+			return skippedFileCount;
+		}
+
+		@Override
+		public void writeExternal(ObjectOutput out) throws IOException {
+			out.writeObject(localRepositoryPath);
+			out.writeInt(restoredFileCount);
+			out.writeLong(restoredBytes);
+			out.writeInt(skippedFileCount);
+		}
+
+		@Override
+		public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+			localRepositoryPath = (SakerPath) in.readObject();
+			restoredFileCount = in.readInt();
+			restoredBytes = in.readLong();
+			skippedFileCount = in.readInt();
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + ((localRepositoryPath == null) ? 0 : localRepositoryPath.hashCode());
+			result = prime * result + (int) (restoredBytes ^ (restoredBytes >>> 32));
+			result = prime * result + restoredFileCount;
+			result = prime * result + skippedFileCount;
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			ArtifactArchiveRestoreTaskOutputImpl other = (ArtifactArchiveRestoreTaskOutputImpl) obj;
+			if (localRepositoryPath == null) {
+				if (other.localRepositoryPath != null)
+					return false;
+			} else if (!localRepositoryPath.equals(other.localRepositoryPath))
+				return false;
+			if (restoredBytes != other.restoredBytes)
+				return false;
+			if (restoredFileCount != other.restoredFileCount)
+				return false;
+			if (skippedFileCount != other.skippedFileCount)
+				return false;
+			return true;
+		}
+
+		@Override
+		public String toString() {
+			return getClass().getSimpleName() + "[localRepositoryPath=" + localRepositoryPath + ", restoredFileCount="
+					+ restoredFileCount + ", restoredBytes=" + restoredBytes + ", skippedFileCount=" + skippedFileCount
+					+ "]";
+		}
+	}
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.cluster;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.UUID;
+
+import saker.build.file.SakerFile;
+import saker.build.file.content.ContentDescriptor;
+import saker.build.file.path.SakerPath;
+import saker.build.file.provider.LocalFileProvider;
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.task.TaskContext;
+import saker.build.task.identifier.TaskIdentifier;
+import saker.build.thirdparty.saker.util.StringUtils;
+import saker.maven.support.api.ArtifactCoordinates;
+import saker.maven.support.api.MavenOperationConfiguration;
+import saker.maven.support.api.download.ArtifactDownloadTaskOutput;
+import saker.maven.support.api.download.ArtifactDownloadWorkerTaskOutput;
+import saker.maven.support.impl.MavenSupportImpl;
+import saker.maven.support.impl.content.ArtifactDigests;
+import saker.maven.support.impl.content.ArtifactHashContentDescriptor;
+import saker.maven.support.thirdparty.org.eclipse.aether.RepositorySystemSession;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalArtifactRegistration;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalArtifactRequest;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalRepositoryManager;
+import saker.maven.support.thirdparty.org.eclipse.aether.resolution.ArtifactRequest;
+
+/**
+ * Retrieves the artifacts that are missing from the local repository of a build cluster through the coordinator of
+ * the build.
+ * <p>
+ * The artifacts are downloaded by the artifact download task. It is not remote dispatchable, so it always runs on the
+ * coordinator, and downloads into the local repository of the coordinator. A download task is started for each
+ * artifact, identified by the configuration and the coordinates of the artifact, so the clusters that miss the same
+ * artifact share the same download task, and each artifact is retrieved from the remote repositories only once.
+ * <p>
+ * The downloaded files are read through the execution file system, which streams the contents from the coordinator
+ * over the build cluster connection. The contents are written to a temporary file next to the location of the
+ * artifact in the local repository while computing their digest. The file is only installed if the digest matches
+ * the one computed on the coordinator.
+ * <p>
+ * If the coordinator fails to retrieve an artifact, it is resolved from the remote repositories as usual. If the task
+ * runs on the coordinator, the artifacts are not transferred, but resolved from the remote repositories as usual.
+ */
+public final class ClusterArtifactSharing {
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private ClusterArtifactSharing() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Checks if the task is running on the coordinator of the build.
+	 * <p>
+	 * The working directory of the build is accessed through the local file provider on the coordinator, and through
+	 * the file provider of the coordinator on the clusters.
+	 *
+	 * @param taskcontext
+	 *            The task context.
+	 * @return <code>true</code> if the task is running on the coordinator.
+	 */
+	public static boolean isRunningOnCoordinator(TaskContext taskcontext) {
+		ExecutionContext executioncontext = taskcontext.getExecutionContext();
+		return LocalFileProvider.getProviderKeyStatic().equals(executioncontext
+				.getPathKey(executioncontext.getExecutionWorkingDirectoryPath()).getFileProviderKey());
+	}
+
+	/**
+	 * Gets the requested artifacts that are not available in the local repository.
+	 *
+	 * @param session
+	 *            The repository session with the local repository manager set.
+	 * @param artifactrequests
+	 *            The artifact requests mapped to their coordinates.
+	 * @return The requests of the missing artifacts mapped by their coordinates.
+	 */
+	public static Map<ArtifactCoordinates, ArtifactRequest> getMissingArtifacts(RepositorySystemSession session,
+			Map<ArtifactRequest, ArtifactCoordinates> artifactrequests) {
+		Map<ArtifactCoordinates, ArtifactRequest> result = new LinkedHashMap<>();
+		for (Entry<ArtifactRequest, ArtifactCoordinates> entry : artifactrequests.entrySet()) {
+			if (!isAvailable(session, entry.getKey())) {
+				result.put(entry.getValue(), entry.getKey());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Downloads the artifacts on the coordinator, and transfers them to temporary files in the local repository.
+	 * <p>
+	 * The local repository is not modified other than creating the temporary files. They should be installed using
+	 * {@link #install(RepositorySystemSession, List)} while holding the lock of the local repository.
+	 * <p>
+	 * Failures to retrieve or transfer an artifact are reported as ignored exceptions, and the artifact is omitted
+	 * from the result.
+	 *
+	 * @param taskcontext
+	 *            The task context.
+	 * @param config
+	 *            The configuration to download the artifacts with.
+	 * @param artifacts
+	 *            The requests of the artifacts to transfer mapped by their coordinates.
+	 * @param session
+	 *            The repository session with the local repository manager set.
+	 * @param repositorylocalpath
+	 *            The local path of the local repository.
+	 * @return The transferred artifacts.
+	 */
+	public static List<TransferredArtifact> transferFromCoordinator(TaskContext taskcontext,
+			MavenOperationConfiguration config, Map<ArtifactCoordinates, ArtifactRequest> artifacts,
+			RepositorySystemSession session, Path repositorylocalpath) {
+		List<TransferredArtifact> result = new ArrayList<>();
+		if (artifacts.isEmpty()) {
+			return result;
+		}
+		//a task for each artifact, so they are shared with other tasks that miss the same artifact
+		Map<ArtifactCoordinates, TaskIdentifier> downloadtaskids = new LinkedHashMap<>();
+		for (ArtifactCoordinates acoords : artifacts.keySet()) {
+			Set<ArtifactCoordinates> coordinates = Collections.singleton(acoords);
+			TaskIdentifier downloadtaskid = MavenSupportImpl.createDownloadArtifactsTaskIdentifier(config,
+					coordinates);
+			taskcontext.startTask(downloadtaskid,
+					MavenSupportImpl.createDownloadArtifactsTaskFactory(config, coordinates), null);
+			downloadtaskids.put(acoords, downloadtaskid);
+		}
+
+		LocalRepositoryManager localrepomanager = session.getLocalRepositoryManager();
+		for (Entry<ArtifactCoordinates, ArtifactRequest> entry : artifacts.entrySet()) {
+			ArtifactCoordinates acoords = entry.getKey();
+			ArtifactRequest request = entry.getValue();
+			try {
+				ArtifactDownloadTaskOutput downloadoutput = (ArtifactDownloadTaskOutput) taskcontext
+						.getTaskResult(downloadtaskids.get(acoords));
+				ArtifactDownloadWorkerTaskOutput artifactoutput = (ArtifactDownloadWorkerTaskOutput) downloadoutput
+						.getDownloadResult(acoords).toResult(taskcontext);
+				if (isAvailable(session, request)) {
+					//downloaded into the same local repository
+					continue;
+				}
+				Path target = repositorylocalpath
+						.resolve(localrepomanager.getPathForLocalArtifact(request.getArtifact()));
+				result.add(transfer(taskcontext, request, artifactoutput, target));
+			} catch (Exception e) {
+				taskcontext.getTaskUtilities().reportIgnoredException(e);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Installs the transferred artifacts in the local repository.
+	 * <p>
+	 * The artifacts that became available in the local repository since they were transferred are not overwritten.
+	 * The temporary files are deleted in any case.
+	 * <p>
+	 * The lock of the local repository should be held by the caller.
+	 *
+	 * @param session
+	 *            The repository session with the local repository manager set.
+	 * @param artifacts
+	 *            The transferred artifacts.
+	 * @throws IOException
+	 *             If the installation fails.
+	 */
+	public static void install(RepositorySystemSession session, List<TransferredArtifact> artifacts)
+			throws IOException {
+		LocalRepositoryManager localrepomanager = session.getLocalRepositoryManager();
+		IOException exc = null;
+		for (TransferredArtifact transferred : artifacts) {
+			try {
+				if (isAvailable(session, transferred.request)) {
+					continue;
+				}
+				Files.move(transferred.tempFile, transferred.target, StandardCopyOption.REPLACE_EXISTING);
+				ArtifactDigests.put(transferred.target,
+						Files.readAttributes(transferred.target, BasicFileAttributes.class), transferred.digest);
+				localrepomanager.add(session, new LocalArtifactRegistration(
+						transferred.request.getArtifact().setFile(transferred.target.toFile())));
+			} catch (IOException e) {
+				if (exc == null) {
+					exc = e;
+				} else {
+					exc.addSuppressed(e);
+				}
+			} finally {
+				Files.deleteIfExists(transferred.tempFile);
+			}
+		}
+		if (exc != null) {
+			throw exc;
+		}
+	}
+
+	/**
+	 * Deletes the temporary files of the transferred artifacts.
+	 *
+	 * @param artifacts
+	 *            The transferred artifacts.
+	 */
+	public static void discard(List<TransferredArtifact> artifacts) {
+		for (TransferredArtifact transferred : artifacts) {
+			try {
+				Files.deleteIfExists(transferred.tempFile);
+			} catch (IOException e) {
+				// XXX log exception?
+			}
+		}
+	}
+
+	private static boolean isAvailable(RepositorySystemSession session, ArtifactRequest request) {
+		return session.getLocalRepositoryManager().find(session, new LocalArtifactRequest(request.getArtifact(),
+				request.getRepositories(), request.getRequestContext())).isAvailable();
+	}
+
+	private static TransferredArtifact transfer(TaskContext taskcontext, ArtifactRequest request,
+			ArtifactDownloadWorkerTaskOutput artifactoutput, Path target) throws IOException {
+		SakerPath artifactpath = artifactoutput.getPath();
+		ContentDescriptor contentdescriptor = artifactoutput.getContentDescriptor();
+		if (!(contentdescriptor instanceof ArtifactHashContentDescriptor)) {
+			throw new IOException("Cannot verify the contents of the artifact transferred from the coordinator: "
+					+ artifactpath + " with content descriptor: " + contentdescriptor);
+		}
+		byte[] expecteddigest = ((ArtifactHashContentDescriptor) contentdescriptor).getHash();
+		SakerFile file = taskcontext.getTaskUtilities().resolveFileAtPath(artifactpath);
+		if (file == null) {
+			throw new FileNotFoundException("Artifact not found on the coordinator: " + artifactpath);
+		}
+		taskcontext.reportInputFileDependency(null, artifactpath, contentdescriptor);
+
+		Files.createDirectories(target.getParent());
+		Path tempfile = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+		MessageDigest digest = ArtifactDigests.newMessageDigest();
+		try {
+			try (InputStream is = file.openInputStream();
+					OutputStream os = Files.newOutputStream(tempfile, StandardOpenOption.CREATE_NEW)) {
+				byte[] buffer = new byte[BUFFER_SIZE];
+				for (int read; (read = is.read(buffer)) > 0;) {
+					os.write(buffer, 0, read);
+					digest.update(buffer, 0, read);
+				}
+			}
+			byte[] actualdigest = digest.digest();
+			if (!Arrays.equals(expecteddigest, actualdigest)) {
+				throw new IOException("Digest mismatch of the artifact transferred from the coordinator: "
+						+ artifactpath + " expected: " + StringUtils.toHexString(expecteddigest) + " actual: "
+						+ StringUtils.toHexString(actualdigest));
+			}
+			return new TransferredArtifact(request, target, tempfile, actualdigest);
+		} catch (Throwable e) {
+			try {
+				Files.deleteIfExists(tempfile);
+			} catch (IOException e2) {
+				e.addSuppressed(e2);
+			}
+			throw e;
+		}
+	}
+
+	public static final class TransferredArtifact {
+		protected final ArtifactRequest request;
+		protected final Path target;
+		protected final Path tempFile;
+		protected final byte[] digest;
+
+		public TransferredArtifact(ArtifactRequest request, Path target, Path tempFile, byte[] digest) {
+			this.request = request;
+			this.target = target;
+			this.tempFile = tempFile;
+			this.digest = digest;
+		}
+
+		@Override
+		public String toString() {
+			return getClass().getSimpleName() + "[" + request.getArtifact() + "]";
+		}
+	}
+}
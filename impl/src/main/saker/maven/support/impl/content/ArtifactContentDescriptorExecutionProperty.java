@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.content;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import saker.build.file.content.ContentDescriptor;
+import saker.build.file.path.SakerPath;
+import saker.build.file.provider.LocalFileProvider;
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.runtime.execution.ExecutionProperty;
+import saker.maven.support.impl.MavenImplUtils;
+
+/**
+ * Execution property that computes the {@linkplain ArtifactHashContentDescriptor content descriptor} of an artifact in
+ * the local file system.
+ * <p>
+ * The digest that was recorded in {@link ArtifactDigests} during the download of the artifact is used if available,
+ * so the file is not read again. If the local repository that contains the file is known, its persisted digest index
+ * is loaded beforehand, so the digests recorded by other build daemons are used as well.
+ * <p>
+ * If the checksum files are trusted, the digest is read from the {@linkplain ArtifactDigests#getFromChecksumFile
+ * checksum file} of the artifact if possible.
+ * <p>
+ * If the local repository is known and it is pruned, the access of the artifact is
+ * {@linkplain MavenImplUtils#recordArtifactAccess(SakerPath, Path, long) recorded} when the current value is
+ * computed, so the artifacts that are checked to be up-to-date are not pruned. Nothing is written if the
+ * {@linkplain saker.maven.support.impl.repository.LocalRepositoryAccessLog access log} of the repository is not
+ * enabled.
+ * <p>
+ * The path may be relative to a local repository identified by its
+ * {@linkplain MavenImplUtils#getLocalRepositoryIdentifier(SakerPath) repository
+ * identifier}, in which case the property is the same on different machines, and the file is looked up in the local
+ * repository of the machine that computes the current value.
+ * <p>
+ * The current value is <code>null</code> if the file doesn't exist or is not a regular file.
+ */
+public class ArtifactContentDescriptorExecutionProperty
+		implements ExecutionProperty<ContentDescriptor>, Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	private String repositoryIdentifier;
+	private SakerPath repositoryBaseDirectory;
+	private SakerPath path;
+	private Object uniqueness;
+	private boolean trustChecksumFiles;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public ArtifactContentDescriptorExecutionProperty() {
+	}
+
+	public ArtifactContentDescriptorExecutionProperty(SakerPath path, Object uniqueness) {
+		this.path = path;
+		this.uniqueness = uniqueness;
+	}
+
+	public ArtifactContentDescriptorExecutionProperty(SakerPath repositoryBaseDirectory, SakerPath path,
+			Object uniqueness, boolean trustChecksumFiles) {
+		this.repositoryBaseDirectory = repositoryBaseDirectory;
+		this.path = path;
+		this.uniqueness = uniqueness;
+		this.trustChecksumFiles = trustChecksumFiles;
+	}
+
+	public ArtifactContentDescriptorExecutionProperty(String repositoryIdentifier, SakerPath repositoryRelativePath,
+			Object uniqueness, boolean trustChecksumFiles) {
+		this.repositoryIdentifier = repositoryIdentifier;
+		this.path = repositoryRelativePath;
+		this.uniqueness = uniqueness;
+		this.trustChecksumFiles = trustChecksumFiles;
+	}
+
+	@Override
+	public ContentDescriptor getCurrentValue(ExecutionContext executioncontext) throws Exception {
+		SakerPath repositorybasedir = repositoryIdentifier == null ? repositoryBaseDirectory
+				: MavenImplUtils.resolveLocalRepositoryIdentifier(repositoryIdentifier);
+		SakerPath abspath = repositoryIdentifier == null ? path : repositorybasedir.resolve(path);
+		Path localpath = LocalFileProvider.toRealPath(abspath);
+		if (repositorybasedir != null) {
+			try {
+				//the index is replaced atomically, so it can be read without the repository lock
+				ArtifactDigests.loadIndex(LocalFileProvider.toRealPath(repositorybasedir));
+			} catch (IOException e) {
+				//the digest is computed if not available
+			}
+		}
+		BasicFileAttributes attrs;
+		try {
+			attrs = Files.readAttributes(localpath, BasicFileAttributes.class);
+		} catch (IOException e) {
+			return null;
+		}
+		if (!attrs.isRegularFile()) {
+			return null;
+		}
+		if (repositorybasedir != null && executioncontext != null) {
+			try {
+				MavenImplUtils.recordArtifactAccess(repositorybasedir, localpath,
+						executioncontext.getBuildTimeMillis());
+			} catch (IOException e) {
+				//the artifact may be pruned if not used otherwise
+			}
+		}
+		if (trustChecksumFiles) {
+			byte[] digest = ArtifactDigests.get(localpath, attrs);
+			if (digest == null) {
+				digest = ArtifactDigests.getFromChecksumFile(localpath, attrs);
+			}
+			if (digest != null) {
+				return new ArtifactHashContentDescriptor(digest);
+			}
+		}
+		return new ArtifactHashContentDescriptor(ArtifactDigests.getOrCompute(localpath, attrs));
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeObject(path);
+		out.writeObject(uniqueness);
+		out.writeBoolean(trustChecksumFiles);
+		out.writeObject(repositoryIdentifier);
+		out.writeObject(repositoryBaseDirectory);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		path = (SakerPath) in.readObject();
+		uniqueness = in.readObject();
+		trustChecksumFiles = in.readBoolean();
+		repositoryIdentifier = (String) in.readObject();
+		repositoryBaseDirectory = (SakerPath) in.readObject();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((path == null) ? 0 : path.hashCode());
+		result = prime * result + ((repositoryBaseDirectory == null) ? 0 : repositoryBaseDirectory.hashCode());
+		result = prime * result + ((repositoryIdentifier == null) ? 0 : repositoryIdentifier.hashCode());
+		result = prime * result + (trustChecksumFiles ? 1231 : 1237);
+		result = prime * result + ((uniqueness == null) ? 0 : uniqueness.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ArtifactContentDescriptorExecutionProperty other = (ArtifactContentDescriptorExecutionProperty) obj;
+		if (path == null) {
+			if (other.path != null)
+				return false;
+		} else if (!path.equals(other.path))
+			return false;
+		if (repositoryBaseDirectory == null) {
+			if (other.repositoryBaseDirectory != null)
+				return false;
+		} else if (!repositoryBaseDirectory.equals(other.repositoryBaseDirectory))
+			return false;
+		if (repositoryIdentifier == null) {
+			if (other.repositoryIdentifier != null)
+				return false;
+		} else if (!repositoryIdentifier.equals(other.repositoryIdentifier))
+			return false;
+		if (trustChecksumFiles != other.trustChecksumFiles)
+			return false;
+		if (uniqueness == null) {
+			if (other.uniqueness != null)
+				return false;
+		} else if (!uniqueness.equals(other.uniqueness))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "["
+				+ (repositoryIdentifier != null ? "repositoryIdentifier=" + repositoryIdentifier + ", " : "") + path
+				+ "]";
+	}
+}
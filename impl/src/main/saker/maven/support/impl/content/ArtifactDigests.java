@@ -0,0 +1,517 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.content;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import saker.build.thirdparty.saker.util.thread.ParallelExecutionException;
+import saker.build.thirdparty.saker.util.thread.ThreadUtils;
+import saker.build.thirdparty.saker.util.thread.ThreadUtils.ThreadWorkPool;
+
+/**
+ * JVM-wide registry of the digests of the files in the local repositories.
+ * <p>
+ * The digests are recorded when the files are downloaded, as the bytes are streamed to the disk, so the files don't
+ * need to be read again to compute their content descriptors. A recorded digest is only used while the size, last
+ * modification time, and file key (if supported by the file system) of the file is the same as when it was recorded.
+ * <p>
+ * The digests of the files in a local repository can be persisted in an {@linkplain #INDEX_FILE_NAME index file} in the
+ * root of the repository, so they can be reused by new build daemons as well. The index should be accessed while the
+ * {@linkplain saker.maven.support.impl.MavenImplUtils#getAccessLockFilePathInRepository repository lock} is held.
+ * <p>
+ * At most {@value #MAX_RECORDED_DIGESTS} digests are kept in memory, the least recently used ones are evicted. The
+ * evicted digests are not removed from the index files.
+ */
+public final class ArtifactDigests {
+	public static final String DIGEST_ALGORITHM = "SHA-1";
+	public static final String INDEX_FILE_NAME = "saker.m2.digests.index";
+
+	private static final String CHECKSUM_FILE_EXTENSION = ".sha1";
+	private static final int DIGEST_HEX_LENGTH = 40;
+	private static final int MAX_CHECKSUM_FILE_SIZE = 1024;
+	private static final int INDEX_FORMAT_VERSION = 2;
+	private static final int MAX_RECORDED_DIGESTS = 64 * 1024;
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Synchronized on itself.
+	 */
+	private static final DigestCache DIGESTS = new DigestCache();
+	/**
+	 * The local repositories mapped to the number of digests recorded for the files in them.
+	 * <p>
+	 * Contains the repositories whose index was loaded or stored.
+	 */
+	private static final ConcurrentMap<Path, AtomicLong> MODIFICATION_COUNTERS = new ConcurrentHashMap<>();
+	/**
+	 * The {@link #MODIFICATION_COUNTERS} value of a repository when its index was last loaded or stored.
+	 * <p>
+	 * -1 if the index needs to be stored.
+	 */
+	private static final ConcurrentMap<Path, Long> INDEX_MODIFICATION_COUNTERS = new ConcurrentHashMap<>();
+
+	private ArtifactDigests() {
+		throw new UnsupportedOperationException();
+	}
+
+	public static MessageDigest newMessageDigest() {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new AssertionError(DIGEST_ALGORITHM + " algorithm not found.", e);
+		}
+	}
+
+	/**
+	 * Records the digest of a file.
+	 *
+	 * @param path
+	 *            The path of the file.
+	 * @param attrs
+	 *            The attributes of the file the digest was computed for.
+	 * @param digest
+	 *            The {@value #DIGEST_ALGORITHM} digest of the file contents.
+	 */
+	public static void put(Path path, BasicFileAttributes attrs, byte[] digest) {
+		record(normalize(path), attrs, digest.clone(), -1);
+	}
+
+	/**
+	 * Gets the recorded digest of a file.
+	 *
+	 * @param path
+	 *            The path of the file.
+	 * @param attrs
+	 *            The current attributes of the file.
+	 * @return The digest, or <code>null</code> if not recorded, or the file changed since.
+	 */
+	public static byte[] get(Path path, BasicFileAttributes attrs) {
+		FileDigest digest = getRecorded(normalize(path));
+		if (digest == null || digest.isFromChecksumFile() || !digest.isSameFile(attrs)) {
+			return null;
+		}
+		return digest.digest.clone();
+	}
+
+	/**
+	 * Gets the recorded digest of a file, or computes it by reading the file if not available.
+	 *
+	 * @param path
+	 *            The path of the file.
+	 * @param attrs
+	 *            The current attributes of the file.
+	 * @return The digest.
+	 * @throws IOException
+	 *             If the file cannot be read.
+	 */
+	public static byte[] getOrCompute(Path path, BasicFileAttributes attrs) throws IOException {
+		byte[] result = get(path, attrs);
+		if (result != null) {
+			return result;
+		}
+		MessageDigest digest = newMessageDigest();
+		try (InputStream is = Files.newInputStream(path)) {
+			byte[] buffer = new byte[READ_BUFFER_SIZE];
+			for (int read; (read = is.read(buffer)) > 0;) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		result = digest.digest();
+		//only record if the file wasn't modified while reading it
+		BasicFileAttributes afterattrs = Files.readAttributes(path, BasicFileAttributes.class);
+		if (afterattrs.size() == attrs.size()
+				&& afterattrs.lastModifiedTime().toMillis() == attrs.lastModifiedTime().toMillis()) {
+			put(path, attrs, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Computes and records the digests of the argument files in parallel.
+	 * <p>
+	 * The files that already have a recorded digest are skipped. If checksum files are trusted, the files that have a
+	 * {@linkplain #getFromChecksumFile valid checksum file} are skipped as well.
+	 * <p>
+	 * The computations are run on a work pool bounded by the number of available processors. Failures are ignored, as
+	 * the digests are computed again when the content descriptors are retrieved.
+	 * <p>
+	 * The files are read without locking, the caller doesn't need to hold the repository lock.
+	 *
+	 * @param paths
+	 *            The paths of the files.
+	 * @param trustchecksumfiles
+	 *            Whether or not the checksum files are trusted.
+	 * @throws InterruptedException
+	 *             If the current thread was interrupted while waiting for the computations.
+	 */
+	public static void computeAll(Collection<? extends Path> paths, boolean trustchecksumfiles)
+			throws InterruptedException {
+		List<Path> computations = new ArrayList<>();
+		for (Path path : paths) {
+			BasicFileAttributes attrs;
+			try {
+				attrs = Files.readAttributes(path, BasicFileAttributes.class);
+			} catch (IOException e) {
+				continue;
+			}
+			if (!attrs.isRegularFile() || get(path, attrs) != null) {
+				continue;
+			}
+			if (trustchecksumfiles && getFromChecksumFile(path, attrs) != null) {
+				continue;
+			}
+			computations.add(path);
+		}
+		if (computations.size() < 2) {
+			//not worth parallelizing, computed on demand
+			return;
+		}
+		try (ThreadWorkPool pool = ThreadUtils.newFixedWorkPool("Maven artifact digest-")) {
+			for (Path path : computations) {
+				pool.offer(() -> {
+					//the attributes are read again, as the file may have changed since
+					getOrCompute(path, Files.readAttributes(path, BasicFileAttributes.class));
+				});
+			}
+			pool.closeInterruptible();
+		} catch (ParallelExecutionException e) {
+			//the results are ignored, failed computations are retried on demand
+		}
+	}
+
+	/**
+	 * Gets the digest of a file from its SHA-1 checksum file (<code>.sha1</code>) in the local repository.
+	 * <p>
+	 * The checksum files are written by the repository connector after the downloaded file has been verified. The
+	 * checksum file is only used if it is not older than the file, as otherwise the file may have been modified since.
+	 * <p>
+	 * The digest is recorded along with the size and modification time of the file, and the modification time of the
+	 * checksum file. If the file is modified later, but the checksum file stays the same, the checksum file is no
+	 * longer used, even if the modification time of the file wasn't advanced past it. The recorded digest is not
+	 * returned by {@link #get(Path, BasicFileAttributes)}, as it is not computed from the contents of the file.
+	 *
+	 * @param path
+	 *            The path of the file.
+	 * @param attrs
+	 *            The current attributes of the file.
+	 * @return The digest, or <code>null</code> if there's no valid checksum file.
+	 */
+	public static byte[] getFromChecksumFile(Path path, BasicFileAttributes attrs) {
+		path = normalize(path);
+		Path checksumpath = path.resolveSibling(path.getFileName() + CHECKSUM_FILE_EXTENSION);
+		try {
+			BasicFileAttributes checksumattrs = Files.readAttributes(checksumpath, BasicFileAttributes.class);
+			if (!checksumattrs.isRegularFile() || checksumattrs.size() < DIGEST_HEX_LENGTH
+					|| checksumattrs.size() > MAX_CHECKSUM_FILE_SIZE
+					|| checksumattrs.lastModifiedTime().compareTo(attrs.lastModifiedTime()) < 0) {
+				return null;
+			}
+			long checksummillis = checksumattrs.lastModifiedTime().toMillis();
+			FileDigest recorded = getRecorded(path);
+			if (recorded != null) {
+				if (!recorded.isFromChecksumFile()) {
+					if (recorded.isSameFile(attrs)) {
+						//computed from the contents
+						return recorded.digest.clone();
+					}
+				} else if (recorded.checksumFileModifiedMillis == checksummillis) {
+					if (!recorded.isSameFile(attrs)) {
+						//the file was modified since the checksum file was used
+						return null;
+					}
+					return recorded.digest.clone();
+				}
+			}
+			String content = new String(Files.readAllBytes(checksumpath), StandardCharsets.UTF_8).trim();
+			//the file may contain the file name after the checksum
+			int wsidx = 0;
+			while (wsidx < content.length() && !Character.isWhitespace(content.charAt(wsidx))) {
+				++wsidx;
+			}
+			byte[] result = parseHexDigest(content.substring(0, wsidx));
+			if (result == null) {
+				return null;
+			}
+			record(path, attrs, result, checksummillis);
+			return result.clone();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Loads the persisted digest index of the argument local repository if not yet loaded in the current JVM.
+	 * <p>
+	 * The entries that are already recorded in the JVM take precedence over the loaded ones.
+	 *
+	 * @param repositorydir
+	 *            The root directory of the local repository.
+	 * @throws IOException
+	 *             If the index cannot be read.
+	 */
+	public static void loadIndex(Path repositorydir) throws IOException {
+		repositorydir = normalize(repositorydir);
+		if (INDEX_MODIFICATION_COUNTERS.containsKey(repositorydir)) {
+			return;
+		}
+		long modcount = getModificationCounter(repositorydir).get();
+		Map<Path, FileDigest> entries = readIndex(repositorydir);
+		synchronized (DIGESTS) {
+			for (Path path : DIGESTS.keySet()) {
+				if (path.startsWith(repositorydir)) {
+					//digests were recorded before the index was loaded
+					modcount = -1;
+					break;
+				}
+			}
+			for (Entry<Path, FileDigest> entry : entries.entrySet()) {
+				DIGESTS.putIfAbsent(entry.getKey(), entry.getValue());
+			}
+		}
+		INDEX_MODIFICATION_COUNTERS.putIfAbsent(repositorydir, modcount);
+	}
+
+	/**
+	 * Stores the digests of the files in the argument local repository to its index, if any digests were recorded
+	 * since the index was last loaded or stored.
+	 * <p>
+	 * The current contents of the index are merged, so the entries recorded by other processes are kept. The entries
+	 * whose files no longer exist or were modified since the digest was recorded are dropped.
+	 * <p>
+	 * The index is written to a temporary file with a fixed name, and then moved in place. The caller must hold the
+	 * {@linkplain saker.maven.support.impl.MavenImplUtils#getAccessLockFilePathInRepository repository lock} so
+	 * concurrent callers don't write the same temporary file.
+	 *
+	 * @param repositorydir
+	 *            The root directory of the local repository.
+	 * @throws IOException
+	 *             If the index cannot be written.
+	 */
+	public static void storeIndex(Path repositorydir) throws IOException {
+		repositorydir = normalize(repositorydir);
+		long modcount = getModificationCounter(repositorydir).get();
+		Long prevmodcount = INDEX_MODIFICATION_COUNTERS.get(repositorydir);
+		if (prevmodcount != null && prevmodcount == modcount) {
+			return;
+		}
+		Map<Path, FileDigest> entries = readIndex(repositorydir);
+		synchronized (DIGESTS) {
+			for (Entry<Path, FileDigest> entry : DIGESTS.entrySet()) {
+				Path path = entry.getKey();
+				if (path.startsWith(repositorydir)) {
+					entries.put(path, entry.getValue());
+				}
+			}
+		}
+		entries.entrySet().removeIf(entry -> !isUpToDate(entry.getKey(), entry.getValue()));
+
+		Path indexfile = repositorydir.resolve(INDEX_FILE_NAME);
+		Path tempfile = repositorydir.resolve(INDEX_FILE_NAME + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(tempfile)))) {
+			out.writeInt(INDEX_FORMAT_VERSION);
+			for (Entry<Path, FileDigest> entry : entries.entrySet()) {
+				Path path = entry.getKey();
+				FileDigest digest = entry.getValue();
+				out.writeBoolean(true);
+				out.writeUTF(repositorydir.relativize(path).toString().replace('\\', '/'));
+				out.writeLong(digest.size);
+				out.writeLong(digest.lastModifiedMillis);
+				out.writeUTF(digest.fileKey == null ? "" : digest.fileKey);
+				out.writeLong(digest.checksumFileModifiedMillis);
+				out.writeShort(digest.digest.length);
+				out.write(digest.digest);
+			}
+			out.writeBoolean(false);
+		}
+		Files.move(tempfile, indexfile, StandardCopyOption.REPLACE_EXISTING);
+		INDEX_MODIFICATION_COUNTERS.put(repositorydir, modcount);
+	}
+
+	private static Map<Path, FileDigest> readIndex(Path repositorydir) throws IOException {
+		Map<Path, FileDigest> result = new LinkedHashMap<>();
+		Path indexfile = repositorydir.resolve(INDEX_FILE_NAME);
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexfile)))) {
+			if (in.readInt() != INDEX_FORMAT_VERSION) {
+				//unknown format, will be overwritten
+				return result;
+			}
+			while (in.readBoolean()) {
+				Path path = repositorydir.resolve(in.readUTF()).normalize();
+				long size = in.readLong();
+				long lastmodified = in.readLong();
+				String filekey = in.readUTF();
+				long checksumfilelastmodified = in.readLong();
+				byte[] digest = new byte[in.readUnsignedShort()];
+				in.readFully(digest);
+				result.put(path, new FileDigest(size, lastmodified, filekey.isEmpty() ? null : filekey, digest,
+						checksumfilelastmodified));
+			}
+		} catch (NoSuchFileException e) {
+			//no index yet
+		} catch (IOException | InvalidPathException e) {
+			//truncated or corrupt index, handle it the same way as an unknown format, it will be overwritten
+			result.clear();
+		}
+		return result;
+	}
+
+	private static boolean isUpToDate(Path path, FileDigest digest) {
+		try {
+			if (!digest.isSameFile(Files.readAttributes(path, BasicFileAttributes.class))) {
+				return false;
+			}
+			if (digest.isFromChecksumFile()) {
+				Path checksumpath = path.resolveSibling(path.getFileName() + CHECKSUM_FILE_EXTENSION);
+				return Files.getLastModifiedTime(checksumpath).toMillis() == digest.checksumFileModifiedMillis;
+			}
+			return true;
+		} catch (IOException e) {
+			//the file no longer exists, or not accessible
+			return false;
+		}
+	}
+
+	/**
+	 * Parses a hexadecimal {@value #DIGEST_ALGORITHM} digest.
+	 *
+	 * @param hex
+	 *            The hexadecimal string.
+	 * @return The digest bytes, or <code>null</code> if the argument is not a valid digest.
+	 */
+	public static byte[] parseHexDigest(String hex) {
+		if (hex.length() != DIGEST_HEX_LENGTH) {
+			return null;
+		}
+		byte[] result = new byte[DIGEST_HEX_LENGTH / 2];
+		for (int i = 0; i < result.length; ++i) {
+			int hi = Character.digit(hex.charAt(i * 2), 16);
+			int lo = Character.digit(hex.charAt(i * 2 + 1), 16);
+			if (hi < 0 || lo < 0) {
+				return null;
+			}
+			result[i] = (byte) ((hi << 4) | lo);
+		}
+		return result;
+	}
+
+	private static void record(Path normalizedpath, BasicFileAttributes attrs, byte[] digest,
+			long checksumfilemodifiedmillis) {
+		FileDigest filedigest = new FileDigest(attrs.size(), attrs.lastModifiedTime().toMillis(),
+				toFileKeyString(attrs.fileKey()), digest, checksumfilemodifiedmillis);
+		synchronized (DIGESTS) {
+			DIGESTS.put(normalizedpath, filedigest);
+		}
+		for (Entry<Path, AtomicLong> entry : MODIFICATION_COUNTERS.entrySet()) {
+			if (normalizedpath.startsWith(entry.getKey())) {
+				entry.getValue().incrementAndGet();
+			}
+		}
+	}
+
+	private static AtomicLong getModificationCounter(Path repositorydir) {
+		return MODIFICATION_COUNTERS.computeIfAbsent(repositorydir, x -> new AtomicLong());
+	}
+
+	private static FileDigest getRecorded(Path normalizedpath) {
+		synchronized (DIGESTS) {
+			return DIGESTS.get(normalizedpath);
+		}
+	}
+
+	private static Path normalize(Path path) {
+		return path.toAbsolutePath().normalize();
+	}
+
+	private static String toFileKeyString(Object filekey) {
+		return filekey == null ? null : filekey.toString();
+	}
+
+	private static final class DigestCache extends LinkedHashMap<Path, FileDigest> {
+		private static final long serialVersionUID = 1L;
+
+		public DigestCache() {
+			//access order
+			super(16, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Entry<Path, FileDigest> eldest) {
+			return size() > MAX_RECORDED_DIGESTS;
+		}
+	}
+
+	private static final class FileDigest {
+		protected final long size;
+		protected final long lastModifiedMillis;
+		protected final String fileKey;
+		protected final byte[] digest;
+		/**
+		 * The modification time of the checksum file the digest was read from, or -1 if it was computed from the
+		 * contents.
+		 */
+		protected final long checksumFileModifiedMillis;
+
+		public FileDigest(long size, long lastModifiedMillis, String fileKey, byte[] digest,
+				long checksumFileModifiedMillis) {
+			this.size = size;
+			this.lastModifiedMillis = lastModifiedMillis;
+			this.fileKey = fileKey;
+			this.digest = digest;
+			this.checksumFileModifiedMillis = checksumFileModifiedMillis;
+		}
+
+		public boolean isFromChecksumFile() {
+			return checksumFileModifiedMillis >= 0;
+		}
+
+		public boolean isSameFile(BasicFileAttributes attrs) {
+			if (size != attrs.size() || lastModifiedMillis != attrs.lastModifiedTime().toMillis()) {
+				return false;
+			}
+			String currentkey = toFileKeyString(attrs.fileKey());
+			if (fileKey == null || currentkey == null) {
+				//file keys are not supported
+				return true;
+			}
+			return Objects.equals(fileKey, currentkey);
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.content;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Arrays;
+
+import saker.build.file.content.ContentDescriptor;
+import saker.build.thirdparty.saker.util.StringUtils;
+
+/**
+ * {@link ContentDescriptor} of an artifact based on the {@value ArtifactDigests#DIGEST_ALGORITHM} digest of its
+ * contents.
+ */
+public class ArtifactHashContentDescriptor implements ContentDescriptor, Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	private byte[] hash;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public ArtifactHashContentDescriptor() {
+	}
+
+	public ArtifactHashContentDescriptor(byte[] hash) {
+		this.hash = hash;
+	}
+
+	/**
+	 * Gets the digest of the artifact contents.
+	 * 
+	 * @return The digest bytes.
+	 */
+	public byte[] getHash() {
+		return hash.clone();
+	}
+
+	@Override
+	public boolean isChanged(ContentDescriptor previouscontent) {
+		if (!(previouscontent instanceof ArtifactHashContentDescriptor)) {
+			return true;
+		}
+		return !Arrays.equals(hash, ((ArtifactHashContentDescriptor) previouscontent).hash);
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeInt(hash.length);
+		out.write(hash);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		hash = new byte[in.readInt()];
+		in.readFully(hash);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(hash);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ArtifactHashContentDescriptor other = (ArtifactHashContentDescriptor) obj;
+		if (!Arrays.equals(hash, other.hash))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + StringUtils.toHexString(hash) + "]";
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.content;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.UUID;
+
+import saker.build.thirdparty.saker.util.StringUtils;
+import saker.maven.support.thirdparty.org.eclipse.aether.RepositorySystemSession;
+
+/**
+ * Cache of the downloaded files that can be shared by multiple local repositories.
+ * <p>
+ * The cache avoids downloading the same files again for different local repositories. It doesn't deduplicate the files
+ * on the disk: the files are copied into and out of the cache, so each local repository keeps its own copy. They are
+ * not hard linked, as modifying a file in a local repository would modify the contents of the cache, and the files of
+ * other local repositories along with it.
+ * <p>
+ * The files are stored by their {@value ArtifactDigests#DIGEST_ALGORITHM} digest at
+ * <code>{root}/sha1/{first two hex digits}/{hex digest}</code>, as that is the checksum the remote repositories
+ * provide for verification. The cached files are verified before they are used. A cached file which doesn't match its
+ * digest is removed.
+ * <p>
+ * The cache also records the digests of the files downloaded from the remote locations at
+ * <code>{root}/locations/{first two hex digits}/{hex digest of the URL}</code>, so the file can be looked up in the
+ * cache without requesting its checksum from the remote repository. The locations should only be recorded after the
+ * downloaded file has been verified against the checksum provided by the repository.
+ * <p>
+ * The cache is set in the configuration properties of the session with the {@link #SESSION_CONFIG_PROPERTY} key.
+ */
+public class DownloadCache {
+	public static final String SESSION_CONFIG_PROPERTY = "saker.maven.support.download.cache";
+
+	private static final String DIGEST_DIRECTORY_NAME = "sha1";
+	private static final String LOCATION_DIRECTORY_NAME = "locations";
+
+	private final Path root;
+
+	public DownloadCache(Path root) {
+		this.root = root;
+	}
+
+	public static DownloadCache get(RepositorySystemSession session) {
+		Object result = session.getConfigProperties().get(SESSION_CONFIG_PROPERTY);
+		if (result instanceof DownloadCache) {
+			return (DownloadCache) result;
+		}
+		return null;
+	}
+
+	public Path getRoot() {
+		return root;
+	}
+
+	/**
+	 * Gets the path of the file with the argument digest in the cache.
+	 *
+	 * @param digest
+	 *            The digest.
+	 * @return The path. The file may not exist.
+	 */
+	public Path getPath(byte[] digest) {
+		String hex = StringUtils.toHexString(digest);
+		return root.resolve(DIGEST_DIRECTORY_NAME).resolve(hex.substring(0, 2)).resolve(hex);
+	}
+
+	/**
+	 * Gets the recorded digest of the file at the argument remote location.
+	 *
+	 * @param url
+	 *            The URL of the file.
+	 * @return The digest, or <code>null</code> if not recorded.
+	 * @see #recordLocation(String, byte[])
+	 */
+	public byte[] getLocationDigest(String url) {
+		try {
+			String content = new String(Files.readAllBytes(getLocationPath(url)), StandardCharsets.US_ASCII);
+			return ArtifactDigests.parseHexDigest(content.trim());
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Records the digest of the file at the argument remote location.
+	 *
+	 * @param url
+	 *            The URL of the file.
+	 * @param digest
+	 *            The verified digest of the file.
+	 * @throws IOException
+	 *             If the record cannot be written.
+	 */
+	public void recordLocation(String url, byte[] digest) throws IOException {
+		Path path = getLocationPath(url);
+		Files.createDirectories(path.getParent());
+		Path temp = path.resolveSibling(path.getFileName() + "." + UUID.randomUUID() + ".tmp");
+		try {
+			Files.write(temp, StringUtils.toHexString(digest).getBytes(StandardCharsets.US_ASCII));
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Places the file with the argument digest at the target path if the cache contains it.
+	 * <p>
+	 * The file is copied, and the target file is overwritten.
+	 *
+	 * @param digest
+	 *            The digest.
+	 * @param target
+	 *            The target path.
+	 * @return <code>true</code> if the file was placed at the target path.
+	 */
+	public boolean materialize(byte[] digest, Path target) {
+		Path stored = getPath(digest);
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(stored, BasicFileAttributes.class);
+			if (!attrs.isRegularFile()) {
+				return false;
+			}
+			if (!Arrays.equals(digest, ArtifactDigests.getOrCompute(stored, attrs))) {
+				//corrupted, not usable anymore
+				Files.deleteIfExists(stored);
+				return false;
+			}
+			Files.copy(stored, target, StandardCopyOption.REPLACE_EXISTING);
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Adds the argument file to the cache if it doesn't contain a file with the same digest yet.
+	 * <p>
+	 * The file is copied into the cache. An existing file in the cache is verified before it is kept, and replaced if
+	 * it doesn't match its digest.
+	 *
+	 * @param file
+	 *            The file to add.
+	 * @param digest
+	 *            The digest of the file.
+	 * @throws IOException
+	 *             If the file cannot be added.
+	 */
+	public void store(Path file, byte[] digest) throws IOException {
+		Path stored = getPath(digest);
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(stored, BasicFileAttributes.class);
+			if (attrs.isRegularFile() && Arrays.equals(digest, ArtifactDigests.getOrCompute(stored, attrs))) {
+				return;
+			}
+			//corrupted
+			Files.deleteIfExists(stored);
+		} catch (NoSuchFileException e) {
+			//not yet stored
+		}
+		Files.createDirectories(stored.getParent());
+		Path temp = stored.resolveSibling(stored.getFileName() + "." + UUID.randomUUID() + ".tmp");
+		try {
+			Files.copy(file, temp);
+			Files.move(temp, stored, StandardCopyOption.ATOMIC_MOVE);
+		} catch (FileAlreadyExistsException e) {
+			//added concurrently
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private Path getLocationPath(String url) {
+		String hex = StringUtils
+				.toHexString(ArtifactDigests.newMessageDigest().digest(url.getBytes(StandardCharsets.UTF_8)));
+		return root.resolve(LOCATION_DIRECTORY_NAME).resolve(hex.substring(0, 2)).resolve(hex);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + root + "]";
+	}
+}
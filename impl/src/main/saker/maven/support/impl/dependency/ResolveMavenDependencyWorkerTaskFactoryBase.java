@@ -80,7 +80,6 @@ import saker.maven.support.thirdparty.org.eclipse.aether.graph.DependencyNode;
 import saker.maven.support.thirdparty.org.eclipse.aether.graph.DependencyVisitor;
 import saker.maven.support.thirdparty.org.eclipse.aether.graph.Exclusion;
 import saker.maven.support.thirdparty.org.eclipse.aether.impl.DefaultServiceLocator;
-import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalRepository;
 import saker.maven.support.thirdparty.org.eclipse.aether.repository.RemoteRepository;
 import saker.maven.support.thirdparty.org.eclipse.aether.resolution.ArtifactRequest;
 import saker.maven.support.thirdparty.org.eclipse.aether.resolution.ArtifactResult;
@@ -267,6 +266,10 @@ public abstract class ResolveMavenDependencyWorkerTaskFactoryBase
 		MavenOperationConfiguration config = configuration;
 
 		List<RemoteRepository> repositories = MavenImplUtils.createRemoteRepositories(config);
+		repositories = MavenImplUtils.routeThroughCachingProxy(taskcontext, repositories);
+		if (config.isAdaptiveRepositoryOrdering()) {
+			repositories = MavenImplUtils.orderRemoteRepositoriesAdaptively(taskcontext, repositories);
+		}
 
 		SakerPath repositorybasedir = MavenImplUtils.getRepositoryBaseDirectoryDefaulted(taskcontext, config);
 
@@ -285,8 +288,8 @@ public abstract class ResolveMavenDependencyWorkerTaskFactoryBase
 		DefaultRepositorySystemSession reposession = MavenImplUtils.createNewSession(taskcontext, config);
 		reposession.setConfigProperty(ArtifactDescriptorReaderDelegate.class.getName(), packagingcollector);
 
-		LocalRepository localrepository = new LocalRepository(repositorybasedir.toString());
-		reposession.setLocalRepositoryManager(reposystem.newLocalRepositoryManager(reposession, localrepository));
+		reposession.setLocalRepositoryManager(
+				MavenImplUtils.createLocalRepositoryManager(reposystem, reposession, repositorybasedir, config));
 
 		reposession.setReadOnly();
 
@@ -54,7 +54,6 @@ import saker.maven.support.thirdparty.org.eclipse.aether.artifact.Artifact;
 import saker.maven.support.thirdparty.org.eclipse.aether.artifact.DefaultArtifact;
 import saker.maven.support.thirdparty.org.eclipse.aether.deployment.DeployRequest;
 import saker.maven.support.thirdparty.org.eclipse.aether.impl.DefaultServiceLocator;
-import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalRepository;
 import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalRepositoryManager;
 
 public class ArtifactDeployWorkerTaskFactory
@@ -181,9 +180,10 @@ public class ArtifactDeployWorkerTaskFactory
 		RepositorySystem reposystem = serviceLocator.getService(RepositorySystem.class);
 
 		DefaultRepositorySystemSession reposession = MavenImplUtils.createNewSession(taskcontext, null);
+		MavenImplUtils.setRepositoryTimeouts(reposession, repositoryConfiguration);
 
-		LocalRepository localrepository = new LocalRepository(repositorybasedir.toString());
-		LocalRepositoryManager localrepomanager = reposystem.newLocalRepositoryManager(reposession, localrepository);
+		LocalRepositoryManager localrepomanager = MavenImplUtils.createLocalRepositoryManager(reposystem, reposession,
+				repositorybasedir, null);
 		reposession.setLocalRepositoryManager(localrepomanager);
 
 		reposession.setReadOnly();
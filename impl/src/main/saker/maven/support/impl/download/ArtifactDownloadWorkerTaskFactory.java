@@ -35,9 +35,10 @@ import saker.build.task.TaskContext;
 import saker.build.task.TaskFactory;
 import saker.build.thirdparty.saker.util.ObjectUtils;
 import saker.maven.support.api.ArtifactCoordinates;
+import saker.maven.support.api.MavenUtils;
 import saker.maven.support.api.download.ArtifactDownloadWorkerTaskOutput;
+import saker.maven.support.impl.content.ArtifactContentDescriptorExecutionProperty;
 import saker.maven.support.main.download.DownloadArtifactsTaskFactory;
-import saker.std.api.util.SakerStandardUtils;
 
 public class ArtifactDownloadWorkerTaskFactory implements TaskFactory<ArtifactDownloadWorkerTaskOutput>,
 		Task<ArtifactDownloadWorkerTaskOutput>, Externalizable {
@@ -47,6 +48,8 @@ public class ArtifactDownloadWorkerTaskFactory implements TaskFactory<ArtifactDo
 	private SakerPath repositoryBaseDirectory;
 	private SakerPath repositoryRelativeArtifactPath;
 	private ArtifactCoordinates coordinates;
+	private boolean trustChecksumFiles;
+	private String materializationStrategy;
 
 	/**
 	 * For {@link Externalizable}.
@@ -65,6 +68,14 @@ public class ArtifactDownloadWorkerTaskFactory implements TaskFactory<ArtifactDo
 		this.coordinates = coordinates;
 	}
 
+	public ArtifactDownloadWorkerTaskFactory(String workinglocation, SakerPath repositoryBaseDirectory,
+			SakerPath repositoryRelativeArtifactPath, ArtifactCoordinates coordinates, boolean trustChecksumFiles,
+			String materializationStrategy) {
+		this(workinglocation, repositoryBaseDirectory, repositoryRelativeArtifactPath, coordinates);
+		this.trustChecksumFiles = trustChecksumFiles;
+		this.materializationStrategy = materializationStrategy;
+	}
+
 	@Override
 	public ArtifactDownloadWorkerTaskOutput run(TaskContext taskcontext) throws Exception {
 		taskcontext.setStandardOutDisplayIdentifier(DownloadArtifactsTaskFactory.TASK_NAME);
@@ -79,15 +90,23 @@ public class ArtifactDownloadWorkerTaskFactory implements TaskFactory<ArtifactDo
 
 		SakerPath artifactpath = repositoryBaseDirectory.resolve(repositoryRelativeArtifactPath);
 		ContentDescriptor contentdescriptor = taskcontext.getTaskUtilities().getReportExecutionDependency(
-				SakerStandardUtils.createLocalFileContentDescriptorExecutionProperty(artifactpath, UUID.randomUUID()));
+				new ArtifactContentDescriptorExecutionProperty(repositoryBaseDirectory, artifactpath, UUID.randomUUID(),
+						trustChecksumFiles));
 		if (contentdescriptor == null) {
 			taskcontext.abortExecution(new FileNotFoundException("Artifact not found: " + artifactpath));
 			return null;
 		}
 
 		String filename = artifactpath.getFileName();
-		SakerFile sakerfile = taskcontext.getTaskUtilities().createProviderPathFile(filename,
-				localfp.getPathKey(artifactpath), contentdescriptor);
+		String strategy = ObjectUtils.nullDefault(materializationStrategy, MavenUtils.DEFAULT_MATERIALIZATION_STRATEGY);
+		SakerFile sakerfile;
+		if (MavenUtils.MATERIALIZATION_STRATEGY_COPY.equals(strategy)) {
+			sakerfile = taskcontext.getTaskUtilities().createProviderPathFile(filename,
+					localfp.getPathKey(artifactpath), contentdescriptor);
+		} else {
+			sakerfile = new MaterializedArtifactSakerFile(filename, LocalFileProvider.toRealPath(artifactpath),
+					contentdescriptor, strategy);
+		}
 
 		SakerPath relpath = repositoryRelativeArtifactPath;
 		SakerDirectory artifactparentdir = taskcontext.getTaskUtilities().resolveDirectoryAtRelativePathCreate(dldir,
@@ -125,6 +144,8 @@ public class ArtifactDownloadWorkerTaskFactory implements TaskFactory<ArtifactDo
 		out.writeObject(repositoryBaseDirectory);
 		out.writeObject(repositoryRelativeArtifactPath);
 		out.writeObject(coordinates);
+		out.writeBoolean(trustChecksumFiles);
+		out.writeObject(materializationStrategy);
 	}
 
 	@Override
@@ -133,6 +154,8 @@ public class ArtifactDownloadWorkerTaskFactory implements TaskFactory<ArtifactDo
 		repositoryBaseDirectory = (SakerPath) in.readObject();
 		repositoryRelativeArtifactPath = (SakerPath) in.readObject();
 		coordinates = (ArtifactCoordinates) in.readObject();
+		trustChecksumFiles = in.readBoolean();
+		materializationStrategy = (String) in.readObject();
 	}
 
 	@Override
@@ -140,10 +163,12 @@ public class ArtifactDownloadWorkerTaskFactory implements TaskFactory<ArtifactDo
 		final int prime = 31;
 		int result = 1;
 		result = prime * result + ((coordinates == null) ? 0 : coordinates.hashCode());
+		result = prime * result + ((materializationStrategy == null) ? 0 : materializationStrategy.hashCode());
 		result = prime * result + ((repositoryBaseDirectory == null) ? 0 : repositoryBaseDirectory.hashCode());
 		result = prime * result + ((repositoryName == null) ? 0 : repositoryName.hashCode());
 		result = prime * result
 				+ ((repositoryRelativeArtifactPath == null) ? 0 : repositoryRelativeArtifactPath.hashCode());
+		result = prime * result + (trustChecksumFiles ? 1231 : 1237);
 		return result;
 	}
 
@@ -161,6 +186,11 @@ public class ArtifactDownloadWorkerTaskFactory implements TaskFactory<ArtifactDo
 				return false;
 		} else if (!coordinates.equals(other.coordinates))
 			return false;
+		if (materializationStrategy == null) {
+			if (other.materializationStrategy != null)
+				return false;
+		} else if (!materializationStrategy.equals(other.materializationStrategy))
+			return false;
 		if (repositoryBaseDirectory == null) {
 			if (other.repositoryBaseDirectory != null)
 				return false;
@@ -176,6 +206,8 @@ public class ArtifactDownloadWorkerTaskFactory implements TaskFactory<ArtifactDo
 				return false;
 		} else if (!repositoryRelativeArtifactPath.equals(other.repositoryRelativeArtifactPath))
 			return false;
+		if (trustChecksumFiles != other.trustChecksumFiles)
+			return false;
 		return true;
 	}
 
@@ -187,7 +219,9 @@ public class ArtifactDownloadWorkerTaskFactory implements TaskFactory<ArtifactDo
 				+ (repositoryRelativeArtifactPath != null
 						? "repositoryRelativeArtifactPath=" + repositoryRelativeArtifactPath + ", "
 						: "")
-				+ (coordinates != null ? "coordinates=" + coordinates : "") + "]";
+				+ (coordinates != null ? "coordinates=" + coordinates : "")
+				+ (trustChecksumFiles ? ", trustChecksumFiles" : "")
+				+ (materializationStrategy != null ? ", materializationStrategy=" + materializationStrategy : "") + "]";
 	}
 
 }
@@ -26,6 +26,7 @@ import java.nio.channels.FileLock;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -56,18 +57,20 @@ import saker.maven.support.impl.ArtifactUtils;
 import saker.maven.support.impl.MavenImplUtils;
 import saker.maven.support.impl.MavenSupportImpl;
 import saker.maven.support.impl.RetrievalFailedStructuredTaskResult;
+import saker.maven.support.impl.content.ArtifactContentDescriptorExecutionProperty;
+import saker.maven.support.impl.repository.LocalRepositoryOperations;
+import saker.maven.support.impl.transport.ArtifactTransferPriorities;
+import saker.maven.support.impl.transport.ParallelRepositoryProber;
 import saker.maven.support.main.download.DownloadArtifactsTaskFactory;
 import saker.maven.support.thirdparty.org.eclipse.aether.DefaultRepositorySystemSession;
 import saker.maven.support.thirdparty.org.eclipse.aether.RepositorySystem;
 import saker.maven.support.thirdparty.org.eclipse.aether.artifact.Artifact;
 import saker.maven.support.thirdparty.org.eclipse.aether.impl.DefaultServiceLocator;
-import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalRepository;
 import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalRepositoryManager;
 import saker.maven.support.thirdparty.org.eclipse.aether.repository.RemoteRepository;
 import saker.maven.support.thirdparty.org.eclipse.aether.resolution.ArtifactRequest;
 import saker.maven.support.thirdparty.org.eclipse.aether.resolution.ArtifactResolutionException;
 import saker.maven.support.thirdparty.org.eclipse.aether.resolution.ArtifactResult;
-import saker.std.api.util.SakerStandardUtils;
 
 public class DownloadArtifactsWorkerTaskFactory implements TaskFactory<ArtifactDownloadTaskOutput>,
 		Task<ArtifactDownloadTaskOutput>, Externalizable, TaskIdentifier {
@@ -76,6 +79,9 @@ public class DownloadArtifactsWorkerTaskFactory implements TaskFactory<ArtifactD
 
 	protected MavenOperationConfiguration configuration;
 	protected Set<? extends ArtifactCoordinates> artifacts;
+	//the priority hints only affect the order of the transfers, therefore they are not part of the task identity
+	protected int priority;
+	protected Map<? extends ArtifactCoordinates, String> scopes = Collections.emptyMap();
 
 	/**
 	 * For {@link Externalizable}.
@@ -91,6 +97,16 @@ public class DownloadArtifactsWorkerTaskFactory implements TaskFactory<ArtifactD
 		this.artifacts = ImmutableUtils.makeImmutableLinkedHashSet(artifacts);
 	}
 
+	public DownloadArtifactsWorkerTaskFactory(MavenOperationConfiguration operationConfiguration,
+			Set<? extends ArtifactCoordinates> artifacts, int priority,
+			Map<? extends ArtifactCoordinates, String> scopes) {
+		this(operationConfiguration, artifacts);
+		this.priority = priority;
+		if (scopes != null) {
+			this.scopes = ImmutableUtils.makeImmutableLinkedHashMap(scopes);
+		}
+	}
+
 	//suppress the unused FileLock warning
 	@SuppressWarnings("try")
 	@Override
@@ -107,13 +123,23 @@ public class DownloadArtifactsWorkerTaskFactory implements TaskFactory<ArtifactD
 
 		MavenOperationConfiguration config = this.configuration;
 		List<RemoteRepository> repositories = MavenImplUtils.createRemoteRepositories(config);
+		repositories = MavenImplUtils.routeThroughCachingProxy(taskcontext, repositories);
+		if (config.isAdaptiveRepositoryOrdering()) {
+			repositories = MavenImplUtils.orderRemoteRepositoriesAdaptively(taskcontext, repositories);
+		}
 
+		ArtifactTransferPriorities priorities = new ArtifactTransferPriorities(artifacts, priority, scopes);
 		Map<ArtifactRequest, ArtifactCoordinates> artifactrequests = new LinkedHashMap<>();
-		for (ArtifactCoordinates acoords : artifacts) {
+		for (ArtifactCoordinates acoords : priorities.getOrderedCoordinates()) {
 			artifactrequests.put(new ArtifactRequest(ArtifactUtils.toArtifact(acoords), repositories, null), acoords);
 		}
 		Map<ArtifactCoordinates, StructuredTaskResult> coordinateResults = new LinkedHashMap<>();
+		//keep the results in the order of the input artifacts, regardless of the transfer order
+		for (ArtifactCoordinates acoords : artifacts) {
+			coordinateResults.put(acoords, null);
+		}
 		final List<Throwable> failexceptions = new ArrayList<>();
+		Path operationrepository = null;
 		try {
 			SakerPath repositorybasedir = MavenImplUtils.getRepositoryBaseDirectoryDefaulted(taskcontext, config);
 
@@ -123,26 +149,39 @@ public class DownloadArtifactsWorkerTaskFactory implements TaskFactory<ArtifactD
 			LocalFileProvider localfp = LocalFileProvider.getInstance();
 			localfp.createDirectories(lockfilelocalpath.getParent());
 
+			//the pruning of the repository waits for the operation to finish
+			operationrepository = lockfilelocalpath.getParent();
+			LocalRepositoryOperations.begin(operationrepository);
+
 			DefaultServiceLocator serviceLocator = MavenImplUtils.getDefaultServiceLocator();
 
 			RepositorySystem reposystem = serviceLocator.getService(RepositorySystem.class);
 
 			DefaultRepositorySystemSession reposession = MavenImplUtils.createNewSession(taskcontext, config);
+			priorities.register(reposession);
 
-			LocalRepository localrepository = new LocalRepository(repositorybasedir.toString());
-			LocalRepositoryManager localrepomanager = reposystem.newLocalRepositoryManager(reposession,
-					localrepository);
+			LocalRepositoryManager localrepomanager = MavenImplUtils.createLocalRepositoryManager(reposystem,
+					reposession, repositorybasedir, config);
 			reposession.setLocalRepositoryManager(localrepomanager);
 
 			reposession.setReadOnly();
 
+			Path repositorylocalpath = lockfilelocalpath.getParent();
+			List<ArtifactResult> resolvedartifacts;
 			synchronized (MavenImplUtils.getLocalRepositoryAccessSyncLock(lockfilepath)) {
 				try (FileChannel lockchannel = FileChannel.open(lockfilelocalpath, StandardOpenOption.CREATE,
 						StandardOpenOption.WRITE);
 						FileLock lock = lockchannel.lock(0, Long.MAX_VALUE, false)) {
 					//taskcontext.invalidate() is called on the download locations by the repository listener
+					MavenImplUtils.loadArtifactDigestIndex(taskcontext, repositorylocalpath);
+
+					if (config.isParallelRepositoryProbing()) {
+						try (ParallelRepositoryProber prober = new ParallelRepositoryProber(taskcontext, serviceLocator,
+								reposession)) {
+							prober.prioritizeRepositories(artifactrequests.keySet());
+						}
+					}
 
-					List<ArtifactResult> resolvedartifacts;
 					try {
 						resolvedartifacts = reposystem.resolveArtifacts(reposession, artifactrequests.keySet());
 					} catch (ArtifactResolutionException e) {
@@ -150,13 +189,20 @@ public class DownloadArtifactsWorkerTaskFactory implements TaskFactory<ArtifactD
 						resolvedartifacts = e.getResults();
 					}
 
-					handleArtifactResults(taskcontext, artifactrequests, coordinateResults, failexceptions,
-							repositorybasedir, resolvedartifacts, localrepomanager);
+					MavenImplUtils.recordArtifactAccess(taskcontext, repositorylocalpath, resolvedartifacts);
 				}
 			}
+			//the files are read without holding the lock, so other builds can access the repository meanwhile
+			MavenImplUtils.computeArtifactDigests(resolvedartifacts, config.isTrustChecksumFiles());
+			handleArtifactResults(taskcontext, artifactrequests, coordinateResults, failexceptions,
+					repositorybasedir, resolvedartifacts, localrepomanager, config);
+			MavenImplUtils.storeArtifactDigestIndex(taskcontext, lockfilepath, lockfilelocalpath);
 		} catch (Exception e) {
 			failexceptions.add(e);
 		} finally {
+			if (operationrepository != null) {
+				LocalRepositoryOperations.end(operationrepository);
+			}
 			//if any exception happens, and we fail to start all the requested tasks, start them for the remaining as well
 			if (!artifactrequests.isEmpty()) {
 				Iterator<Entry<ArtifactRequest, ArtifactCoordinates>> it = artifactrequests.entrySet().iterator();
@@ -182,10 +228,12 @@ public class DownloadArtifactsWorkerTaskFactory implements TaskFactory<ArtifactD
 			Map<ArtifactRequest, ArtifactCoordinates> artifactrequests,
 			Map<ArtifactCoordinates, StructuredTaskResult> coordinateResults, final List<Throwable> failexceptions,
 			SakerPath repositorybasedir, List<ArtifactResult> resolvedartifacts,
-			LocalRepositoryManager localrepomanager) throws AssertionError {
+			LocalRepositoryManager localrepomanager, MavenOperationConfiguration config) throws AssertionError {
 		if (ObjectUtils.isNullOrEmpty(resolvedartifacts)) {
 			return;
 		}
+		boolean trustchecksumfiles = config.isTrustChecksumFiles();
+		String materializationstrategy = config.getMaterializationStrategy();
 		UUID cduniqueness = UUID.randomUUID();
 		for (ArtifactResult result : resolvedartifacts) {
 			ArtifactRequest request = result.getRequest();
@@ -220,9 +268,13 @@ public class DownloadArtifactsWorkerTaskFactory implements TaskFactory<ArtifactD
 				continue;
 			}
 			SakerPath artifactpath = SakerPath.valueOf(file.getAbsolutePath());
+			//the artifact may be in a base repository
+			SakerPath artifactbasedir = MavenImplUtils.getContainingRepositoryBaseDirectory(artifactpath,
+					repositorybasedir, config);
 
-			ContentDescriptor artifactcd = taskcontext.getTaskUtilities().getReportExecutionDependency(
-					SakerStandardUtils.createLocalFileContentDescriptorExecutionProperty(artifactpath, cduniqueness));
+			ContentDescriptor artifactcd = taskcontext.getTaskUtilities()
+					.getReportExecutionDependency(new ArtifactContentDescriptorExecutionProperty(artifactbasedir,
+							artifactpath, cduniqueness, trustchecksumfiles));
 			if (artifactcd == null) {
 				coordinateResults.put(acoords, new RetrievalFailedStructuredTaskResult("Failed to download " + acoords,
 						ImmutableUtils.singletonList(
@@ -232,12 +284,13 @@ public class DownloadArtifactsWorkerTaskFactory implements TaskFactory<ArtifactD
 
 			//TODO should we set the repository name?
 			String reponame = null;
-			SakerPath relpath = repositorybasedir.relativize(artifactpath);
+			SakerPath relpath = artifactbasedir.relativize(artifactpath);
 
 			TaskIdentifier dltaskid = MavenSupportImpl.createArtifactDownloadTaskIdentifier(reponame, relpath);
 
 			taskcontext.startTask(dltaskid,
-					MavenSupportImpl.createArtifactDownloadTaskFactory(reponame, repositorybasedir, relpath, acoords),
+					MavenSupportImpl.createArtifactDownloadTaskFactory(reponame, artifactbasedir, relpath, acoords,
+							trustchecksumfiles, materializationstrategy),
 					null);
 
 			coordinateResults.put(acoords, new SimpleStructuredObjectTaskResult(dltaskid));
@@ -249,14 +302,14 @@ public class DownloadArtifactsWorkerTaskFactory implements TaskFactory<ArtifactD
 		SakerPath localartifactpath = repositorybasedir
 				.resolve(SakerPath.valueOf(localrepomanager.getPathForLocalArtifact(artifact)));
 		taskcontext.reportExecutionDependency(
-				SakerStandardUtils.createLocalFileContentDescriptorExecutionProperty(localartifactpath, cduniqueness),
+				new ArtifactContentDescriptorExecutionProperty(localartifactpath, cduniqueness),
 				null);
 
 		for (RemoteRepository remoterepo : request.getRepositories()) {
 			SakerPath artifactpath = repositorybasedir
 					.resolve(SakerPath.valueOf(localrepomanager.getPathForRemoteArtifact(artifact, remoterepo, null)));
 			taskcontext.reportExecutionDependency(
-					SakerStandardUtils.createLocalFileContentDescriptorExecutionProperty(artifactpath, cduniqueness),
+					new ArtifactContentDescriptorExecutionProperty(artifactpath, cduniqueness),
 					null);
 		}
 	}
@@ -270,12 +323,16 @@ public class DownloadArtifactsWorkerTaskFactory implements TaskFactory<ArtifactD
 	public void writeExternal(ObjectOutput out) throws IOException {
 		out.writeObject(configuration);
 		SerialUtils.writeExternalCollection(out, artifacts);
+		out.writeInt(priority);
+		SerialUtils.writeExternalMap(out, scopes);
 	}
 
 	@Override
 	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
 		configuration = (MavenOperationConfiguration) in.readObject();
 		artifacts = SerialUtils.readExternalImmutableLinkedHashSet(in);
+		priority = in.readInt();
+		scopes = SerialUtils.readExternalImmutableLinkedHashMap(in);
 	}
 
 	@Override
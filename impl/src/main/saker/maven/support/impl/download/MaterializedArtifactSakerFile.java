@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.download;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+import saker.build.file.SakerFileBase;
+import saker.build.file.content.ContentDescriptor;
+import saker.build.file.provider.LocalFileProvider;
+import saker.build.file.provider.ProviderHolderPathKey;
+import saker.maven.support.api.MavenUtils;
+
+/**
+ * {@link saker.build.file.SakerFile SakerFile} implementation for an artifact in the local repository that is
+ * synchronized to the build directory using the configured
+ * {@linkplain saker.maven.support.api.MavenOperationConfiguration#getMaterializationStrategy() materialization
+ * strategy}.
+ * <p>
+ * If the artifact cannot be materialized using the strategy (e.g. hard link to a different file system, or no
+ * privileges for symbolic links), or the synchronization target is not on the local file system, the artifact is
+ * copied the same way as other files.
+ * <p>
+ * The artifact is materialized with a temporary name next to the target, and then atomically moved in place, so the
+ * previous file at the target is only replaced if the materialization succeeds.
+ */
+class MaterializedArtifactSakerFile extends SakerFileBase {
+	private final Path artifactPath;
+	private final ContentDescriptor contentDescriptor;
+	private final String materializationStrategy;
+
+	public MaterializedArtifactSakerFile(String name, Path artifactPath, ContentDescriptor contentDescriptor,
+			String materializationStrategy) {
+		super(name);
+		this.artifactPath = artifactPath;
+		this.contentDescriptor = contentDescriptor;
+		this.materializationStrategy = materializationStrategy;
+	}
+
+	@Override
+	public ContentDescriptor getContentDescriptor() {
+		return contentDescriptor;
+	}
+
+	@Override
+	public InputStream openInputStreamImpl() throws IOException {
+		return Files.newInputStream(artifactPath);
+	}
+
+	@Override
+	public void writeToStreamImpl(OutputStream os) throws IOException {
+		Files.copy(artifactPath, os);
+	}
+
+	@Override
+	public void synchronizeImpl(ProviderHolderPathKey pathkey) throws IOException {
+		if (LocalFileProvider.getProviderKeyStatic().equals(pathkey.getFileProviderKey())) {
+			Path target = LocalFileProvider.toRealPath(pathkey.getPath());
+			if (materialize(target)) {
+				return;
+			}
+		}
+		super.synchronizeImpl(pathkey);
+	}
+
+	private boolean materialize(Path target) {
+		switch (materializationStrategy) {
+			case MavenUtils.MATERIALIZATION_STRATEGY_HARDLINK:
+			case MavenUtils.MATERIALIZATION_STRATEGY_SYMLINK:
+			case MavenUtils.MATERIALIZATION_STRATEGY_TRANSFER: {
+				break;
+			}
+			default: {
+				return false;
+			}
+		}
+		Path temp = target.resolveSibling("." + target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+		try {
+			Files.createDirectories(target.getParent());
+			try {
+				switch (materializationStrategy) {
+					case MavenUtils.MATERIALIZATION_STRATEGY_HARDLINK: {
+						Files.createLink(temp, artifactPath);
+						break;
+					}
+					case MavenUtils.MATERIALIZATION_STRATEGY_SYMLINK: {
+						Files.createSymbolicLink(temp, artifactPath);
+						break;
+					}
+					default: {
+						transferFile(temp);
+						break;
+					}
+				}
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (Throwable e) {
+				Files.deleteIfExists(temp);
+				throw e;
+			}
+			return true;
+		} catch (IOException | UnsupportedOperationException | SecurityException e) {
+			//fall back to copying
+			return false;
+		}
+	}
+
+	private void transferFile(Path target) throws IOException {
+		//the channel transfer lets the operating system copy the file contents
+		//  (e.g. copy_file_range on Linux) without reading them in this process
+		try (FileChannel in = FileChannel.open(artifactPath, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+			long size = in.size();
+			for (long position = 0; position < size;) {
+				long transferred = in.transferTo(position, size - position, out);
+				if (transferred <= 0) {
+					throw new IOException("Failed to transfer file: " + artifactPath + " to " + target);
+				}
+				position += transferred;
+			}
+		}
+	}
+}
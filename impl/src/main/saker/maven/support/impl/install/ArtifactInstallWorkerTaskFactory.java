@@ -49,7 +49,6 @@ import saker.maven.support.thirdparty.org.eclipse.aether.artifact.Artifact;
 import saker.maven.support.thirdparty.org.eclipse.aether.artifact.DefaultArtifact;
 import saker.maven.support.thirdparty.org.eclipse.aether.impl.DefaultServiceLocator;
 import saker.maven.support.thirdparty.org.eclipse.aether.installation.InstallRequest;
-import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalRepository;
 import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalRepositoryManager;
 import saker.std.api.util.SakerStandardUtils;
 
@@ -124,8 +123,8 @@ public class ArtifactInstallWorkerTaskFactory
 
 		DefaultRepositorySystemSession reposession = MavenImplUtils.createNewSession(taskcontext, config);
 
-		LocalRepository localrepository = new LocalRepository(repositorybasedir.toString());
-		LocalRepositoryManager localrepomanager = reposystem.newLocalRepositoryManager(reposession, localrepository);
+		LocalRepositoryManager localrepomanager = MavenImplUtils.createLocalRepositoryManager(reposystem, reposession,
+				repositorybasedir, config);
 		reposession.setLocalRepositoryManager(localrepomanager);
 
 		reposession.setReadOnly();
@@ -26,6 +26,7 @@ import java.nio.channels.FileLock;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -51,21 +52,26 @@ import saker.build.trace.BuildTrace;
 import saker.maven.support.api.ArtifactCoordinates;
 import saker.maven.support.api.MavenOperationConfiguration;
 import saker.maven.support.api.localize.ArtifactLocalizationTaskOutput;
+import saker.maven.support.api.localize.ArtifactLocalizationWorkerTaskOutput;
 import saker.maven.support.impl.ArtifactUtils;
 import saker.maven.support.impl.MavenImplUtils;
 import saker.maven.support.impl.RetrievalFailedStructuredTaskResult;
+import saker.maven.support.impl.cluster.ClusterArtifactSharing;
+import saker.maven.support.impl.cluster.ClusterArtifactSharing.TransferredArtifact;
+import saker.maven.support.impl.content.ArtifactContentDescriptorExecutionProperty;
+import saker.maven.support.impl.repository.LocalRepositoryOperations;
+import saker.maven.support.impl.transport.ArtifactTransferPriorities;
+import saker.maven.support.impl.transport.ParallelRepositoryProber;
 import saker.maven.support.main.localize.LocalizeArtifactsTaskFactory;
 import saker.maven.support.thirdparty.org.eclipse.aether.DefaultRepositorySystemSession;
 import saker.maven.support.thirdparty.org.eclipse.aether.RepositorySystem;
 import saker.maven.support.thirdparty.org.eclipse.aether.artifact.Artifact;
 import saker.maven.support.thirdparty.org.eclipse.aether.impl.DefaultServiceLocator;
-import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalRepository;
 import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalRepositoryManager;
 import saker.maven.support.thirdparty.org.eclipse.aether.repository.RemoteRepository;
 import saker.maven.support.thirdparty.org.eclipse.aether.resolution.ArtifactRequest;
 import saker.maven.support.thirdparty.org.eclipse.aether.resolution.ArtifactResolutionException;
 import saker.maven.support.thirdparty.org.eclipse.aether.resolution.ArtifactResult;
-import saker.std.api.util.SakerStandardUtils;
 
 public class LocalizeArtifactsWorkerTaskFactory implements TaskFactory<ArtifactLocalizationTaskOutput>,
 		Task<ArtifactLocalizationTaskOutput>, Externalizable, TaskIdentifier {
@@ -74,6 +80,9 @@ public class LocalizeArtifactsWorkerTaskFactory implements TaskFactory<ArtifactL
 
 	protected MavenOperationConfiguration configuration;
 	protected Set<? extends ArtifactCoordinates> artifacts;
+	//the priority hints only affect the order of the transfers, therefore they are not part of the task identity
+	protected int priority;
+	protected Map<? extends ArtifactCoordinates, String> scopes = Collections.emptyMap();
 
 	/**
 	 * For {@link Externalizable}.
@@ -85,10 +94,20 @@ public class LocalizeArtifactsWorkerTaskFactory implements TaskFactory<ArtifactL
 			Set<? extends ArtifactCoordinates> artifacts) {
 		Objects.requireNonNull(artifacts, "artifacts");
 		Objects.requireNonNull(operationConfiguration, "configuration");
-		this.configuration = operationConfiguration;
+		this.configuration = MavenImplUtils.toRelocatableConfiguration(operationConfiguration);
 		this.artifacts = ImmutableUtils.makeImmutableLinkedHashSet(artifacts);
 	}
 
+	public LocalizeArtifactsWorkerTaskFactory(MavenOperationConfiguration operationConfiguration,
+			Set<? extends ArtifactCoordinates> artifacts, int priority,
+			Map<? extends ArtifactCoordinates, String> scopes) {
+		this(operationConfiguration, artifacts);
+		this.priority = priority;
+		if (scopes != null) {
+			this.scopes = ImmutableUtils.makeImmutableLinkedHashMap(scopes);
+		}
+	}
+
 	//suppress the unused FileLock warning
 	@SuppressWarnings("try")
 	@Override
@@ -105,15 +124,29 @@ public class LocalizeArtifactsWorkerTaskFactory implements TaskFactory<ArtifactL
 
 		MavenOperationConfiguration config = this.configuration;
 		List<RemoteRepository> repositories = MavenImplUtils.createRemoteRepositories(config);
+		repositories = MavenImplUtils.routeThroughCachingProxy(taskcontext, repositories);
+		if (config.isAdaptiveRepositoryOrdering()) {
+			repositories = MavenImplUtils.orderRemoteRepositoriesAdaptively(taskcontext, repositories);
+		}
 
+		ArtifactTransferPriorities priorities = new ArtifactTransferPriorities(artifacts, priority, scopes);
 		Map<ArtifactRequest, ArtifactCoordinates> artifactrequests = new LinkedHashMap<>();
-		for (ArtifactCoordinates acoords : artifacts) {
+		for (ArtifactCoordinates acoords : priorities.getOrderedCoordinates()) {
 			artifactrequests.put(new ArtifactRequest(ArtifactUtils.toArtifact(acoords), repositories, null), acoords);
 		}
 		Map<ArtifactCoordinates, StructuredTaskResult> coordinateResults = new LinkedHashMap<>();
+		//keep the results in the order of the input artifacts, regardless of the transfer order
+		for (ArtifactCoordinates acoords : artifacts) {
+			coordinateResults.put(acoords, null);
+		}
 		final List<Throwable> failexceptions = new ArrayList<>();
+		List<TransferredArtifact> clustertransfers = Collections.emptyList();
+		Path operationrepository = null;
 		try {
-			SakerPath repositorybasedir = MavenImplUtils.getRepositoryBaseDirectoryDefaulted(taskcontext, config);
+			//the relocatable results are resolved by the consumer, they don't depend on the default location
+			SakerPath repositorybasedir = config.isRelocatableLocalization()
+					? MavenImplUtils.getRepositoryBaseDirectoryDefaulted(config)
+					: MavenImplUtils.getRepositoryBaseDirectoryDefaulted(taskcontext, config);
 
 			SakerPath lockfilepath = MavenImplUtils.getAccessLockFilePathInRepository(repositorybasedir);
 			Path lockfilelocalpath = LocalFileProvider.toRealPath(lockfilepath);
@@ -121,26 +154,55 @@ public class LocalizeArtifactsWorkerTaskFactory implements TaskFactory<ArtifactL
 			LocalFileProvider localfp = LocalFileProvider.getInstance();
 			localfp.createDirectories(lockfilelocalpath.getParent());
 
+			//the pruning of the repository waits for the operation to finish
+			operationrepository = lockfilelocalpath.getParent();
+			LocalRepositoryOperations.begin(operationrepository);
+
 			DefaultServiceLocator serviceLocator = MavenImplUtils.getDefaultServiceLocator();
 
 			RepositorySystem reposystem = serviceLocator.getService(RepositorySystem.class);
 
 			DefaultRepositorySystemSession reposession = MavenImplUtils.createNewSession(taskcontext, config);
+			priorities.register(reposession);
 
-			LocalRepository localrepository = new LocalRepository(repositorybasedir.toString());
-			LocalRepositoryManager localrepomanager = reposystem.newLocalRepositoryManager(reposession,
-					localrepository);
+			LocalRepositoryManager localrepomanager = MavenImplUtils.createLocalRepositoryManager(reposystem,
+					reposession, repositorybasedir, config);
 			reposession.setLocalRepositoryManager(localrepomanager);
 
 			reposession.setReadOnly();
 
+			if (config.isClusterArtifactSharing() && !ClusterArtifactSharing.isRunningOnCoordinator(taskcontext)) {
+				//before locking, as the coordinator may download into the same repository
+				clustertransfers = ClusterArtifactSharing.transferFromCoordinator(taskcontext, config,
+						ClusterArtifactSharing.getMissingArtifacts(reposession, artifactrequests), reposession,
+						lockfilelocalpath.getParent());
+			}
+
+			Path repositorylocalpath = lockfilelocalpath.getParent();
+			List<ArtifactResult> resolvedartifacts;
 			synchronized (MavenImplUtils.getLocalRepositoryAccessSyncLock(lockfilepath)) {
 				try (FileChannel lockchannel = FileChannel.open(lockfilelocalpath, StandardOpenOption.CREATE,
 						StandardOpenOption.WRITE);
 						FileLock lock = lockchannel.lock(0, Long.MAX_VALUE, false)) {
 					//taskcontext.invalidate() is called on the localize locations by the repository listener
+					MavenImplUtils.loadArtifactDigestIndex(taskcontext, repositorylocalpath);
+
+					if (!clustertransfers.isEmpty()) {
+						try {
+							ClusterArtifactSharing.install(reposession, clustertransfers);
+						} catch (IOException e) {
+							//the failed artifacts are resolved from the remote repositories
+							taskcontext.getTaskUtilities().reportIgnoredException(e);
+						}
+					}
+
+					if (config.isParallelRepositoryProbing()) {
+						try (ParallelRepositoryProber prober = new ParallelRepositoryProber(taskcontext, serviceLocator,
+								reposession)) {
+							prober.prioritizeRepositories(artifactrequests.keySet());
+						}
+					}
 
-					List<ArtifactResult> resolvedartifacts;
 					try {
 						resolvedartifacts = reposystem.resolveArtifacts(reposession, artifactrequests.keySet());
 					} catch (ArtifactResolutionException e) {
@@ -148,13 +210,21 @@ public class LocalizeArtifactsWorkerTaskFactory implements TaskFactory<ArtifactL
 						resolvedartifacts = e.getResults();
 					}
 
-					handleArtifactResults(taskcontext, artifactrequests, coordinateResults, failexceptions,
-							repositorybasedir, resolvedartifacts, localrepomanager);
+					MavenImplUtils.recordArtifactAccess(taskcontext, repositorylocalpath, resolvedartifacts);
 				}
 			}
+			//the files are read without holding the lock, so other builds can access the repository meanwhile
+			MavenImplUtils.computeArtifactDigests(resolvedartifacts, config.isTrustChecksumFiles());
+			handleArtifactResults(taskcontext, artifactrequests, coordinateResults, failexceptions,
+					repositorybasedir, resolvedartifacts, localrepomanager, config);
+			MavenImplUtils.storeArtifactDigestIndex(taskcontext, lockfilepath, lockfilelocalpath);
 		} catch (Exception e) {
 			failexceptions.add(e);
 		} finally {
+			if (operationrepository != null) {
+				LocalRepositoryOperations.end(operationrepository);
+			}
+			ClusterArtifactSharing.discard(clustertransfers);
 			//if any exception happens, and we fail to start all the requested tasks, start them for the remaining as well
 			if (!artifactrequests.isEmpty()) {
 				Iterator<Entry<ArtifactRequest, ArtifactCoordinates>> it = artifactrequests.entrySet().iterator();
@@ -180,11 +250,13 @@ public class LocalizeArtifactsWorkerTaskFactory implements TaskFactory<ArtifactL
 			Map<ArtifactRequest, ArtifactCoordinates> artifactrequests,
 			Map<ArtifactCoordinates, StructuredTaskResult> coordinateResults, final List<Throwable> failexceptions,
 			SakerPath repositorybasedir, List<ArtifactResult> resolvedartifacts,
-			LocalRepositoryManager localrepomanager) throws AssertionError {
+			LocalRepositoryManager localrepomanager, MavenOperationConfiguration config) throws AssertionError {
 		if (ObjectUtils.isNullOrEmpty(resolvedartifacts)) {
 			return;
 		}
-		UUID cduniqueness = UUID.randomUUID();
+		//the relocatable dependencies are the same for every run and machine, so equivalent localizations have
+		//the same dependencies, and their results can be reused
+		UUID cduniqueness = config.isRelocatableLocalization() ? null : UUID.randomUUID();
 		for (ArtifactResult result : resolvedartifacts) {
 			ArtifactRequest request = result.getRequest();
 			ArtifactCoordinates acoords = artifactrequests.remove(request);
@@ -203,7 +275,7 @@ public class LocalizeArtifactsWorkerTaskFactory implements TaskFactory<ArtifactL
 				Artifact requestartifact = request.getArtifact();
 
 				installLocalizationFailedDependencies(taskcontext, repositorybasedir, localrepomanager, cduniqueness,
-						request, requestartifact);
+						request, requestartifact, config);
 
 				coordinateResults.put(acoords, new RetrievalFailedStructuredTaskResult("Failed to localize " + acoords,
 						ImmutableUtils.makeImmutableList(exceptions)));
@@ -211,7 +283,7 @@ public class LocalizeArtifactsWorkerTaskFactory implements TaskFactory<ArtifactL
 			}
 			if ((file = resultartifact.getFile()) == null) {
 				installLocalizationFailedDependencies(taskcontext, repositorybasedir, localrepomanager, cduniqueness,
-						request, resultartifact);
+						request, resultartifact, config);
 
 				coordinateResults.put(acoords, new RetrievalFailedStructuredTaskResult("Failed to localize " + acoords,
 						ImmutableUtils.makeImmutableList(exceptions)));
@@ -219,8 +291,26 @@ public class LocalizeArtifactsWorkerTaskFactory implements TaskFactory<ArtifactL
 			}
 			SakerPath artifactpath = SakerPath.valueOf(file.getAbsolutePath());
 
-			ContentDescriptor artifactcd = taskcontext.getTaskUtilities().getReportExecutionDependency(
-					SakerStandardUtils.createLocalFileContentDescriptorExecutionProperty(artifactpath, cduniqueness));
+			String repositoryid = null;
+			SakerPath repositoryrelativepath = null;
+			ContentDescriptor artifactcd;
+			SakerPath containingbasedir = MavenImplUtils.getContainingRepositoryBaseDirectory(artifactpath,
+					repositorybasedir, config);
+			if (config.isRelocatableLocalization()) {
+				if (artifactpath.startsWith(containingbasedir)) {
+					repositoryid = MavenImplUtils.getLocalRepositoryIdentifier(containingbasedir);
+					repositoryrelativepath = containingbasedir.relativize(artifactpath);
+				}
+			}
+			if (repositoryid != null) {
+				artifactcd = taskcontext.getTaskUtilities()
+						.getReportExecutionDependency(new ArtifactContentDescriptorExecutionProperty(repositoryid,
+								repositoryrelativepath, cduniqueness, config.isTrustChecksumFiles()));
+			} else {
+				artifactcd = taskcontext.getTaskUtilities().getReportExecutionDependency(
+						new ArtifactContentDescriptorExecutionProperty(containingbasedir, artifactpath, cduniqueness,
+								config.isTrustChecksumFiles()));
+			}
 			if (artifactcd == null) {
 				coordinateResults.put(acoords, new RetrievalFailedStructuredTaskResult("Failed to localize " + acoords,
 						ImmutableUtils.singletonList(
@@ -228,43 +318,75 @@ public class LocalizeArtifactsWorkerTaskFactory implements TaskFactory<ArtifactL
 				continue;
 			}
 
-			coordinateResults.put(acoords, StructuredTaskResult
-					.createLiteral(new ArtifactLocalizationWorkerTaskOutputImpl(acoords, artifactpath, artifactcd)));
+			ArtifactLocalizationWorkerTaskOutput artifactoutput;
+			if (repositoryid != null) {
+				artifactoutput = new RelocatableArtifactLocalizationWorkerTaskOutputImpl(acoords, repositoryid,
+						repositoryrelativepath, artifactcd);
+			} else {
+				artifactoutput = new ArtifactLocalizationWorkerTaskOutputImpl(acoords, artifactpath, artifactcd);
+			}
+			coordinateResults.put(acoords, StructuredTaskResult.createLiteral(artifactoutput));
 		}
 	}
 
 	private static void installLocalizationFailedDependencies(TaskContext taskcontext, SakerPath repositorybasedir,
-			LocalRepositoryManager localrepomanager, UUID cduniqueness, ArtifactRequest request, Artifact artifact) {
-		SakerPath localartifactpath = repositorybasedir
-				.resolve(SakerPath.valueOf(localrepomanager.getPathForLocalArtifact(artifact)));
-		taskcontext.reportExecutionDependency(
-				SakerStandardUtils.createLocalFileContentDescriptorExecutionProperty(localartifactpath, cduniqueness),
-				null);
+			LocalRepositoryManager localrepomanager, UUID cduniqueness, ArtifactRequest request, Artifact artifact,
+			MavenOperationConfiguration config) {
+		//the relocatable dependencies don't contain the path of the local repository
+		String repositoryid = config.isRelocatableLocalization()
+				? MavenImplUtils.getLocalRepositoryIdentifier(repositorybasedir)
+				: null;
+		installLocalizationFailedDependency(taskcontext, repositorybasedir, repositoryid, cduniqueness,
+				SakerPath.valueOf(localrepomanager.getPathForLocalArtifact(artifact)));
 
 		for (RemoteRepository remoterepo : request.getRepositories()) {
-			SakerPath artifactpath = repositorybasedir
-					.resolve(SakerPath.valueOf(localrepomanager.getPathForRemoteArtifact(artifact, remoterepo, null)));
-			taskcontext.reportExecutionDependency(
-					SakerStandardUtils.createLocalFileContentDescriptorExecutionProperty(artifactpath, cduniqueness),
-					null);
+			installLocalizationFailedDependency(taskcontext, repositorybasedir, repositoryid, cduniqueness, SakerPath
+					.valueOf(localrepomanager.getPathForRemoteArtifact(artifact, remoterepo, null)));
 		}
 	}
 
+	private static void installLocalizationFailedDependency(TaskContext taskcontext, SakerPath repositorybasedir,
+			String repositoryid, UUID cduniqueness, SakerPath relativepath) {
+		ArtifactContentDescriptorExecutionProperty property;
+		if (repositoryid != null) {
+			property = new ArtifactContentDescriptorExecutionProperty(repositoryid, relativepath, cduniqueness,
+					false);
+		} else {
+			property = new ArtifactContentDescriptorExecutionProperty(repositorybasedir.resolve(relativepath),
+					cduniqueness);
+		}
+		taskcontext.reportExecutionDependency(property, null);
+	}
+
 	@Override
 	public Task<? extends ArtifactLocalizationTaskOutput> createTask(ExecutionContext executioncontext) {
 		return this;
 	}
 
+	@Override
+	public Set<String> getCapabilities() {
+		if (configuration.isClusterArtifactSharing() && configuration.isRelocatableLocalization()) {
+			//the missing artifacts are retrieved through the coordinator
+			//only relocatable outputs are dispatched, as the local paths of the clusters are meaningless elsewhere
+			return Collections.singleton(CAPABILITY_REMOTE_DISPATCHABLE);
+		}
+		return TaskFactory.super.getCapabilities();
+	}
+
 	@Override
 	public void writeExternal(ObjectOutput out) throws IOException {
 		out.writeObject(configuration);
 		SerialUtils.writeExternalCollection(out, artifacts);
+		out.writeInt(priority);
+		SerialUtils.writeExternalMap(out, scopes);
 	}
 
 	@Override
 	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
 		configuration = (MavenOperationConfiguration) in.readObject();
 		artifacts = SerialUtils.readExternalImmutableLinkedHashSet(in);
+		priority = in.readInt();
+		scopes = SerialUtils.readExternalImmutableLinkedHashMap(in);
 	}
 
 	@Override
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.localize;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import saker.build.file.content.ContentDescriptor;
+import saker.build.file.path.SakerPath;
+import saker.maven.support.api.ArtifactCoordinates;
+import saker.maven.support.api.localize.ArtifactLocalizationWorkerTaskOutput;
+import saker.maven.support.impl.MavenImplUtils;
+
+/**
+ * Localization output that identifies the artifact by its local repository and the path relative to it.
+ * <p>
+ * The absolute path is not part of the output, it is resolved lazily on the machine that calls
+ * {@link #getLocalPath()}. The outputs of equivalent localizations are equal regardless of the machine or user they
+ * were created by.
+ */
+public class RelocatableArtifactLocalizationWorkerTaskOutputImpl
+		implements ArtifactLocalizationWorkerTaskOutput, Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	private ArtifactCoordinates coordinates;
+	private String repositoryIdentifier;
+	private SakerPath repositoryRelativePath;
+	private ContentDescriptor contentDescriptor;
+
+	private transient SakerPath localPath;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public RelocatableArtifactLocalizationWorkerTaskOutputImpl() {
+	}
+
+	public RelocatableArtifactLocalizationWorkerTaskOutputImpl(ArtifactCoordinates coordinates,
+			String repositoryIdentifier, SakerPath repositoryRelativePath, ContentDescriptor contentDescriptor) {
+		this.coordinates = coordinates;
+		this.repositoryIdentifier = repositoryIdentifier;
+		this.repositoryRelativePath = repositoryRelativePath;
+		this.contentDescriptor = contentDescriptor;
+	}
+
+	@Override
+	public ArtifactCoordinates getCoordinates() {
+		return coordinates;
+	}
+
+	@Override
+	public SakerPath getLocalPath() {
+		SakerPath result = localPath;
+		if (result == null) {
+			result = MavenImplUtils.resolveLocalRepositoryIdentifier(repositoryIdentifier)
+					.resolve(repositoryRelativePath);
+			localPath = result;
+		}
+		return result;
+	}
+
+	@Override
+	public ContentDescriptor getContentDescriptor() {
+		return contentDescriptor;
+	}
+
+	@Override
+	public String getRepositoryIdentifier() {
+		return repositoryIdentifier;
+	}
+
+	@Override
+	public SakerPath getRepositoryRelativePath() {
+		return repositoryRelativePath;
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeObject(coordinates);
+		out.writeObject(repositoryIdentifier);
+		out.writeObject(repositoryRelativePath);
+		out.writeObject(contentDescriptor);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		coordinates = (ArtifactCoordinates) in.readObject();
+		repositoryIdentifier = (String) in.readObject();
+		repositoryRelativePath = (SakerPath) in.readObject();
+		contentDescriptor = (ContentDescriptor) in.readObject();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((contentDescriptor == null) ? 0 : contentDescriptor.hashCode());
+		result = prime * result + ((coordinates == null) ? 0 : coordinates.hashCode());
+		result = prime * result + ((repositoryIdentifier == null) ? 0 : repositoryIdentifier.hashCode());
+		result = prime * result + ((repositoryRelativePath == null) ? 0 : repositoryRelativePath.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		RelocatableArtifactLocalizationWorkerTaskOutputImpl other = (RelocatableArtifactLocalizationWorkerTaskOutputImpl) obj;
+		if (contentDescriptor == null) {
+			if (other.contentDescriptor != null)
+				return false;
+		} else if (!contentDescriptor.equals(other.contentDescriptor))
+			return false;
+		if (coordinates == null) {
+			if (other.coordinates != null)
+				return false;
+		} else if (!coordinates.equals(other.coordinates))
+			return false;
+		if (repositoryIdentifier == null) {
+			if (other.repositoryIdentifier != null)
+				return false;
+		} else if (!repositoryIdentifier.equals(other.repositoryIdentifier))
+			return false;
+		if (repositoryRelativePath == null) {
+			if (other.repositoryRelativePath != null)
+				return false;
+		} else if (!repositoryRelativePath.equals(other.repositoryRelativePath))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + coordinates + " -> " + repositoryIdentifier + ":"
+				+ repositoryRelativePath + "]";
+	}
+}
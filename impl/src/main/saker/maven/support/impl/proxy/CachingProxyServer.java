@@ -0,0 +1,693 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.proxy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.BindException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Pull-through caching HTTP proxy for Maven repositories.
+ * <p>
+ * The proxy serves the files of upstream repositories under the
+ * <code>/&lt;access token&gt;/&lt;encoded upstream URL&gt;/&lt;path&gt;</code> paths, see
+ * {@link #toProxiedUrl(URI, String)}. The release files are immutable, therefore they are cached persistently in the
+ * cache directory after the first download. A file is only cached if it matches the <code>.sha1</code> checksum of
+ * the upstream repository. The concurrent requests for the same file wait for the first one to finish, so the file is
+ * only downloaded once. Snapshot files and the repository metadata is forwarded to the upstream repository for each
+ * request.
+ * <p>
+ * The requests are only served if they contain the random access token of the proxy, and only for the upstream
+ * repositories that were registered by the clients. Other requests are rejected, so the proxy can't be used to access
+ * arbitrary URLs.
+ * <p>
+ * A single proxy is started in the JVM. The port and the access token of the proxy is written to the proxy file in the
+ * cache directory. If the port is already used by a proxy of another process with the same cache directory, it is
+ * detected using the proxy file, and used instead of starting a new one, so the builds on the same machine share the
+ * cache.
+ */
+public final class CachingProxyServer {
+	private static final String PROXY_FILE_NAME = ".saker.maven.proxy";
+	private static final String IDENTIFICATION_PATH = "/.saker.maven.proxy/";
+	private static final String REGISTER_PATH = ".register/";
+	private static final int ACCESS_TOKEN_LENGTH = 16;
+	private static final int MAX_CHECKSUM_SIZE = 1024;
+	private static final int SHA1_HEX_LENGTH = 40;
+	private static final int UPSTREAM_CONNECT_TIMEOUT = 10 * 1000;
+	private static final int UPSTREAM_READ_TIMEOUT = 60 * 1000;
+	private static final int PROBE_TIMEOUT = 1000;
+
+	/**
+	 * Download status when the file couldn't be verified, and should be forwarded to the upstream repository instead.
+	 */
+	private static final int STATUS_UNVERIFIED = -1;
+
+	private static final Object START_LOCK = new Object();
+	private static CachingProxyServer runningServer;
+
+	/**
+	 * The upstream URLs that were registered at proxies of other processes, mapped by the base URIs of the proxies.
+	 */
+	private static final ConcurrentMap<URI, Set<String>> REMOTE_REGISTRATIONS = new ConcurrentHashMap<>();
+
+	private final HttpServer server;
+	private final Path cacheDirectory;
+	private final InetAddress bindAddress;
+	private final int requestedPort;
+	private final String accessToken;
+	private final URI baseUri;
+	private final ExecutorService executor;
+	private final ConcurrentMap<Path, CompletableFuture<Integer>> inProgressDownloads = new ConcurrentHashMap<>();
+	private final Set<String> registeredUpstreams = ConcurrentHashMap.newKeySet();
+
+	private CachingProxyServer(HttpServer server, Path cacheDirectory, InetAddress bindAddress, int requestedPort,
+			String accessToken, URI baseUri) {
+		this.server = server;
+		this.cacheDirectory = cacheDirectory;
+		this.bindAddress = bindAddress;
+		this.requestedPort = requestedPort;
+		this.accessToken = accessToken;
+		this.baseUri = baseUri;
+		this.executor = Executors.newCachedThreadPool(r -> {
+			Thread thread = new Thread(r, "saker.maven caching proxy");
+			thread.setDaemon(true);
+			return thread;
+		});
+		server.setExecutor(executor);
+		server.createContext("/", this::handle);
+	}
+
+	/**
+	 * Starts the caching proxy if not yet running in the JVM, or finds the proxy of an other process on the same port.
+	 * <p>
+	 * If the proxy is already running in the JVM with different parameters, the running proxy is used, and a warning
+	 * is reported.
+	 *
+	 * @param cachedirectory
+	 *            The cache directory.
+	 * @param bindaddress
+	 *            The address to bind to, or <code>null</code> to bind to the loopback address.
+	 * @param port
+	 *            The port to listen on, or 0 to use an ephemeral port.
+	 * @param warnings
+	 *            The consumer of the warnings.
+	 * @return The base URI of the proxy, including its access token.
+	 * @throws IOException
+	 *             If the proxy cannot be started, and the port is not used by another caching proxy with the same
+	 *             cache directory.
+	 */
+	public static URI startOrGet(Path cachedirectory, String bindaddress, int port, Consumer<String> warnings)
+			throws IOException {
+		Path cachedir = cachedirectory.toAbsolutePath().normalize();
+		InetAddress address = bindaddress == null ? InetAddress.getLoopbackAddress()
+				: InetAddress.getByName(bindaddress);
+		synchronized (START_LOCK) {
+			CachingProxyServer running = runningServer;
+			if (running != null) {
+				if (!running.cacheDirectory.equals(cachedir) || !running.bindAddress.equals(address)
+						|| running.requestedPort != port) {
+					warnings.accept("Maven caching proxy is already running in the JVM with different parameters: "
+							+ running + " (bind address: " + running.bindAddress + ", port: " + running.requestedPort
+							+ ") Requested cache directory: " + cachedir + " bind address: " + address + " port: "
+							+ port);
+				}
+				return running.baseUri;
+			}
+			InetAddress connectaddress = address.isAnyLocalAddress() ? InetAddress.getLoopbackAddress() : address;
+			HttpServer server;
+			try {
+				server = HttpServer.create(new InetSocketAddress(address, port), 0);
+			} catch (BindException e) {
+				//probably started by an other build environment on the same machine
+				URI baseuri = getOtherProcessProxy(cachedir, connectaddress, port);
+				if (baseuri != null) {
+					return baseuri;
+				}
+				throw e;
+			}
+			try {
+				String accesstoken = generateAccessToken();
+				int boundport = server.getAddress().getPort();
+				URI baseuri = URI
+						.create("http://" + toUriHost(connectaddress) + ":" + boundport + "/" + accesstoken + "/");
+				Files.createDirectories(cachedir);
+				writeProxyFile(cachedir, boundport, accesstoken);
+				CachingProxyServer proxy = new CachingProxyServer(server, cachedir, address, port, accesstoken,
+						baseuri);
+				proxy.start();
+				runningServer = proxy;
+				return baseuri;
+			} catch (Throwable e) {
+				server.stop(0);
+				throw e;
+			}
+		}
+	}
+
+	private void start() throws IOException {
+		//the dispatcher thread inherits the daemon status of the starting thread
+		//start it from a daemon thread, so it doesn't prevent the JVM from exiting
+		Thread starter = new Thread(server::start, "saker.maven caching proxy starter");
+		starter.setDaemon(true);
+		starter.start();
+		try {
+			starter.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			server.stop(0);
+			executor.shutdownNow();
+			throw new IOException("Interrupted while starting the caching proxy.", e);
+		}
+	}
+
+	/**
+	 * Gets the URL through which the argument upstream repository is accessed by the proxy.
+	 * <p>
+	 * The upstream repository is registered at the proxy, as the proxy only serves the registered upstream
+	 * repositories.
+	 *
+	 * @param proxyuri
+	 *            The base URI of the proxy, including its access token.
+	 * @param upstreamurl
+	 *            The URL of the upstream repository.
+	 * @return The proxied repository URL.
+	 * @throws IOException
+	 *             If the upstream repository cannot be registered at the proxy.
+	 */
+	public static String toProxiedUrl(URI proxyuri, String upstreamurl) throws IOException {
+		String base = upstreamurl.endsWith("/") ? upstreamurl : upstreamurl + "/";
+		String encoded = Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(base.getBytes(StandardCharsets.UTF_8));
+		CachingProxyServer running;
+		synchronized (START_LOCK) {
+			running = runningServer;
+		}
+		if (running != null && running.baseUri.equals(proxyuri)) {
+			running.registeredUpstreams.add(base);
+		} else {
+			Set<String> registered = REMOTE_REGISTRATIONS.computeIfAbsent(proxyuri,
+					k -> ConcurrentHashMap.newKeySet());
+			if (!registered.contains(base)) {
+				registerAtProxy(proxyuri, encoded);
+				registered.add(base);
+			}
+		}
+		return proxyuri.resolve(encoded + "/").toString();
+	}
+
+	private static void registerAtProxy(URI proxyuri, String encodedupstream) throws IOException {
+		URL url = proxyuri.resolve(REGISTER_PATH + encodedupstream).toURL();
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		try {
+			connection.setConnectTimeout(PROBE_TIMEOUT);
+			connection.setReadTimeout(PROBE_TIMEOUT);
+			int status = connection.getResponseCode();
+			if (status != HttpURLConnection.HTTP_OK) {
+				throw new IOException("Failed to register upstream repository at caching proxy: " + proxyuri
+						+ " (HTTP " + status + ")");
+			}
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	/**
+	 * Gets the base URI of the proxy started by another process with the same cache directory.
+	 * <p>
+	 * The proxy file in the cache directory is read, and the process on the port is verified to know the access token
+	 * without sending the token to it.
+	 *
+	 * @return The base URI or <code>null</code> if the port is not used by such proxy.
+	 */
+	private static URI getOtherProcessProxy(Path cachedir, InetAddress connectaddress, int port) {
+		String[] proxyfile;
+		try {
+			proxyfile = new String(Files.readAllBytes(cachedir.resolve(PROXY_FILE_NAME)), StandardCharsets.UTF_8)
+					.trim().split(" ");
+		} catch (IOException e) {
+			return null;
+		}
+		if (proxyfile.length != 2 || !Integer.toString(port).equals(proxyfile[0])) {
+			return null;
+		}
+		String accesstoken = proxyfile[1];
+		String hostbase = "http://" + toUriHost(connectaddress) + ":" + port;
+		String challenge = generateAccessToken();
+		try {
+			HttpURLConnection connection = (HttpURLConnection) new URL(hostbase + IDENTIFICATION_PATH + challenge)
+					.openConnection();
+			try {
+				connection.setConnectTimeout(PROBE_TIMEOUT);
+				connection.setReadTimeout(PROBE_TIMEOUT);
+				if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+					return null;
+				}
+				byte[] expected = getChallengeResponse(accesstoken, challenge);
+				byte[] buffer = new byte[expected.length];
+				int len = 0;
+				try (InputStream is = connection.getInputStream()) {
+					for (int read; len < buffer.length && (read = is.read(buffer, len, buffer.length - len)) > 0;) {
+						len += read;
+					}
+				}
+				if (len != buffer.length || !MessageDigest.isEqual(buffer, expected)) {
+					return null;
+				}
+				return URI.create(hostbase + "/" + accesstoken + "/");
+			} finally {
+				connection.disconnect();
+			}
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static void writeProxyFile(Path cachedir, int port, String accesstoken) throws IOException {
+		Path proxyfile = cachedir.resolve(PROXY_FILE_NAME);
+		Path tempfile = proxyfile.resolveSibling(PROXY_FILE_NAME + "." + UUID.randomUUID() + ".tmp");
+		try {
+			try {
+				//only readable by the user, as the access token grants access to the proxy
+				Files.createFile(tempfile,
+						PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+			} catch (UnsupportedOperationException e) {
+				Files.createFile(tempfile);
+			}
+			Files.write(tempfile, (port + " " + accesstoken).getBytes(StandardCharsets.UTF_8));
+			Files.move(tempfile, proxyfile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempfile);
+		}
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			String method = exchange.getRequestMethod();
+			boolean head = "HEAD".equals(method);
+			if (!head && !"GET".equals(method)) {
+				respondEmpty(exchange, HttpURLConnection.HTTP_BAD_METHOD);
+				return;
+			}
+			String path = exchange.getRequestURI().getRawPath();
+			if (path.startsWith(IDENTIFICATION_PATH)) {
+				String challenge = path.substring(IDENTIFICATION_PATH.length());
+				if (challenge.isEmpty() || challenge.length() > ACCESS_TOKEN_LENGTH * 4) {
+					respondEmpty(exchange, HttpURLConnection.HTTP_NOT_FOUND);
+					return;
+				}
+				byte[] response = getChallengeResponse(accessToken, challenge);
+				exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, response.length);
+				try (OutputStream os = exchange.getResponseBody()) {
+					os.write(response);
+				}
+				return;
+			}
+			int tokenendidx = path.indexOf('/', 1);
+			if (tokenendidx < 0 || !MessageDigest.isEqual(accessToken.getBytes(StandardCharsets.UTF_8),
+					path.substring(1, tokenendidx).getBytes(StandardCharsets.UTF_8))) {
+				respondEmpty(exchange, HttpURLConnection.HTTP_NOT_FOUND);
+				return;
+			}
+			path = path.substring(tokenendidx);
+			boolean register = path.startsWith("/" + REGISTER_PATH);
+			if (register) {
+				path = path.substring(REGISTER_PATH.length());
+			}
+			int slashidx = register ? path.length() : path.indexOf('/', 1);
+			if (slashidx < 0) {
+				respondEmpty(exchange, HttpURLConnection.HTTP_NOT_FOUND);
+				return;
+			}
+			String upstreambase;
+			try {
+				upstreambase = new String(Base64.getUrlDecoder().decode(path.substring(1, slashidx)),
+						StandardCharsets.UTF_8);
+			} catch (IllegalArgumentException e) {
+				respondEmpty(exchange, HttpURLConnection.HTTP_NOT_FOUND);
+				return;
+			}
+			String lowerbase = upstreambase.toLowerCase(Locale.ENGLISH);
+			if ((!lowerbase.startsWith("http://") && !lowerbase.startsWith("https://"))
+					|| !upstreambase.endsWith("/")) {
+				respondEmpty(exchange, HttpURLConnection.HTTP_NOT_FOUND);
+				return;
+			}
+			if (register) {
+				registeredUpstreams.add(upstreambase);
+				respondEmpty(exchange, HttpURLConnection.HTTP_OK);
+				return;
+			}
+			String relativepath = path.substring(slashidx + 1);
+			if (!registeredUpstreams.contains(upstreambase) || relativepath.isEmpty()
+					|| !isValidRelativePath(relativepath)) {
+				respondEmpty(exchange, HttpURLConnection.HTTP_NOT_FOUND);
+				return;
+			}
+			URL upstreamurl = new URL(upstreambase + relativepath);
+			if (!isCacheable(relativepath)) {
+				forward(exchange, upstreamurl, method);
+				return;
+			}
+			Path cachefile = cacheDirectory.resolve(sha1Hex(upstreambase)).resolve(relativepath);
+			if (!Files.isRegularFile(cachefile)) {
+				if (head) {
+					forward(exchange, upstreamurl, method);
+					return;
+				}
+				int status = download(upstreamurl, cachefile);
+				if (status == STATUS_UNVERIFIED) {
+					forward(exchange, upstreamurl, method);
+					return;
+				}
+				if (status != HttpURLConnection.HTTP_OK) {
+					respondEmpty(exchange, status);
+					return;
+				}
+			}
+			serve(exchange, cachefile, head);
+		} catch (IOException e) {
+			if (exchange.getResponseCode() < 0) {
+				//the response hasn't been started yet
+				respondEmpty(exchange, HttpURLConnection.HTTP_BAD_GATEWAY);
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Downloads the upstream file to the cache, or waits for a concurrent download of it.
+	 *
+	 * @return The HTTP status of the upstream response, or {@link #STATUS_UNVERIFIED}.
+	 */
+	private int download(URL upstreamurl, Path cachefile) throws IOException {
+		CompletableFuture<Integer> future = new CompletableFuture<>();
+		CompletableFuture<Integer> prev = inProgressDownloads.putIfAbsent(cachefile, future);
+		if (prev != null) {
+			try {
+				return prev.get();
+			} catch (ExecutionException e) {
+				throw new IOException("Failed to download: " + upstreamurl, e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted.", e);
+			}
+		}
+		try {
+			int status;
+			if (Files.isRegularFile(cachefile)) {
+				//downloaded since checked
+				status = HttpURLConnection.HTTP_OK;
+			} else {
+				status = downloadToCache(upstreamurl, cachefile);
+			}
+			future.complete(status);
+			return status;
+		} catch (Throwable e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			inProgressDownloads.remove(cachefile, future);
+		}
+	}
+
+	/**
+	 * Downloads the upstream file, and moves it to the cache if it matches the upstream <code>.sha1</code> checksum.
+	 * <p>
+	 * The checksum files themselves are cached without verification.
+	 */
+	private static int downloadToCache(URL upstreamurl, Path cachefile) throws IOException {
+		String expectedsha1 = null;
+		if (!isChecksumFile(cachefile.getFileName().toString())) {
+			expectedsha1 = getUpstreamSha1(new URL(upstreamurl.toString() + ".sha1"));
+			if (expectedsha1 == null) {
+				return STATUS_UNVERIFIED;
+			}
+		}
+		HttpURLConnection connection = openUpstreamConnection(upstreamurl, "GET");
+		try {
+			int status = connection.getResponseCode();
+			if (status != HttpURLConnection.HTTP_OK) {
+				return status;
+			}
+			Files.createDirectories(cachefile.getParent());
+			Path tempfile = cachefile.resolveSibling(cachefile.getFileName() + "." + UUID.randomUUID() + ".tmp");
+			try {
+				long length = connection.getContentLengthLong();
+				MessageDigest digest = newSha1Digest();
+				long copied = 0;
+				try (InputStream is = connection.getInputStream();
+						OutputStream os = Files.newOutputStream(tempfile)) {
+					byte[] buffer = new byte[32 * 1024];
+					for (int read; (read = is.read(buffer)) > 0;) {
+						os.write(buffer, 0, read);
+						digest.update(buffer, 0, read);
+						copied += read;
+					}
+				}
+				if (length >= 0 && copied != length) {
+					throw new IOException("Incomplete download: " + upstreamurl);
+				}
+				if (expectedsha1 != null) {
+					String actualsha1 = toHex(digest.digest());
+					if (!expectedsha1.equals(actualsha1)) {
+						throw new IOException("Checksum mismatch: " + upstreamurl + " expected: " + expectedsha1
+								+ " actual: " + actualsha1);
+					}
+				}
+				Files.move(tempfile, cachefile, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(tempfile);
+			}
+			return status;
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	/**
+	 * Gets the SHA-1 checksum from the argument upstream checksum file.
+	 *
+	 * @return The lowercase hexadecimal checksum, or <code>null</code> if not available.
+	 */
+	private static String getUpstreamSha1(URL url) throws IOException {
+		HttpURLConnection connection = openUpstreamConnection(url, "GET");
+		try {
+			if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+				return null;
+			}
+			byte[] buffer = new byte[MAX_CHECKSUM_SIZE];
+			int len = 0;
+			try (InputStream is = connection.getInputStream()) {
+				for (int read; len < buffer.length && (read = is.read(buffer, len, buffer.length - len)) > 0;) {
+					len += read;
+				}
+			}
+			//the file may contain the file name after the checksum
+			String content = new String(buffer, 0, len, StandardCharsets.US_ASCII).trim();
+			if (content.length() < SHA1_HEX_LENGTH) {
+				return null;
+			}
+			String result = content.substring(0, SHA1_HEX_LENGTH).toLowerCase(Locale.ENGLISH);
+			for (int i = 0; i < result.length(); i++) {
+				if (Character.digit(result.charAt(i), 16) < 0) {
+					return null;
+				}
+			}
+			return result;
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	private static void forward(HttpExchange exchange, URL upstreamurl, String method) throws IOException {
+		HttpURLConnection connection = openUpstreamConnection(upstreamurl, method);
+		try {
+			int status = connection.getResponseCode();
+			copyHeader(connection, exchange, "Last-Modified");
+			copyHeader(connection, exchange, "ETag");
+			copyHeader(connection, exchange, "Content-Type");
+			if (status != HttpURLConnection.HTTP_OK) {
+				respondEmpty(exchange, status);
+				return;
+			}
+			long length = connection.getContentLengthLong();
+			if ("HEAD".equals(method)) {
+				if (length >= 0) {
+					exchange.getResponseHeaders().set("Content-Length", Long.toString(length));
+				}
+				exchange.sendResponseHeaders(status, -1);
+				return;
+			}
+			exchange.sendResponseHeaders(status, length < 0 ? 0 : length);
+			try (InputStream is = connection.getInputStream();
+					OutputStream os = exchange.getResponseBody()) {
+				byte[] buffer = new byte[32 * 1024];
+				for (int read; (read = is.read(buffer)) > 0;) {
+					os.write(buffer, 0, read);
+				}
+			}
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	private static void serve(HttpExchange exchange, Path file, boolean head) throws IOException {
+		long size;
+		try {
+			size = Files.size(file);
+		} catch (NoSuchFileException e) {
+			respondEmpty(exchange, HttpURLConnection.HTTP_NOT_FOUND);
+			return;
+		}
+		if (head) {
+			exchange.getResponseHeaders().set("Content-Length", Long.toString(size));
+			exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, -1);
+			return;
+		}
+		exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, size);
+		try (OutputStream os = exchange.getResponseBody()) {
+			Files.copy(file, os);
+		}
+	}
+
+	private static void respondEmpty(HttpExchange exchange, int status) throws IOException {
+		exchange.sendResponseHeaders(status, -1);
+	}
+
+	private static void copyHeader(HttpURLConnection connection, HttpExchange exchange, String name) {
+		String value = connection.getHeaderField(name);
+		if (value != null) {
+			exchange.getResponseHeaders().set(name, value);
+		}
+	}
+
+	private static HttpURLConnection openUpstreamConnection(URL url, String method) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setRequestMethod(method);
+		connection.setConnectTimeout(UPSTREAM_CONNECT_TIMEOUT);
+		connection.setReadTimeout(UPSTREAM_READ_TIMEOUT);
+		connection.setInstanceFollowRedirects(true);
+		return connection;
+	}
+
+	/**
+	 * Checks if the file at the argument path is immutable and can be cached.
+	 * <p>
+	 * The released artifacts and their checksums are never modified in a repository. The snapshots and metadata files
+	 * are updated, therefore they are not cached.
+	 */
+	private static boolean isCacheable(String relativepath) {
+		String filename = relativepath.substring(relativepath.lastIndexOf('/') + 1);
+		if (filename.startsWith("maven-metadata") || filename.startsWith("archetype-catalog")) {
+			return false;
+		}
+		return !relativepath.contains("SNAPSHOT");
+	}
+
+	private static boolean isChecksumFile(String filename) {
+		String lower = filename.toLowerCase(Locale.ENGLISH);
+		return lower.endsWith(".sha1") || lower.endsWith(".md5") || lower.endsWith(".sha256")
+				|| lower.endsWith(".sha512") || lower.endsWith(".asc");
+	}
+
+	private static boolean isValidRelativePath(String relativepath) {
+		for (String segment : relativepath.split("/", -1)) {
+			if (segment.isEmpty() || ".".equals(segment) || "..".equals(segment) || segment.indexOf('%') >= 0
+					|| segment.indexOf('\\') >= 0 || segment.indexOf(':') >= 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String toUriHost(InetAddress address) {
+		String host = address.getHostAddress();
+		if (host.indexOf(':') >= 0) {
+			return "[" + host + "]";
+		}
+		return host;
+	}
+
+	private static String generateAccessToken() {
+		byte[] bytes = new byte[ACCESS_TOKEN_LENGTH];
+		new SecureRandom().nextBytes(bytes);
+		return toHex(bytes);
+	}
+
+	/**
+	 * Gets the response to the identification challenge, which proves that the proxy knows the access token.
+	 */
+	private static byte[] getChallengeResponse(String accesstoken, String challenge) {
+		return toHex(newSha1Digest().digest((accesstoken + ":" + challenge).getBytes(StandardCharsets.UTF_8)))
+				.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	private static MessageDigest newSha1Digest() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	private static String sha1Hex(String str) {
+		return toHex(newSha1Digest().digest(str.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			sb.append(Character.forDigit((b >>> 4) & 0xF, 16));
+			sb.append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + server.getAddress() + " -> " + cacheDirectory + "]";
+	}
+}
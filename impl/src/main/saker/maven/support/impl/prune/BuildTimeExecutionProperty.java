@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.prune;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.runtime.execution.ExecutionProperty;
+
+/**
+ * Execution property that has the start time of the build execution as its value.
+ * <p>
+ * Depending on it causes the task to be executed in every build.
+ */
+public final class BuildTimeExecutionProperty implements ExecutionProperty<Long>, Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	public static final BuildTimeExecutionProperty INSTANCE = new BuildTimeExecutionProperty();
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public BuildTimeExecutionProperty() {
+	}
+
+	@Override
+	public Long getCurrentValue(ExecutionContext executioncontext) throws Exception {
+		return executioncontext.getBuildTimeMillis();
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+	}
+
+	@Override
+	public int hashCode() {
+		return getClass().getName().hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj != null && this.getClass() == obj.getClass();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName();
+	}
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.prune;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import saker.build.file.path.SakerPath;
+import saker.build.file.provider.LocalFileProvider;
+import saker.build.file.provider.SakerPathFiles;
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.runtime.execution.SakerLog;
+import saker.build.task.Task;
+import saker.build.task.TaskContext;
+import saker.build.task.TaskFactory;
+import saker.build.task.identifier.TaskIdentifier;
+import saker.build.thirdparty.saker.util.io.SerialUtils;
+import saker.maven.support.api.MavenOperationConfiguration;
+import saker.maven.support.api.prune.LocalRepositoryPruneTaskOutput;
+import saker.maven.support.impl.MavenImplUtils;
+import saker.maven.support.impl.repository.LocalRepositoryAccessLog;
+import saker.maven.support.impl.repository.LocalRepositoryOperations;
+import saker.maven.support.impl.repository.LocalRepositoryPruner;
+import saker.maven.support.main.prune.PruneLocalRepositoryTaskFactory;
+
+public class LocalRepositoryPruneWorkerTaskFactory
+		implements TaskFactory<LocalRepositoryPruneTaskOutput>, Task<LocalRepositoryPruneTaskOutput>, Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	protected MavenOperationConfiguration configuration;
+	protected long sizeBudget = -1;
+	protected int maxUnusedDays = -1;
+	protected NavigableSet<SakerPath> keepArtifactPaths;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public LocalRepositoryPruneWorkerTaskFactory() {
+	}
+
+	public LocalRepositoryPruneWorkerTaskFactory(MavenOperationConfiguration configuration, long sizeBudget,
+			int maxUnusedDays, Iterable<? extends SakerPath> keepArtifactPaths) {
+		Objects.requireNonNull(configuration, "configuration");
+		//we dont need the remote repositories, clear them.
+		this.configuration = MavenOperationConfiguration.builder(configuration).setRepositories(Collections.emptySet())
+				.build();
+		this.sizeBudget = sizeBudget < 0 ? -1 : sizeBudget;
+		this.maxUnusedDays = maxUnusedDays < 0 ? -1 : maxUnusedDays;
+		NavigableSet<SakerPath> keeppaths = new TreeSet<>();
+		if (keepArtifactPaths != null) {
+			for (SakerPath path : keepArtifactPaths) {
+				SakerPathFiles.requireAbsolutePath(path);
+				keeppaths.add(path);
+			}
+		}
+		this.keepArtifactPaths = Collections.unmodifiableNavigableSet(keeppaths);
+	}
+
+	public TaskIdentifier createTaskIdentifier() {
+		return new LocalRepositoryPruneWorkerTaskIdentifier(configuration, sizeBudget, maxUnusedDays,
+				keepArtifactPaths);
+	}
+
+	@Override
+	public Task<? extends LocalRepositoryPruneTaskOutput> createTask(ExecutionContext executioncontext) {
+		return this;
+	}
+
+	//suppress the unused FileLock warning
+	@SuppressWarnings("try")
+	@Override
+	public LocalRepositoryPruneTaskOutput run(TaskContext taskcontext) throws Exception {
+		taskcontext.setStandardOutDisplayIdentifier(PruneLocalRepositoryTaskFactory.TASK_NAME);
+		MavenImplUtils.reportConfgurationBuildTrace(configuration);
+
+		//the repository is modified by other tasks, run in every build
+		long buildtime = taskcontext.getTaskUtilities()
+				.getReportExecutionDependency(BuildTimeExecutionProperty.INSTANCE);
+
+		MavenOperationConfiguration config = this.configuration;
+
+		SakerPath repositorybasedir = MavenImplUtils.getRepositoryBaseDirectoryDefaulted(taskcontext, config);
+
+		SakerPath lockfilepath = MavenImplUtils.getAccessLockFilePathInRepository(repositorybasedir);
+		Path lockfilelocalpath = LocalFileProvider.toRealPath(lockfilepath);
+
+		LocalFileProvider localfp = LocalFileProvider.getInstance();
+		localfp.createDirectories(lockfilelocalpath.getParent());
+
+		List<Path> keepfiles = new ArrayList<>();
+		for (SakerPath keeppath : keepArtifactPaths) {
+			keepfiles.add(LocalFileProvider.toRealPath(keeppath));
+		}
+
+		LocalRepositoryPruner pruner = new LocalRepositoryPruner(lockfilelocalpath.getParent());
+		pruner.setSizeBudget(sizeBudget);
+		pruner.setMaxUnusedMillis(maxUnusedDays < 0 ? -1 : TimeUnit.DAYS.toMillis(maxUnusedDays));
+		//the artifacts used by the current build are never removed
+		//they are recorded by the download and localization tasks, and by their up-to-date checks
+		if (LocalRepositoryAccessLog.enable(lockfilelocalpath.getParent())) {
+			//the accesses haven't been recorded before in this build, protect all artifacts this time
+			SakerLog.log().out(taskcontext).verbose()
+					.println("Access logging enabled for " + repositorybasedir + ", pruning starts in the next build.");
+			pruner.setProtectedSince(0);
+		} else {
+			pruner.setProtectedSince(buildtime);
+		}
+		pruner.setKeepFiles(keepfiles);
+
+		//prune after the download and localization operations running on the repository
+		LocalRepositoryOperations.await(lockfilelocalpath.getParent());
+
+		synchronized (MavenImplUtils.getLocalRepositoryAccessSyncLock(lockfilepath)) {
+			try (FileChannel lockchannel = FileChannel.open(lockfilelocalpath, StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE);
+					FileLock lock = lockchannel.lock(0, Long.MAX_VALUE, false)) {
+				pruner.prune();
+			}
+		}
+		if (pruner.getRemovedVersionCount() > 0) {
+			SakerLog.success().out(taskcontext)
+					.println("Removed " + pruner.getRemovedVersionCount() + " artifact versions from "
+							+ repositorybasedir + ", freed " + pruner.getFreedBytes() + " bytes. ("
+							+ pruner.getRemainingBytes() + " bytes remaining)");
+		} else {
+			SakerLog.log().out(taskcontext).verbose().println("No artifact versions removed from "
+					+ repositorybasedir + ". (" + pruner.getRemainingBytes() + " bytes in repository)");
+		}
+
+		return new LocalRepositoryPruneTaskOutputImpl(repositorybasedir, pruner.getFreedBytes(),
+				pruner.getRemovedVersionCount(), pruner.getRemainingBytes());
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeObject(configuration);
+		out.writeLong(sizeBudget);
+		out.writeInt(maxUnusedDays);
+		SerialUtils.writeExternalCollection(out, keepArtifactPaths);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		configuration = (MavenOperationConfiguration) in.readObject();
+		sizeBudget = in.readLong();
+		maxUnusedDays = in.readInt();
+		keepArtifactPaths = SerialUtils.readExternalSortedImmutableNavigableSet(in);
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((configuration == null) ? 0 : configuration.hashCode());
+		result = prime * result + ((keepArtifactPaths == null) ? 0 : keepArtifactPaths.hashCode());
+		result = prime * result + maxUnusedDays;
+		result = prime * result + (int) (sizeBudget ^ (sizeBudget >>> 32));
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		LocalRepositoryPruneWorkerTaskFactory other = (LocalRepositoryPruneWorkerTaskFactory) obj;
+		if (configuration == null) {
+			if (other.configuration != null)
+				return false;
+		} else if (!configuration.equals(other.configuration))
+			return false;
+		if (keepArtifactPaths == null) {
+			if (other.keepArtifactPaths != null)
+				return false;
+		} else if (!keepArtifactPaths.equals(other.keepArtifactPaths))
+			return false;
+		if (maxUnusedDays != other.maxUnusedDays)
+			return false;
+		if (sizeBudget != other.sizeBudget)
+			return false;
+		return true;
+	}
+
+	private static final class LocalRepositoryPruneTaskOutputImpl
+			implements LocalRepositoryPruneTaskOutput, Externalizable {
+		private static final long serialVersionUID = 1L;
+
+		private SakerPath localRepositoryPath;
+		private long freedBytes;
+		private int removedVersionCount;
+		private long remainingBytes;
+
+		/**
+		 * For {@link Externalizable}.
+		 */
+		public LocalRepositoryPruneTaskOutputImpl() {
+		}
+
+		public LocalRepositoryPruneTaskOutputImpl(SakerPath localRepositoryPath, long freedBytes,
+				int removedVersionCount, long remainingBytes) {
+			this.localRepositoryPath = localRepositoryPath;
+			this.freedBytes = freedBytes;
+			this.removedVersionCount = removedVersionCount;
+			this.remainingBytes = remainingBytes;
+		}
+
+		@Override
+		public SakerPath getLocalRepositoryPath() {
+			return localRepositoryPath;
+		}
+
+		@Override
+		public long getFreedBytes() {
+			return freedBytes;
+		}
+
+		@Override
+		public int getRemovedVersionCount() {
+			return removedVersionCount;
+		}
+
+		@Override
+		public long getRemainingBytes() {
+			return remainingBytes;
+		}
+
+		@Override
+		public void writeExternal(ObjectOutput out) throws IOException {
+			out.writeObject(localRepositoryPath);
+			out.writeLong(freedBytes);
+			out.writeInt(removedVersionCount);
+			out.writeLong(remainingBytes);
+		}
+
+		@Override
+		public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+			localRepositoryPath = (SakerPath) in.readObject();
+			freedBytes = in.readLong();
+			removedVersionCount = in.readInt();
+			remainingBytes = in.readLong();
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + (int) (freedBytes ^ (freedBytes >>> 32));
+			result = prime * result + ((localRepositoryPath == null) ? 0 : localRepositoryPath.hashCode());
+			result = prime * result + (int) (remainingBytes ^ (remainingBytes >>> 32));
+			result = prime * result + removedVersionCount;
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			LocalRepositoryPruneTaskOutputImpl other = (LocalRepositoryPruneTaskOutputImpl) obj;
+			if (freedBytes != other.freedBytes)
+				return false;
+			if (localRepositoryPath == null) {
+				if (other.localRepositoryPath != null)
+					return false;
+			} else if (!localRepositoryPath.equals(other.localRepositoryPath))
+				return false;
+			if (remainingBytes != other.remainingBytes)
+				return false;
+			if (removedVersionCount != other.removedVersionCount)
+				return false;
+			return true;
+		}
+
+		@Override
+		public String toString() {
+			return getClass().getSimpleName() + "[localRepositoryPath=" + localRepositoryPath + ", freedBytes="
+					+ freedBytes + ", removedVersionCount=" + removedVersionCount + ", remainingBytes="
+					+ remainingBytes + "]";
+		}
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.prune;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.NavigableSet;
+
+import saker.build.file.path.SakerPath;
+import saker.build.task.identifier.TaskIdentifier;
+import saker.build.thirdparty.saker.util.io.SerialUtils;
+import saker.maven.support.api.MavenOperationConfiguration;
+
+public class LocalRepositoryPruneWorkerTaskIdentifier implements TaskIdentifier, Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	private MavenOperationConfiguration configuration;
+	private long sizeBudget;
+	private int maxUnusedDays;
+	private NavigableSet<SakerPath> keepArtifactPaths;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public LocalRepositoryPruneWorkerTaskIdentifier() {
+	}
+
+	public LocalRepositoryPruneWorkerTaskIdentifier(MavenOperationConfiguration configuration, long sizeBudget,
+			int maxUnusedDays, NavigableSet<SakerPath> keepArtifactPaths) {
+		this.configuration = configuration;
+		this.sizeBudget = sizeBudget;
+		this.maxUnusedDays = maxUnusedDays;
+		this.keepArtifactPaths = keepArtifactPaths;
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeObject(configuration);
+		out.writeLong(sizeBudget);
+		out.writeInt(maxUnusedDays);
+		SerialUtils.writeExternalCollection(out, keepArtifactPaths);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		configuration = (MavenOperationConfiguration) in.readObject();
+		sizeBudget = in.readLong();
+		maxUnusedDays = in.readInt();
+		keepArtifactPaths = SerialUtils.readExternalSortedImmutableNavigableSet(in);
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((configuration == null) ? 0 : configuration.hashCode());
+		result = prime * result + ((keepArtifactPaths == null) ? 0 : keepArtifactPaths.hashCode());
+		result = prime * result + maxUnusedDays;
+		result = prime * result + (int) (sizeBudget ^ (sizeBudget >>> 32));
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		LocalRepositoryPruneWorkerTaskIdentifier other = (LocalRepositoryPruneWorkerTaskIdentifier) obj;
+		if (configuration == null) {
+			if (other.configuration != null)
+				return false;
+		} else if (!configuration.equals(other.configuration))
+			return false;
+		if (keepArtifactPaths == null) {
+			if (other.keepArtifactPaths != null)
+				return false;
+		} else if (!keepArtifactPaths.equals(other.keepArtifactPaths))
+			return false;
+		if (maxUnusedDays != other.maxUnusedDays)
+			return false;
+		if (sizeBudget != other.sizeBudget)
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + (configuration != null ? "configuration=" + configuration : "")
+				+ ", sizeBudget=" + sizeBudget + ", maxUnusedDays=" + maxUnusedDays + ", keepArtifactPaths="
+				+ keepArtifactPaths + "]";
+	}
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.repository;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import saker.maven.support.thirdparty.org.eclipse.aether.RepositorySystemSession;
+import saker.maven.support.thirdparty.org.eclipse.aether.artifact.Artifact;
+import saker.maven.support.thirdparty.org.eclipse.aether.metadata.Metadata;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalArtifactRegistration;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalArtifactRequest;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalArtifactResult;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalMetadataRegistration;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalMetadataRequest;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalMetadataResult;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalRepository;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalRepositoryManager;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.RemoteRepository;
+
+/**
+ * {@link LocalRepositoryManager} that checks the presence of the artifacts using a {@link LocalRepositoryCatalog}.
+ * <p>
+ * The results of the catalog are verified by checking the attributes of the artifact file, as the repository may be
+ * modified by other tools. The differences are recorded in the catalog:
+ * <ul>
+ * <li>If the artifact is not present in the catalog, it is reported as missing if the file doesn't exist. Otherwise
+ * the file is added to the catalog, and it is looked up using the delegate manager.</li>
+ * <li>If the artifact is present in the catalog, and the catalog is trusted, it is reported as available if the file
+ * exists. The tracking files of the delegate manager are not read in this case.</li>
+ * <li>Otherwise the artifact is looked up using the delegate manager.</li>
+ * </ul>
+ * The artifacts that are found missing are removed from the catalog, and the added artifacts are recorded in it.
+ */
+public class CatalogLocalRepositoryManager implements LocalRepositoryManager {
+	private final LocalRepositoryManager delegate;
+	private final LocalRepositoryCatalog catalog;
+	private final boolean trustCatalog;
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param delegate
+	 *            The delegate manager.
+	 * @param catalog
+	 *            The catalog of the repository of the delegate.
+	 * @param trustCatalog
+	 *            <code>true</code> if the present artifacts should be reported as available without consulting the
+	 *            delegate. Should only be set if the delegate only checks the layout path of the artifacts.
+	 */
+	public CatalogLocalRepositoryManager(LocalRepositoryManager delegate, LocalRepositoryCatalog catalog,
+			boolean trustCatalog) {
+		this.delegate = delegate;
+		this.catalog = catalog;
+		this.trustCatalog = trustCatalog;
+	}
+
+	@Override
+	public LocalRepository getRepository() {
+		return delegate.getRepository();
+	}
+
+	@Override
+	public String getPathForLocalArtifact(Artifact artifact) {
+		return delegate.getPathForLocalArtifact(artifact);
+	}
+
+	@Override
+	public String getPathForRemoteArtifact(Artifact artifact, RemoteRepository repository, String context) {
+		return delegate.getPathForRemoteArtifact(artifact, repository, context);
+	}
+
+	@Override
+	public String getPathForLocalMetadata(Metadata metadata) {
+		return delegate.getPathForLocalMetadata(metadata);
+	}
+
+	@Override
+	public String getPathForRemoteMetadata(Metadata metadata, RemoteRepository repository, String context) {
+		return delegate.getPathForRemoteMetadata(metadata, repository, context);
+	}
+
+	@Override
+	public LocalArtifactResult find(RepositorySystemSession session, LocalArtifactRequest request) {
+		if (!catalog.isAvailable()) {
+			return delegate.find(session, request);
+		}
+		//the local repository managers look up the artifacts at the path for the remote artifact
+		//the path doesn't depend on the repository
+		String path = delegate.getPathForRemoteArtifact(request.getArtifact(), null, request.getContext());
+		File file = new File(getRepository().getBasedir(), path);
+		long catalogsize = catalog.getSize(path);
+		long filesize = getFileSize(file);
+		if (filesize == LocalRepositoryCatalog.SIZE_NOT_PRESENT) {
+			if (catalogsize != LocalRepositoryCatalog.SIZE_NOT_PRESENT) {
+				//removed by other means
+				catalog.recordRemoved(path);
+			}
+			return new LocalArtifactResult(request);
+		}
+		if (catalogsize != filesize) {
+			//added or modified by other means
+			catalog.recordAdded(path, filesize);
+		}
+		if (trustCatalog && catalogsize != LocalRepositoryCatalog.SIZE_NOT_PRESENT) {
+			LocalArtifactResult result = new LocalArtifactResult(request);
+			result.setFile(file);
+			result.setAvailable(true);
+			return result;
+		}
+		LocalArtifactResult result = delegate.find(session, request);
+		if (result.getFile() == null) {
+			//removed by other means
+			catalog.recordRemoved(path);
+		}
+		return result;
+	}
+
+	@Override
+	public void add(RepositorySystemSession session, LocalArtifactRegistration request) {
+		delegate.add(session, request);
+		File file = request.getArtifact().getFile();
+		if (file == null) {
+			return;
+		}
+		String path = catalog.toCatalogPath(file.toPath());
+		if (path != null) {
+			catalog.recordAdded(path, file.length());
+		}
+	}
+
+	@Override
+	public LocalMetadataResult find(RepositorySystemSession session, LocalMetadataRequest request) {
+		return delegate.find(session, request);
+	}
+
+	@Override
+	public void add(RepositorySystemSession session, LocalMetadataRegistration request) {
+		delegate.add(session, request);
+	}
+
+	private static long getFileSize(File file) {
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+			if (!attrs.isRegularFile()) {
+				return LocalRepositoryCatalog.SIZE_NOT_PRESENT;
+			}
+			return attrs.size();
+		} catch (IOException e) {
+			return LocalRepositoryCatalog.SIZE_NOT_PRESENT;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + delegate + "]";
+	}
+}
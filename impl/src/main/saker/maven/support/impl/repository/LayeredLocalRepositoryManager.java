@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.repository;
+
+import java.util.List;
+
+import saker.maven.support.thirdparty.org.eclipse.aether.RepositorySystemSession;
+import saker.maven.support.thirdparty.org.eclipse.aether.artifact.Artifact;
+import saker.maven.support.thirdparty.org.eclipse.aether.metadata.Metadata;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalArtifactRegistration;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalArtifactRequest;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalArtifactResult;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalMetadataRegistration;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalMetadataRequest;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalMetadataResult;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalRepository;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalRepositoryManager;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.RemoteRepository;
+
+/**
+ * {@link LocalRepositoryManager} that layers a writable overlay repository over a list of read-only base repositories.
+ * <p>
+ * The artifacts and metadata are looked up in the overlay first, then in the bases in order. All paths for new files
+ * and all registrations are handled by the overlay, so the base repositories are never written.
+ */
+public class LayeredLocalRepositoryManager implements LocalRepositoryManager {
+	private final LocalRepositoryManager overlay;
+	private final List<? extends LocalRepositoryManager> bases;
+
+	public LayeredLocalRepositoryManager(LocalRepositoryManager overlay, List<? extends LocalRepositoryManager> bases) {
+		this.overlay = overlay;
+		this.bases = bases;
+	}
+
+	@Override
+	public LocalRepository getRepository() {
+		return overlay.getRepository();
+	}
+
+	@Override
+	public String getPathForLocalArtifact(Artifact artifact) {
+		return overlay.getPathForLocalArtifact(artifact);
+	}
+
+	@Override
+	public String getPathForRemoteArtifact(Artifact artifact, RemoteRepository repository, String context) {
+		return overlay.getPathForRemoteArtifact(artifact, repository, context);
+	}
+
+	@Override
+	public String getPathForLocalMetadata(Metadata metadata) {
+		return overlay.getPathForLocalMetadata(metadata);
+	}
+
+	@Override
+	public String getPathForRemoteMetadata(Metadata metadata, RemoteRepository repository, String context) {
+		return overlay.getPathForRemoteMetadata(metadata, repository, context);
+	}
+
+	@Override
+	public LocalArtifactResult find(RepositorySystemSession session, LocalArtifactRequest request) {
+		LocalArtifactResult result = overlay.find(session, request);
+		if (result.isAvailable()) {
+			return result;
+		}
+		for (LocalRepositoryManager base : bases) {
+			LocalArtifactResult baseresult = base.find(session, request);
+			if (baseresult.isAvailable()) {
+				return baseresult;
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public void add(RepositorySystemSession session, LocalArtifactRegistration request) {
+		overlay.add(session, request);
+	}
+
+	@Override
+	public LocalMetadataResult find(RepositorySystemSession session, LocalMetadataRequest request) {
+		LocalMetadataResult result = overlay.find(session, request);
+		if (result.getFile() != null) {
+			return result;
+		}
+		for (LocalRepositoryManager base : bases) {
+			LocalMetadataResult baseresult = base.find(session, request);
+			if (baseresult.getFile() != null) {
+				return baseresult;
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public void add(RepositorySystemSession session, LocalMetadataRegistration request) {
+		overlay.add(session, request);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + overlay.getRepository() + " over " + bases + "]";
+	}
+}
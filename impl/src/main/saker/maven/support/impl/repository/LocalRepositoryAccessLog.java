@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.repository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Append-only log of the last access times of the artifact version directories in a local repository.
+ * <p>
+ * The download and localization operations record the directories of the artifacts they use, so the
+ * {@linkplain LocalRepositoryPruner pruning} can evict the least recently used versions. The access is recorded when
+ * the up-to-date state of the artifacts is checked as well, so the artifacts used by incremental builds are recorded
+ * too. A directory is recorded at most once per build execution in a JVM, so recording is cheap for repeated
+ * accesses. At most {@link #MAX_RECORDED_ACCESSES} directories are remembered, the least recently used ones are
+ * recorded again at their next access.
+ * <p>
+ * The accesses are only recorded if the log is {@linkplain #enable(Path) enabled} for the repository, that is, the log
+ * file exists. It is enabled by the pruning task, so the repositories that are not pruned are not written.
+ * <p>
+ * The log is appended while holding a file lock on it, so the entries of different processes are not interleaved. It
+ * is compacted when appending if it has grown to twice its size after the last compaction, and is at least
+ * {@value #MIN_COMPACTION_SIZE} bytes.
+ * <p>
+ * The log is stored in the {@linkplain #LOG_FILE_NAME log file} in the root of the repository, and should be accessed
+ * while the {@linkplain saker.maven.support.impl.MavenImplUtils#getAccessLockFilePathInRepository repository lock} is
+ * held.
+ */
+public final class LocalRepositoryAccessLog {
+	public static final String LOG_FILE_NAME = "saker.m2.access.log";
+
+	/**
+	 * The maximum number of directories that are remembered as recorded in the JVM.
+	 */
+	public static final int MAX_RECORDED_ACCESSES = 16 * 1024;
+
+	private static final long MIN_COMPACTION_SIZE = 1024 * 1024;
+
+	/**
+	 * Maps the absolute paths of the directories to the time they were last recorded in this JVM.
+	 * <p>
+	 * Synchronized on itself.
+	 */
+	private static final AccessCache RECORDED_ACCESSES = new AccessCache();
+	/**
+	 * Maps the repository directories to the size of their log after it was last compacted in this JVM.
+	 */
+	private static final ConcurrentMap<Path, Long> COMPACTED_LOG_SIZES = new ConcurrentHashMap<>();
+
+	private LocalRepositoryAccessLog() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Enables the access logging for the argument repository by creating the log file if it doesn't exist.
+	 *
+	 * @param repositorydir
+	 *            The root directory of the local repository.
+	 * @return <code>true</code> if the logging was enabled by this call, <code>false</code> if it was already
+	 *             enabled.
+	 * @throws IOException
+	 *             If the log file cannot be created.
+	 */
+	public static boolean enable(Path repositorydir) throws IOException {
+		try {
+			Files.createFile(normalize(repositorydir).resolve(LOG_FILE_NAME));
+			return true;
+		} catch (FileAlreadyExistsException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Checks if the access logging is {@linkplain #enable(Path) enabled} for the argument repository.
+	 *
+	 * @param repositorydir
+	 *            The root directory of the local repository.
+	 * @return <code>true</code> if enabled.
+	 */
+	public static boolean isEnabled(Path repositorydir) {
+		return Files.isRegularFile(normalize(repositorydir).resolve(LOG_FILE_NAME));
+	}
+
+	/**
+	 * Records the access of the argument artifact files.
+	 * <p>
+	 * The files that are not in the repository are ignored. Nothing is recorded if the logging is not
+	 * {@linkplain #enable(Path) enabled} for the repository.
+	 *
+	 * @param repositorydir
+	 *            The root directory of the local repository.
+	 * @param files
+	 *            The accessed artifact files.
+	 * @param buildtime
+	 *            The start time of the current build execution. A directory that was already recorded after this
+	 *            time is not recorded again.
+	 * @throws IOException
+	 *             If the log cannot be written.
+	 */
+	//suppress the unused FileLock warning
+	@SuppressWarnings("try")
+	public static void recordAccess(Path repositorydir, Collection<? extends Path> files, long buildtime)
+			throws IOException {
+		repositorydir = normalize(repositorydir);
+		Path logfile = repositorydir.resolve(LOG_FILE_NAME);
+		if (!Files.isRegularFile(logfile)) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		StringBuilder sb = new StringBuilder();
+		for (Path file : files) {
+			Path dir = normalize(file).getParent();
+			if (dir == null || !dir.startsWith(repositorydir) || dir.equals(repositorydir)) {
+				continue;
+			}
+			synchronized (RECORDED_ACCESSES) {
+				Long prev = RECORDED_ACCESSES.get(dir);
+				if (prev != null && prev >= buildtime) {
+					continue;
+				}
+				RECORDED_ACCESSES.put(dir, now);
+			}
+			sb.append(now).append(' ').append(toLogPath(repositorydir, dir)).append('\n');
+		}
+		if (sb.length() == 0) {
+			return;
+		}
+		long logsize;
+		try (FileChannel channel = FileChannel.open(logfile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+				FileLock lock = channel.lock()) {
+			ByteBuffer buf = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+			while (buf.hasRemaining()) {
+				channel.write(buf);
+			}
+			logsize = channel.size();
+		} catch (NoSuchFileException e) {
+			//disabled concurrently
+			return;
+		}
+		if (logsize >= MIN_COMPACTION_SIZE && logsize >= COMPACTED_LOG_SIZES.getOrDefault(repositorydir, 0L) * 2) {
+			rewrite(repositorydir, readAccessTimes(repositorydir));
+		}
+	}
+
+	/**
+	 * Checks if the access of the argument artifact file was already recorded in the current build execution.
+	 *
+	 * @param file
+	 *            The artifact file.
+	 * @param buildtime
+	 *            The start time of the current build execution.
+	 * @return <code>true</code> if recorded.
+	 */
+	public static boolean isRecorded(Path file, long buildtime) {
+		Path dir = normalize(file).getParent();
+		if (dir == null) {
+			return true;
+		}
+		synchronized (RECORDED_ACCESSES) {
+			Long prev = RECORDED_ACCESSES.get(dir);
+			return prev != null && prev >= buildtime;
+		}
+	}
+
+	/**
+	 * Reads the last access times of the directories from the log.
+	 *
+	 * @param repositorydir
+	 *            The root directory of the local repository.
+	 * @return The repository relative paths of the directories using forward slashes mapped to their last access
+	 *             times.
+	 * @throws IOException
+	 *             If the log cannot be read.
+	 */
+	public static Map<String, Long> readAccessTimes(Path repositorydir) throws IOException {
+		Map<String, Long> result = new TreeMap<>();
+		List<String> lines;
+		try {
+			lines = Files.readAllLines(repositorydir.resolve(LOG_FILE_NAME), StandardCharsets.UTF_8);
+		} catch (NoSuchFileException e) {
+			return result;
+		}
+		for (String line : lines) {
+			int spaceidx = line.indexOf(' ');
+			if (spaceidx <= 0 || spaceidx == line.length() - 1) {
+				//possibly partially written entry
+				continue;
+			}
+			long time;
+			try {
+				time = Long.parseLong(line.substring(0, spaceidx));
+			} catch (NumberFormatException e) {
+				continue;
+			}
+			result.merge(line.substring(spaceidx + 1), time, Math::max);
+		}
+		return result;
+	}
+
+	/**
+	 * Overwrites the log with the argument access times.
+	 * <p>
+	 * Used to compact the log after pruning or when it grows too large. The directories that are not present in the
+	 * argument are also forgotten in the current JVM, so they are recorded again when accessed.
+	 *
+	 * @param repositorydir
+	 *            The root directory of the local repository.
+	 * @param accesstimes
+	 *            The repository relative paths of the directories mapped to their last access times.
+	 * @throws IOException
+	 *             If the log cannot be written.
+	 */
+	public static void rewrite(Path repositorydir, Map<String, Long> accesstimes) throws IOException {
+		Path normalizedrepodir = normalize(repositorydir);
+		synchronized (RECORDED_ACCESSES) {
+			RECORDED_ACCESSES.keySet().removeIf(dir -> dir.startsWith(normalizedrepodir)
+					&& !accesstimes.containsKey(toLogPath(normalizedrepodir, dir)));
+		}
+
+		Path logfile = normalizedrepodir.resolve(LOG_FILE_NAME);
+		Path tempfile = normalizedrepodir.resolve(LOG_FILE_NAME + ".tmp");
+		try (BufferedWriter writer = Files.newBufferedWriter(tempfile, StandardCharsets.UTF_8)) {
+			for (Entry<String, Long> entry : accesstimes.entrySet()) {
+				writer.write(entry.getValue() + " " + entry.getKey() + "\n");
+			}
+		}
+		Files.move(tempfile, logfile, StandardCopyOption.REPLACE_EXISTING);
+		COMPACTED_LOG_SIZES.put(normalizedrepodir, Files.size(logfile));
+	}
+
+	public static String toLogPath(Path repositorydir, Path dir) {
+		return repositorydir.relativize(dir).toString().replace('\\', '/');
+	}
+
+	private static Path normalize(Path path) {
+		return path.toAbsolutePath().normalize();
+	}
+
+	private static final class AccessCache extends LinkedHashMap<Path, Long> {
+		private static final long serialVersionUID = 1L;
+
+		public AccessCache() {
+			super(128, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Entry<Path, Long> eldest) {
+			return size() > MAX_RECORDED_ACCESSES;
+		}
+	}
+}
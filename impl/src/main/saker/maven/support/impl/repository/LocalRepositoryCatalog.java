@@ -0,0 +1,496 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.repository;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Compact on-disk catalog of the files present in a local repository.
+ * <p>
+ * The catalog consists of an immutable {@linkplain #CATALOG_FILE_NAME snapshot file} that is memory mapped, and an
+ * append-only {@linkplain #JOURNAL_FILE_NAME journal} of the files that were added or removed since the snapshot was
+ * written. The snapshot contains the repository relative paths sorted, and a hash index for them, so the presence and
+ * size of a file can be queried without accessing the file system.
+ * <p>
+ * The snapshot is rebuilt by walking the repository if it doesn't exist, has an unknown format, or is older than
+ * {@link #MAX_SNAPSHOT_AGE_MILLIS}. The journal is merged into a new snapshot when it grows too large.
+ * <p>
+ * The catalog is opened lazily at the first query, and reopened when the snapshot gets older than
+ * {@link #MAX_SNAPSHOT_AGE_MILLIS}. A single instance is used for a repository in the JVM, which can be retrieved
+ * using {@link #get(Path)}. The journal is appended while holding a file lock on it, so the entries written by
+ * different processes are not interleaved.
+ * <p>
+ * The catalog should be accessed while the
+ * {@linkplain saker.maven.support.impl.MavenImplUtils#getAccessLockFilePathInRepository repository lock} is held.
+ * As the repository may be modified by other tools, the users of the catalog should verify its results with the file
+ * system, and {@linkplain #recordAdded(String, long) record} the differences.
+ */
+public class LocalRepositoryCatalog {
+	public static final String CATALOG_FILE_NAME = "saker.m2.catalog";
+	public static final String JOURNAL_FILE_NAME = "saker.m2.catalog.journal";
+	/**
+	 * The snapshot is rebuilt after this time to pick up the modifications made by other tools.
+	 */
+	public static final long MAX_SNAPSHOT_AGE_MILLIS = 24 * 60 * 60 * 1000L;
+
+	/**
+	 * The size returned for files that are not present.
+	 */
+	public static final long SIZE_NOT_PRESENT = -1;
+
+	private static final String FILE_NAME_PREFIX = "saker.m2.";
+	private static final int MAGIC = 0x534d4331;
+	private static final int FORMAT_VERSION = 1;
+	/**
+	 * Magic, version, entry count, hash table size, creation time.
+	 */
+	private static final int HEADER_SIZE = 4 * 4 + 8;
+	/**
+	 * Path offset, path length, file size.
+	 */
+	private static final int ENTRY_SIZE = 4 + 4 + 8;
+	private static final int MAX_JOURNAL_ENTRIES = 4096;
+
+	private static final ConcurrentMap<Path, LocalRepositoryCatalog> CATALOGS = new ConcurrentHashMap<>();
+
+	private final Path repositoryDirectory;
+
+	private volatile boolean opened;
+	private volatile boolean available;
+	private volatile long snapshotCreationMillis;
+
+	private ByteBuffer snapshot;
+	private int entryCount;
+	private int hashTableSize;
+	private int hashTableOffset;
+
+	/**
+	 * The changes recorded in the journal. Removed files are mapped to {@link #SIZE_NOT_PRESENT}.
+	 */
+	private final ConcurrentMap<String, Long> journalEntries = new ConcurrentHashMap<>();
+	private int journalEntryCount;
+
+	public LocalRepositoryCatalog(Path repositoryDirectory) {
+		this.repositoryDirectory = repositoryDirectory.toAbsolutePath().normalize();
+	}
+
+	/**
+	 * Gets the catalog of the argument repository.
+	 * <p>
+	 * The same instance is returned for the same repository in the JVM.
+	 *
+	 * @param repositoryDirectory
+	 *            The path of the local repository.
+	 * @return The catalog.
+	 */
+	public static LocalRepositoryCatalog get(Path repositoryDirectory) {
+		return CATALOGS.computeIfAbsent(repositoryDirectory.toAbsolutePath().normalize(), LocalRepositoryCatalog::new);
+	}
+
+	public Path getRepositoryDirectory() {
+		return repositoryDirectory;
+	}
+
+	/**
+	 * Opens the catalog if not yet opened, and checks if it is usable.
+	 * <p>
+	 * If the catalog cannot be opened or rebuilt, it is not used, and the callers should fall back to accessing the
+	 * file system.
+	 *
+	 * @return <code>true</code> if the catalog can be queried.
+	 */
+	public boolean isAvailable() {
+		if (!opened || isSnapshotExpired()) {
+			synchronized (this) {
+				if (!opened || isSnapshotExpired()) {
+					reset();
+					try {
+						open();
+						available = true;
+					} catch (IOException e) {
+						available = false;
+					}
+					opened = true;
+				}
+			}
+		}
+		return available;
+	}
+
+	/**
+	 * Discards the state of the catalog, so it is reopened at the next query.
+	 * <p>
+	 * Should be called if the catalog files are removed.
+	 */
+	public synchronized void close() {
+		opened = false;
+		reset();
+	}
+
+	/**
+	 * Gets the size of the file at the argument path.
+	 * <p>
+	 * Can only be called if the catalog is {@linkplain #isAvailable() available}.
+	 *
+	 * @param path
+	 *            The repository relative path of the file using forward slashes.
+	 * @return The size of the file or {@link #SIZE_NOT_PRESENT} if it is not present.
+	 */
+	public long getSize(String path) {
+		Long journalsize = journalEntries.get(path);
+		if (journalsize != null) {
+			return journalsize;
+		}
+		return getSnapshotSize(path.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Checks if the file at the argument path is present.
+	 *
+	 * @param path
+	 *            The repository relative path of the file using forward slashes.
+	 * @return <code>true</code> if present.
+	 * @see #getSize(String)
+	 */
+	public boolean contains(String path) {
+		return getSize(path) != SIZE_NOT_PRESENT;
+	}
+
+	/**
+	 * Records that a file was added or modified in the repository.
+	 *
+	 * @param path
+	 *            The repository relative path of the file using forward slashes.
+	 * @param size
+	 *            The size of the file.
+	 */
+	public void recordAdded(String path, long size) {
+		record(path, size);
+	}
+
+	/**
+	 * Records that a file was removed from the repository.
+	 *
+	 * @param path
+	 *            The repository relative path of the file using forward slashes.
+	 */
+	public void recordRemoved(String path) {
+		record(path, SIZE_NOT_PRESENT);
+	}
+
+	/**
+	 * Converts the argument file path to a catalog path if it is in the repository.
+	 *
+	 * @param file
+	 *            The path of the file.
+	 * @return The repository relative path with forward slashes, or <code>null</code> if the file is not in the
+	 *             repository.
+	 */
+	public String toCatalogPath(Path file) {
+		Path abspath = file.toAbsolutePath().normalize();
+		if (!abspath.startsWith(repositoryDirectory)) {
+			return null;
+		}
+		return repositoryDirectory.relativize(abspath).toString().replace('\\', '/');
+	}
+
+	//suppress the unused FileLock warning
+	@SuppressWarnings("try")
+	private synchronized void record(String path, long size) {
+		if (!isAvailable()) {
+			return;
+		}
+		Long prev = journalEntries.put(path, size);
+		if (prev != null && prev == size) {
+			return;
+		}
+		byte[] line = (size + " " + path + "\n").getBytes(StandardCharsets.UTF_8);
+		try (FileChannel channel = FileChannel.open(repositoryDirectory.resolve(JOURNAL_FILE_NAME),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+				FileLock lock = channel.lock()) {
+			ByteBuffer buf = ByteBuffer.wrap(line);
+			while (buf.hasRemaining()) {
+				channel.write(buf);
+			}
+		} catch (IOException e) {
+			//the change cannot be persisted, rebuild the catalog the next time
+			invalidate();
+			return;
+		}
+		++journalEntryCount;
+	}
+
+	private boolean isSnapshotExpired() {
+		if (!available) {
+			return false;
+		}
+		long now = System.currentTimeMillis();
+		long created = snapshotCreationMillis;
+		return created > now || now - created > MAX_SNAPSHOT_AGE_MILLIS;
+	}
+
+	private void reset() {
+		available = false;
+		snapshot = null;
+		entryCount = 0;
+		hashTableSize = 0;
+		hashTableOffset = 0;
+		journalEntries.clear();
+		journalEntryCount = 0;
+	}
+
+	private void invalidate() {
+		available = false;
+		try {
+			Files.deleteIfExists(repositoryDirectory.resolve(CATALOG_FILE_NAME));
+		} catch (IOException e) {
+			//the snapshot is rebuilt when it gets old
+		}
+	}
+
+	private void open() throws IOException {
+		Path catalogfile = repositoryDirectory.resolve(CATALOG_FILE_NAME);
+		if (!mapSnapshot(catalogfile)) {
+			rebuild();
+			return;
+		}
+		readJournal();
+		if (journalEntryCount > MAX_JOURNAL_ENTRIES) {
+			compact();
+		}
+	}
+
+	private boolean mapSnapshot(Path catalogfile) throws IOException {
+		ByteBuffer buf;
+		try (FileChannel channel = FileChannel.open(catalogfile, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+				return false;
+			}
+			buf = channel.map(MapMode.READ_ONLY, 0, size);
+		} catch (NoSuchFileException e) {
+			return false;
+		}
+		if (buf.getInt(0) != MAGIC || buf.getInt(4) != FORMAT_VERSION) {
+			return false;
+		}
+		long created = buf.getLong(16);
+		long now = System.currentTimeMillis();
+		if (created > now || now - created > MAX_SNAPSHOT_AGE_MILLIS) {
+			return false;
+		}
+		this.snapshot = buf;
+		this.snapshotCreationMillis = created;
+		this.entryCount = buf.getInt(8);
+		this.hashTableSize = buf.getInt(12);
+		this.hashTableOffset = HEADER_SIZE + entryCount * ENTRY_SIZE;
+		return true;
+	}
+
+	private void readJournal() throws IOException {
+		List<String> lines;
+		try {
+			lines = Files.readAllLines(repositoryDirectory.resolve(JOURNAL_FILE_NAME), StandardCharsets.UTF_8);
+		} catch (NoSuchFileException e) {
+			return;
+		}
+		for (String line : lines) {
+			int spaceidx = line.indexOf(' ');
+			if (spaceidx <= 0 || spaceidx == line.length() - 1) {
+				//possibly partially written entry
+				continue;
+			}
+			long size;
+			try {
+				size = Long.parseLong(line.substring(0, spaceidx));
+			} catch (NumberFormatException e) {
+				continue;
+			}
+			journalEntries.put(line.substring(spaceidx + 1), size < 0 ? SIZE_NOT_PRESENT : size);
+			++journalEntryCount;
+		}
+	}
+
+	private void rebuild() throws IOException {
+		NavigableMap<String, Long> entries = new TreeMap<>();
+		Files.walkFileTree(repositoryDirectory, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				if (!attrs.isRegularFile()) {
+					return FileVisitResult.CONTINUE;
+				}
+				if (repositoryDirectory.equals(file.getParent())
+						&& file.getFileName().toString().startsWith(FILE_NAME_PREFIX)) {
+					//our own files in the root of the repository
+					return FileVisitResult.CONTINUE;
+				}
+				entries.put(toCatalogPath(file), attrs.size());
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+				//removed concurrently or not accessible
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		writeSnapshot(entries);
+	}
+
+	private void compact() throws IOException {
+		NavigableMap<String, Long> entries = new TreeMap<>();
+		for (int i = 0; i < entryCount; ++i) {
+			int entryoffset = HEADER_SIZE + i * ENTRY_SIZE;
+			byte[] pathbytes = new byte[snapshot.getInt(entryoffset + 4)];
+			int pathoffset = snapshot.getInt(entryoffset);
+			for (int j = 0; j < pathbytes.length; ++j) {
+				pathbytes[j] = snapshot.get(pathoffset + j);
+			}
+			entries.put(new String(pathbytes, StandardCharsets.UTF_8), snapshot.getLong(entryoffset + 8));
+		}
+		for (Entry<String, Long> entry : journalEntries.entrySet()) {
+			if (entry.getValue() == SIZE_NOT_PRESENT) {
+				entries.remove(entry.getKey());
+			} else {
+				entries.put(entry.getKey(), entry.getValue());
+			}
+		}
+		writeSnapshot(entries);
+	}
+
+	private void writeSnapshot(NavigableMap<String, Long> entries) throws IOException {
+		int count = entries.size();
+		//power of two, at most half full
+		int tablesize = Integer.highestOneBit(Math.max(count, 1)) * 4;
+		List<byte[]> paths = new ArrayList<>(count);
+		long[] sizes = new long[count];
+		int[] table = new int[tablesize];
+		int idx = 0;
+		for (Entry<String, Long> entry : entries.entrySet()) {
+			byte[] pathbytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+			paths.add(pathbytes);
+			sizes[idx] = entry.getValue();
+			int slot = hash(pathbytes) & (tablesize - 1);
+			while (table[slot] != 0) {
+				slot = (slot + 1) & (tablesize - 1);
+			}
+			//the table contains the entry indices offset by one, zero means empty slot
+			table[slot] = ++idx;
+		}
+
+		Path catalogfile = repositoryDirectory.resolve(CATALOG_FILE_NAME);
+		Path tempfile = repositoryDirectory.resolve(CATALOG_FILE_NAME + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(tempfile)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeInt(count);
+			out.writeInt(tablesize);
+			out.writeLong(System.currentTimeMillis());
+			long pathoffset = HEADER_SIZE + (long) count * ENTRY_SIZE + tablesize * 4L;
+			for (int i = 0; i < count; ++i) {
+				byte[] pathbytes = paths.get(i);
+				if (pathoffset + pathbytes.length > Integer.MAX_VALUE) {
+					throw new IOException("Local repository catalog too large.");
+				}
+				out.writeInt((int) pathoffset);
+				out.writeInt(pathbytes.length);
+				out.writeLong(sizes[i]);
+				pathoffset += pathbytes.length;
+			}
+			for (int slot : table) {
+				out.writeInt(slot);
+			}
+			for (byte[] pathbytes : paths) {
+				out.write(pathbytes);
+			}
+		}
+		Files.move(tempfile, catalogfile, StandardCopyOption.REPLACE_EXISTING);
+		Files.deleteIfExists(repositoryDirectory.resolve(JOURNAL_FILE_NAME));
+		journalEntries.clear();
+		journalEntryCount = 0;
+		if (!mapSnapshot(catalogfile)) {
+			throw new IOException("Failed to read local repository catalog: " + catalogfile);
+		}
+	}
+
+	private long getSnapshotSize(byte[] path) {
+		if (entryCount == 0) {
+			return SIZE_NOT_PRESENT;
+		}
+		int mask = hashTableSize - 1;
+		for (int slot = hash(path) & mask;; slot = (slot + 1) & mask) {
+			int idx = snapshot.getInt(hashTableOffset + slot * 4);
+			if (idx == 0) {
+				return SIZE_NOT_PRESENT;
+			}
+			int entryoffset = HEADER_SIZE + (idx - 1) * ENTRY_SIZE;
+			if (snapshotPathEquals(entryoffset, path)) {
+				return snapshot.getLong(entryoffset + 8);
+			}
+		}
+	}
+
+	private boolean snapshotPathEquals(int entryoffset, byte[] path) {
+		if (snapshot.getInt(entryoffset + 4) != path.length) {
+			return false;
+		}
+		int pathoffset = snapshot.getInt(entryoffset);
+		for (int i = 0; i < path.length; ++i) {
+			if (snapshot.get(pathoffset + i) != path[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int hash(byte[] bytes) {
+		//FNV-1a
+		int result = 0x811c9dc5;
+		for (byte b : bytes) {
+			result ^= b & 0xff;
+			result *= 0x01000193;
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + repositoryDirectory + "]";
+	}
+}
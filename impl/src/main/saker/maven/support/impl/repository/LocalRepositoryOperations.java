@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.repository;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tracks the download and localization operations that are in progress on the local repositories in the current JVM.
+ * <p>
+ * The {@linkplain LocalRepositoryPruner pruning} waits for the operations in progress, so it is performed after the
+ * artifacts of the concurrently running operations are recorded in the {@linkplain LocalRepositoryAccessLog access
+ * log}. The operations are not blocked by the waiting pruning.
+ */
+public final class LocalRepositoryOperations {
+	private static final Map<Path, Integer> RUNNING_OPERATIONS = new HashMap<>();
+
+	private LocalRepositoryOperations() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Records the start of an operation on the argument repository.
+	 * <p>
+	 * Each call must be followed by a call to {@link #end(Path)} with the same repository.
+	 *
+	 * @param repositorydir
+	 *            The root directory of the local repository.
+	 */
+	public static void begin(Path repositorydir) {
+		Path dir = normalize(repositorydir);
+		synchronized (RUNNING_OPERATIONS) {
+			RUNNING_OPERATIONS.merge(dir, 1, Integer::sum);
+		}
+	}
+
+	/**
+	 * Records the end of an operation on the argument repository.
+	 *
+	 * @param repositorydir
+	 *            The root directory of the local repository.
+	 */
+	public static void end(Path repositorydir) {
+		Path dir = normalize(repositorydir);
+		synchronized (RUNNING_OPERATIONS) {
+			RUNNING_OPERATIONS.computeIfPresent(dir, (k, v) -> v <= 1 ? null : v - 1);
+			RUNNING_OPERATIONS.notifyAll();
+		}
+	}
+
+	/**
+	 * Waits until no operations are running on the argument repository.
+	 *
+	 * @param repositorydir
+	 *            The root directory of the local repository.
+	 * @throws InterruptedException
+	 *             If the current thread is interrupted.
+	 */
+	public static void await(Path repositorydir) throws InterruptedException {
+		Path dir = normalize(repositorydir);
+		synchronized (RUNNING_OPERATIONS) {
+			while (RUNNING_OPERATIONS.containsKey(dir)) {
+				RUNNING_OPERATIONS.wait();
+			}
+		}
+	}
+
+	private static Path normalize(Path path) {
+		return path.toAbsolutePath().normalize();
+	}
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.repository;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Evicts the least recently used artifact versions from a local repository.
+ * <p>
+ * The unit of eviction is a version directory, that is a directory that directly contains artifact files. The last
+ * use time of a version is the latest of its last {@linkplain LocalRepositoryAccessLog recorded access} and the last
+ * modification time of its files.
+ * <p>
+ * The versions are evicted in least recently used order if they haven't been used for the
+ * {@linkplain #setMaxUnusedMillis(long) maximum unused time}, or while the total size of the repository exceeds the
+ * {@linkplain #setSizeBudget(long) size budget}. The versions that were used since the
+ * {@linkplain #setProtectedSince(long) protection time} and the versions that contain a
+ * {@linkplain #setKeepFiles(Collection) kept file} are never evicted.
+ * <p>
+ * The pruning should be performed while the
+ * {@linkplain saker.maven.support.impl.MavenImplUtils#getAccessLockFilePathInRepository repository lock} is held.
+ */
+public class LocalRepositoryPruner {
+	private static final String FILE_NAME_PREFIX = "saker.m2.";
+
+	private final Path repositoryDirectory;
+
+	private long sizeBudget = -1;
+	private long maxUnusedMillis = -1;
+	private long protectedSince = Long.MAX_VALUE;
+	private Set<Path> keepDirectories = new HashSet<>();
+
+	private long freedBytes;
+	private int removedVersionCount;
+	private long remainingBytes;
+
+	public LocalRepositoryPruner(Path repositoryDirectory) {
+		this.repositoryDirectory = repositoryDirectory.toAbsolutePath().normalize();
+	}
+
+	/**
+	 * Sets the maximum total size of the repository.
+	 *
+	 * @param sizeBudget
+	 *            The size in bytes, or negative to not limit the size.
+	 */
+	public void setSizeBudget(long sizeBudget) {
+		this.sizeBudget = sizeBudget;
+	}
+
+	/**
+	 * Sets the time after which an unused version is evicted.
+	 *
+	 * @param maxUnusedMillis
+	 *            The time in milliseconds, or negative to not evict by age.
+	 */
+	public void setMaxUnusedMillis(long maxUnusedMillis) {
+		this.maxUnusedMillis = maxUnusedMillis;
+	}
+
+	/**
+	 * Sets the time after which used versions are protected from eviction.
+	 * <p>
+	 * Usually the start time of the current build execution.
+	 *
+	 * @param protectedSince
+	 *            The time in milliseconds.
+	 */
+	public void setProtectedSince(long protectedSince) {
+		this.protectedSince = protectedSince;
+	}
+
+	/**
+	 * Sets the files which shouldn't be evicted.
+	 *
+	 * @param files
+	 *            The local paths of the files.
+	 */
+	public void setKeepFiles(Collection<? extends Path> files) {
+		keepDirectories = new HashSet<>();
+		for (Path file : files) {
+			Path dir = file.toAbsolutePath().normalize().getParent();
+			if (dir != null) {
+				keepDirectories.add(dir);
+			}
+		}
+	}
+
+	/**
+	 * Performs the pruning.
+	 *
+	 * @throws IOException
+	 *             If the repository cannot be walked.
+	 */
+	public void prune() throws IOException {
+		Map<Path, VersionDirectory> versions = new HashMap<>();
+		long[] totalsize = { 0 };
+		Files.walkFileTree(repositoryDirectory, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				if (!attrs.isRegularFile()) {
+					return FileVisitResult.CONTINUE;
+				}
+				Path dir = file.getParent();
+				String filename = file.getFileName().toString();
+				if (repositoryDirectory.equals(dir)) {
+					if (!filename.startsWith(FILE_NAME_PREFIX)) {
+						totalsize[0] += attrs.size();
+					}
+					return FileVisitResult.CONTINUE;
+				}
+				totalsize[0] += attrs.size();
+				VersionDirectory version = versions.computeIfAbsent(dir, VersionDirectory::new);
+				version.size += attrs.size();
+				version.lastUsed = Math.max(version.lastUsed, attrs.lastModifiedTime().toMillis());
+				if (!isMetadataFile(filename)) {
+					version.hasArtifacts = true;
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+				return FileVisitResult.CONTINUE;
+			}
+		});
+
+		Map<String, Long> accesstimes = LocalRepositoryAccessLog.readAccessTimes(repositoryDirectory);
+		List<VersionDirectory> candidates = new ArrayList<>();
+		for (VersionDirectory version : versions.values()) {
+			if (!version.hasArtifacts) {
+				continue;
+			}
+			Long accesstime = accesstimes.get(LocalRepositoryAccessLog.toLogPath(repositoryDirectory, version.path));
+			if (accesstime != null) {
+				version.lastUsed = Math.max(version.lastUsed, accesstime);
+			}
+			if (version.lastUsed >= protectedSince || keepDirectories.contains(version.path)) {
+				continue;
+			}
+			candidates.add(version);
+		}
+		candidates.sort(Comparator.comparingLong(v -> v.lastUsed));
+
+		long now = System.currentTimeMillis();
+		long total = totalsize[0];
+		for (VersionDirectory version : candidates) {
+			boolean expired = maxUnusedMillis >= 0 && now - version.lastUsed > maxUnusedMillis;
+			boolean overbudget = sizeBudget >= 0 && total > sizeBudget;
+			if (!expired && !overbudget) {
+				//the rest are used more recently
+				break;
+			}
+			long deleted = delete(version.path);
+			freedBytes += deleted;
+			total -= deleted;
+			++removedVersionCount;
+			accesstimes.remove(LocalRepositoryAccessLog.toLogPath(repositoryDirectory, version.path));
+		}
+		remainingBytes = total;
+		if (removedVersionCount > 0) {
+			LocalRepositoryAccessLog.rewrite(repositoryDirectory, accesstimes);
+			//rebuilt on the next access
+			Files.deleteIfExists(repositoryDirectory.resolve(LocalRepositoryCatalog.CATALOG_FILE_NAME));
+			Files.deleteIfExists(repositoryDirectory.resolve(LocalRepositoryCatalog.JOURNAL_FILE_NAME));
+			LocalRepositoryCatalog.get(repositoryDirectory).close();
+		}
+	}
+
+	public long getFreedBytes() {
+		return freedBytes;
+	}
+
+	public int getRemovedVersionCount() {
+		return removedVersionCount;
+	}
+
+	public long getRemainingBytes() {
+		return remainingBytes;
+	}
+
+	private long delete(Path dir) throws IOException {
+		long result = 0;
+		try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+			for (Path file : ds) {
+				BasicFileAttributes attrs;
+				try {
+					attrs = Files.readAttributes(file, BasicFileAttributes.class);
+				} catch (IOException e) {
+					continue;
+				}
+				if (!attrs.isRegularFile()) {
+					continue;
+				}
+				try {
+					Files.delete(file);
+					result += attrs.size();
+				} catch (IOException e) {
+					//in use or not permitted, keep going
+				}
+			}
+		}
+		//remove the emptied parent directories
+		for (Path parent = dir; parent != null && !parent.equals(repositoryDirectory)
+				&& parent.startsWith(repositoryDirectory); parent = parent.getParent()) {
+			try {
+				Files.delete(parent);
+			} catch (IOException e) {
+				//not empty or not permitted
+				break;
+			}
+		}
+		return result;
+	}
+
+	private static boolean isMetadataFile(String filename) {
+		return filename.startsWith("maven-metadata") || filename.equals("resolver-status.properties")
+				|| filename.endsWith(".lastUpdated");
+	}
+
+	private static final class VersionDirectory {
+		protected final Path path;
+		protected long size;
+		protected long lastUsed;
+		protected boolean hasArtifacts;
+
+		public VersionDirectory(Path path) {
+			this.path = path;
+		}
+	}
+}
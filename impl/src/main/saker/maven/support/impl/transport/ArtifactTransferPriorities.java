@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.transport;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import saker.maven.support.api.ArtifactCoordinates;
+import saker.maven.support.thirdparty.org.eclipse.aether.RepositorySystemSession;
+
+/**
+ * Computes the transfer priorities of artifacts.
+ * <p>
+ * Artifacts with higher priority are transferred first. The priority of an artifact is the priority of the call
+ * multiplied by {@value #CALL_PRIORITY_MULTIPLIER} plus a default priority that is based on the scope, extension and
+ * classifier of the artifact. By default, compile scoped artifacts precede runtime and test scoped ones, and small
+ * artifacts (poms, main jars) precede sources, documentation and other archives.
+ */
+public final class ArtifactTransferPriorities {
+	public static final int CALL_PRIORITY_MULTIPLIER = 100;
+
+	/**
+	 * The priority of the transfers that don't correspond to prioritized artifacts.
+	 * <p>
+	 * It is the same as the default priority of a compile scoped pom, as these transfers are usually performed during
+	 * dependency resolution.
+	 */
+	public static final int UNKNOWN_TRANSFER_PRIORITY = 24;
+
+	private final Map<ArtifactCoordinates, Integer> priorities;
+
+	public ArtifactTransferPriorities(Collection<? extends ArtifactCoordinates> coordinates, int callpriority,
+			Map<? extends ArtifactCoordinates, String> scopes) {
+		List<Entry<ArtifactCoordinates, Integer>> entries = new ArrayList<>(coordinates.size());
+		for (ArtifactCoordinates acoords : coordinates) {
+			String scope = scopes == null ? null : scopes.get(acoords);
+			int priority = callpriority * CALL_PRIORITY_MULTIPLIER + getDefaultPriority(acoords, scope);
+			entries.add(new SimpleImmutableEntry<>(acoords, priority));
+		}
+		//stable sort, keep the original order for the same priorities
+		entries.sort(Comparator.comparingInt((Entry<ArtifactCoordinates, Integer> e) -> e.getValue()).reversed());
+		priorities = new LinkedHashMap<>();
+		for (Entry<ArtifactCoordinates, Integer> entry : entries) {
+			priorities.put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Gets the artifact coordinates in the order they should be transferred.
+	 *
+	 * @return The coordinates.
+	 */
+	public Set<ArtifactCoordinates> getOrderedCoordinates() {
+		return priorities.keySet();
+	}
+
+	/**
+	 * Registers the priorities in the {@link TransferScheduler} of the argument session.
+	 *
+	 * @param session
+	 *            The session.
+	 */
+	public void register(RepositorySystemSession session) {
+		TransferScheduler scheduler = TransferScheduler.get(session);
+		if (scheduler == null) {
+			return;
+		}
+		for (Entry<ArtifactCoordinates, Integer> entry : priorities.entrySet()) {
+			scheduler.setTransferPriority(getArtifactFileName(entry.getKey()), entry.getValue());
+		}
+	}
+
+	public static int getDefaultPriority(ArtifactCoordinates coordinates, String scope) {
+		return getScopePriority(scope) + getExtensionPriority(coordinates.getExtension(), coordinates.getClassifier());
+	}
+
+	public static String getArtifactFileName(ArtifactCoordinates coordinates) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(coordinates.getArtifactId());
+		sb.append('-');
+		sb.append(coordinates.getVersion());
+		String classifier = coordinates.getClassifier();
+		if (classifier != null && !classifier.isEmpty()) {
+			sb.append('-');
+			sb.append(classifier);
+		}
+		sb.append('.');
+		sb.append(coordinates.getExtension());
+		return sb.toString();
+	}
+
+	private static int getScopePriority(String scope) {
+		if (scope == null) {
+			return 20;
+		}
+		switch (scope) {
+			case "runtime": {
+				return 10;
+			}
+			case "test": {
+				return 0;
+			}
+			default: {
+				//compile, provided, system, import
+				return 20;
+			}
+		}
+	}
+
+	private static int getExtensionPriority(String extension, String classifier) {
+		if ("pom".equals(extension)) {
+			return 4;
+		}
+		if (classifier != null && !classifier.isEmpty()) {
+			switch (classifier) {
+				case "sources":
+				case "javadoc":
+				case "test-sources": {
+					return 0;
+				}
+				default: {
+					break;
+				}
+			}
+		}
+		if ("jar".equals(extension)) {
+			return classifier == null || classifier.isEmpty() ? 3 : 2;
+		}
+		//native libraries and other archives are usually large
+		return 1;
+	}
+}
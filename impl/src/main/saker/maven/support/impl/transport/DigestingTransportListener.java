@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.transport;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.Map;
+
+import saker.build.thirdparty.saker.util.StringUtils;
+import saker.maven.support.impl.content.ArtifactDigests;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.TransportListener;
+import saker.maven.support.thirdparty.org.eclipse.aether.transfer.TransferCancelledException;
+
+/**
+ * {@link TransportListener} that computes the digest of the downloaded file while its bytes are streamed to the disk.
+ * <p>
+ * The repository connector downloads the files into a <code>.part</code> file next to the final location, and moves it
+ * in place after the checksums are verified. The digest is {@linkplain ArtifactDigests recorded} for the final
+ * location with the attributes of the downloaded file, so it is used only if the file is moved without modification.
+ * Renaming the file keeps its size, modification time and file key.
+ * <p>
+ * The transporters may pass the checksums of the file to the repository connector along with the contents. If the
+ * connector accepts them, it doesn't download the checksum files, and they are not written to the local repository.
+ * The checksum files are written for the final location instead if the passed checksums match the digests computed
+ * by this listener, as they are used if the checksum files are trusted.
+ */
+class DigestingTransportListener extends TransportListener {
+	private static final String PART_FILE_EXTENSION = ".part";
+	private static final String MD5_ALGORITHM = "MD5";
+
+	private final TransportListener listener;
+	private final File dataFile;
+	private final MessageDigest digest = ArtifactDigests.newMessageDigest();
+	private final MessageDigest md5Digest = newMd5Digest();
+	private boolean valid = false;
+
+	public DigestingTransportListener(TransportListener listener, File dataFile) {
+		this.listener = listener;
+		this.dataFile = dataFile;
+	}
+
+	@Override
+	public void transportStarted(long dataOffset, long dataLength) throws TransferCancelledException {
+		digest.reset();
+		if (md5Digest != null) {
+			md5Digest.reset();
+		}
+		valid = digestExistingData(dataOffset);
+		listener.transportStarted(dataOffset, dataLength);
+	}
+
+	@Override
+	public void transportProgressed(ByteBuffer data) throws TransferCancelledException {
+		if (valid) {
+			//use a duplicate to keep the position for the delegate listener
+			digest.update(data.duplicate());
+			if (md5Digest != null) {
+				md5Digest.update(data.duplicate());
+			}
+		}
+		listener.transportProgressed(data);
+	}
+
+	/**
+	 * Records the computed digest after the transfer completed successfully.
+	 * 
+	 * @param checksums
+	 *            The checksums that were passed to the repository connector along with the file.
+	 * @return The digest of the downloaded file, or <code>null</code> if it couldn't be computed.
+	 */
+	public byte[] transferCompleted(Map<String, ?> checksums) {
+		if (!valid) {
+			return null;
+		}
+		byte[] result = digest.digest();
+		byte[] md5result = md5Digest == null ? null : md5Digest.digest();
+		String name = dataFile.getName();
+		if (!name.endsWith(PART_FILE_EXTENSION)) {
+			//temporary file with an unknown final location
+			return result;
+		}
+		Path datapath = dataFile.toPath();
+		Path finalpath = datapath
+				.resolveSibling(name.substring(0, name.length() - PART_FILE_EXTENSION.length()));
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(datapath, BasicFileAttributes.class);
+			ArtifactDigests.put(finalpath, attrs, result);
+		} catch (IOException e) {
+			//failed to read the attributes, don't record
+		}
+		writeChecksumFile(finalpath, ".sha1", checksums.get(ArtifactDigests.DIGEST_ALGORITHM), result);
+		writeChecksumFile(finalpath, ".md5", checksums.get(MD5_ALGORITHM), md5result);
+		return result;
+	}
+
+	private static void writeChecksumFile(Path finalpath, String extension, Object checksum, byte[] computed) {
+		if (!(checksum instanceof String) || computed == null) {
+			return;
+		}
+		String hex = StringUtils.toHexString(computed).toLowerCase(Locale.ENGLISH);
+		if (!hex.equalsIgnoreCase(((String) checksum).trim())) {
+			//the connector rejects the checksum, and falls back to the checksum files
+			return;
+		}
+		Path checksumpath = finalpath.resolveSibling(finalpath.getFileName() + extension);
+		try {
+			//written before the file is moved to the final location, so it is not older than the file
+			Files.write(checksumpath, hex.getBytes(StandardCharsets.US_ASCII));
+		} catch (IOException e) {
+			//the checksum file is not required
+		}
+	}
+
+	private static MessageDigest newMd5Digest() {
+		try {
+			return MessageDigest.getInstance(MD5_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			return null;
+		}
+	}
+
+	private boolean digestExistingData(long dataoffset) {
+		if (dataoffset <= 0) {
+			return true;
+		}
+		//resumed download, digest the already present range
+		try (InputStream is = Files.newInputStream(dataFile.toPath())) {
+			byte[] buffer = new byte[32 * 1024];
+			long remaining = dataoffset;
+			while (remaining > 0) {
+				int read = is.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+				if (read <= 0) {
+					return false;
+				}
+				digest.update(buffer, 0, read);
+				remaining -= read;
+			}
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.transport;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+import saker.maven.support.api.MavenUtils;
+
+/**
+ * JVM-wide limit for the number of concurrent transfers of all Maven operations.
+ * <p>
+ * If the limit is reached, the waiting transfers are granted in the order of how many transfers their owner
+ * {@link TransferScheduler} has already been granted, and then in the order of their priority. This ensures that the
+ * first transfers of a newly started operation don't need to wait for the large batches of other operations to
+ * complete, and that the high priority transfers of an operation cannot starve the others.
+ * <p>
+ * The limit is configured by the first scheduler that specifies it. Later schedulers cannot change it.
+ */
+final class GlobalTransferBudget {
+	public static final GlobalTransferBudget INSTANCE = new GlobalTransferBudget();
+
+	private static final Comparator<Waiter> WAITER_COMPARATOR = Comparator
+			.comparingLong((Waiter w) -> w.ownerGrantCount)
+			.thenComparing(Comparator.comparingInt((Waiter w) -> w.priority).reversed())
+			.thenComparingLong(w -> w.sequence);
+
+	private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(WAITER_COMPARATOR);
+	private int limit = MavenUtils.DEFAULT_GLOBAL_TRANSFER_LIMIT;
+	private boolean limitConfigured = false;
+	private int active = 0;
+	private long sequence = 0;
+
+	private GlobalTransferBudget() {
+	}
+
+	/**
+	 * Configures the limit if it hasn't been configured yet.
+	 *
+	 * @param limit
+	 *            The limit to configure, or non-positive to keep the current limit.
+	 * @return The effective limit after the call.
+	 */
+	public synchronized int configureLimit(int limit) {
+		if (limit <= 0 || limitConfigured) {
+			return this.limit;
+		}
+		limitConfigured = true;
+		if (this.limit != limit) {
+			this.limit = limit;
+			grantWaiters();
+		}
+		return limit;
+	}
+
+	/**
+	 * Waits until a transfer can be started on behalf of the argument owner.
+	 *
+	 * @param owner
+	 *            The scheduler that requests the transfer.
+	 * @param priority
+	 *            The priority of the transfer.
+	 * @throws InterruptedException
+	 *             If the current thread was interrupted while waiting.
+	 */
+	public synchronized void acquire(TransferScheduler owner, int priority) throws InterruptedException {
+		if (active < limit && waiters.isEmpty()) {
+			++active;
+			++owner.grantCount;
+			return;
+		}
+		Waiter waiter = new Waiter(priority, owner.grantCount, sequence++);
+		waiters.add(waiter);
+		try {
+			while (!waiter.granted) {
+				this.wait();
+			}
+		} catch (InterruptedException e) {
+			if (waiter.granted) {
+				release();
+			} else {
+				waiters.remove(waiter);
+			}
+			throw e;
+		}
+		++owner.grantCount;
+	}
+
+	/**
+	 * Starts a transfer on behalf of the argument owner if it is possible without waiting.
+	 * <p>
+	 * The transfer is not started if other transfers are already waiting.
+	 *
+	 * @param owner
+	 *            The scheduler that requests the transfer.
+	 * @return <code>true</code> if the transfer can be started.
+	 */
+	public synchronized boolean tryAcquire(TransferScheduler owner) {
+		if (active < limit && waiters.isEmpty()) {
+			++active;
+			++owner.grantCount;
+			return true;
+		}
+		return false;
+	}
+
+	public synchronized void release() {
+		--active;
+		grantWaiters();
+	}
+
+	private void grantWaiters() {
+		boolean granted = false;
+		while (active < limit) {
+			Waiter waiter = waiters.poll();
+			if (waiter == null) {
+				break;
+			}
+			waiter.granted = true;
+			++active;
+			granted = true;
+		}
+		if (granted) {
+			this.notifyAll();
+		}
+	}
+
+	private static final class Waiter {
+		protected final int priority;
+		protected final long ownerGrantCount;
+		protected final long sequence;
+		protected boolean granted;
+
+		public Waiter(int priority, long ownerGrantCount, long sequence) {
+			this.priority = priority;
+			this.ownerGrantCount = ownerGrantCount;
+			this.sequence = sequence;
+		}
+	}
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.transport;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import saker.build.thirdparty.saker.util.StringUtils;
+import saker.maven.support.impl.content.ArtifactDigests;
+import saker.maven.support.impl.content.DownloadCache;
+import saker.maven.support.impl.transport.TransferScheduler.TransferPermit;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.RemoteRepository;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.GetTask;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.PeekTask;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.PutTask;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.TransportListener;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.Transporter;
+import saker.maven.support.thirdparty.org.eclipse.aether.transfer.TransferCancelledException;
+
+/**
+ * {@link Transporter} that records the outcome and latency of the requests in the associated
+ * {@link RepositoryStatistics}, and acquires the transfer permits from the {@link TransferScheduler} of the session.
+ * <p>
+ * For downloads the latency is measured until the first byte of the data arrives, so the size of the artifacts don't
+ * distort the statistics.
+ * <p>
+ * The digests of the downloaded files are computed while they are transferred using a
+ * {@link DigestingTransportListener}.
+ * <p>
+ * If a {@link DownloadCache} is used, the downloaded files are added to the cache. Their locations are
+ * recorded in the cache once their digests are verified by the repository connector, either by accepting the checksum
+ * included in the response, or by retrieving the SHA-1 checksum file through this transporter. If the cache has the
+ * digest of a location recorded, and contains a file with the same digest, it is placed at the download location
+ * instead of downloading it, and passed to the transport listener so the repository connector verifies its checksum.
+ * The checksum is passed to the repository connector as well, so it doesn't request the checksum file. No additional
+ * requests are made to the repository to look up the files in the cache.
+ * <p>
+ * The cache is not used if the checksums are ignored, as the downloaded files are not verified in that case.
+ */
+class MonitoringTransporter implements Transporter {
+	private static final String CHECKSUM_FILE_EXTENSION = ".sha1";
+	private static final String METADATA_FILE_NAME_PREFIX = "maven-metadata";
+	private static final String[] NON_STORED_EXTENSIONS = { ".sha1", ".md5", ".sha256", ".sha512", ".asc" };
+	private static final String SNAPSHOT_VERSION_SUFFIX = "-SNAPSHOT/";
+	private static final int BUFFER_SIZE = 32 * 1024;
+	private static final int MAX_CHECKSUM_FILE_SIZE = 1024;
+
+	private final Transporter transporter;
+	private final RemoteRepository repository;
+	private final RepositoryStatistics statistics;
+	private final TransferScheduler scheduler;
+	private final DownloadCache downloadCache;
+
+	/**
+	 * The digests of the files that are downloaded, but not yet verified by the repository connector.
+	 * <p>
+	 * Mapped by the locations of their checksum files.
+	 */
+	private final ConcurrentMap<String, byte[]> unverifiedDigests = new ConcurrentHashMap<>();
+
+	public MonitoringTransporter(Transporter transporter, RemoteRepository repository, TransferScheduler scheduler,
+			DownloadCache downloadCache) {
+		this.transporter = transporter;
+		this.repository = repository;
+		this.statistics = RepositoryStatistics.get(repository);
+		this.scheduler = scheduler;
+		this.downloadCache = downloadCache;
+	}
+
+	@Override
+	public int classify(Throwable error) {
+		return transporter.classify(error);
+	}
+
+	//suppress the unused TransferPermit warning
+	@SuppressWarnings("try")
+	@Override
+	public void peek(PeekTask task) throws Exception {
+		try (TransferPermit permit = acquirePermit(task.getLocation())) {
+			long start = System.nanoTime();
+			try {
+				transporter.peek(task);
+			} catch (Exception e) {
+				recordException(e, elapsedMillis(start));
+				throw e;
+			}
+			statistics.recordHit(elapsedMillis(start));
+		}
+	}
+
+	//suppress the unused TransferPermit warning
+	@SuppressWarnings("try")
+	@Override
+	public void get(GetTask task) throws Exception {
+		try (TransferPermit permit = acquirePermit(task.getLocation())) {
+			long start = System.nanoTime();
+			TimingTransportListener listener = new TimingTransportListener(task.getListener(), start);
+			File datafile = task.getDataFile();
+			DigestingTransportListener digester = null;
+			if (datafile == null) {
+				task.setListener(listener);
+			} else {
+				digester = new DigestingTransportListener(listener, datafile);
+				task.setListener(digester);
+			}
+			try {
+				if (!getFromDownloadCache(task, datafile)) {
+					transporter.get(task);
+				}
+			} catch (Exception e) {
+				recordException(e, listener.getLatencyMillis());
+				throw e;
+			}
+			statistics.recordHit(listener.getLatencyMillis());
+			if (digester != null) {
+				byte[] digest = digester.transferCompleted(task.getChecksums());
+				if (digest != null) {
+					storeDownloaded(task, datafile, digest);
+				}
+			}
+			if (datafile != null) {
+				verifyDownloaded(task.getLocation(), datafile);
+			}
+		}
+	}
+
+	@Override
+	public void put(PutTask task) throws Exception {
+		//uploads are not recorded, as their latency and outcome is not representative for retrievals
+		transporter.put(task);
+	}
+
+	@Override
+	public void close() {
+		transporter.close();
+	}
+
+	private boolean getFromDownloadCache(GetTask task, File datafile) throws Exception {
+		if (downloadCache == null || datafile == null || task.getResumeOffset() > 0
+				|| !isDownloadCacheLocation(task.getLocation())) {
+			return false;
+		}
+		byte[] digest = downloadCache.getLocationDigest(getLocationUrl(task.getLocation()));
+		if (digest == null) {
+			return false;
+		}
+		Path datapath = datafile.toPath();
+		if (!downloadCache.materialize(digest, datapath)) {
+			return false;
+		}
+		//pass it to the connector, so it doesn't request the checksum file
+		task.setChecksum(ArtifactDigests.DIGEST_ALGORITHM, StringUtils.toHexString(digest));
+		TransportListener listener = task.getListener();
+		try (FileChannel channel = FileChannel.open(datapath, StandardOpenOption.READ)) {
+			listener.transportStarted(0, channel.size());
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			while (channel.read(buffer) > 0) {
+				buffer.flip();
+				listener.transportProgressed(buffer);
+				buffer.clear();
+			}
+		}
+		return true;
+	}
+
+	private void storeDownloaded(GetTask task, File datafile, byte[] digest) {
+		URI location = task.getLocation();
+		if (downloadCache == null || !isDownloadCacheLocation(location)) {
+			return;
+		}
+		try {
+			downloadCache.store(datafile.toPath(), digest);
+		} catch (IOException e) {
+			//failed to add to the cache, it is not required
+			return;
+		}
+		if (isSnapshotLocation(location)) {
+			//the contents of the location may change
+			return;
+		}
+		Object inlinechecksum = task.getChecksums().get(ArtifactDigests.DIGEST_ALGORITHM);
+		if (inlinechecksum != null) {
+			if (Arrays.equals(digest, ArtifactDigests.parseHexDigest(inlinechecksum.toString()))) {
+				//the connector accepts the checksum included in the response
+				recordLocation(location, digest);
+			}
+			return;
+		}
+		//the connector retrieves the checksum file to verify the download
+		unverifiedDigests.put(location.toString() + CHECKSUM_FILE_EXTENSION, digest);
+	}
+
+	private void verifyDownloaded(URI checksumlocation, File checksumfile) {
+		if (unverifiedDigests.isEmpty()) {
+			return;
+		}
+		String checksumlocationstr = checksumlocation.toString();
+		byte[] digest = unverifiedDigests.remove(checksumlocationstr);
+		if (digest == null) {
+			return;
+		}
+		try {
+			if (Files.size(checksumfile.toPath()) > MAX_CHECKSUM_FILE_SIZE) {
+				return;
+			}
+			String content = new String(Files.readAllBytes(checksumfile.toPath()), StandardCharsets.US_ASCII).trim();
+			//the file may contain the file name after the checksum
+			int wsidx = 0;
+			while (wsidx < content.length() && !Character.isWhitespace(content.charAt(wsidx))) {
+				++wsidx;
+			}
+			if (Arrays.equals(digest, ArtifactDigests.parseHexDigest(content.substring(0, wsidx)))) {
+				recordLocation(URI.create(checksumlocationstr.substring(0,
+						checksumlocationstr.length() - CHECKSUM_FILE_EXTENSION.length())), digest);
+			}
+		} catch (IOException e) {
+			//the location is not recorded
+		}
+	}
+
+	private void recordLocation(URI location, byte[] digest) {
+		try {
+			downloadCache.recordLocation(getLocationUrl(location), digest);
+		} catch (IOException e) {
+			//failed to record, it is not required
+		}
+	}
+
+	private String getLocationUrl(URI location) {
+		if (location.isAbsolute()) {
+			return location.toString();
+		}
+		String url = repository.getUrl();
+		if (url.endsWith("/")) {
+			return url + location;
+		}
+		return url + "/" + location;
+	}
+
+	private static boolean isSnapshotLocation(URI location) {
+		String path = location.getPath();
+		return path != null && path.contains(SNAPSHOT_VERSION_SUFFIX);
+	}
+
+	private static boolean isDownloadCacheLocation(URI location) {
+		String path = location.getPath();
+		if (path == null) {
+			return false;
+		}
+		if (isSnapshotLocation(location)) {
+			//the contents of the location may change
+			return false;
+		}
+		String name = path.substring(path.lastIndexOf('/') + 1);
+		if (name.startsWith(METADATA_FILE_NAME_PREFIX)) {
+			//changes over time, not worth storing
+			return false;
+		}
+		for (String ext : NON_STORED_EXTENSIONS) {
+			if (name.endsWith(ext)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private TransferPermit acquirePermit(URI location) throws InterruptedException {
+		if (scheduler == null) {
+			return null;
+		}
+		return scheduler.acquire(repository, scheduler.getTransferPriority(location));
+	}
+
+	private void recordException(Exception e, long latencymillis) {
+		if (e instanceof TransferCancelledException || e instanceof InterruptedException) {
+			//not the fault of the repository
+			return;
+		}
+		if (transporter.classify(e) == ERROR_NOT_FOUND) {
+			statistics.recordMiss(latencymillis);
+		} else {
+			statistics.recordFailure(latencymillis);
+		}
+	}
+
+	private static long elapsedMillis(long startnanos) {
+		return (System.nanoTime() - startnanos) / 1_000_000;
+	}
+
+	private static final class TimingTransportListener extends TransportListener {
+		private final TransportListener listener;
+		private final long startNanos;
+		private long firstDataNanos = -1;
+
+		public TimingTransportListener(TransportListener listener, long startNanos) {
+			this.listener = listener;
+			this.startNanos = startNanos;
+		}
+
+		public long getLatencyMillis() {
+			long end = firstDataNanos;
+			if (end < 0) {
+				end = System.nanoTime();
+			}
+			return (end - startNanos) / 1_000_000;
+		}
+
+		@Override
+		public void transportStarted(long dataOffset, long dataLength) throws TransferCancelledException {
+			if (firstDataNanos < 0) {
+				firstDataNanos = System.nanoTime();
+			}
+			listener.transportStarted(dataOffset, dataLength);
+		}
+
+		@Override
+		public void transportProgressed(ByteBuffer data) throws TransferCancelledException {
+			listener.transportProgressed(data);
+		}
+	}
+}
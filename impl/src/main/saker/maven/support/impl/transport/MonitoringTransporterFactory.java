@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.transport;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import saker.maven.support.impl.content.DownloadCache;
+import saker.maven.support.thirdparty.org.eclipse.aether.RepositorySystemSession;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.RemoteRepository;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.RepositoryPolicy;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.Transporter;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.TransporterFactory;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.locator.Service;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.locator.ServiceLocator;
+import saker.maven.support.thirdparty.org.eclipse.aether.transfer.NoTransporterException;
+import saker.maven.support.thirdparty.org.eclipse.aether.transport.file.FileTransporterFactory;
+import saker.maven.support.thirdparty.org.eclipse.aether.transport.wagon.WagonTransporterFactory;
+
+/**
+ * {@link TransporterFactory} that creates the transporters using the supported delegate factories, records the
+ * {@linkplain RepositoryStatistics statistics} of the created transporters, and schedules their transfers using the
+ * {@link TransferScheduler} of the session.
+ * <p>
+ * The downloads from HTTP(S) repositories are performed by {@link ResumingHttpTransporter}, so they can be resumed if
+ * interrupted.
+ * <p>
+ * Repositories with <code>file:</code> URLs that point to a zip or jar bundle are read by the
+ * {@link ZipBundleTransporter}. Other <code>file:</code> repositories are read by the {@link NioFileTransporter}.
+ * <p>
+ * If a {@link DownloadCache} is configured for the session, the files are retrieved from the cache if possible.
+ * The cache is not used for repositories whose checksums are ignored.
+ */
+public class MonitoringTransporterFactory implements TransporterFactory, Service {
+	private final List<TransporterFactory> factories = new ArrayList<>();
+
+	public MonitoringTransporterFactory() {
+	}
+
+	@Override
+	public void initService(ServiceLocator locator) {
+		factories.add(new ZipBundleTransporter.Factory());
+		factories.add(initService(new FileTransporterFactory(), locator));
+		factories.add(initService(new WagonTransporterFactory(), locator));
+		factories.sort(Comparator.comparingDouble(TransporterFactory::getPriority).reversed());
+	}
+
+	@Override
+	public Transporter newInstance(RepositorySystemSession session, RemoteRepository repository)
+			throws NoTransporterException {
+		NoTransporterException exc = null;
+		for (TransporterFactory factory : factories) {
+			try {
+				Transporter transporter = factory.newInstance(session, repository);
+				transporter = ResumingHttpTransporter.wrap(session, repository, transporter);
+				transporter = NioFileTransporter.wrap(session, repository, transporter);
+				DownloadCache downloadcache = isChecksumIgnored(session, repository) ? null
+						: DownloadCache.get(session);
+				return new MonitoringTransporter(transporter, repository, TransferScheduler.get(session),
+						downloadcache);
+			} catch (NoTransporterException e) {
+				if (exc == null) {
+					exc = e;
+				} else {
+					exc.addSuppressed(e);
+				}
+			}
+		}
+		if (exc != null) {
+			throw exc;
+		}
+		throw new NoTransporterException(repository);
+	}
+
+	@Override
+	public float getPriority() {
+		return 10.0f;
+	}
+
+	private static boolean isChecksumIgnored(RepositorySystemSession session, RemoteRepository repository) {
+		String policy = session.getChecksumPolicy();
+		if (policy == null || policy.isEmpty()) {
+			policy = repository.getPolicy(false).getChecksumPolicy();
+		}
+		return RepositoryPolicy.CHECKSUM_POLICY_IGNORE.equals(policy);
+	}
+
+	private static TransporterFactory initService(TransporterFactory factory, ServiceLocator locator) {
+		//not all versions of the transporter factories are services
+		if (factory instanceof Service) {
+			((Service) factory).initService(locator);
+		}
+		return factory;
+	}
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.transport;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+
+import saker.maven.support.thirdparty.org.eclipse.aether.RepositorySystemSession;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.RemoteRepository;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.GetTask;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.PeekTask;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.PutTask;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.TransportListener;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.Transporter;
+import saker.maven.support.thirdparty.org.eclipse.aether.transfer.TransferCancelledException;
+
+/**
+ * {@link Transporter} that retrieves the files from <code>file:</code> repositories using NIO channels.
+ * <p>
+ * Small files are copied using a buffer. Larger files are transferred between file channels, which lets the operating
+ * system copy the contents without passing them through the Java process (e.g. in-kernel or server side copy on
+ * network file systems). The transport listener is then notified with the contents of the written target file read
+ * through a direct buffer, so the repository connector computes the checksums of the bytes that were actually written.
+ * The target is read from the local file system, which is usually cheaper than reading the source again. The files are
+ * not hard linked, as the local repository would share the contents with the source repository.
+ * <p>
+ * The checksums in the <code>.sha1</code> and <code>.md5</code> files next to the source are passed to the repository
+ * connector with the file. If they match the computed checksums, the connector doesn't copy the checksum files
+ * separately.
+ * <p>
+ * Uploads are performed by the delegate transporter.
+ */
+class NioFileTransporter implements Transporter {
+	private static final int BUFFER_SIZE = 32 * 1024;
+	private static final long MIN_CHANNEL_TRANSFER_SIZE = 256 * 1024;
+	private static final int CHANNEL_BUFFER_SIZE = 256 * 1024;
+	private static final int SHA1_HEX_LENGTH = 40;
+	private static final int MD5_HEX_LENGTH = 32;
+
+	private final Transporter delegate;
+	private final Path baseDirectory;
+
+	private NioFileTransporter(Transporter delegate, Path baseDirectory) {
+		this.delegate = delegate;
+		this.baseDirectory = baseDirectory;
+	}
+
+	/**
+	 * Creates a NIO file transporter for the argument repository if possible.
+	 * <p>
+	 * Repositories that are not <code>file:</code> repositories, or that are served by other transporters than the
+	 * file transporter are handled by the delegate transporter.
+	 *
+	 * @param session
+	 *            The repository session.
+	 * @param repository
+	 *            The repository.
+	 * @param delegate
+	 *            The delegate transporter.
+	 * @return The created transporter, or the delegate.
+	 */
+	public static Transporter wrap(RepositorySystemSession session, RemoteRepository repository,
+			Transporter delegate) {
+		if (!"file".equalsIgnoreCase(repository.getProtocol())) {
+			return delegate;
+		}
+		if (delegate instanceof ZipBundleTransporter) {
+			return delegate;
+		}
+		Path basedir;
+		try {
+			basedir = Paths.get(URI.create(repository.getUrl()));
+		} catch (Exception e) {
+			return delegate;
+		}
+		return new NioFileTransporter(delegate, basedir);
+	}
+
+	@Override
+	public int classify(Throwable error) {
+		if (error instanceof FileNotFoundException || error instanceof NoSuchFileException) {
+			return ERROR_NOT_FOUND;
+		}
+		return delegate.classify(error);
+	}
+
+	@Override
+	public void peek(PeekTask task) throws Exception {
+		getSourceFile(task.getLocation());
+	}
+
+	@Override
+	public void get(GetTask task) throws Exception {
+		Path source = getSourceFile(task.getLocation());
+		setChecksums(task, source);
+
+		File datafile = task.getDataFile();
+		long size = Files.size(source);
+		if (datafile == null || size < MIN_CHANNEL_TRANSFER_SIZE) {
+			copy(task, source, size);
+			return;
+		}
+		Path target = datafile.toPath();
+		long offset = task.getResumeOffset();
+		if (offset < 0 || offset > size) {
+			offset = 0;
+		}
+		TransportListener listener = task.getListener();
+		listener.transportStarted(offset, size);
+		try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.READ,
+						StandardOpenOption.WRITE)) {
+			out.truncate(offset);
+			for (long position = offset; position < size;) {
+				long transferred = in.transferTo(position, size - position, out.position(position));
+				if (transferred <= 0) {
+					throw new IOException("Unexpected end of file: " + source);
+				}
+				position += transferred;
+			}
+			notifyTransferred(listener, out, offset, size);
+		}
+	}
+
+	private static void notifyTransferred(TransportListener listener, FileChannel channel, long offset, long size)
+			throws IOException, TransferCancelledException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(CHANNEL_BUFFER_SIZE);
+		for (long position = offset; position < size;) {
+			buffer.clear();
+			buffer.limit((int) Math.min(buffer.capacity(), size - position));
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				throw new IOException("Unexpected end of file after transfer.");
+			}
+			buffer.flip();
+			listener.transportProgressed(buffer);
+			position += read;
+		}
+	}
+
+	@Override
+	public void put(PutTask task) throws Exception {
+		delegate.put(task);
+	}
+
+	@Override
+	public void close() {
+		delegate.close();
+	}
+
+	private Path getSourceFile(URI location) throws FileNotFoundException {
+		Path result = baseDirectory.resolve(location.getPath());
+		if (!Files.isRegularFile(result)) {
+			throw new FileNotFoundException("File not found: " + result);
+		}
+		return result;
+	}
+
+	private static void copy(GetTask task, Path source, long size) throws IOException, TransferCancelledException {
+		TransportListener listener = task.getListener();
+		listener.transportStarted(0, size);
+		try (InputStream is = Files.newInputStream(source);
+				OutputStream os = task.newOutputStream()) {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			for (int read; (read = is.read(buffer)) > 0;) {
+				os.write(buffer, 0, read);
+				listener.transportProgressed(ByteBuffer.wrap(buffer, 0, read));
+			}
+		}
+	}
+
+	private static void setChecksums(GetTask task, Path source) {
+		String sha1 = readChecksumFile(source.resolveSibling(source.getFileName() + ".sha1"), SHA1_HEX_LENGTH);
+		if (sha1 != null) {
+			task.setChecksum("SHA-1", sha1);
+		}
+		String md5 = readChecksumFile(source.resolveSibling(source.getFileName() + ".md5"), MD5_HEX_LENGTH);
+		if (md5 != null) {
+			task.setChecksum("MD5", md5);
+		}
+	}
+
+	private static String readChecksumFile(Path path, int length) {
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+			if (!attrs.isRegularFile() || attrs.size() > 1024) {
+				return null;
+			}
+			//the file may contain the file name after the checksum
+			String content = new String(Files.readAllBytes(path), StandardCharsets.US_ASCII).trim();
+			int end = 0;
+			while (end < content.length() && Character.digit(content.charAt(end), 16) >= 0) {
+				++end;
+			}
+			if (end != length) {
+				return null;
+			}
+			return content.substring(0, end).toLowerCase(Locale.ENGLISH);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+}
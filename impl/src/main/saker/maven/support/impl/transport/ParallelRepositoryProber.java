@@ -0,0 +1,289 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.transport;
+
+import java.io.Closeable;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import saker.build.runtime.execution.SakerLog;
+import saker.build.task.TaskContext;
+import saker.maven.support.thirdparty.org.eclipse.aether.RepositorySystemSession;
+import saker.maven.support.thirdparty.org.eclipse.aether.artifact.Artifact;
+import saker.maven.support.thirdparty.org.eclipse.aether.impl.DefaultServiceLocator;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalArtifactRequest;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalArtifactResult;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.RemoteRepository;
+import saker.maven.support.thirdparty.org.eclipse.aether.resolution.ArtifactRequest;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.layout.RepositoryLayout;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.layout.RepositoryLayoutProvider;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.PeekTask;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.Transporter;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.TransporterProvider;
+
+/**
+ * Queries the remote repositories concurrently for the presence of artifacts, and reorders the repositories of the
+ * artifact requests so that the first confirming repository is tried first.
+ * <p>
+ * Only release artifacts are probed, as the location of snapshot artifacts depend on the remote metadata.
+ * <p>
+ * The probes of all tasks are executed by a single bounded thread pool in the JVM. When a repository confirms the
+ * artifact, the probes of the repositories declared before it are waited for a bounded time, and the first confirming
+ * repository in the declaration order is selected. The repositories that don't respond in time are not considered, so
+ * the order only depends on timing if a repository is slower than the wait time.
+ */
+public class ParallelRepositoryProber implements Closeable {
+	private static final int MAX_PROBE_THREADS = 16;
+	private static final long TIE_BREAK_WAIT_MILLIS = 200;
+
+	private static final ExecutorService PROBE_EXECUTOR;
+	static {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_PROBE_THREADS, MAX_PROBE_THREADS, 30,
+				TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+					Thread result = new Thread(r, "Maven repository prober");
+					result.setDaemon(true);
+					return result;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		PROBE_EXECUTOR = executor;
+	}
+
+	private final TaskContext taskContext;
+	private final RepositorySystemSession session;
+	private final TransporterProvider transporterProvider;
+	private final RepositoryLayoutProvider layoutProvider;
+
+	private final Map<RemoteRepository, ProbeTarget> probeTargets = new HashMap<>();
+	private final List<Future<Integer>> startedProbes = new ArrayList<>();
+
+	public ParallelRepositoryProber(TaskContext taskcontext, DefaultServiceLocator serviceLocator,
+			RepositorySystemSession session) {
+		this.taskContext = taskcontext;
+		this.session = session;
+		this.transporterProvider = serviceLocator.getService(TransporterProvider.class);
+		this.layoutProvider = serviceLocator.getService(RepositoryLayoutProvider.class);
+	}
+
+	/**
+	 * Probes the repositories of the argument requests and reorders them based on the probing results.
+	 * <p>
+	 * The selected repository is moved to the front of the repository list of the request, the other repositories
+	 * keep their relative order so they can still be used as a fallback.
+	 *
+	 * @param requests
+	 *            The artifact requests.
+	 * @throws InterruptedException
+	 *             If the current thread was interrupted while waiting for the probing results.
+	 */
+	public void prioritizeRepositories(Collection<ArtifactRequest> requests) throws InterruptedException {
+		List<RequestProbes> probes = new ArrayList<>();
+		for (ArtifactRequest request : requests) {
+			RequestProbes reqprobes = startProbes(request);
+			if (reqprobes != null) {
+				probes.add(reqprobes);
+			}
+		}
+		for (RequestProbes reqprobes : probes) {
+			reqprobes.apply();
+		}
+	}
+
+	@Override
+	public void close() {
+		//the executor is shared, only the probes of this prober are cancelled
+		for (Future<Integer> f : startedProbes) {
+			f.cancel(true);
+		}
+		startedProbes.clear();
+		for (ProbeTarget target : probeTargets.values()) {
+			if (target.transporter != null) {
+				target.transporter.close();
+			}
+		}
+		probeTargets.clear();
+	}
+
+	private RequestProbes startProbes(ArtifactRequest request) {
+		Artifact artifact = request.getArtifact();
+		if (artifact.isSnapshot()) {
+			return null;
+		}
+		List<RemoteRepository> repositories = request.getRepositories();
+		if (repositories == null || repositories.size() < 2) {
+			//nothing to choose from
+			return null;
+		}
+		LocalArtifactResult localresult = session.getLocalRepositoryManager().find(session,
+				new LocalArtifactRequest(artifact, repositories, request.getRequestContext()));
+		if (localresult.isAvailable()) {
+			return null;
+		}
+		List<Integer> eligibleindices = new ArrayList<>();
+		List<URI> locations = new ArrayList<>();
+		for (int i = 0; i < repositories.size(); i++) {
+			RemoteRepository repo = repositories.get(i);
+			if (!repo.getPolicy(false).isEnabled()) {
+				continue;
+			}
+			ProbeTarget target = getProbeTarget(repo);
+			if (target.transporter == null) {
+				continue;
+			}
+			eligibleindices.add(i);
+			locations.add(target.layout.getLocation(artifact, false));
+		}
+		if (eligibleindices.size() < 2) {
+			return null;
+		}
+		CompletionService<Integer> completion = new ExecutorCompletionService<>(PROBE_EXECUTOR);
+		List<Future<Integer>> futures = new ArrayList<>();
+		for (int i = 0; i < eligibleindices.size(); i++) {
+			int repoidx = eligibleindices.get(i);
+			Transporter transporter = probeTargets.get(repositories.get(repoidx)).transporter;
+			URI location = locations.get(i);
+			futures.add(completion.submit(() -> {
+				try {
+					transporter.peek(new PeekTask(location));
+					return repoidx;
+				} catch (Exception e) {
+					//the artifact is not found, or failed to connect to the repository
+					return -1;
+				}
+			}));
+		}
+		startedProbes.addAll(futures);
+		return new RequestProbes(request, completion, futures, eligibleindices);
+	}
+
+	private ProbeTarget getProbeTarget(RemoteRepository repo) {
+		ProbeTarget result = probeTargets.get(repo);
+		if (result == null) {
+			result = new ProbeTarget();
+			try {
+				result.layout = layoutProvider.newRepositoryLayout(session, repo);
+				result.transporter = transporterProvider.newTransporter(session, repo);
+			} catch (Exception e) {
+				//the repository cannot be probed, it will be used in its declared order
+				result.transporter = null;
+			}
+			probeTargets.put(repo, result);
+		}
+		return result;
+	}
+
+	private static int getProbeResult(Future<Integer> future) throws InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException | CancellationException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Gets the result of the probe if it finishes before the argument {@link System#nanoTime()} deadline.
+	 *
+	 * @return The index of the repository, or -1 if not found or didn't finish in time.
+	 */
+	private static int getProbeResult(Future<Integer> future, long deadline) throws InterruptedException {
+		try {
+			return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+		} catch (ExecutionException | CancellationException | TimeoutException e) {
+			return -1;
+		}
+	}
+
+	private static final class ProbeTarget {
+		protected RepositoryLayout layout;
+		protected Transporter transporter;
+	}
+
+	private final class RequestProbes {
+		private final ArtifactRequest request;
+		private final CompletionService<Integer> completion;
+		private final List<Future<Integer>> futures;
+		private final List<Integer> repositoryIndices;
+
+		public RequestProbes(ArtifactRequest request, CompletionService<Integer> completion,
+				List<Future<Integer>> futures, List<Integer> repositoryIndices) {
+			this.request = request;
+			this.completion = completion;
+			this.futures = futures;
+			this.repositoryIndices = repositoryIndices;
+		}
+
+		public void apply() throws InterruptedException {
+			int selected = -1;
+			try {
+				for (int remaining = futures.size(); remaining > 0; --remaining) {
+					int repoidx = getProbeResult(completion.take());
+					if (repoidx >= 0) {
+						selected = repoidx;
+						break;
+					}
+				}
+				if (selected > 0) {
+					//wait a bounded time for the repositories declared before the first responder
+					long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIE_BREAK_WAIT_MILLIS);
+					for (int i = 0; i < futures.size() && repositoryIndices.get(i) < selected; i++) {
+						int repoidx = getProbeResult(futures.get(i), deadline);
+						if (repoidx >= 0) {
+							selected = repoidx;
+							break;
+						}
+					}
+				}
+			} finally {
+				for (Future<Integer> f : futures) {
+					f.cancel(true);
+				}
+				startedProbes.removeAll(futures);
+			}
+			if (selected < 0) {
+				//not found in any of the repositories, let the resolver report the appropriate errors
+				return;
+			}
+			List<RemoteRepository> repositories = request.getRepositories();
+			RemoteRepository selectedrepo = repositories.get(selected);
+			SakerLog.log().out(taskContext).verbose()
+					.println("Artifact " + request.getArtifact() + " found first in " + selectedrepo.getId());
+			if (selected == 0) {
+				return;
+			}
+			List<RemoteRepository> reordered = new ArrayList<>(repositories.size());
+			reordered.add(selectedrepo);
+			for (int i = 0; i < repositories.size(); i++) {
+				if (i != selected) {
+					reordered.add(repositories.get(i));
+				}
+			}
+			request.setRepositories(reordered);
+		}
+	}
+}
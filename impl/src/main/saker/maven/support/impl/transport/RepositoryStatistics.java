@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.transport;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.RemoteRepository;
+
+/**
+ * Runtime statistics about the interaction with a remote repository.
+ * <p>
+ * The statistics are shared by all operations in the current JVM, and keyed by the URL of the repositories. The
+ * latency, error rate and hit rate are tracked using exponentially weighted moving averages.
+ * <p>
+ * The class also implements a circuit breaker that trips after a given number of consecutive failures. While the
+ * circuit is open, the repository should be skipped. After the cool-down period, the repository is tried again, and a
+ * single failure trips the circuit again.
+ */
+public final class RepositoryStatistics {
+	public static final int CIRCUIT_BREAKER_FAILURE_THRESHOLD = 3;
+	public static final long CIRCUIT_BREAKER_COOLDOWN_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+	private static final double SMOOTHING_FACTOR = 0.2;
+	private static final double MIN_SUCCESS_PROBABILITY = 0.01;
+
+	private static final ConcurrentMap<String, RepositoryStatistics> STATISTICS = new ConcurrentHashMap<>();
+
+	private double latencyMillis = Double.NaN;
+	private double errorRate = 0;
+	private double hitRate = 1;
+	private int consecutiveFailures = 0;
+	private long circuitOpenUntilMillis = 0;
+
+	private RepositoryStatistics() {
+	}
+
+	public static RepositoryStatistics get(RemoteRepository repository) {
+		return STATISTICS.computeIfAbsent(repository.getUrl(), x -> new RepositoryStatistics());
+	}
+
+	/**
+	 * Orders the argument repositories based on their expected cost, and removes the ones with an open circuit.
+	 * <p>
+	 * The expected cost is the observed latency divided by the probability that the repository successfully serves a
+	 * request. Repositories without statistics are considered to have no cost, so they get explored. The sorting is
+	 * stable, therefore the repositories with the same cost keep their declared order.
+	 * <p>
+	 * If all of the repositories would be skipped, none of them are.
+	 *
+	 * @param repositories
+	 *            The repositories.
+	 * @param outskipped
+	 *            The output map for the skipped repositories and the remaining milliseconds until they're tried again.
+	 * @return The new list of repositories.
+	 */
+	public static List<RemoteRepository> orderRepositories(List<RemoteRepository> repositories,
+			Map<RemoteRepository, Long> outskipped) {
+		long now = System.currentTimeMillis();
+		Map<RemoteRepository, Double> costs = new IdentityHashMap<>();
+		List<RemoteRepository> result = new ArrayList<>(repositories.size());
+		Map<RemoteRepository, Long> skipped = new IdentityHashMap<>();
+		for (RemoteRepository repo : repositories) {
+			RepositoryStatistics stats = get(repo);
+			double cost;
+			long reopen;
+			synchronized (stats) {
+				cost = stats.getExpectedCostLocked();
+				reopen = stats.circuitOpenUntilMillis - now;
+			}
+			costs.put(repo, cost);
+			if (reopen > 0) {
+				skipped.put(repo, reopen);
+			} else {
+				result.add(repo);
+			}
+		}
+		if (result.isEmpty()) {
+			//don't skip all of them, the resolution should have a chance to report the failures
+			result.addAll(repositories);
+		} else {
+			for (RemoteRepository repo : repositories) {
+				Long reopen = skipped.get(repo);
+				if (reopen != null) {
+					outskipped.put(repo, reopen);
+				}
+			}
+		}
+		result.sort(Comparator.comparingDouble(costs::get));
+		return result;
+	}
+
+	public synchronized void recordHit(long latencymillis) {
+		recordResponseLocked(latencymillis);
+		hitRate = smooth(hitRate, 1);
+	}
+
+	public synchronized void recordMiss(long latencymillis) {
+		recordResponseLocked(latencymillis);
+		hitRate = smooth(hitRate, 0);
+	}
+
+	public synchronized void recordFailure(long latencymillis) {
+		recordLatencyLocked(latencymillis);
+		errorRate = smooth(errorRate, 1);
+		if (++consecutiveFailures >= CIRCUIT_BREAKER_FAILURE_THRESHOLD) {
+			circuitOpenUntilMillis = System.currentTimeMillis() + CIRCUIT_BREAKER_COOLDOWN_MILLIS;
+		}
+	}
+
+	public synchronized int getConsecutiveFailures() {
+		return consecutiveFailures;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return getClass().getSimpleName() + "[latencyMillis=" + latencyMillis + ", errorRate=" + errorRate
+				+ ", hitRate=" + hitRate + ", consecutiveFailures=" + consecutiveFailures + "]";
+	}
+
+	private void recordResponseLocked(long latencymillis) {
+		recordLatencyLocked(latencymillis);
+		errorRate = smooth(errorRate, 0);
+		consecutiveFailures = 0;
+		circuitOpenUntilMillis = 0;
+	}
+
+	private void recordLatencyLocked(long latencymillis) {
+		if (Double.isNaN(latencyMillis)) {
+			latencyMillis = latencymillis;
+		} else {
+			latencyMillis = smooth(latencyMillis, latencymillis);
+		}
+	}
+
+	private double getExpectedCostLocked() {
+		if (Double.isNaN(latencyMillis)) {
+			return 0;
+		}
+		double successprobability = hitRate * (1 - errorRate);
+		return latencyMillis / Math.max(successprobability, MIN_SUCCESS_PROBABILITY);
+	}
+
+	private static double smooth(double average, double sample) {
+		return average + SMOOTHING_FACTOR * (sample - average);
+	}
+}
@@ -0,0 +1,745 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.transport;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import saker.maven.support.impl.transport.TransferScheduler.TransferPermit;
+import saker.maven.support.thirdparty.org.eclipse.aether.ConfigurationProperties;
+import saker.maven.support.thirdparty.org.eclipse.aether.RepositorySystemSession;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.AuthenticationContext;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.RemoteRepository;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.GetTask;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.PeekTask;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.PutTask;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.TransportListener;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.Transporter;
+import saker.maven.support.thirdparty.org.eclipse.aether.transfer.TransferCancelledException;
+import saker.maven.support.thirdparty.org.eclipse.aether.util.ConfigUtils;
+
+/**
+ * {@link Transporter} that retrieves the files over HTTP(S), and resumes the interrupted downloads using range
+ * requests.
+ * <p>
+ * The repository connector keeps the partially downloaded files next to their destination in the local repository with
+ * the <code>.part</code> extension, and asks the transporter to resume them in the next attempt. The validator (ETag or
+ * Last-Modified) of the response is stored next to the partial file, and the download is only resumed if the remote
+ * file hasn't changed since. Otherwise the file is downloaded from the start.
+ * <p>
+ * The repository connector verifies the checksum of the whole file, including the previously downloaded range, before
+ * moving it to its final location.
+ * <p>
+ * The checksums sent by the server in the response headers (<code>X-Checksum-Sha1</code>,
+ * <code>X-Checksum-Md5</code>, or Nexus style <code>ETag</code>) are passed to the repository connector. If they match
+ * the downloaded file, the connector doesn't request the separate checksum files. Otherwise it falls back to them.
+ * <p>
+ * If {@linkplain TransferScheduler#setSegmentedDownloads(long, int) enabled}, the files are requested as a range
+ * starting from the first byte, and the size of the file is determined from the response. Large files are downloaded
+ * as multiple byte ranges in parallel. The ranges are written into a preallocated file using positional writes, and
+ * the contents are passed to the transport listener in order as they arrive, so the progress is reported and the
+ * checksum gets verified as a whole. The additional connections are only opened if the {@link TransferScheduler}
+ * allows them without waiting.
+ * <p>
+ * Uploads are performed by the delegate transporter.
+ * <p>
+ * The transporter is only used if {@linkplain TransferScheduler#setResumableHttpDownloads(boolean) resumable
+ * downloads} or segmented downloads are enabled for the session.
+ */
+class ResumingHttpTransporter implements Transporter {
+	private static final String VALIDATOR_FILE_EXTENSION = ".validator";
+	private static final int MAX_REDIRECTS = 5;
+	private static final int BUFFER_SIZE = 32 * 1024;
+	private static final long MIN_SEGMENT_SIZE = 1024 * 1024;
+	private static final int SHA1_HEX_LENGTH = 40;
+	private static final int MD5_HEX_LENGTH = 32;
+
+	private final Transporter delegate;
+	private final RemoteRepository repository;
+	private final TransferScheduler scheduler;
+	private final URI baseUri;
+	private final String authorization;
+	private final int connectTimeout;
+	private final int requestTimeout;
+	private final String userAgent;
+	private final Map<?, ?> headers;
+
+	private ResumingHttpTransporter(Transporter delegate, RemoteRepository repository, TransferScheduler scheduler,
+			URI baseUri, String authorization, int connectTimeout, int requestTimeout, String userAgent,
+			Map<?, ?> headers) {
+		this.delegate = delegate;
+		this.repository = repository;
+		this.scheduler = scheduler;
+		this.baseUri = baseUri;
+		this.authorization = authorization;
+		this.connectTimeout = connectTimeout;
+		this.requestTimeout = requestTimeout;
+		this.userAgent = userAgent;
+		this.headers = headers;
+	}
+
+	/**
+	 * Creates a resuming transporter for the argument repository if enabled and possible.
+	 * <p>
+	 * Repositories that are not HTTP(S), that are accessed through a proxy, or that use other authentication than
+	 * username and password are handled by the delegate transporter. If neither resumable nor segmented downloads are
+	 * enabled for the session, all repositories are handled by the delegate.
+	 *
+	 * @param session
+	 *            The repository session.
+	 * @param repository
+	 *            The repository.
+	 * @param delegate
+	 *            The delegate transporter.
+	 * @return The created transporter, or the delegate.
+	 */
+	public static Transporter wrap(RepositorySystemSession session, RemoteRepository repository,
+			Transporter delegate) {
+		TransferScheduler scheduler = TransferScheduler.get(session);
+		if (scheduler == null
+				|| (!scheduler.isResumableHttpDownloads() && scheduler.getSegmentedDownloadThreshold() <= 0)) {
+			return delegate;
+		}
+		String protocol = repository.getProtocol();
+		if (!"http".equalsIgnoreCase(protocol) && !"https".equalsIgnoreCase(protocol)) {
+			return delegate;
+		}
+		if (repository.getProxy() != null) {
+			return delegate;
+		}
+		URI baseuri;
+		try {
+			String url = repository.getUrl();
+			baseuri = new URI(url.endsWith("/") ? url : url + "/");
+		} catch (Exception e) {
+			return delegate;
+		}
+		String authorization = null;
+		try (AuthenticationContext authctx = AuthenticationContext.forRepository(session, repository)) {
+			if (authctx != null) {
+				String username = authctx.get(AuthenticationContext.USERNAME);
+				if (username == null) {
+					//certificate or other kind of authentication
+					return delegate;
+				}
+				String password = authctx.get(AuthenticationContext.PASSWORD);
+				authorization = "Basic " + Base64.getEncoder().encodeToString(
+						(username + ":" + (password == null ? "" : password)).getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		String id = repository.getId();
+		int connecttimeout = ConfigUtils.getInteger(session, ConfigurationProperties.DEFAULT_CONNECT_TIMEOUT,
+				ConfigurationProperties.CONNECT_TIMEOUT + "." + id, ConfigurationProperties.CONNECT_TIMEOUT);
+		int requesttimeout = ConfigUtils.getInteger(session, ConfigurationProperties.DEFAULT_REQUEST_TIMEOUT,
+				ConfigurationProperties.REQUEST_TIMEOUT + "." + id, ConfigurationProperties.REQUEST_TIMEOUT);
+		String useragent = ConfigUtils.getString(session, ConfigurationProperties.DEFAULT_USER_AGENT,
+				ConfigurationProperties.USER_AGENT);
+		Map<?, ?> headers = ConfigUtils.getMap(session, Collections.emptyMap(),
+				ConfigurationProperties.HTTP_HEADERS + "." + id, ConfigurationProperties.HTTP_HEADERS);
+		return new ResumingHttpTransporter(delegate, repository, scheduler, baseuri, authorization, connecttimeout,
+				requesttimeout, useragent, headers);
+	}
+
+	@Override
+	public int classify(Throwable error) {
+		if (error instanceof HttpResponseException) {
+			if (((HttpResponseException) error).getStatusCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+				return ERROR_NOT_FOUND;
+			}
+			return ERROR_OTHER;
+		}
+		return delegate.classify(error);
+	}
+
+	@Override
+	public void peek(PeekTask task) throws Exception {
+		HttpURLConnection connection = openConnection(baseUri.resolve(task.getLocation()), "HEAD", null, null);
+		try {
+			checkResponse(connection, HttpURLConnection.HTTP_OK);
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	@Override
+	public void get(GetTask task) throws Exception {
+		URI uri = baseUri.resolve(task.getLocation());
+		File datafile = task.getDataFile();
+		File validatorfile = datafile == null ? null : new File(datafile.getPath() + VALIDATOR_FILE_EXTENSION);
+
+		long offset = task.getResumeOffset();
+		String validator = offset > 0 && validatorfile != null ? readValidator(validatorfile) : null;
+
+		HttpURLConnection connection;
+		if (validator != null) {
+			connection = openConnection(uri, "GET", "bytes=" + offset + "-", validator);
+			int status = connection.getResponseCode();
+			if (status == HttpURLConnection.HTTP_PARTIAL) {
+				if (getContentRangeStart(connection) == offset) {
+					try {
+						transfer(task, connection, offset);
+					} finally {
+						connection.disconnect();
+					}
+					validatorfile.delete();
+					return;
+				}
+				//unexpected range, download from the start
+				connection.disconnect();
+				connection = openConnection(uri, "GET", null, null);
+			} else if (status != HttpURLConnection.HTTP_OK) {
+				//the range is not satisfiable or other error, retry from the start to get the proper response
+				connection.disconnect();
+				connection = openConnection(uri, "GET", null, null);
+			}
+			//else the remote file changed, and the full contents are sent
+		} else if (datafile != null && scheduler.getSegmentedDownloadThreshold() > 0) {
+			//request the whole file as a range to learn its size and the support for ranges without a HEAD request
+			connection = openConnection(uri, "GET", "bytes=0-", null);
+			if (connection.getResponseCode() == HttpURLConnection.HTTP_PARTIAL) {
+				if (getContentRangeStart(connection) == 0) {
+					try {
+						if (getSegmented(task, uri, connection, datafile, validatorfile)) {
+							return;
+						}
+						//the partial response contains the whole file
+						if (validatorfile != null) {
+							writeValidator(validatorfile, connection);
+						}
+						transfer(task, connection, 0);
+					} finally {
+						connection.disconnect();
+					}
+					if (validatorfile != null) {
+						validatorfile.delete();
+					}
+					return;
+				}
+				connection.disconnect();
+				connection = openConnection(uri, "GET", null, null);
+			}
+			//else ranges are not supported, or other error
+		} else {
+			connection = openConnection(uri, "GET", null, null);
+		}
+		transferFull(task, connection, validatorfile);
+	}
+
+	@Override
+	public void put(PutTask task) throws Exception {
+		delegate.put(task);
+	}
+
+	@Override
+	public void close() {
+		delegate.close();
+	}
+
+	/**
+	 * Downloads the full file using the argument connection that was opened without a range.
+	 */
+	private static void transferFull(GetTask task, HttpURLConnection connection, File validatorfile)
+			throws IOException, TransferCancelledException {
+		try {
+			checkResponse(connection, HttpURLConnection.HTTP_OK);
+			if (validatorfile != null) {
+				writeValidator(validatorfile, connection);
+			}
+			transfer(task, connection, 0);
+		} finally {
+			connection.disconnect();
+		}
+		if (validatorfile != null) {
+			validatorfile.delete();
+		}
+	}
+
+	/**
+	 * Downloads the file in multiple segments if the file is large enough.
+	 * <p>
+	 * The argument connection is a partial response for the whole file, and it is used to download the first segment.
+	 * The contents are passed to the transport listener in order while the segments are downloaded, so the progress
+	 * is reported, and the transfer can be cancelled by the listener.
+	 * 
+	 * @return <code>false</code> if the file should be downloaded using the argument connection instead. In that case
+	 *             the contents of the connection haven't been read.
+	 */
+	private boolean getSegmented(GetTask task, URI uri, HttpURLConnection connection, File datafile,
+			File validatorfile) throws Exception {
+		long length = getContentRangeLength(connection);
+		if (length < scheduler.getSegmentedDownloadThreshold()) {
+			return false;
+		}
+		//the validator ensures that all segments are from the same version of the file
+		String validator = getValidator(connection);
+		if (validator == null) {
+			return false;
+		}
+		List<TransferPermit> permits = new ArrayList<>();
+		try {
+			//the current transfer already holds a permit
+			int maxsegments = (int) Math.min(scheduler.getSegmentedDownloadConnections(),
+					length / MIN_SEGMENT_SIZE);
+			while (permits.size() + 1 < maxsegments) {
+				TransferPermit permit = scheduler.tryAcquire(repository);
+				if (permit == null) {
+					break;
+				}
+				permits.add(permit);
+			}
+			int segmentcount = permits.size() + 1;
+			if (segmentcount < 2) {
+				return false;
+			}
+			//the segmented partial file cannot be resumed
+			Files.deleteIfExists(validatorfile.toPath());
+			File parent = datafile.getParentFile();
+			if (parent != null) {
+				Files.createDirectories(parent.toPath());
+			}
+			boolean downloaded;
+			try (RandomAccessFile file = new RandomAccessFile(datafile, "rw")) {
+				file.setLength(length);
+				downloaded = downloadSegments(task, uri, connection, validator, file.getChannel(), length,
+						segmentcount);
+			}
+			if (!downloaded) {
+				//the file changed during the download, or the server ignored the range of a segment
+				connection.disconnect();
+				transferFull(task, openConnection(uri, "GET", null, null), validatorfile);
+			}
+			return true;
+		} finally {
+			for (TransferPermit permit : permits) {
+				permit.close();
+			}
+		}
+	}
+
+	private boolean downloadSegments(GetTask task, URI uri, HttpURLConnection connection, String validator,
+			FileChannel channel, long length, int segmentcount) throws Exception {
+		long segmentsize = (length + segmentcount - 1) / segmentcount;
+		List<Segment> segments = new ArrayList<>();
+		for (int i = 1; i < segmentcount; ++i) {
+			long start = i * segmentsize;
+			segments.add(new Segment(start, Math.min(length, start + segmentsize)));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(segments.size(), r -> {
+			Thread result = new Thread(r, "Maven segmented download");
+			result.setDaemon(true);
+			return result;
+		});
+		try {
+			for (Segment segment : segments) {
+				executor.execute(() -> segment.download(this, uri, validator, channel));
+			}
+			setChecksums(task, getChecksums(connection));
+			TransportListener listener = task.getListener();
+			listener.transportStarted(0, length);
+
+			//the first segment is read from the initial connection
+			long firstend = Math.min(length, segmentsize);
+			long position = 0;
+			try (InputStream is = connection.getInputStream()) {
+				byte[] buffer = new byte[BUFFER_SIZE];
+				for (int read; position < firstend && (read = is.read(buffer)) > 0;) {
+					int count = (int) Math.min(read, firstend - position);
+					ByteBuffer bb = ByteBuffer.wrap(buffer, 0, count);
+					while (bb.hasRemaining()) {
+						position += channel.write(bb, position);
+					}
+					listener.transportProgressed(ByteBuffer.wrap(buffer, 0, count));
+				}
+			}
+			if (position != firstend) {
+				throw new IOException("Incomplete segment download: " + uri + " (0-" + (firstend - 1) + ")");
+			}
+			//pass the contents of the other segments to the listener in order as they arrive
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			for (Segment segment : segments) {
+				for (long available; position < segment.end; position = available) {
+					available = segment.awaitPosition(position);
+					if (available < 0) {
+						return false;
+					}
+					while (position < available) {
+						buffer.clear();
+						buffer.limit((int) Math.min(BUFFER_SIZE, available - position));
+						int read = channel.read(buffer, position);
+						if (read < 0) {
+							throw new IOException("Unexpected end of file: " + task.getDataFile());
+						}
+						position += read;
+						buffer.flip();
+						listener.transportProgressed(buffer);
+					}
+				}
+			}
+			return true;
+		} finally {
+			//stop the remaining downloads if the transfer failed or was cancelled
+			for (Segment segment : segments) {
+				segment.cancel();
+			}
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * A byte range of a file that is downloaded on a separate connection.
+	 */
+	private static final class Segment {
+		protected final long start;
+		protected final long end;
+
+		//guarded by this
+		private long position;
+		private boolean finished;
+		private Exception failure;
+		private boolean cancelled;
+		private HttpURLConnection connection;
+
+		public Segment(long start, long end) {
+			this.start = start;
+			this.end = end;
+			this.position = start;
+		}
+
+		public void download(ResumingHttpTransporter transporter, URI uri, String validator, FileChannel channel) {
+			try {
+				HttpURLConnection connection = transporter.openConnection(uri, "GET",
+						"bytes=" + start + "-" + (end - 1), validator);
+				try {
+					synchronized (this) {
+						if (cancelled) {
+							return;
+						}
+						this.connection = connection;
+					}
+					if (connection.getResponseCode() != HttpURLConnection.HTTP_PARTIAL
+							|| getContentRangeStart(connection) != start) {
+						//the file changed, or the server ignored the range
+						return;
+					}
+					long pos = start;
+					try (InputStream is = connection.getInputStream()) {
+						byte[] buffer = new byte[BUFFER_SIZE];
+						for (int read; pos < end && (read = is.read(buffer)) > 0;) {
+							int count = (int) Math.min(read, end - pos);
+							ByteBuffer bb = ByteBuffer.wrap(buffer, 0, count);
+							while (bb.hasRemaining()) {
+								pos += channel.write(bb, pos);
+							}
+							synchronized (this) {
+								if (cancelled) {
+									return;
+								}
+								position = pos;
+								notifyAll();
+							}
+						}
+					}
+					if (pos != end) {
+						throw new IOException(
+								"Incomplete segment download: " + uri + " (" + start + "-" + (end - 1) + ")");
+					}
+				} finally {
+					connection.disconnect();
+				}
+			} catch (Exception e) {
+				synchronized (this) {
+					failure = e;
+				}
+			} finally {
+				synchronized (this) {
+					finished = true;
+					notifyAll();
+				}
+			}
+		}
+
+		/**
+		 * Waits until the segment is downloaded past the argument position.
+		 * 
+		 * @return The end of the downloaded range, or -1 if the segment cannot be downloaded due to the file being
+		 *             changed or the range being ignored by the server.
+		 */
+		public synchronized long awaitPosition(long pos) throws Exception {
+			while (position <= pos && !finished) {
+				this.wait();
+			}
+			if (position > pos) {
+				return position;
+			}
+			if (failure != null) {
+				throw failure;
+			}
+			return -1;
+		}
+
+		public void cancel() {
+			HttpURLConnection conn;
+			synchronized (this) {
+				cancelled = true;
+				conn = connection;
+			}
+			if (conn != null) {
+				conn.disconnect();
+			}
+		}
+	}
+
+	private HttpURLConnection openConnection(URI uri, String method, String range, String ifrange)
+			throws IOException {
+		for (int i = 0;; ++i) {
+			HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+			//follow the redirects manually, as HttpURLConnection doesn't follow the ones between HTTP and HTTPS
+			connection.setInstanceFollowRedirects(false);
+			connection.setRequestMethod(method);
+			connection.setConnectTimeout(connectTimeout);
+			connection.setReadTimeout(requestTimeout);
+			connection.setUseCaches(false);
+			if (userAgent != null) {
+				connection.setRequestProperty("User-Agent", userAgent);
+			}
+			for (Entry<?, ?> entry : headers.entrySet()) {
+				if (entry.getKey() instanceof String && entry.getValue() instanceof String) {
+					connection.setRequestProperty((String) entry.getKey(), (String) entry.getValue());
+				}
+			}
+			if (authorization != null && baseUri.getHost().equalsIgnoreCase(uri.getHost())) {
+				//don't send the credentials to other hosts
+				connection.setRequestProperty("Authorization", authorization);
+			}
+			if (range != null) {
+				connection.setRequestProperty("Range", range);
+				if (ifrange != null) {
+					connection.setRequestProperty("If-Range", ifrange);
+				}
+			}
+			int status = connection.getResponseCode();
+			switch (status) {
+				case HttpURLConnection.HTTP_MOVED_PERM:
+				case HttpURLConnection.HTTP_MOVED_TEMP:
+				case HttpURLConnection.HTTP_SEE_OTHER:
+				case 307:
+				case 308: {
+					String location = connection.getHeaderField("Location");
+					connection.disconnect();
+					if (location == null || i >= MAX_REDIRECTS) {
+						throw new HttpResponseException(status, uri);
+					}
+					uri = uri.resolve(location);
+					break;
+				}
+				default: {
+					return connection;
+				}
+			}
+		}
+	}
+
+	private static void checkResponse(HttpURLConnection connection, int expectedstatus) throws IOException {
+		int status = connection.getResponseCode();
+		if (status != expectedstatus) {
+			URI uri;
+			try {
+				uri = connection.getURL().toURI();
+			} catch (Exception e) {
+				uri = null;
+			}
+			throw new HttpResponseException(status, uri);
+		}
+	}
+
+	private static void transfer(GetTask task, HttpURLConnection connection, long offset)
+			throws IOException, TransferCancelledException {
+		setChecksums(task, getChecksums(connection));
+		long length = connection.getContentLengthLong();
+		TransportListener listener = task.getListener();
+		//the connector verifies the checksum of the whole file, and reads the already present range based on the offset
+		listener.transportStarted(offset, length < 0 ? -1 : offset + length);
+		try (InputStream is = connection.getInputStream();
+				OutputStream os = task.newOutputStream(offset > 0)) {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			for (int read; (read = is.read(buffer)) > 0;) {
+				os.write(buffer, 0, read);
+				listener.transportProgressed(ByteBuffer.wrap(buffer, 0, read));
+			}
+		}
+	}
+
+	private static Map<String, String> getChecksums(HttpURLConnection connection) {
+		Map<String, String> result = new TreeMap<>();
+		String sha1 = getHexHeader(connection, "X-Checksum-Sha1", SHA1_HEX_LENGTH);
+		if (sha1 == null) {
+			sha1 = getHexHeader(connection, "x-goog-meta-checksum-sha1", SHA1_HEX_LENGTH);
+		}
+		if (sha1 == null) {
+			//Nexus 2 sends the SHA-1 in the ETag in the format of {SHA1{<checksum>}}
+			String etag = connection.getHeaderField("ETag");
+			if (etag != null) {
+				etag = etag.replace("\"", "");
+				if (etag.startsWith("{SHA1{") && etag.endsWith("}}")) {
+					sha1 = toHexChecksum(etag.substring(6, etag.length() - 2), SHA1_HEX_LENGTH);
+				}
+			}
+		}
+		if (sha1 != null) {
+			result.put("SHA-1", sha1);
+		}
+		String md5 = getHexHeader(connection, "X-Checksum-Md5", MD5_HEX_LENGTH);
+		if (md5 == null) {
+			md5 = getHexHeader(connection, "x-goog-meta-checksum-md5", MD5_HEX_LENGTH);
+		}
+		if (md5 != null) {
+			result.put("MD5", md5);
+		}
+		return result;
+	}
+
+	private static void setChecksums(GetTask task, Map<String, String> checksums) {
+		for (Entry<String, String> entry : checksums.entrySet()) {
+			task.setChecksum(entry.getKey(), entry.getValue());
+		}
+	}
+
+	private static String getHexHeader(HttpURLConnection connection, String name, int length) {
+		String value = connection.getHeaderField(name);
+		if (value == null) {
+			return null;
+		}
+		return toHexChecksum(value, length);
+	}
+
+	private static String toHexChecksum(String value, int length) {
+		value = value.trim().toLowerCase(Locale.ENGLISH);
+		if (value.length() != length) {
+			return null;
+		}
+		for (int i = 0; i < length; ++i) {
+			if (Character.digit(value.charAt(i), 16) < 0) {
+				return null;
+			}
+		}
+		return value;
+	}
+
+	private static long getContentRangeStart(HttpURLConnection connection) {
+		//Content-Range: bytes <start>-<end>/<total>
+		String range = connection.getHeaderField("Content-Range");
+		if (range == null || !range.startsWith("bytes ")) {
+			return -1;
+		}
+		int dashidx = range.indexOf('-');
+		if (dashidx < 0) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(range.substring(6, dashidx).trim());
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private static long getContentRangeLength(HttpURLConnection connection) {
+		//Content-Range: bytes <start>-<end>/<total>
+		String range = connection.getHeaderField("Content-Range");
+		if (range == null) {
+			return -1;
+		}
+		int slashidx = range.lastIndexOf('/');
+		if (slashidx < 0) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(range.substring(slashidx + 1).trim());
+		} catch (NumberFormatException e) {
+			//unknown length: *
+			return -1;
+		}
+	}
+
+	private static String readValidator(File validatorfile) {
+		try {
+			String result = new String(Files.readAllBytes(validatorfile.toPath()), StandardCharsets.UTF_8).trim();
+			return result.isEmpty() ? null : result;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static String getValidator(HttpURLConnection connection) {
+		String validator = connection.getHeaderField("ETag");
+		if (validator == null || validator.startsWith("W/")) {
+			//weak entity tags cannot be used for range requests
+			validator = connection.getHeaderField("Last-Modified");
+		}
+		return validator;
+	}
+
+	private static void writeValidator(File validatorfile, HttpURLConnection connection) {
+		String validator = getValidator(connection);
+		try {
+			if (validator == null) {
+				//no validator, the download cannot be resumed safely
+				Files.deleteIfExists(validatorfile.toPath());
+				return;
+			}
+			File parent = validatorfile.getParentFile();
+			if (parent != null) {
+				Files.createDirectories(parent.toPath());
+			}
+			Files.write(validatorfile.toPath(), validator.getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			//failed to write, the download won't be resumed
+		}
+	}
+
+	private static final class HttpResponseException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		private final int statusCode;
+
+		public HttpResponseException(int statusCode, URI uri) {
+			super("HTTP " + statusCode + (uri == null ? "" : " for " + uri));
+			this.statusCode = statusCode;
+		}
+
+		public int getStatusCode() {
+			return statusCode;
+		}
+	}
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.transport;
+
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+
+import saker.maven.support.api.MavenOperationConfiguration;
+import saker.maven.support.api.MavenUtils;
+import saker.maven.support.thirdparty.org.eclipse.aether.RepositorySystemSession;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.RemoteRepository;
+
+/**
+ * Schedules the transfers of a repository session by limiting the number of concurrent transfers to the same host.
+ * <p>
+ * All transfers are also subject to the {@linkplain GlobalTransferBudget global transfer limit} that is shared by all
+ * Maven operations in the JVM.
+ * <p>
+ * The scheduler is stored in the configuration properties of the session with the
+ * {@link #SESSION_CONFIG_PROPERTY} key.
+ */
+public class TransferScheduler {
+	public static final String SESSION_CONFIG_PROPERTY = "saker.maven.support.transfer.scheduler";
+
+	/**
+	 * A permit to perform a transfer. Must be closed when the transfer is done.
+	 */
+	public interface TransferPermit extends AutoCloseable {
+		@Override
+		public void close();
+	}
+
+	private static final TransferPermit GLOBAL_PERMIT = GlobalTransferBudget.INSTANCE::release;
+	private static final TransferPermit NO_PERMIT = () -> {
+	};
+
+	private final int hostTransferLimit;
+	private final int globalTransferLimit;
+	private final ConcurrentMap<String, Semaphore> hostSemaphores = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Integer> transferPriorities = new ConcurrentHashMap<>();
+	private long segmentedDownloadThreshold = -1;
+	private int segmentedDownloadConnections = MavenUtils.DEFAULT_SEGMENTED_DOWNLOAD_CONNECTIONS;
+	private boolean resumableHttpDownloads;
+
+	/**
+	 * The number of transfers granted by the global budget.
+	 * <p>
+	 * Guarded by the lock of {@link GlobalTransferBudget#INSTANCE}.
+	 */
+	long grantCount = 0;
+
+	/**
+	 * Creates a new scheduler.
+	 *
+	 * @param hostTransferLimit
+	 *            The maximum number of concurrent transfers to a single host, or non-positive for no limit.
+	 * @param globalTransferLimit
+	 *            The maximum number of concurrent transfers in the JVM, or non-positive to keep the current limit. It
+	 *            is only applied if no other scheduler has configured it before. See
+	 *            {@link #getGlobalTransferLimit()}.
+	 */
+	public TransferScheduler(int hostTransferLimit, int globalTransferLimit) {
+		this.hostTransferLimit = hostTransferLimit;
+		this.globalTransferLimit = GlobalTransferBudget.INSTANCE.configureLimit(globalTransferLimit);
+	}
+
+	/**
+	 * Gets the effective maximum number of concurrent transfers in the JVM.
+	 * 
+	 * @return The limit.
+	 */
+	public int getGlobalTransferLimit() {
+		return globalTransferLimit;
+	}
+
+	/**
+	 * Enables downloading large files in multiple segments in parallel.
+	 * 
+	 * @param threshold
+	 *            The size threshold in bytes above which the files are downloaded in segments, or non-positive to
+	 *            disable.
+	 * @param connections
+	 *            The maximum number of connections per file, or non-positive to use the default.
+	 * @see MavenOperationConfiguration#getSegmentedDownloadThreshold()
+	 */
+	public void setSegmentedDownloads(long threshold, int connections) {
+		this.segmentedDownloadThreshold = threshold <= 0 ? -1 : threshold;
+		this.segmentedDownloadConnections = connections <= 0 ? MavenUtils.DEFAULT_SEGMENTED_DOWNLOAD_CONNECTIONS
+				: connections;
+	}
+
+	public long getSegmentedDownloadThreshold() {
+		return segmentedDownloadThreshold;
+	}
+
+	public int getSegmentedDownloadConnections() {
+		return segmentedDownloadConnections;
+	}
+
+	/**
+	 * Enables resuming the interrupted HTTP(S) downloads.
+	 * 
+	 * @param resumableHttpDownloads
+	 *            <code>true</code> to enable.
+	 * @see MavenOperationConfiguration#isResumableHttpDownloads()
+	 */
+	public void setResumableHttpDownloads(boolean resumableHttpDownloads) {
+		this.resumableHttpDownloads = resumableHttpDownloads;
+	}
+
+	public boolean isResumableHttpDownloads() {
+		return resumableHttpDownloads;
+	}
+
+	/**
+	 * Sets the priority of transferring the file with the given name.
+	 * <p>
+	 * Higher priority transfers are started first when the transfers are limited.
+	 *
+	 * @param filename
+	 *            The name of the transferred file.
+	 * @param priority
+	 *            The priority.
+	 * @see ArtifactTransferPriorities
+	 */
+	public void setTransferPriority(String filename, int priority) {
+		transferPriorities.put(filename, priority);
+	}
+
+	/**
+	 * Gets the priority of a transfer based on the file name in the argument location.
+	 * <p>
+	 * The checksum files of an artifact have the same priority as the artifact.
+	 *
+	 * @param location
+	 *            The location of the transferred file.
+	 * @return The priority.
+	 */
+	public int getTransferPriority(URI location) {
+		if (transferPriorities.isEmpty()) {
+			return ArtifactTransferPriorities.UNKNOWN_TRANSFER_PRIORITY;
+		}
+		String path = location.getPath();
+		if (path == null) {
+			return ArtifactTransferPriorities.UNKNOWN_TRANSFER_PRIORITY;
+		}
+		String filename = path.substring(path.lastIndexOf('/') + 1);
+		Integer result = transferPriorities.get(filename);
+		if (result == null) {
+			int dotidx = filename.lastIndexOf('.');
+			if (dotidx > 0) {
+				//the checksum or signature of an artifact
+				result = transferPriorities.get(filename.substring(0, dotidx));
+			}
+			if (result == null) {
+				return ArtifactTransferPriorities.UNKNOWN_TRANSFER_PRIORITY;
+			}
+		}
+		return result;
+	}
+
+	public static TransferScheduler get(RepositorySystemSession session) {
+		Object result = session.getConfigProperties().get(SESSION_CONFIG_PROPERTY);
+		if (result instanceof TransferScheduler) {
+			return (TransferScheduler) result;
+		}
+		return null;
+	}
+
+	/**
+	 * Waits until a transfer can be started to the argument repository.
+	 *
+	 * @param repository
+	 *            The repository.
+	 * @param priority
+	 *            The {@linkplain #getTransferPriority(URI) priority} of the transfer.
+	 * @return The permit to close when the transfer is done. May be <code>null</code> if the transfer is not limited.
+	 * @throws InterruptedException
+	 *             If the current thread was interrupted while waiting.
+	 */
+	public TransferPermit acquire(RemoteRepository repository, int priority) throws InterruptedException {
+		String host = repository.getHost();
+		if (host == null || host.isEmpty()) {
+			//local file repositories are not limited
+			return null;
+		}
+		if (hostTransferLimit <= 0) {
+			GlobalTransferBudget.INSTANCE.acquire(this, priority);
+			return GLOBAL_PERMIT;
+		}
+		Semaphore semaphore = hostSemaphores.computeIfAbsent(host, x -> new Semaphore(hostTransferLimit, true));
+		//acquire the host permit first, so the global permits are not held while waiting for the same host
+		semaphore.acquire();
+		try {
+			GlobalTransferBudget.INSTANCE.acquire(this, priority);
+		} catch (Throwable e) {
+			semaphore.release();
+			throw e;
+		}
+		return () -> {
+			GlobalTransferBudget.INSTANCE.release();
+			semaphore.release();
+		};
+	}
+
+	/**
+	 * Acquires a permit for an additional transfer to the argument repository if it is available without waiting.
+	 * <p>
+	 * Used to open additional connections for a transfer that already holds a
+	 * {@linkplain #acquire(RemoteRepository, int) permit}.
+	 *
+	 * @param repository
+	 *            The repository.
+	 * @return The permit to close when the transfer is done, or <code>null</code> if no permit is available.
+	 */
+	public TransferPermit tryAcquire(RemoteRepository repository) {
+		String host = repository.getHost();
+		if (host == null || host.isEmpty()) {
+			return NO_PERMIT;
+		}
+		if (hostTransferLimit <= 0) {
+			return GlobalTransferBudget.INSTANCE.tryAcquire(this) ? GLOBAL_PERMIT : null;
+		}
+		Semaphore semaphore = hostSemaphores.computeIfAbsent(host, x -> new Semaphore(hostTransferLimit, true));
+		if (!semaphore.tryAcquire()) {
+			return null;
+		}
+		if (!GlobalTransferBudget.INSTANCE.tryAcquire(this)) {
+			semaphore.release();
+			return null;
+		}
+		return () -> {
+			GlobalTransferBudget.INSTANCE.release();
+			semaphore.release();
+		};
+	}
+}
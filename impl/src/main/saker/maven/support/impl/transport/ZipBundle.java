@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipException;
+
+/**
+ * Index of the entries in a zip or jar bundle that contains files in the Maven repository layout.
+ * <p>
+ * Only the central directory of the bundle is read, using a memory mapped buffer. The parsed indexes are cached by the
+ * path of the bundle, and are reused as long as the size and modification time of the file doesn't change. The
+ * contents of the entries are read from the bundle using positional reads when they are requested, so the bundle is
+ * never extracted.
+ * <p>
+ * The ZIP64 format is not supported.
+ */
+final class ZipBundle {
+	public static final int METHOD_STORED = 0;
+	public static final int METHOD_DEFLATED = 8;
+
+	private static final int EOCD_SIGNATURE = 0x06054b50;
+	private static final int EOCD_MIN_SIZE = 22;
+	private static final int EOCD_MAX_COMMENT_LENGTH = 0xFFFF;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int CENTRAL_HEADER_SIZE = 46;
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int LOCAL_HEADER_SIZE = 30;
+	private static final long ZIP64_MARKER = 0xFFFFFFFFL;
+
+	private static final Map<Path, ZipBundle> BUNDLES = new ConcurrentHashMap<>();
+
+	private final Path path;
+	private final long size;
+	private final long lastModifiedMillis;
+	private final Map<String, Entry> entries;
+
+	private ZipBundle(Path path, long size, long lastModifiedMillis, Map<String, Entry> entries) {
+		this.path = path;
+		this.size = size;
+		this.lastModifiedMillis = lastModifiedMillis;
+		this.entries = entries;
+	}
+
+	/**
+	 * Gets the index of the bundle at the argument path.
+	 * <p>
+	 * The central directory of the bundle is only parsed if it hasn't been parsed yet, or the bundle has been modified
+	 * since.
+	 *
+	 * @param path
+	 *            The path of the bundle.
+	 * @return The bundle index.
+	 * @throws IOException
+	 *             If the bundle cannot be read, or it is not a valid zip file.
+	 */
+	public static ZipBundle get(Path path) throws IOException {
+		Path abspath = path.toAbsolutePath().normalize();
+		BasicFileAttributes attrs = Files.readAttributes(abspath, BasicFileAttributes.class);
+		long lastmodified = attrs.lastModifiedTime().toMillis();
+		ZipBundle bundle = BUNDLES.get(abspath);
+		if (bundle != null && bundle.size == attrs.size() && bundle.lastModifiedMillis == lastmodified) {
+			return bundle;
+		}
+		try (FileChannel channel = FileChannel.open(abspath, StandardOpenOption.READ)) {
+			bundle = new ZipBundle(abspath, attrs.size(), lastmodified, readCentralDirectory(channel));
+		}
+		BUNDLES.put(abspath, bundle);
+		return bundle;
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Gets the entry with the given name.
+	 *
+	 * @param name
+	 *            The name of the entry with forward slashes.
+	 * @return The entry or <code>null</code> if not found.
+	 */
+	public Entry getEntry(String name) {
+		return entries.get(name);
+	}
+
+	/**
+	 * Gets the offset of the contents of the entry in the bundle.
+	 * <p>
+	 * The local header of the entry is read from the argument channel, as the length of its extra field may differ
+	 * from the one in the central directory.
+	 *
+	 * @param channel
+	 *            The channel of the bundle.
+	 * @param entry
+	 *            The entry.
+	 * @return The offset of the entry contents.
+	 * @throws IOException
+	 *             If the local header cannot be read.
+	 */
+	public static long getDataOffset(FileChannel channel, Entry entry) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(LOCAL_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		while (header.hasRemaining()) {
+			if (channel.read(header, entry.localHeaderOffset + header.position()) < 0) {
+				throw new ZipException("Unexpected end of zip bundle.");
+			}
+		}
+		if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+			throw new ZipException("Invalid local header signature for entry: " + entry.name);
+		}
+		int namelen = Short.toUnsignedInt(header.getShort(26));
+		int extralen = Short.toUnsignedInt(header.getShort(28));
+		return entry.localHeaderOffset + LOCAL_HEADER_SIZE + namelen + extralen;
+	}
+
+	private static Map<String, Entry> readCentralDirectory(FileChannel channel) throws IOException {
+		long filesize = channel.size();
+		if (filesize < EOCD_MIN_SIZE) {
+			throw new ZipException("Not a zip file.");
+		}
+		//the end of central directory record is at the end of the file, followed by an optional comment
+		long tailstart = Math.max(0, filesize - EOCD_MIN_SIZE - EOCD_MAX_COMMENT_LENGTH);
+		MappedByteBuffer tail = channel.map(FileChannel.MapMode.READ_ONLY, tailstart, filesize - tailstart);
+		tail.order(ByteOrder.LITTLE_ENDIAN);
+		int eocd = -1;
+		for (int i = tail.limit() - EOCD_MIN_SIZE; i >= 0; --i) {
+			if (tail.getInt(i) == EOCD_SIGNATURE) {
+				eocd = i;
+				break;
+			}
+		}
+		if (eocd < 0) {
+			throw new ZipException("End of central directory record not found.");
+		}
+		int count = Short.toUnsignedInt(tail.getShort(eocd + 10));
+		long cdsize = Integer.toUnsignedLong(tail.getInt(eocd + 12));
+		long cdoffset = Integer.toUnsignedLong(tail.getInt(eocd + 16));
+		if (count == 0xFFFF || cdsize == ZIP64_MARKER || cdoffset == ZIP64_MARKER) {
+			throw new ZipException("ZIP64 bundles are not supported.");
+		}
+		if (cdoffset + cdsize > filesize) {
+			throw new ZipException("Invalid central directory location.");
+		}
+
+		MappedByteBuffer cd = channel.map(FileChannel.MapMode.READ_ONLY, cdoffset, cdsize);
+		cd.order(ByteOrder.LITTLE_ENDIAN);
+		Map<String, Entry> result = new HashMap<>(count * 4 / 3 + 1);
+		int pos = 0;
+		for (int i = 0; i < count; ++i) {
+			if (pos + CENTRAL_HEADER_SIZE > cd.limit() || cd.getInt(pos) != CENTRAL_HEADER_SIGNATURE) {
+				throw new ZipException("Invalid central directory header.");
+			}
+			int method = Short.toUnsignedInt(cd.getShort(pos + 10));
+			long compressedsize = Integer.toUnsignedLong(cd.getInt(pos + 20));
+			long uncompressedsize = Integer.toUnsignedLong(cd.getInt(pos + 24));
+			int namelen = Short.toUnsignedInt(cd.getShort(pos + 28));
+			int extralen = Short.toUnsignedInt(cd.getShort(pos + 30));
+			int commentlen = Short.toUnsignedInt(cd.getShort(pos + 32));
+			long localheaderoffset = Integer.toUnsignedLong(cd.getInt(pos + 42));
+			if (compressedsize == ZIP64_MARKER || uncompressedsize == ZIP64_MARKER
+					|| localheaderoffset == ZIP64_MARKER) {
+				throw new ZipException("ZIP64 bundles are not supported.");
+			}
+			byte[] namebytes = new byte[namelen];
+			cd.position(pos + CENTRAL_HEADER_SIZE);
+			cd.get(namebytes);
+			String name = new String(namebytes, StandardCharsets.UTF_8);
+			if (!name.endsWith("/")) {
+				result.put(name, new Entry(name, method, compressedsize, uncompressedsize, localheaderoffset));
+			}
+			pos += CENTRAL_HEADER_SIZE + namelen + extralen + commentlen;
+		}
+		return Collections.unmodifiableMap(result);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + path + "]";
+	}
+
+	public static final class Entry {
+		protected final String name;
+		protected final int method;
+		protected final long compressedSize;
+		protected final long size;
+		protected final long localHeaderOffset;
+
+		public Entry(String name, int method, long compressedSize, long size, long localHeaderOffset) {
+			this.name = name;
+			this.method = method;
+			this.compressedSize = compressedSize;
+			this.size = size;
+			this.localHeaderOffset = localHeaderOffset;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getMethod() {
+			return method;
+		}
+
+		public long getCompressedSize() {
+			return compressedSize;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		@Override
+		public String toString() {
+			return getClass().getSimpleName() + "[" + name + "]";
+		}
+	}
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.transport;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import saker.maven.support.thirdparty.org.eclipse.aether.RepositorySystemSession;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.RemoteRepository;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.GetTask;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.PeekTask;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.PutTask;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.TransportListener;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.Transporter;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.TransporterFactory;
+import saker.maven.support.thirdparty.org.eclipse.aether.transfer.NoTransporterException;
+
+/**
+ * {@link Transporter} that reads the files from a zip or jar bundle that contains a repository in the Maven layout.
+ * <p>
+ * The repository URL is expected to be a <code>file:</code> URL that points to a file with the <code>.zip</code> or
+ * <code>.jar</code> extension. The repository may be in a subdirectory of the bundle, which can be specified after a
+ * <code>!/</code> separator. E.g. <code>file:///path/to/bundle.zip!/repository</code>.
+ * <p>
+ * The entries are streamed directly from the bundle using positional reads, without extracting it. The channel of the
+ * bundle is shared by the concurrent transfers of the transporter. The index of the bundle
+ * is shared by the transporters, see {@link ZipBundle}. The bundle is read-only, uploading is not supported.
+ */
+class ZipBundleTransporter implements Transporter {
+	private static final String BUNDLE_PATH_SEPARATOR = "!/";
+	private static final int BUFFER_SIZE = 32 * 1024;
+
+	private final ZipBundle bundle;
+	private final String prefix;
+	private FileChannel channel;
+
+	private ZipBundleTransporter(ZipBundle bundle, String prefix) {
+		this.bundle = bundle;
+		this.prefix = prefix;
+	}
+
+	/**
+	 * Creates a bundle transporter for the argument repository.
+	 *
+	 * @param session
+	 *            The repository session.
+	 * @param repository
+	 *            The repository.
+	 * @return The created transporter.
+	 * @throws NoTransporterException
+	 *             If the repository doesn't point to a zip bundle.
+	 */
+	public static Transporter create(RepositorySystemSession session, RemoteRepository repository)
+			throws NoTransporterException {
+		if (!"file".equalsIgnoreCase(repository.getProtocol())) {
+			throw new NoTransporterException(repository);
+		}
+		String url = repository.getUrl();
+		String prefix = "";
+		int separatoridx = url.indexOf(BUNDLE_PATH_SEPARATOR);
+		if (separatoridx >= 0) {
+			prefix = url.substring(separatoridx + BUNDLE_PATH_SEPARATOR.length());
+			if (!prefix.isEmpty() && !prefix.endsWith("/")) {
+				prefix += "/";
+			}
+			url = url.substring(0, separatoridx);
+		}
+		String lowerurl = url.toLowerCase(Locale.ENGLISH);
+		if (!lowerurl.endsWith(".zip") && !lowerurl.endsWith(".jar")) {
+			throw new NoTransporterException(repository);
+		}
+		Path bundlepath;
+		try {
+			bundlepath = Paths.get(URI.create(url));
+		} catch (IllegalArgumentException e) {
+			throw new NoTransporterException(repository, e);
+		}
+		try {
+			return new ZipBundleTransporter(ZipBundle.get(bundlepath), prefix);
+		} catch (IOException e) {
+			throw new NoTransporterException(repository, e);
+		}
+	}
+
+	@Override
+	public int classify(Throwable error) {
+		if (error instanceof FileNotFoundException) {
+			return ERROR_NOT_FOUND;
+		}
+		return ERROR_OTHER;
+	}
+
+	@Override
+	public void peek(PeekTask task) throws Exception {
+		getEntry(task.getLocation());
+	}
+
+	@Override
+	public void get(GetTask task) throws Exception {
+		ZipBundle.Entry entry = getEntry(task.getLocation());
+		FileChannel channel = getChannel();
+		long dataoffset = ZipBundle.getDataOffset(channel, entry);
+		if (dataoffset + entry.getCompressedSize() > channel.size()) {
+			throw new ZipException("Unexpected end of zip bundle: " + bundle.getPath());
+		}
+		TransportListener listener = task.getListener();
+		listener.transportStarted(0, entry.getSize());
+		EntryData data = new EntryData(channel, entry, dataoffset);
+		try (OutputStream os = task.newOutputStream()) {
+			switch (entry.getMethod()) {
+				case ZipBundle.METHOD_STORED: {
+					ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+					while (data.hasRemaining()) {
+						int len = data.read(buffer);
+						os.write(buffer.array(), 0, len);
+						listener.transportProgressed(ByteBuffer.wrap(buffer.array(), 0, len));
+					}
+					break;
+				}
+				case ZipBundle.METHOD_DEFLATED: {
+					inflate(data, os, listener);
+					break;
+				}
+				default: {
+					throw new ZipException("Unsupported compression method: " + entry.getMethod() + " for entry: "
+							+ entry.getName() + " in " + bundle.getPath());
+				}
+			}
+		}
+	}
+
+	@Override
+	public void put(PutTask task) throws Exception {
+		throw new UnsupportedOperationException("Cannot deploy to zip bundle: " + bundle.getPath());
+	}
+
+	@Override
+	public synchronized void close() {
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// XXX log exception?
+			}
+			channel = null;
+		}
+	}
+
+	private ZipBundle.Entry getEntry(URI location) throws FileNotFoundException {
+		String name = prefix + location.getPath();
+		ZipBundle.Entry entry = bundle.getEntry(name);
+		if (entry == null) {
+			throw new FileNotFoundException("Entry not found: " + name + " in " + bundle.getPath());
+		}
+		return entry;
+	}
+
+	private synchronized FileChannel getChannel() throws IOException {
+		//opened lazily, as the transporter may be only used to peek
+		if (channel == null) {
+			channel = FileChannel.open(bundle.getPath(), StandardOpenOption.READ);
+		}
+		return channel;
+	}
+
+	private void inflate(EntryData data, OutputStream os, TransportListener listener) throws Exception {
+		ZipBundle.Entry entry = data.entry;
+		Inflater inflater = new Inflater(true);
+		try {
+			ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE);
+			byte[] buffer = new byte[BUFFER_SIZE];
+			while (!inflater.finished()) {
+				if (inflater.needsInput()) {
+					if (!data.hasRemaining()) {
+						throw new ZipException("Unexpected end of entry: " + entry.getName() + " in "
+								+ bundle.getPath());
+					}
+					int len = data.read(input);
+					inflater.setInput(input.array(), 0, len);
+				}
+				int count;
+				try {
+					count = inflater.inflate(buffer);
+				} catch (DataFormatException e) {
+					throw new ZipException("Invalid compressed data for entry: " + entry.getName() + " in "
+							+ bundle.getPath() + " (" + e + ")");
+				}
+				if (count > 0) {
+					os.write(buffer, 0, count);
+					listener.transportProgressed(ByteBuffer.wrap(buffer, 0, count));
+				} else if (inflater.needsDictionary()) {
+					throw new ZipException("Invalid compressed data for entry: " + entry.getName() + " in "
+							+ bundle.getPath());
+				}
+			}
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Reads the compressed data of an entry from the channel of the bundle.
+	 * <p>
+	 * Positional reads are used, so the channel can be shared by concurrent transfers.
+	 */
+	private final class EntryData {
+		protected final FileChannel channel;
+		protected final ZipBundle.Entry entry;
+		private long position;
+		private final long end;
+
+		public EntryData(FileChannel channel, ZipBundle.Entry entry, long dataoffset) {
+			this.channel = channel;
+			this.entry = entry;
+			this.position = dataoffset;
+			this.end = dataoffset + entry.getCompressedSize();
+		}
+
+		public boolean hasRemaining() {
+			return position < end;
+		}
+
+		/**
+		 * Reads the next chunk of the data into the argument buffer.
+		 * <p>
+		 * The buffer is cleared, and filled until its capacity, or the end of the data.
+		 *
+		 * @return The number of bytes read, which is at least 1.
+		 */
+		public int read(ByteBuffer buffer) throws IOException {
+			buffer.clear();
+			buffer.limit((int) Math.min(buffer.capacity(), end - position));
+			while (buffer.hasRemaining()) {
+				int read = channel.read(buffer, position);
+				if (read < 0) {
+					throw new ZipException("Unexpected end of zip bundle: " + bundle.getPath());
+				}
+				position += read;
+			}
+			return buffer.position();
+		}
+	}
+
+	/**
+	 * {@link TransporterFactory} for zip bundle repositories.
+	 */
+	public static final class Factory implements TransporterFactory {
+		@Override
+		public Transporter newInstance(RepositorySystemSession session, RemoteRepository repository)
+				throws NoTransporterException {
+			return create(session, repository);
+		}
+
+		@Override
+		public float getPriority() {
+			//before the file transporter, as that would handle the same file URLs
+			return 10.0f;
+		}
+	}
+}
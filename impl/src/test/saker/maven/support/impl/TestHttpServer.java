@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * HTTP server for testing that serves files from memory, supports range requests, and records the requests.
+ */
+public class TestHttpServer implements AutoCloseable {
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final Map<String, byte[]> files = new ConcurrentHashMap<>();
+	private final List<String> requests = new ArrayList<>();
+	private volatile Consumer<String> responseListener;
+
+	public TestHttpServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		executor = Executors.newCachedThreadPool();
+		server.setExecutor(executor);
+		server.createContext("/", this::handle);
+		server.start();
+	}
+
+	public URI getUri() {
+		return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+	}
+
+	public void putFile(String path, byte[] contents) {
+		files.put(path, contents);
+	}
+
+	/**
+	 * Gets the recorded requests in the format of <code>&lt;method&gt; &lt;path&gt; [&lt;range&gt;]</code>.
+	 */
+	public List<String> getRequests() {
+		synchronized (requests) {
+			return new ArrayList<>(requests);
+		}
+	}
+
+	/**
+	 * Sets the listener that is called with the request after the contents of the response have been determined, but
+	 * before it is sent.
+	 */
+	public void setResponseListener(Consumer<String> responseListener) {
+		this.responseListener = responseListener;
+	}
+
+	public void clearRequests() {
+		synchronized (requests) {
+			requests.clear();
+		}
+	}
+
+	public static String getETag(byte[] contents) {
+		return "\"" + Integer.toHexString(java.util.Arrays.hashCode(contents)) + "\"";
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try (InputStream is = exchange.getRequestBody()) {
+			while (is.read() >= 0) {
+			}
+		}
+		String method = exchange.getRequestMethod();
+		String path = exchange.getRequestURI().getPath();
+		String range = exchange.getRequestHeaders().getFirst("Range");
+		String request = method + " " + path + (range == null ? "" : " " + range);
+		synchronized (requests) {
+			requests.add(request);
+		}
+		byte[] contents = files.get(path);
+		Consumer<String> listener = responseListener;
+		if (listener != null) {
+			listener.accept(request);
+		}
+		if (contents == null) {
+			exchange.sendResponseHeaders(404, -1);
+			exchange.close();
+			return;
+		}
+		String etag = getETag(contents);
+		exchange.getResponseHeaders().add("ETag", etag);
+		exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+		String ifrange = exchange.getRequestHeaders().getFirst("If-Range");
+		long start = 0;
+		long end = contents.length;
+		int status = 200;
+		if (range != null && range.startsWith("bytes=") && (ifrange == null || ifrange.equals(etag))) {
+			String[] bounds = range.substring(6).split("-", -1);
+			start = Long.parseLong(bounds[0]);
+			if (!bounds[1].isEmpty()) {
+				end = Math.min(end, Long.parseLong(bounds[1]) + 1);
+			}
+			status = 206;
+			exchange.getResponseHeaders().add("Content-Range",
+					"bytes " + start + "-" + (end - 1) + "/" + contents.length);
+		}
+		if ("HEAD".equals(method)) {
+			exchange.getResponseHeaders().add("Content-Length", Long.toString(end - start));
+			exchange.sendResponseHeaders(status, -1);
+			exchange.close();
+			return;
+		}
+		exchange.sendResponseHeaders(status, end - start);
+		try (OutputStream os = exchange.getResponseBody()) {
+			os.write(contents, (int) start, (int) (end - start));
+		} catch (IOException e) {
+			//the client may close the connection before reading the whole response
+		}
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+}
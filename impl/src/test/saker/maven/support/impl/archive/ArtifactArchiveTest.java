@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.archive;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import saker.maven.support.impl.archive.ArtifactArchive.RestoreResult;
+import testing.saker.SakerTest;
+import testing.saker.SakerTestCase;
+
+@SakerTest
+public class ArtifactArchiveTest extends SakerTestCase {
+	private static final String JAR_PATH = "group/artifact/1.0/artifact-1.0.jar";
+	private static final String POM_PATH = "group/artifact/1.0/artifact-1.0.pom";
+	private static final String PARENT_POM_PATH = "group/parent/1.0/parent-1.0.pom";
+
+	@Override
+	public void runTest(Map<String, String> parameters) throws Throwable {
+		Path tempdir = Files.createTempDirectory("saker-maven-test");
+		Path sourcerepo = tempdir.resolve("source");
+		Map<String, Path> entries = new TreeMap<>();
+		entries.put(JAR_PATH, write(sourcerepo, JAR_PATH, "jar contents"));
+		entries.put(POM_PATH, write(sourcerepo, POM_PATH, "pom contents"));
+		entries.put(PARENT_POM_PATH, write(sourcerepo, PARENT_POM_PATH, "parent pom contents"));
+
+		Path archive = tempdir.resolve("archive.bin");
+		ArtifactArchive.write(archive, entries);
+
+		Path targetrepo = tempdir.resolve("target");
+		RestoreResult result = ArtifactArchive.restore(archive, targetrepo);
+		assertEquals(result.getRestoredCount(), 3);
+		assertEquals(result.getSkippedCount(), 0);
+		assertContents(targetrepo, JAR_PATH, "jar contents");
+		assertContents(targetrepo, POM_PATH, "pom contents");
+		assertContents(targetrepo, PARENT_POM_PATH, "parent pom contents");
+
+		//the files that are already present are skipped
+		result = ArtifactArchive.restore(archive, targetrepo);
+		assertEquals(result.getRestoredCount(), 0);
+		assertEquals(result.getSkippedCount(), 3);
+
+		//a file with different contents of the same size is restored again
+		write(targetrepo, JAR_PATH, "jar CONTENTS");
+		result = ArtifactArchive.restore(archive, targetrepo);
+		assertEquals(result.getRestoredPaths(), Collections.singletonList(JAR_PATH));
+		assertEquals(result.getSkippedCount(), 2);
+		assertContents(targetrepo, JAR_PATH, "jar contents");
+
+		//entries outside of the repository are rejected
+		Path evilarchive = tempdir.resolve("evil.bin");
+		ArtifactArchive.write(evilarchive, Collections.singletonMap("../evil.jar", entries.get(JAR_PATH)));
+		try {
+			ArtifactArchive.restore(evilarchive, targetrepo);
+			fail();
+		} catch (IOException e) {
+		}
+		assertFalse(Files.exists(tempdir.resolve("evil.jar")));
+	}
+
+	private static Path write(Path repository, String path, String contents) throws IOException {
+		Path file = repository.resolve(path);
+		Files.createDirectories(file.getParent());
+		Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	private static void assertContents(Path repository, String path, String contents) throws IOException {
+		assertTrue(Arrays.equals(contents.getBytes(StandardCharsets.UTF_8),
+				Files.readAllBytes(repository.resolve(path))));
+	}
+}
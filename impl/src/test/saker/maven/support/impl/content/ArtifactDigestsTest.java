@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.content;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Map;
+
+import saker.build.file.content.ContentDescriptor;
+import saker.build.file.path.SakerPath;
+import saker.build.thirdparty.saker.util.StringUtils;
+import testing.saker.SakerTest;
+import testing.saker.SakerTestCase;
+
+@SakerTest
+public class ArtifactDigestsTest extends SakerTestCase {
+	@Override
+	public void runTest(Map<String, String> parameters) throws Throwable {
+		Path repository = Files.createTempDirectory("saker-maven-test");
+		testChecksumFile(repository);
+		testIndexPersistence(Files.createTempDirectory("saker-maven-test"));
+		testCorruptIndex(Files.createTempDirectory("saker-maven-test"));
+		testStaleIndexEntries(Files.createTempDirectory("saker-maven-test"));
+	}
+
+	private static void testCorruptIndex(Path repository) throws Exception {
+		Path indexfile = repository.resolve(ArtifactDigests.INDEX_FILE_NAME);
+		//the format version and the start of an entry, then truncated
+		Files.write(indexfile, new byte[] { 0, 0, 0, 2, 1, 0, 50, 'g', 'r' });
+		ArtifactDigests.loadIndex(repository);
+
+		Path jar = repository.resolve("group/artifact/1.0/artifact-1.0.jar");
+		Files.createDirectories(jar.getParent());
+		Files.write(jar, "contents".getBytes(StandardCharsets.UTF_8));
+		ArtifactDigests.put(jar, Files.readAttributes(jar, BasicFileAttributes.class), new byte[20]);
+		//the corrupt index is overwritten
+		ArtifactDigests.storeIndex(repository);
+		assertTrue(containsBytes(Files.readAllBytes(indexfile), "artifact-1.0.jar"));
+	}
+
+	private static void testStaleIndexEntries(Path repository) throws Exception {
+		Path kept = repository.resolve("group/kept/1.0/kept-1.0.jar");
+		Path deleted = repository.resolve("group/deleted/1.0/deleted-1.0.jar");
+		Path modified = repository.resolve("group/modified/1.0/modified-1.0.jar");
+		ArtifactDigests.loadIndex(repository);
+		for (Path jar : Arrays.asList(kept, deleted, modified)) {
+			Files.createDirectories(jar.getParent());
+			Files.write(jar, "contents".getBytes(StandardCharsets.UTF_8));
+			ArtifactDigests.put(jar, Files.readAttributes(jar, BasicFileAttributes.class), new byte[20]);
+		}
+		Files.delete(deleted);
+		Files.write(modified, "modified contents".getBytes(StandardCharsets.UTF_8));
+
+		ArtifactDigests.storeIndex(repository);
+		byte[] index = Files.readAllBytes(repository.resolve(ArtifactDigests.INDEX_FILE_NAME));
+		assertTrue(containsBytes(index, "kept-1.0.jar"));
+		assertFalse(containsBytes(index, "deleted-1.0.jar"));
+		assertFalse(containsBytes(index, "modified-1.0.jar"));
+	}
+
+	private static boolean containsBytes(byte[] data, String str) {
+		return new String(data, StandardCharsets.ISO_8859_1).contains(str);
+	}
+
+	private static void testIndexPersistence(Path tempdir) throws Exception {
+		Path repository = tempdir.resolve("repository");
+		Path otherrepository = tempdir.resolve("other");
+		Path jar = repository.resolve("group/artifact/1.0/artifact-1.0.jar");
+		Files.createDirectories(jar.getParent());
+		Files.createDirectories(otherrepository);
+		Files.write(jar, "contents".getBytes(StandardCharsets.UTF_8));
+		ArtifactDigests.loadIndex(repository);
+		ArtifactDigests.loadIndex(otherrepository);
+
+		//not the actual digest, to check that it is not computed
+		byte[] digest = new byte[20];
+		Arrays.fill(digest, (byte) 1);
+		ArtifactDigests.put(jar, Files.readAttributes(jar, BasicFileAttributes.class), digest);
+
+		//only the index of the modified repository is written
+		ArtifactDigests.storeIndex(repository);
+		ArtifactDigests.storeIndex(otherrepository);
+		assertTrue(Files.isRegularFile(repository.resolve(ArtifactDigests.INDEX_FILE_NAME)));
+		assertFalse(Files.exists(otherrepository.resolve(ArtifactDigests.INDEX_FILE_NAME)));
+
+		//moving keeps the file attributes, the persisted digest is used by the execution property
+		Path movedrepository = tempdir.resolve("moved");
+		Files.move(repository, movedrepository);
+		ArtifactContentDescriptorExecutionProperty property = new ArtifactContentDescriptorExecutionProperty(
+				movedrepository.toString(), SakerPath.valueOf("group/artifact/1.0/artifact-1.0.jar"), null, false);
+		ContentDescriptor cd = property.getCurrentValue(null);
+		assertEquals(cd, new ArtifactHashContentDescriptor(digest));
+	}
+
+	private static void testChecksumFile(Path repository) throws Exception {
+		Path jar = repository.resolve("group/artifact/1.0/artifact-1.0.jar");
+		Path sha1file = jar.resolveSibling("artifact-1.0.jar.sha1");
+		Files.createDirectories(jar.getParent());
+		byte[] contents = "first".getBytes(StandardCharsets.UTF_8);
+		byte[] digest = sha1(contents);
+		Files.write(jar, contents);
+		FileTime jartime = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+		Files.setLastModifiedTime(jar, jartime);
+		Files.write(sha1file,
+				(StringUtils.toHexString(digest) + "  artifact-1.0.jar").getBytes(StandardCharsets.UTF_8));
+
+		BasicFileAttributes attrs = Files.readAttributes(jar, BasicFileAttributes.class);
+		assertTrue(Arrays.equals(digest, ArtifactDigests.getFromChecksumFile(jar, attrs)));
+		//not computed from the contents
+		assertNull(ArtifactDigests.get(jar, attrs));
+
+		//the file is modified, but its modification time is still not newer than the checksum file
+		Files.write(jar, "second contents".getBytes(StandardCharsets.UTF_8));
+		Files.setLastModifiedTime(jar, jartime);
+		attrs = Files.readAttributes(jar, BasicFileAttributes.class);
+		assertNull(ArtifactDigests.getFromChecksumFile(jar, attrs));
+
+		//a new checksum file is used again
+		byte[] seconddigest = sha1("second contents".getBytes(StandardCharsets.UTF_8));
+		Files.write(sha1file, StringUtils.toHexString(seconddigest).getBytes(StandardCharsets.UTF_8));
+		Files.setLastModifiedTime(sha1file, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+		assertTrue(Arrays.equals(seconddigest, ArtifactDigests.getFromChecksumFile(jar, attrs)));
+
+		//checksum files that are too short are not used
+		Files.write(sha1file, "abc".getBytes(StandardCharsets.UTF_8));
+		Files.setLastModifiedTime(sha1file, FileTime.fromMillis(System.currentTimeMillis() + 120_000));
+		assertNull(ArtifactDigests.getFromChecksumFile(jar, attrs));
+	}
+
+	private static byte[] sha1(byte[] contents) throws Exception {
+		return MessageDigest.getInstance("SHA-1").digest(contents);
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.content;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Map;
+
+import testing.saker.SakerTest;
+import testing.saker.SakerTestCase;
+
+@SakerTest
+public class DownloadCacheTest extends SakerTestCase {
+	private static final String URL = "https://repo.example.com/maven2/group/artifact/1.0/artifact-1.0.jar";
+
+	@Override
+	public void runTest(Map<String, String> parameters) throws Throwable {
+		Path tempdir = Files.createTempDirectory("saker-maven-test");
+		DownloadCache cache = new DownloadCache(tempdir.resolve("cache"));
+		byte[] contents = "contents".getBytes(StandardCharsets.UTF_8);
+		byte[] digest = MessageDigest.getInstance("SHA-1").digest(contents);
+
+		assertNull(cache.getLocationDigest(URL));
+		cache.recordLocation(URL, digest);
+		assertTrue(Arrays.equals(digest, cache.getLocationDigest(URL)));
+
+		//a corrupted entry is replaced when the same contents are stored again
+		Path stored = cache.getPath(digest);
+		Files.createDirectories(stored.getParent());
+		Files.write(stored, "corrupted".getBytes(StandardCharsets.UTF_8));
+		Path file = tempdir.resolve("artifact-1.0.jar");
+		Files.write(file, contents);
+		cache.store(file, digest);
+		assertTrue(Arrays.equals(contents, Files.readAllBytes(stored)));
+
+		Path target = tempdir.resolve("target.jar");
+		assertTrue(cache.materialize(digest, target));
+		assertTrue(Arrays.equals(contents, Files.readAllBytes(target)));
+
+		//the files are copied, modifying them doesn't modify the cache
+		Files.write(file, "modified".getBytes(StandardCharsets.UTF_8));
+		Files.write(target, "modified".getBytes(StandardCharsets.UTF_8));
+		assertTrue(Arrays.equals(contents, Files.readAllBytes(stored)));
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.download;
+
+import java.util.Map;
+
+import saker.build.file.path.SakerPath;
+import saker.maven.support.api.ArtifactCoordinates;
+import saker.maven.support.impl.MavenSupportImpl;
+import testing.saker.SakerTest;
+import testing.saker.SakerTestCase;
+
+/**
+ * Each materialized artifact is owned by a single task, regardless of the download operation that started it.
+ */
+@SakerTest
+public class ArtifactDownloadTaskIdentityTest extends SakerTestCase {
+	@Override
+	public void runTest(Map<String, String> parameters) throws Throwable {
+		SakerPath repository = SakerPath.valueOf("/repository");
+		SakerPath jarpath = SakerPath.valueOf("group/artifact/1.0/artifact-1.0.jar");
+		SakerPath otherpath = SakerPath.valueOf("group/other/1.0/other-1.0.jar");
+		ArtifactCoordinates coordinates = ArtifactCoordinates.valueOf("group:artifact:1.0");
+
+		//overlapping download operations start the same task for the same output file
+		assertEquals(MavenSupportImpl.createArtifactDownloadTaskIdentifier(null, jarpath),
+				MavenSupportImpl.createArtifactDownloadTaskIdentifier(null, jarpath));
+		assertEquals(
+				MavenSupportImpl.createArtifactDownloadTaskFactory(null, repository, jarpath, coordinates, false,
+						null),
+				MavenSupportImpl.createArtifactDownloadTaskFactory(null, repository, jarpath, coordinates, false,
+						null));
+
+		assertFalse(MavenSupportImpl.createArtifactDownloadTaskIdentifier(null, jarpath)
+				.equals(MavenSupportImpl.createArtifactDownloadTaskIdentifier(null, otherpath)));
+		assertFalse(MavenSupportImpl.createArtifactDownloadTaskIdentifier(null, jarpath)
+				.equals(MavenSupportImpl.createArtifactDownloadTaskIdentifier("other", jarpath)));
+	}
+}
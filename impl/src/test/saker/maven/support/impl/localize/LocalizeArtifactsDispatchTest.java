@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.localize;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import saker.build.file.path.SakerPath;
+import saker.build.task.TaskFactory;
+import saker.maven.support.api.ArtifactCoordinates;
+import saker.maven.support.api.MavenOperationConfiguration;
+import testing.saker.SakerTest;
+import testing.saker.SakerTestCase;
+
+/**
+ * The localization is only dispatched to build clusters if the artifacts are shared and the outputs are relocatable.
+ */
+@SakerTest
+public class LocalizeArtifactsDispatchTest extends SakerTestCase {
+	@Override
+	public void runTest(Map<String, String> parameters) throws Throwable {
+		assertFalse(isRemoteDispatchable(false, false));
+		assertFalse(isRemoteDispatchable(false, true));
+		assertFalse(isRemoteDispatchable(true, false));
+		assertTrue(isRemoteDispatchable(true, true));
+	}
+
+	private static boolean isRemoteDispatchable(boolean clustersharing, boolean relocatable) {
+		MavenOperationConfiguration config = MavenOperationConfiguration.builder(SakerPath.valueOf("/repository"))
+				.setClusterArtifactSharing(clustersharing).setRelocatableLocalization(relocatable).build();
+		Set<ArtifactCoordinates> artifacts = Collections.singleton(ArtifactCoordinates.valueOf("group:artifact:1.0"));
+		return new LocalizeArtifactsWorkerTaskFactory(config, artifacts).getCapabilities()
+				.contains(TaskFactory.CAPABILITY_REMOTE_DISPATCHABLE);
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.localize;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import saker.build.file.path.SakerPath;
+import saker.maven.support.api.ArtifactCoordinates;
+import saker.maven.support.api.MavenOperationConfiguration;
+import saker.maven.support.api.MavenUtils;
+import saker.maven.support.impl.MavenImplUtils;
+import testing.saker.SakerTest;
+import testing.saker.SakerTestCase;
+
+/**
+ * The relocatable localizations don't depend on the home directory of the machine that performs them.
+ */
+@SakerTest
+public class RelocatableLocalizationTest extends SakerTestCase {
+	private static final Set<ArtifactCoordinates> ARTIFACTS = Collections
+			.singleton(ArtifactCoordinates.valueOf("group:artifact:1.0"));
+
+	@Override
+	public void runTest(Map<String, String> parameters) throws Throwable {
+		String userhome = System.getProperty("user.home");
+		try {
+			LocalizeArtifactsWorkerTaskFactory first = createFactory("/home/first", true);
+			String firstid = MavenImplUtils
+					.getLocalRepositoryIdentifier(SakerPath.valueOf("/home/first/.m2/repository"));
+			LocalizeArtifactsWorkerTaskFactory second = createFactory("/home/second", true);
+			String secondid = MavenImplUtils
+					.getLocalRepositoryIdentifier(SakerPath.valueOf("/home/second/.m2/repository"));
+
+			assertEquals(first, second);
+			assertEquals(first.hashCode(), second.hashCode());
+			assertEquals(firstid, MavenUtils.LOCAL_REPOSITORY_IDENTIFIER_DEFAULT);
+			assertEquals(firstid, secondid);
+			SakerPath relpath = SakerPath.valueOf("group/artifact/1.0/artifact-1.0.jar");
+			assertEquals(
+					new RelocatableArtifactLocalizationWorkerTaskOutputImpl(ARTIFACTS.iterator().next(), firstid,
+							relpath, null),
+					new RelocatableArtifactLocalizationWorkerTaskOutputImpl(ARTIFACTS.iterator().next(), secondid,
+							relpath, null));
+
+			//a non-default repository is still identified by its path
+			assertEquals(MavenImplUtils.getLocalRepositoryIdentifier(SakerPath.valueOf("/repository")),
+					"/repository");
+
+			//the non-relocatable localizations use the local paths
+			assertFalse(createFactory("/home/first", false).equals(createFactory("/home/second", false)));
+		} finally {
+			System.setProperty("user.home", userhome);
+		}
+	}
+
+	private static LocalizeArtifactsWorkerTaskFactory createFactory(String userhome, boolean relocatable) {
+		System.setProperty("user.home", userhome);
+		MavenOperationConfiguration config = MavenOperationConfiguration
+				.builder(MavenUtils.getDefaultMavenLocalRepositoryLocation()).setRelocatableLocalization(relocatable)
+				.build();
+		return new LocalizeArtifactsWorkerTaskFactory(config, ARTIFACTS);
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.proxy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import saker.maven.support.impl.TestHttpServer;
+import testing.saker.SakerTest;
+import testing.saker.SakerTestCase;
+
+@SakerTest
+public class CachingProxyServerTest extends SakerTestCase {
+	private static final String JAR_PATH = "group/artifact/1.0/artifact-1.0.jar";
+	private static final String CORRUPT_PATH = "group/artifact/1.0/artifact-1.0-corrupt.jar";
+	private static final int CONCURRENT_REQUESTS = 8;
+
+	@Override
+	public void runTest(Map<String, String> parameters) throws Throwable {
+		byte[] jarcontents = new byte[256 * 1024];
+		new Random(1).nextBytes(jarcontents);
+
+		Path tempdir = Files.createTempDirectory("saker-maven-test");
+		List<String> warnings = new ArrayList<>();
+		URI proxyuri = CachingProxyServer.startOrGet(tempdir.resolve("cache"), null, 0, warnings::add);
+		assertTrue(warnings.isEmpty());
+
+		try (TestHttpServer upstream = new TestHttpServer()) {
+			upstream.putFile("/repo/" + JAR_PATH, jarcontents);
+			upstream.putFile("/repo/" + JAR_PATH + ".sha1", sha1Hex(jarcontents).getBytes(StandardCharsets.UTF_8));
+			upstream.putFile("/repo/" + CORRUPT_PATH, jarcontents);
+			upstream.putFile("/repo/" + CORRUPT_PATH + ".sha1",
+					sha1Hex(new byte[0]).getBytes(StandardCharsets.UTF_8));
+			//slow down the downloads, so the concurrent requests overlap
+			upstream.setResponseListener(request -> {
+				try {
+					Thread.sleep(200);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			String upstreamurl = upstream.getUri() + "repo/";
+
+			//not served before the upstream is registered
+			String encoded = Base64.getUrlEncoder().withoutPadding()
+					.encodeToString(upstreamurl.getBytes(StandardCharsets.UTF_8));
+			assertEquals(getStatus(proxyuri + encoded + "/" + JAR_PATH), HttpURLConnection.HTTP_NOT_FOUND);
+
+			String proxiedurl = CachingProxyServer.toProxiedUrl(proxyuri, upstreamurl);
+			//not served without the access token
+			String withouttoken = proxiedurl.replace(proxyuri.getPath(), "/");
+			assertEquals(getStatus(withouttoken + JAR_PATH), HttpURLConnection.HTTP_NOT_FOUND);
+
+			ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
+			try {
+				List<Future<byte[]>> futures = new ArrayList<>();
+				for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+					futures.add(executor.submit((Callable<byte[]>) () -> get(proxiedurl + JAR_PATH)));
+				}
+				for (Future<byte[]> future : futures) {
+					assertTrue(Arrays.equals(jarcontents, future.get()));
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+			//the concurrent requests are coalesced into a single download
+			assertEquals(countRequests(upstream, "GET /repo/" + JAR_PATH), 1);
+
+			//served from the cache
+			assertTrue(Arrays.equals(jarcontents, get(proxiedurl + JAR_PATH)));
+			assertEquals(countRequests(upstream, "GET /repo/" + JAR_PATH), 1);
+
+			//checksum mismatch, not cached
+			assertEquals(getStatus(proxiedurl + CORRUPT_PATH), HttpURLConnection.HTTP_BAD_GATEWAY);
+			assertEquals(getStatus(proxiedurl + CORRUPT_PATH), HttpURLConnection.HTTP_BAD_GATEWAY);
+			assertEquals(countRequests(upstream, "GET /repo/" + CORRUPT_PATH), 2);
+		}
+
+		//the running proxy is used, with a warning
+		URI otheruri = CachingProxyServer.startOrGet(tempdir.resolve("othercache"), null, 0, warnings::add);
+		assertEquals(otheruri, proxyuri);
+		assertEquals(warnings.size(), 1);
+	}
+
+	private static byte[] get(String url) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+		try (InputStream is = connection.getInputStream()) {
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			for (int read; (read = is.read(buffer)) > 0;) {
+				baos.write(buffer, 0, read);
+			}
+			return baos.toByteArray();
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	private static int getStatus(String url) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+		try {
+			return connection.getResponseCode();
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	private static int countRequests(TestHttpServer server, String request) {
+		int result = 0;
+		for (String r : server.getRequests()) {
+			if (r.equals(request)) {
+				++result;
+			}
+		}
+		return result;
+	}
+
+	private static String sha1Hex(byte[] data) throws Exception {
+		StringBuilder sb = new StringBuilder();
+		for (byte b : MessageDigest.getInstance("SHA-1").digest(data)) {
+			sb.append(String.format("%02x", b & 0xFF));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import saker.maven.support.thirdparty.org.eclipse.aether.DefaultRepositorySystemSession;
+import saker.maven.support.thirdparty.org.eclipse.aether.artifact.DefaultArtifact;
+import saker.maven.support.thirdparty.org.eclipse.aether.internal.impl.SimpleLocalRepositoryManagerFactory;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalArtifactRequest;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalRepository;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.LocalRepositoryManager;
+import testing.saker.SakerTest;
+import testing.saker.SakerTestCase;
+
+@SakerTest
+public class CatalogLocalRepositoryManagerTest extends SakerTestCase {
+	private static final String ARTIFACT_PATH = "group/artifact/1.0/artifact-1.0.jar";
+
+	@Override
+	public void runTest(Map<String, String> parameters) throws Throwable {
+		Path repository = Files.createTempDirectory("saker-maven-test").toRealPath();
+		DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+		LocalRepositoryManager delegate = new SimpleLocalRepositoryManagerFactory().newInstance(session,
+				new LocalRepository(repository.toFile(), "simple"));
+		LocalRepositoryCatalog catalog = LocalRepositoryCatalog.get(repository);
+		assertTrue(catalog == LocalRepositoryCatalog.get(repository));
+		CatalogLocalRepositoryManager manager = new CatalogLocalRepositoryManager(delegate, catalog, true);
+		LocalArtifactRequest request = new LocalArtifactRequest(new DefaultArtifact("group:artifact:1.0"), null,
+				null);
+
+		assertFalse(manager.find(session, request).isAvailable());
+		assertFalse(catalog.contains(ARTIFACT_PATH));
+
+		//added by an other tool after the catalog was built
+		Path jar = repository.resolve(ARTIFACT_PATH);
+		Files.createDirectories(jar.getParent());
+		Files.write(jar, "contents".getBytes(StandardCharsets.UTF_8));
+		assertTrue(manager.find(session, request).isAvailable());
+		assertEquals(catalog.getSize(ARTIFACT_PATH), Files.size(jar));
+
+		//the journal is persisted
+		assertTrue(reopen(repository).contains(ARTIFACT_PATH));
+
+		//removed by an other tool while present in the trusted catalog
+		Files.delete(jar);
+		assertFalse(manager.find(session, request).isAvailable());
+		assertFalse(catalog.contains(ARTIFACT_PATH));
+		assertFalse(reopen(repository).contains(ARTIFACT_PATH));
+	}
+
+	private static LocalRepositoryCatalog reopen(Path repository) {
+		LocalRepositoryCatalog result = new LocalRepositoryCatalog(repository);
+		assertTrue(result.isAvailable());
+		return result;
+	}
+}
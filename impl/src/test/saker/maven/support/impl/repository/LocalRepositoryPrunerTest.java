@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import testing.saker.SakerTest;
+import testing.saker.SakerTestCase;
+
+@SakerTest
+public class LocalRepositoryPrunerTest extends SakerTestCase {
+	private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+	@Override
+	public void runTest(Map<String, String> parameters) throws Throwable {
+		Path repository = Files.createTempDirectory("saker-maven-test").toRealPath();
+		long now = System.currentTimeMillis();
+		Path oldest = createArtifact(repository, "a", 100, now - 30 * DAY_MILLIS);
+		Path old = createArtifact(repository, "b", 100, now - 20 * DAY_MILLIS);
+		Path kept = createArtifact(repository, "c", 100, now - 40 * DAY_MILLIS);
+		Path accessed = createArtifact(repository, "d", 100, now - 50 * DAY_MILLIS);
+		Path recent = createArtifact(repository, "e", 100, now - DAY_MILLIS);
+
+		//accessed during the current build, e.g. by an up-to-date check
+		long buildtime = now - 1000;
+		//not recorded until the logging is enabled
+		LocalRepositoryAccessLog.recordAccess(repository, Collections.singleton(accessed), buildtime);
+		assertFalse(LocalRepositoryAccessLog.isRecorded(accessed, buildtime));
+		assertFalse(Files.exists(repository.resolve(LocalRepositoryAccessLog.LOG_FILE_NAME)));
+		assertTrue(LocalRepositoryAccessLog.enable(repository));
+		assertFalse(LocalRepositoryAccessLog.enable(repository));
+		LocalRepositoryAccessLog.recordAccess(repository, Collections.singleton(accessed), buildtime);
+		assertTrue(LocalRepositoryAccessLog.isRecorded(accessed, buildtime));
+
+		LocalRepositoryPruner pruner = new LocalRepositoryPruner(repository);
+		pruner.setSizeBudget(300);
+		pruner.setProtectedSince(buildtime);
+		pruner.setKeepFiles(Collections.singleton(kept));
+		pruner.prune();
+
+		//the least recently used versions are removed until the budget is met
+		assertFalse(Files.exists(oldest));
+		assertFalse(Files.exists(old));
+		assertFalse(Files.exists(oldest.getParent()));
+		assertTrue(Files.exists(kept));
+		assertTrue(Files.exists(accessed));
+		assertTrue(Files.exists(recent));
+		assertEquals(pruner.getRemovedVersionCount(), 2);
+		assertEquals(pruner.getFreedBytes(), 200L);
+		assertEquals(pruner.getRemainingBytes(), 300L);
+
+		//removed by age
+		pruner = new LocalRepositoryPruner(repository);
+		pruner.setMaxUnusedMillis(30 * DAY_MILLIS);
+		pruner.setProtectedSince(buildtime);
+		pruner.prune();
+		assertFalse(Files.exists(kept));
+		assertTrue(Files.exists(accessed));
+		assertTrue(Files.exists(recent));
+
+		testLogCompaction(Files.createTempDirectory("saker-maven-test").toRealPath());
+	}
+
+	private static void testLogCompaction(Path repository) throws Exception {
+		Path logfile = repository.resolve(LocalRepositoryAccessLog.LOG_FILE_NAME);
+		LocalRepositoryAccessLog.enable(repository);
+		StringBuilder sb = new StringBuilder();
+		while (sb.length() < 2 * 1024 * 1024) {
+			sb.append("1000 group/a/1.0\n");
+		}
+		Files.write(logfile, sb.toString().getBytes(StandardCharsets.UTF_8));
+
+		Path artifact = createArtifact(repository, "b", 100, System.currentTimeMillis());
+		LocalRepositoryAccessLog.recordAccess(repository, Collections.singleton(artifact), 0);
+
+		//the duplicate entries are merged when appending
+		assertTrue(Files.size(logfile) < 1024);
+		Map<String, Long> accesstimes = LocalRepositoryAccessLog.readAccessTimes(repository);
+		assertEquals(accesstimes.keySet(), new TreeSet<>(Arrays.asList("group/a/1.0", "group/b/1.0")));
+		assertEquals(accesstimes.get("group/a/1.0"), 1000L);
+	}
+
+	private static Path createArtifact(Path repository, String name, int size, long modified) throws Exception {
+		Path file = repository.resolve("group/" + name + "/1.0/" + name + "-1.0.jar");
+		Files.createDirectories(file.getParent());
+		Files.write(file, new byte[size]);
+		Files.setLastModifiedTime(file, FileTime.fromMillis(modified));
+		return file;
+	}
+}
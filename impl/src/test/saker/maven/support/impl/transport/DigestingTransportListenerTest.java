@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.transport;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import saker.build.thirdparty.saker.util.StringUtils;
+import saker.maven.support.impl.content.ArtifactDigests;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.TransportListener;
+import testing.saker.SakerTest;
+import testing.saker.SakerTestCase;
+
+@SakerTest
+public class DigestingTransportListenerTest extends SakerTestCase {
+	@Override
+	public void runTest(Map<String, String> parameters) throws Throwable {
+		byte[] contents = "artifact contents".getBytes(StandardCharsets.UTF_8);
+		String sha1 = StringUtils.toHexString(MessageDigest.getInstance("SHA-1").digest(contents));
+		String md5 = StringUtils.toHexString(MessageDigest.getInstance("MD5").digest(contents));
+
+		Path tempdir = Files.createTempDirectory("saker-maven-test");
+		Path jar = tempdir.resolve("artifact-1.0.jar");
+		Path sha1file = tempdir.resolve("artifact-1.0.jar.sha1");
+		Path md5file = tempdir.resolve("artifact-1.0.jar.md5");
+
+		//accepted inline checksums are written as checksum files
+		Map<String, Object> checksums = new TreeMap<>();
+		checksums.put("SHA-1", sha1.toUpperCase());
+		checksums.put("MD5", md5);
+		assertTrue(Arrays.equals(StringUtils.parseHexString(sha1), download(jar, contents, checksums)));
+		assertEquals(new String(Files.readAllBytes(sha1file), StandardCharsets.US_ASCII), sha1);
+		assertEquals(new String(Files.readAllBytes(md5file), StandardCharsets.US_ASCII), md5);
+		BasicFileAttributes attrs = Files.readAttributes(jar, BasicFileAttributes.class);
+		assertTrue(Arrays.equals(StringUtils.parseHexString(sha1), ArtifactDigests.getFromChecksumFile(jar, attrs)));
+
+		//mismatching checksums are rejected by the connector, and not written
+		Files.delete(sha1file);
+		Files.delete(md5file);
+		checksums.put("SHA-1", "0000000000000000000000000000000000000000");
+		checksums.remove("MD5");
+		download(jar, contents, checksums);
+		assertFalse(Files.exists(sha1file));
+		assertFalse(Files.exists(md5file));
+	}
+
+	private static byte[] download(Path target, byte[] contents, Map<String, Object> checksums) throws Exception {
+		File partfile = target.resolveSibling(target.getFileName() + ".part").toFile();
+		Files.write(partfile.toPath(), contents);
+		DigestingTransportListener listener = new DigestingTransportListener(new TransportListener() {
+		}, partfile);
+		listener.transportStarted(0, contents.length);
+		listener.transportProgressed(ByteBuffer.wrap(contents));
+		byte[] result = listener.transferCompleted(checksums);
+		Files.move(partfile.toPath(), target, StandardCopyOption.REPLACE_EXISTING);
+		return result;
+	}
+}
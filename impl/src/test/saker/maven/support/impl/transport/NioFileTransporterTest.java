@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.transport;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import saker.maven.support.thirdparty.org.eclipse.aether.DefaultRepositorySystemSession;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.RemoteRepository;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.GetTask;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.TransportListener;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.Transporter;
+import saker.maven.support.thirdparty.org.eclipse.aether.transport.file.FileTransporterFactory;
+import testing.saker.SakerTest;
+import testing.saker.SakerTestCase;
+
+@SakerTest
+public class NioFileTransporterTest extends SakerTestCase {
+	private static final String PATH = "group/artifact/1.0/artifact-1.0.jar";
+
+	@Override
+	public void runTest(Map<String, String> parameters) throws Throwable {
+		byte[] contents = new byte[1024 * 1024 + 123];
+		new Random(123).nextBytes(contents);
+
+		Path tempdir = Files.createTempDirectory("saker-maven-test");
+		Path repodir = tempdir.resolve("repository");
+		Path source = repodir.resolve(PATH);
+		Files.createDirectories(source.getParent());
+		Files.write(source, contents);
+
+		DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+		RemoteRepository repository = new RemoteRepository.Builder("repo", "default", repodir.toUri().toString())
+				.build();
+		Transporter transporter = NioFileTransporter.wrap(session, repository,
+				new FileTransporterFactory().newInstance(session, repository));
+		assertTrue(transporter instanceof NioFileTransporter);
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			Path target = tempdir.resolve("target.jar");
+			GetTask task = new GetTask(URI.create(PATH))
+					.setDataFile(target.toFile()).setListener(new TransportListener() {
+						@Override
+						public void transportProgressed(ByteBuffer data) {
+							digest.update(data);
+						}
+					});
+			transporter.get(task);
+			assertTrue(Arrays.equals(contents, Files.readAllBytes(target)));
+			//the listener is notified with all of the contents
+			assertTrue(Arrays.equals(MessageDigest.getInstance("SHA-1").digest(contents), digest.digest()));
+
+			//the target is a copy, modifying it doesn't modify the source repository
+			Files.write(target, new byte[] { 1, 2, 3 });
+			assertTrue(Arrays.equals(contents, Files.readAllBytes(source)));
+		} finally {
+			transporter.close();
+		}
+	}
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.transport;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import saker.maven.support.impl.TestHttpServer;
+import saker.maven.support.thirdparty.org.eclipse.aether.DefaultRepositorySystemSession;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.RemoteRepository;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.GetTask;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.PeekTask;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.PutTask;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.TransportListener;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.Transporter;
+import saker.maven.support.thirdparty.org.eclipse.aether.transfer.TransferCancelledException;
+import testing.saker.SakerTest;
+import testing.saker.SakerTestCase;
+
+@SakerTest
+public class ResumingHttpTransporterTest extends SakerTestCase {
+	private static final String JAR_PATH = "repo/group/artifact/1.0/artifact-1.0.jar";
+	private static final String POM_PATH = "repo/group/artifact/1.0/artifact-1.0.pom";
+
+	@Override
+	public void runTest(Map<String, String> parameters) throws Throwable {
+		byte[] jarcontents = new byte[4 * 1024 * 1024 + 123];
+		new Random(1).nextBytes(jarcontents);
+		byte[] pomcontents = "<project></project>".getBytes("UTF-8");
+
+		Path tempdir = Files.createTempDirectory("saker-maven-test");
+		try (TestHttpServer server = new TestHttpServer()) {
+			server.putFile("/" + JAR_PATH, jarcontents);
+			server.putFile("/" + POM_PATH, pomcontents);
+
+			assertTrue(createTransporter(server, false, -1) instanceof FailingTransporter,
+					"resuming transporter should be opt-in");
+
+			Transporter transporter = createTransporter(server, false, 1024 * 1024);
+			assertTrue(transporter instanceof ResumingHttpTransporter);
+
+			//small files are downloaded with a single request, without probing the size
+			RecordingTransportListener pomlistener = new RecordingTransportListener(-1);
+			File pomfile = tempdir.resolve("artifact-1.0.pom").toFile();
+			transporter.get(new GetTask(URI.create("group/artifact/1.0/artifact-1.0.pom")).setDataFile(pomfile)
+					.setListener(pomlistener));
+			assertTrue(Arrays.equals(pomcontents, Files.readAllBytes(pomfile.toPath())));
+			assertEquals(server.getRequests(), Arrays.asList("GET /" + POM_PATH + " bytes=0-"));
+			pomlistener.assertReceived(pomcontents);
+			server.clearRequests();
+
+			//large files are downloaded in segments, the progress is reported in order
+			RecordingTransportListener jarlistener = new RecordingTransportListener(-1);
+			File jarfile = tempdir.resolve("artifact-1.0.jar").toFile();
+			transporter.get(new GetTask(URI.create("group/artifact/1.0/artifact-1.0.jar")).setDataFile(jarfile)
+					.setListener(jarlistener));
+			assertTrue(Arrays.equals(jarcontents, Files.readAllBytes(jarfile.toPath())));
+			jarlistener.assertReceived(jarcontents);
+			List<String> requests = server.getRequests();
+			assertEquals(requests.size(), 4, requests.toString());
+			for (String req : requests) {
+				assertTrue(req.startsWith("GET /" + JAR_PATH + " bytes="), req);
+			}
+			server.clearRequests();
+
+			//the listener can cancel the segmented download
+			RecordingTransportListener cancellinglistener = new RecordingTransportListener(64 * 1024);
+			File cancelledfile = tempdir.resolve("cancelled.jar").toFile();
+			assertException(TransferCancelledException.class,
+					() -> transporter.get(new GetTask(URI.create("group/artifact/1.0/artifact-1.0.jar"))
+							.setDataFile(cancelledfile).setListener(cancellinglistener)));
+
+			//the segmented download is retried from the start if the file changes during the download
+			byte[] changedcontents = jarcontents.clone();
+			changedcontents[0]++;
+			server.setResponseListener(request -> {
+				if (request.endsWith(" bytes=0-")) {
+					server.putFile("/" + JAR_PATH, changedcontents);
+				}
+			});
+			RecordingTransportListener changinglistener = new RecordingTransportListener(-1);
+			File changedfile = tempdir.resolve("changed.jar").toFile();
+			transporter.get(new GetTask(URI.create("group/artifact/1.0/artifact-1.0.jar")).setDataFile(changedfile)
+					.setListener(changinglistener));
+			assertTrue(Arrays.equals(changedcontents, Files.readAllBytes(changedfile.toPath())));
+			changinglistener.assertReceived(changedcontents);
+			assertEquals(server.getRequests().get(server.getRequests().size() - 1), "GET /" + JAR_PATH);
+		} finally {
+			deleteRecursively(tempdir.toFile());
+		}
+	}
+
+	private static Transporter createTransporter(TestHttpServer server, boolean resumable, long segmentthreshold) {
+		DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+		TransferScheduler scheduler = new TransferScheduler(-1, -1);
+		scheduler.setResumableHttpDownloads(resumable);
+		scheduler.setSegmentedDownloads(segmentthreshold, 4);
+		session.setConfigProperty(TransferScheduler.SESSION_CONFIG_PROPERTY, scheduler);
+		RemoteRepository repository = new RemoteRepository.Builder("test", "default",
+				server.getUri().resolve("repo/").toString()).build();
+		return ResumingHttpTransporter.wrap(session, repository, new FailingTransporter());
+	}
+
+	private static void deleteRecursively(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File c : children) {
+				deleteRecursively(c);
+			}
+		}
+		file.delete();
+	}
+
+	private static class RecordingTransportListener extends TransportListener {
+		private final long cancelAfter;
+		private MessageDigest digest;
+		private long received;
+
+		public RecordingTransportListener(long cancelAfter) {
+			this.cancelAfter = cancelAfter;
+		}
+
+		@Override
+		public void transportStarted(long dataOffset, long dataLength) throws TransferCancelledException {
+			assertEquals(dataOffset, 0L);
+			try {
+				digest = MessageDigest.getInstance("SHA-1");
+			} catch (Exception e) {
+				throw new AssertionError(e);
+			}
+			received = 0;
+		}
+
+		@Override
+		public void transportProgressed(ByteBuffer data) throws TransferCancelledException {
+			received += data.remaining();
+			digest.update(data);
+			if (cancelAfter >= 0 && received >= cancelAfter) {
+				throw new TransferCancelledException();
+			}
+		}
+
+		public void assertReceived(byte[] contents) throws Exception {
+			assertEquals(received, (long) contents.length);
+			assertTrue(Arrays.equals(MessageDigest.getInstance("SHA-1").digest(contents), digest.digest()));
+		}
+	}
+
+	private static class FailingTransporter implements Transporter {
+		@Override
+		public int classify(Throwable error) {
+			return ERROR_OTHER;
+		}
+
+		@Override
+		public void peek(PeekTask task) throws Exception {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void get(GetTask task) throws Exception {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void put(PutTask task) throws Exception {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.impl.transport;
+
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import saker.maven.support.thirdparty.org.eclipse.aether.DefaultRepositorySystemSession;
+import saker.maven.support.thirdparty.org.eclipse.aether.repository.RemoteRepository;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.GetTask;
+import saker.maven.support.thirdparty.org.eclipse.aether.spi.connector.transport.Transporter;
+import testing.saker.SakerTest;
+import testing.saker.SakerTestCase;
+
+@SakerTest
+public class ZipBundleTransporterTest extends SakerTestCase {
+	private static final String STORED_PATH = "group/artifact/1.0/artifact-1.0.pom";
+	private static final String DEFLATED_PATH = "group/artifact/1.0/artifact-1.0.jar";
+
+	@Override
+	public void runTest(Map<String, String> parameters) throws Throwable {
+		Random random = new Random(123);
+		byte[] storedcontents = new byte[100];
+		random.nextBytes(storedcontents);
+		//larger than the read buffer, and partially compressible
+		byte[] deflatedcontents = new byte[200 * 1024];
+		for (int i = 0; i < deflatedcontents.length; i += 2) {
+			deflatedcontents[i] = (byte) random.nextInt(16);
+		}
+
+		Path bundle = Files.createTempDirectory("saker-maven-test").resolve("bundle.zip");
+		try (OutputStream fos = Files.newOutputStream(bundle);
+				ZipOutputStream zos = new ZipOutputStream(fos)) {
+			ZipEntry storedentry = new ZipEntry("repository/" + STORED_PATH);
+			storedentry.setMethod(ZipEntry.STORED);
+			storedentry.setSize(storedcontents.length);
+			CRC32 crc = new CRC32();
+			crc.update(storedcontents);
+			storedentry.setCrc(crc.getValue());
+			zos.putNextEntry(storedentry);
+			zos.write(storedcontents);
+			zos.closeEntry();
+
+			zos.putNextEntry(new ZipEntry("repository/" + DEFLATED_PATH));
+			zos.write(deflatedcontents);
+			zos.closeEntry();
+		}
+
+		RemoteRepository repository = new RemoteRepository.Builder("bundle", "default",
+				bundle.toUri().toString() + "!/repository").build();
+		Transporter transporter = ZipBundleTransporter.create(new DefaultRepositorySystemSession(), repository);
+		try {
+			assertTrue(Arrays.equals(storedcontents, get(transporter, STORED_PATH)));
+			assertTrue(Arrays.equals(deflatedcontents, get(transporter, DEFLATED_PATH)));
+			try {
+				get(transporter, "group/artifact/1.0/missing-1.0.jar");
+				fail();
+			} catch (Exception e) {
+				assertEquals(transporter.classify(e), Transporter.ERROR_NOT_FOUND);
+			}
+		} finally {
+			transporter.close();
+		}
+	}
+
+	private static byte[] get(Transporter transporter, String path) throws Exception {
+		GetTask task = new GetTask(URI.create(path));
+		transporter.get(task);
+		return task.getDataBytes();
+	}
+}
@@ -35,6 +35,11 @@ public class TaskDocs {
 			+ "The parameter can be used to specify the local repository path, and the configuration for remote repositories.\n"
 			+ "If no configuration is specified, the task will use the local repository at {user.home}/.m2/repository, and "
 			+ "the remote repository from Maven Central: " + MavenUtils.MAVEN_CENTRAL_REPOSITORY_URL;
+	public static final String PARAM_TRANSFER_PRIORITY = "Specifies the priority of the artifact transfers of the operation.\n"
+			+ "Transfers with higher priority are started first if the number of concurrent transfers is limited. "
+			+ "Within the same priority, compile scoped artifacts and smaller files (poms, main jars) are transferred "
+			+ "before runtime and test scoped artifacts, sources and other archives.\n"
+			+ "The default priority is 0. The priority doesn't affect the outputs of the operation.";
 	private static final String OUTPUT_CONFIGURATION = "The Maven configuration that was used during the operation.\n"
 			+ "This field can be passed to other Maven related tasks for their configurations.";
 
@@ -70,6 +75,32 @@ public class TaskDocs {
 	public static class DocChecksumPolicy {
 	}
 
+	@NestInformation("Represents the strategy of placing the downloaded artifacts in the build directory.")
+	@NestTypeInformation(kind = TypeInformationKind.LITERAL,
+			qualifiedName = "MaterializationStrategy",
+			enumValues = {
+
+					@NestFieldInformation(value = MavenUtils.MATERIALIZATION_STRATEGY_HARDLINK,
+							info = @NestInformation("A hard link is created to the artifact in the local repository.\n"
+									+ "Requires the local repository and the build directory to be on the same "
+									+ "file system.\n"
+									+ "Modifying the file in place modifies the artifact in the local repository.")),
+					@NestFieldInformation(value = MavenUtils.MATERIALIZATION_STRATEGY_TRANSFER,
+							info = @NestInformation("The artifact is copied from the local repository by the operating "
+									+ "system using a file channel transfer, without reading it in the build process.\n"
+									+ "It is not guaranteed to share the data blocks on copy-on-write file systems.")),
+					@NestFieldInformation(value = MavenUtils.MATERIALIZATION_STRATEGY_SYMLINK,
+							info = @NestInformation("A symbolic link is created to the artifact in the local "
+									+ "repository.\n"
+									+ "Modifying the file modifies the artifact in the local repository.")),
+					@NestFieldInformation(value = MavenUtils.MATERIALIZATION_STRATEGY_COPY,
+							info = @NestInformation("The artifact is copied from the local repository.\n"
+									+ "This is the default.")),
+
+			})
+	public static class DocMaterializationStrategy {
+	}
+
 	@NestInformation("Represents an update policy configuration for Maven artifacts.\n"
 			+ "Corresponds to the <updatePolicy/> element in a pom.xml.")
 	@NestTypeInformation(kind = TypeInformationKind.LITERAL,
@@ -270,6 +301,15 @@ public class TaskDocs {
 	@NestFieldInformation(value = "LocalPath",
 			type = @NestTypeUsage(SakerPath.class),
 			info = @NestInformation("The local file system path that is the result of the artifact localization."))
+	@NestFieldInformation(value = "RepositoryIdentifier",
+			type = @NestTypeUsage(String.class),
+			info = @NestInformation("The identifier of the local repository that contains the artifact.\n"
+					+ "It is \"default\" for the default local repository, or the path of the repository otherwise. "
+					+ "Only available if the RelocatableLocalization configuration option is enabled."))
+	@NestFieldInformation(value = "RepositoryRelativePath",
+			type = @NestTypeUsage(SakerPath.class),
+			info = @NestInformation("The path of the artifact relative to the local repository that contains it.\n"
+					+ "Only available if the RelocatableLocalization configuration option is enabled."))
 	public static class DocArtifactLocalizationWorkerTaskOutput {
 	}
 
@@ -327,6 +367,57 @@ public class TaskDocs {
 	public static class DocArtifactInstallWorkerTaskOutput {
 	}
 
+	@NestTypeInformation(qualifiedName = "saker.maven.support.api.prune.LocalRepositoryPruneTaskOutput")
+	@NestInformation("Result of a local Maven repository pruning task.")
+	@NestFieldInformation(value = "LocalRepositoryPath",
+			type = @NestTypeUsage(SakerPath.class),
+			info = @NestInformation("The local file system path of the pruned repository."))
+	@NestFieldInformation(value = "FreedBytes",
+			type = @NestTypeUsage(long.class),
+			info = @NestInformation("The number of bytes that were freed by removing artifacts."))
+	@NestFieldInformation(value = "RemovedVersionCount",
+			type = @NestTypeUsage(int.class),
+			info = @NestInformation("The number of artifact versions that were removed."))
+	@NestFieldInformation(value = "RemainingBytes",
+			type = @NestTypeUsage(long.class),
+			info = @NestInformation("The total size of the repository after the pruning."))
+	public static class DocLocalRepositoryPruneTaskOutput {
+	}
+
+	@NestTypeInformation(qualifiedName = "saker.maven.support.api.archive.ArtifactArchivePackTaskOutput")
+	@NestInformation("Result of a Maven artifact archive packing task.")
+	@NestFieldInformation(value = "ArchivePath",
+			type = @NestTypeUsage(SakerPath.class),
+			info = @NestInformation("The path of the written archive in the build execution."))
+	@NestFieldInformation(value = "Coordinates",
+			type = @NestTypeUsage(value = Collection.class, elementTypes = DocOutputArtifactCoordinates.class),
+			info = @NestInformation("The artifact coordinates of the packed artifacts."))
+	@NestFieldInformation(value = "FileCount",
+			type = @NestTypeUsage(int.class),
+			info = @NestInformation("The number of files in the archive."))
+	@NestFieldInformation(value = "ArchiveSize",
+			type = @NestTypeUsage(long.class),
+			info = @NestInformation("The size of the archive in bytes."))
+	public static class DocArtifactArchivePackTaskOutput {
+	}
+
+	@NestTypeInformation(qualifiedName = "saker.maven.support.api.archive.ArtifactArchiveRestoreTaskOutput")
+	@NestInformation("Result of a Maven artifact archive restoration task.")
+	@NestFieldInformation(value = "LocalRepositoryPath",
+			type = @NestTypeUsage(SakerPath.class),
+			info = @NestInformation("The local file system path of the repository the archive was restored to."))
+	@NestFieldInformation(value = "RestoredFileCount",
+			type = @NestTypeUsage(int.class),
+			info = @NestInformation("The number of files that were written to the repository."))
+	@NestFieldInformation(value = "RestoredBytes",
+			type = @NestTypeUsage(long.class),
+			info = @NestInformation("The number of bytes that were written to the repository."))
+	@NestFieldInformation(value = "SkippedFileCount",
+			type = @NestTypeUsage(int.class),
+			info = @NestInformation("The number of files that were already present in the repository."))
+	public static class DocArtifactArchiveRestoreTaskOutput {
+	}
+
 	@NestTypeInformation(qualifiedName = "saker.maven.support.api.deploy.ArtifactDeployWorkerTaskOutput")
 	@NestInformation("Result of a Maven artifact deployment task.")
 	@NestFieldInformation(value = "Coordinates",
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.main.archive;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+import saker.build.file.path.SakerPath;
+import saker.build.file.provider.SakerPathFiles;
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.task.ParameterizableTask;
+import saker.build.task.TaskContext;
+import saker.build.task.utils.SimpleStructuredObjectTaskResult;
+import saker.build.task.utils.StructuredListTaskResult;
+import saker.build.task.utils.StructuredTaskResult;
+import saker.build.task.utils.annot.SakerInput;
+import saker.build.task.utils.dependencies.EqualityTaskOutputChangeDetector;
+import saker.build.thirdparty.saker.util.ImmutableUtils;
+import saker.build.thirdparty.saker.util.ObjectUtils;
+import saker.maven.support.api.ArtifactCoordinates;
+import saker.maven.support.api.MavenOperationConfiguration;
+import saker.maven.support.api.dependency.MavenDependencyResolutionTaskOutput;
+import saker.maven.support.api.dependency.ResolvedDependencyArtifact;
+import saker.maven.support.api.localize.ArtifactLocalizationTaskOutput;
+import saker.maven.support.impl.archive.ArtifactArchivePackWorkerTaskFactory;
+import saker.maven.support.main.TaskDocs;
+import saker.maven.support.main.TaskDocs.DocArtifactArchivePackTaskOutput;
+import saker.maven.support.main.TaskDocs.DocInputArtifactCoordinates;
+import saker.maven.support.main.configuration.option.MavenConfigurationTaskOption;
+import saker.maven.support.main.configuration.option.MavenOperationConfigurationTaskOptionUtils;
+import saker.maven.support.main.dependency.ResolveMavenDependencyTaskFactory;
+import saker.maven.support.main.localize.LocalizeArtifactsTaskFactory;
+import saker.nest.scriptinfo.reflection.annot.NestInformation;
+import saker.nest.scriptinfo.reflection.annot.NestParameterInformation;
+import saker.nest.scriptinfo.reflection.annot.NestTaskInformation;
+import saker.nest.scriptinfo.reflection.annot.NestTypeUsage;
+import saker.nest.utils.FrontendTaskFactory;
+
+@NestTaskInformation(returnType = @NestTypeUsage(DocArtifactArchivePackTaskOutput.class))
+@NestInformation("Packs the specified Maven artifacts into a single archive.\n"
+		+ "The artifacts are localized, and the artifact files, their POMs and checksum files are written to an "
+		+ "uncompressed archive along with their local repository paths. The archive can be restored to a local "
+		+ "repository using the " + RestoreArtifactArchiveTaskFactory.TASK_NAME + "() task.\n"
+		+ "The task is intended to be used to cache the artifacts of a build in CI environments as a single file.")
+@NestParameterInformation(value = "Artifacts",
+		aliases = { "", "Artifact" },
+		required = true,
+		type = @NestTypeUsage(value = Collection.class, elementTypes = DocInputArtifactCoordinates.class),
+		info = @NestInformation("Specifies one or more artifact coordinates to be packed.\n"
+				+ "The dependencies of the artifacts are NOT resolved.\n" + "This parameter accepts the output of the "
+				+ ResolveMavenDependencyTaskFactory.TASK_NAME + "() and " + LocalizeArtifactsTaskFactory.TASK_NAME
+				+ "() tasks."))
+@NestParameterInformation(value = "Output",
+		required = true,
+		type = @NestTypeUsage(SakerPath.class),
+		info = @NestInformation("The path of the archive to write.\n"
+				+ "Relative paths are resolved against the output directory of the task in the build directory.\n"
+				+ "The archive is added to the build as an output file."))
+@NestParameterInformation(value = "Configuration",
+		type = @NestTypeUsage(MavenConfigurationTaskOption.class),
+		info = @NestInformation(TaskDocs.PARAM_CONFIGURATION))
+public class PackArtifactArchiveTaskFactory extends FrontendTaskFactory<Object> {
+	private static final long serialVersionUID = 1L;
+
+	public static final String TASK_NAME = "saker.maven.pack";
+
+	@Override
+	public ParameterizableTask<? extends Object> createTask(ExecutionContext executioncontext) {
+		return new ParameterizableTask<Object>() {
+			@SakerInput(value = { "", "Artifact", "Artifacts" }, required = true)
+			public Object artifacts;
+
+			@SakerInput(value = { "Output" }, required = true)
+			public SakerPath outputOption;
+
+			@SakerInput(value = { "Configuration" })
+			public MavenConfigurationTaskOption configuration;
+
+			private SakerPath outputPath;
+
+			@Override
+			public Object run(TaskContext taskcontext) throws Exception {
+				if (outputOption == null) {
+					taskcontext.abortExecution(new IllegalArgumentException("Output is null."));
+					return null;
+				}
+				outputPath = outputOption;
+				if (!outputPath.isAbsolute()) {
+					outputPath = SakerPathFiles.requireBuildDirectoryPath(taskcontext.getExecutionContext())
+							.resolve(TASK_NAME).resolve(outputPath);
+				}
+				if (artifacts instanceof StructuredTaskResult) {
+					if (artifacts instanceof StructuredListTaskResult) {
+						StructuredListTaskResult arifactsstructuredlist = (StructuredListTaskResult) artifacts;
+						Set<ArtifactCoordinates> coordinates = new LinkedHashSet<>();
+						Iterator<? extends StructuredTaskResult> it = arifactsstructuredlist.resultIterator();
+						while (it.hasNext()) {
+							Object resobj = it.next().toResult(taskcontext);
+							String resstr = Objects.toString(resobj, null);
+							if (ObjectUtils.isNullOrEmpty(resstr)) {
+								continue;
+							}
+							try {
+								coordinates.add(ArtifactCoordinates.valueOf(resstr));
+							} catch (IllegalArgumentException e) {
+								taskcontext.abortExecution(e);
+								return null;
+							}
+						}
+						return handleArtifactCoordinates(taskcontext, getRepositoryOperationConfiguration(taskcontext),
+								coordinates);
+					}
+					StructuredTaskResult structuredartifacts = (StructuredTaskResult) artifacts;
+					artifacts = structuredartifacts.toResult(taskcontext);
+				}
+				if (artifacts instanceof Object[]) {
+					artifacts = ImmutableUtils.makeImmutableList((Object[]) artifacts);
+				}
+				if (artifacts instanceof Iterable<?>) {
+					Iterable<?> artifactsiterable = (Iterable<?>) artifacts;
+					Set<ArtifactCoordinates> coordinates = new LinkedHashSet<>();
+
+					for (Object o : artifactsiterable) {
+						String coordstr = Objects.toString(o, null);
+						if (ObjectUtils.isNullOrEmpty(coordstr)) {
+							continue;
+						}
+						try {
+							coordinates.add(ArtifactCoordinates.valueOf(coordstr));
+						} catch (IllegalArgumentException e) {
+							taskcontext.abortExecution(e);
+							return null;
+						}
+					}
+					return handleArtifactCoordinates(taskcontext, getRepositoryOperationConfiguration(taskcontext),
+							coordinates);
+				}
+				if (artifacts instanceof MavenDependencyResolutionTaskOutput) {
+					MavenDependencyResolutionTaskOutput depoutput = (MavenDependencyResolutionTaskOutput) artifacts;
+					return handleArtifactCoordinates(taskcontext, depoutput.getConfiguration(),
+							ImmutableUtils.makeImmutableLinkedHashSet(depoutput.getArtifactCoordinates()));
+				}
+				if (artifacts instanceof ArtifactLocalizationTaskOutput) {
+					ArtifactLocalizationTaskOutput localizeoutput = (ArtifactLocalizationTaskOutput) artifacts;
+					return handleArtifactCoordinates(taskcontext, localizeoutput.getConfiguration(),
+							ImmutableUtils.makeImmutableLinkedHashSet(localizeoutput.getCoordinates()));
+				}
+				if (artifacts instanceof ResolvedDependencyArtifact) {
+					ResolvedDependencyArtifact resolvedartifact = (ResolvedDependencyArtifact) artifacts;
+					return handleArtifactCoordinates(taskcontext, resolvedartifact.getConfiguration(),
+							ImmutableUtils.singletonSet(resolvedartifact.getCoordinates()));
+				}
+
+				String coordsstr = Objects.toString(artifacts, null);
+				if (coordsstr == null) {
+					NullPointerException npe = new NullPointerException("null Artifacts input argument.");
+					taskcontext.abortExecution(npe);
+					return null;
+				}
+				try {
+					return handleArtifactCoordinates(taskcontext, getRepositoryOperationConfiguration(taskcontext),
+							Collections.singleton(ArtifactCoordinates.valueOf(coordsstr)));
+				} catch (IllegalArgumentException e) {
+					taskcontext.abortExecution(e);
+					return null;
+				}
+			}
+
+			private Object handleArtifactCoordinates(TaskContext taskcontext, MavenOperationConfiguration config,
+					Set<ArtifactCoordinates> coordinates) {
+				ArtifactArchivePackWorkerTaskFactory task = new ArtifactArchivePackWorkerTaskFactory(config,
+						coordinates, outputPath);
+				taskcontext.startTask(task, task, null);
+
+				SimpleStructuredObjectTaskResult result = new SimpleStructuredObjectTaskResult(task);
+				taskcontext.reportSelfTaskOutputChangeDetector(new EqualityTaskOutputChangeDetector(result));
+				return result;
+			}
+
+			private MavenOperationConfiguration getRepositoryOperationConfiguration(TaskContext taskcontext) {
+				MavenOperationConfiguration config = MavenOperationConfigurationTaskOptionUtils
+						.createConfiguration(taskcontext, this.configuration);
+				return config;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.main.archive;
+
+import saker.build.file.path.SakerPath;
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.task.ParameterizableTask;
+import saker.build.task.TaskContext;
+import saker.build.task.utils.SimpleStructuredObjectTaskResult;
+import saker.build.task.utils.annot.SakerInput;
+import saker.build.task.utils.dependencies.EqualityTaskOutputChangeDetector;
+import saker.maven.support.api.MavenOperationConfiguration;
+import saker.maven.support.impl.archive.ArtifactArchiveRestoreWorkerTaskFactory;
+import saker.maven.support.main.TaskDocs;
+import saker.maven.support.main.TaskDocs.DocArtifactArchiveRestoreTaskOutput;
+import saker.maven.support.main.configuration.option.MavenConfigurationTaskOption;
+import saker.maven.support.main.configuration.option.MavenOperationConfigurationTaskOptionUtils;
+import saker.nest.scriptinfo.reflection.annot.NestInformation;
+import saker.nest.scriptinfo.reflection.annot.NestParameterInformation;
+import saker.nest.scriptinfo.reflection.annot.NestTaskInformation;
+import saker.nest.scriptinfo.reflection.annot.NestTypeUsage;
+import saker.nest.utils.FrontendTaskFactory;
+
+@NestTaskInformation(returnType = @NestTypeUsage(DocArtifactArchiveRestoreTaskOutput.class))
+@NestInformation("Restores the artifacts in an archive to the local Maven repository.\n"
+		+ "The archive is expected to be created by the " + PackArtifactArchiveTaskFactory.TASK_NAME + "() task. "
+		+ "The files are extracted in parallel. The files that are already present in the repository with the "
+		+ "same contents are not overwritten.\n"
+		+ "The local repository path can be configured as other saker.maven tasks. Remote repository "
+		+ "configurations are ignored.")
+@NestParameterInformation(value = "Archive",
+		aliases = { "" },
+		required = true,
+		type = @NestTypeUsage(SakerPath.class),
+		info = @NestInformation("The absolute local file system path of the archive to restore."))
+@NestParameterInformation(value = "Configuration",
+		type = @NestTypeUsage(MavenConfigurationTaskOption.class),
+		info = @NestInformation(TaskDocs.PARAM_CONFIGURATION))
+public class RestoreArtifactArchiveTaskFactory extends FrontendTaskFactory<Object> {
+	private static final long serialVersionUID = 1L;
+
+	public static final String TASK_NAME = "saker.maven.restore";
+
+	@Override
+	public ParameterizableTask<? extends Object> createTask(ExecutionContext executioncontext) {
+		return new ParameterizableTask<Object>() {
+
+			@SakerInput(value = { "", "Archive" }, required = true)
+			public SakerPath archiveOption;
+
+			@SakerInput(value = { "Configuration" })
+			public MavenConfigurationTaskOption configurationOption;
+
+			@Override
+			public Object run(TaskContext taskcontext) throws Exception {
+				if (archiveOption == null) {
+					taskcontext.abortExecution(new IllegalArgumentException("Archive is null."));
+					return null;
+				}
+				if (!archiveOption.isAbsolute()) {
+					taskcontext.abortExecution(
+							new IllegalArgumentException("Archive path must be absolute: " + archiveOption));
+					return null;
+				}
+				MavenOperationConfiguration configuration = MavenOperationConfigurationTaskOptionUtils
+						.createConfiguration(taskcontext, configurationOption);
+				ArtifactArchiveRestoreWorkerTaskFactory task = new ArtifactArchiveRestoreWorkerTaskFactory(
+						configuration, archiveOption);
+				taskcontext.startTask(task, task, null);
+
+				SimpleStructuredObjectTaskResult result = new SimpleStructuredObjectTaskResult(task);
+				taskcontext.reportSelfTaskOutputChangeDetector(new EqualityTaskOutputChangeDetector(result));
+				return result;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.main.configuration.option;
+
+import saker.build.exception.InvalidPathFormatException;
+import saker.build.file.path.SakerPath;
+import saker.nest.scriptinfo.reflection.annot.NestInformation;
+import saker.std.api.file.location.LocalFileLocation;
+
+@NestInformation("Local file system path to a download cache.")
+public class DownloadCachePathTaskOption {
+	private SakerPath path;
+
+	public DownloadCachePathTaskOption(SakerPath path) {
+		if (!path.isAbsolute()) {
+			throw new InvalidPathFormatException("Download cache path must be absolute: " + path);
+		}
+		this.path = path;
+	}
+
+	public SakerPath getPath() {
+		return path;
+	}
+
+	public static DownloadCachePathTaskOption valueOf(String input) {
+		return valueOf(SakerPath.valueOf(input));
+	}
+
+	public static DownloadCachePathTaskOption valueOf(SakerPath path) {
+		return new DownloadCachePathTaskOption(path);
+	}
+
+	public static DownloadCachePathTaskOption valueOf(LocalFileLocation localfile) {
+		return new DownloadCachePathTaskOption(localfile.getLocalPath());
+	}
+}
@@ -20,6 +20,7 @@ import java.util.Collection;
 import saker.build.task.TaskContext;
 import saker.maven.support.api.MavenOperationConfiguration;
 import saker.maven.support.api.MavenUtils;
+import saker.maven.support.main.TaskDocs.DocMaterializationStrategy;
 import saker.nest.scriptinfo.reflection.annot.NestFieldInformation;
 import saker.nest.scriptinfo.reflection.annot.NestInformation;
 import saker.nest.scriptinfo.reflection.annot.NestTypeUsage;
@@ -39,6 +40,117 @@ import saker.nest.scriptinfo.reflection.annot.NestTypeUsage;
 				+ MavenUtils.MAVEN_CENTRAL_REPOSITORY_URL + "\n"
 				+ "In order to remove the default, specify empty Repositories. If you specify any repository, the default central repository "
 				+ "is not added automatically, and you need to add it yourself."))
+@NestFieldInformation(value = "ParallelRepositoryProbing",
+		type = @NestTypeUsage(boolean.class),
+		info = @NestInformation("Specifies whether the remote repositories should be probed in parallel for artifacts that "
+				+ "are not available locally.\n"
+				+ "If set to true, all eligible repositories are queried concurrently for the presence of an artifact, "
+				+ "and it is downloaded from the first repository that confirms it. If multiple repositories confirm "
+				+ "the artifact at the same time, the one declared earlier is used.\n"
+				+ "The default is false, in which case the repositories are tried sequentially in the declared order."))
+@NestFieldInformation(value = "AdaptiveRepositoryOrdering",
+		type = @NestTypeUsage(boolean.class),
+		info = @NestInformation("Specifies whether the remote repositories should be ordered based on their observed performance.\n"
+				+ "If set to true, the latency, error rate and hit rate of the repositories are tracked, and artifacts "
+				+ "are retrieved from the repositories in the order of their expected cost. Repositories that fail "
+				+ "repeatedly are skipped for a cool-down period.\n"
+				+ "The default is false, in which case the repositories are tried sequentially in the declared order."))
+@NestFieldInformation(value = "DownloadThreads",
+		type = @NestTypeUsage(int.class),
+		info = @NestInformation("Specifies the maximum number of artifacts that are downloaded concurrently from a remote repository "
+				+ "in a single operation.\n"
+				+ "If not specified, the default of the Maven Resolver is used."))
+@NestFieldInformation(value = "DownloadThreadsPerHost",
+		type = @NestTypeUsage(int.class),
+		info = @NestInformation("Specifies the maximum number of concurrent transfers to a single remote host.\n"
+				+ "The limit applies to all repositories on the same host. Transfers that exceed the limit wait for "
+				+ "the previous ones to finish.\n"
+				+ "If not specified, the transfers are not limited per host."))
+@NestFieldInformation(value = "SegmentedDownloadThreshold",
+		type = @NestTypeUsage(long.class),
+		info = @NestInformation("Specifies the size in bytes above which an artifact is downloaded in multiple segments "
+				+ "using parallel connections.\n"
+				+ "Segmented downloading is only used for HTTP(S) repositories that support range requests. "
+				+ "If not specified, the artifacts are downloaded using a single connection."))
+@NestFieldInformation(value = "SegmentedDownloadConnections",
+		type = @NestTypeUsage(int.class),
+		info = @NestInformation("Specifies the number of parallel connections that are used to download a single artifact "
+				+ "in segments.\n"
+				+ "Only used if SegmentedDownloadThreshold is set. The connections are subject to the concurrent "
+				+ "transfer limits. The default is 4."))
+@NestFieldInformation(value = "TrustChecksumFiles",
+		type = @NestTypeUsage(boolean.class),
+		info = @NestInformation("Specifies whether the .sha1 checksum files in the local repository are used as the digest "
+				+ "of the artifacts instead of hashing them.\n"
+				+ "The checksum files are written by the Maven Resolver after the artifacts are verified at download time. "
+				+ "The state of the artifact and the checksum file is recorded when the checksum file is used, and the "
+				+ "checksum file is not used anymore if the artifact is modified after that. "
+				+ "Only enable it if the artifacts in the local repository are not modified by other means.\n"
+				+ "The default is false."))
+@NestFieldInformation(value = "MaterializationStrategy",
+		type = @NestTypeUsage(DocMaterializationStrategy.class),
+		info = @NestInformation("Specifies how the downloaded artifacts are placed in the build directory.\n"
+				+ "The artifacts can be linked or transferred from the local repository instead of being copied. "
+				+ "If the specified strategy cannot be used, the artifact is copied.\n"
+				+ "Linked artifacts share their contents with the local repository, modifying them in place "
+				+ "modifies the local repository as well.\n"
+				+ "The default is " + MavenUtils.DEFAULT_MATERIALIZATION_STRATEGY + "."))
+@NestFieldInformation(value = "DownloadCachePath",
+		type = @NestTypeUsage(DownloadCachePathTaskOption.class),
+		info = @NestInformation("Specifies the path on the local file system of a download cache that is "
+				+ "shared between local repositories.\n"
+				+ "The downloaded artifacts are copied into the cache, and an artifact is not downloaded again "
+				+ "if the cache already contains it. The artifacts are copied out of the cache, so each local "
+				+ "repository keeps its own copy.\n"
+				+ "By default, no download cache is used."))
+@NestFieldInformation(value = "BaseRepositoryPaths",
+		type = @NestTypeUsage(value = Collection.class, elementTypes = LocalRepositoryPathTaskOption.class),
+		info = @NestInformation("Specifies the paths on the local file system of read-only base repositories.\n"
+				+ "The artifacts are looked up in the LocalRepositoryPath first, then in the base repositories in the "
+				+ "specified order. The base repositories are never modified, the downloaded artifacts are placed "
+				+ "in the LocalRepositoryPath.\n"
+				+ "By default, no base repositories are used."))
+@NestFieldInformation(value = "SimpleLocalRepositoryManager",
+		type = @NestTypeUsage(boolean.class),
+		info = @NestInformation("Specifies whether the artifacts in the local repository are looked up by their "
+				+ "layout path only, without tracking the remote repositories they were downloaded from.\n"
+				+ "The simple mode doesn't read or write the _remote.repositories files, which reduces the file system "
+				+ "overhead and lock contention. Only enable it if the repositories are trusted.\n"
+				+ "The default is false."))
+@NestFieldInformation(value = "LocalRepositoryCatalog",
+		type = @NestTypeUsage(boolean.class),
+		info = @NestInformation("Specifies whether a memory mapped catalog of the present files is maintained for the "
+				+ "local repository.\n"
+				+ "It is updated when artifacts are downloaded or installed, and rebuilt periodically. The presence "
+				+ "of the artifacts is verified with the file system, so modifications by other tools are picked up. "
+				+ "It is most effective together with SimpleLocalRepositoryManager.\n"
+				+ "The default is false."))
+@NestFieldInformation(value = "ClusterArtifactSharing",
+		type = @NestTypeUsage(boolean.class),
+		info = @NestInformation("Specifies whether the artifacts should be shared between the machines of a build "
+				+ "cluster.\n"
+				+ "If enabled together with RelocatableLocalization, the artifact localization may run on build "
+				+ "clusters. The artifacts missing from the "
+				+ "local repository of a cluster are downloaded once on the coordinator, and transferred to the "
+				+ "cluster over the build cluster connection, instead of retrieving them from the remote repositories "
+				+ "again. The transferred files are verified using their SHA-1 digest.\n"
+				+ "Without RelocatableLocalization, the localization runs on the coordinator.\n"
+				+ "The default is false."))
+@NestFieldInformation(value = "RelocatableLocalization",
+		type = @NestTypeUsage(boolean.class),
+		info = @NestInformation("Specifies whether the artifact localization results should be relocatable.\n"
+				+ "If enabled, the results record the identifier of the local repository and the path of the "
+				+ "artifact relative to it, instead of the absolute path in the home directory of the user. The "
+				+ "absolute path is resolved on the machine that uses the result, so the results of equivalent builds "
+				+ "can be shared between machines and users through build caches.\n"
+				+ "The default is false."))
+@NestFieldInformation(value = "ResumableHttpDownloads",
+		type = @NestTypeUsage(boolean.class),
+		info = @NestInformation("Specifies whether the interrupted HTTP(S) downloads should be resumed.\n"
+				+ "If enabled, the files are downloaded using the built-in HTTP client of the JVM instead of Wagon, "
+				+ "and partially downloaded files are resumed using range requests. Repositories that use a proxy "
+				+ "or other authentication than username and password are still accessed using Wagon.\n"
+				+ "The default is false."))
 public interface MavenConfigurationTaskOption {
 	public default MavenOperationConfiguration createConfiguration(TaskContext taskcontext) {
 		return MavenOperationConfigurationTaskOptionUtils.createConfigurationImpl(taskcontext, this);
@@ -52,6 +164,66 @@ public interface MavenConfigurationTaskOption {
 		return null;
 	}
 
+	public default Boolean getParallelRepositoryProbing() {
+		return null;
+	}
+
+	public default Boolean getAdaptiveRepositoryOrdering() {
+		return null;
+	}
+
+	public default Integer getDownloadThreads() {
+		return null;
+	}
+
+	public default Integer getDownloadThreadsPerHost() {
+		return null;
+	}
+
+	public default Long getSegmentedDownloadThreshold() {
+		return null;
+	}
+
+	public default Integer getSegmentedDownloadConnections() {
+		return null;
+	}
+
+	public default Boolean getTrustChecksumFiles() {
+		return null;
+	}
+
+	public default String getMaterializationStrategy() {
+		return null;
+	}
+
+	public default DownloadCachePathTaskOption getDownloadCachePath() {
+		return null;
+	}
+
+	public default Collection<LocalRepositoryPathTaskOption> getBaseRepositoryPaths() {
+		return null;
+	}
+
+	public default Boolean getSimpleLocalRepositoryManager() {
+		return null;
+	}
+
+	public default Boolean getLocalRepositoryCatalog() {
+		return null;
+	}
+
+	public default Boolean getClusterArtifactSharing() {
+		return null;
+	}
+
+	public default Boolean getRelocatableLocalization() {
+		return null;
+	}
+
+	public default Boolean getResumableHttpDownloads() {
+		return null;
+	}
+
 	public static MavenConfigurationTaskOption valueOf(MavenOperationConfiguration configuration) {
 		return new MavenConfigurationTaskOption() {
 			@Override
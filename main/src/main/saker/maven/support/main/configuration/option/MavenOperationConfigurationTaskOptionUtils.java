@@ -15,9 +15,11 @@
  */
 package saker.maven.support.main.configuration.option;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -66,6 +68,91 @@ public class MavenOperationConfigurationTaskOptionUtils {
 		} else {
 			builder.setRepositories(Collections.singleton(RepositoryConfiguration.DEFAULT_MAVEN_CENTRAL));
 		}
+		Boolean parallelprobing = options.getParallelRepositoryProbing();
+		if (parallelprobing != null) {
+			builder.setParallelRepositoryProbing(parallelprobing);
+		}
+		Boolean adaptiveordering = options.getAdaptiveRepositoryOrdering();
+		if (adaptiveordering != null) {
+			builder.setAdaptiveRepositoryOrdering(adaptiveordering);
+		}
+		Integer downloadthreads = options.getDownloadThreads();
+		if (downloadthreads != null) {
+			if (downloadthreads <= 0) {
+				throw new IllegalArgumentException("Invalid download thread count: " + downloadthreads);
+			}
+			builder.setDownloadThreads(downloadthreads);
+		}
+		Integer downloadthreadsperhost = options.getDownloadThreadsPerHost();
+		if (downloadthreadsperhost != null) {
+			if (downloadthreadsperhost <= 0) {
+				throw new IllegalArgumentException(
+						"Invalid per host download thread count: " + downloadthreadsperhost);
+			}
+			builder.setDownloadThreadsPerHost(downloadthreadsperhost);
+		}
+		Long segmentedthreshold = options.getSegmentedDownloadThreshold();
+		if (segmentedthreshold != null) {
+			if (segmentedthreshold <= 0) {
+				throw new IllegalArgumentException("Invalid segmented download threshold: " + segmentedthreshold);
+			}
+			builder.setSegmentedDownloadThreshold(segmentedthreshold);
+		}
+		Integer segmentedconnections = options.getSegmentedDownloadConnections();
+		if (segmentedconnections != null) {
+			if (segmentedconnections <= 0) {
+				throw new IllegalArgumentException(
+						"Invalid segmented download connection count: " + segmentedconnections);
+			}
+			builder.setSegmentedDownloadConnections(segmentedconnections);
+		}
+		Boolean trustchecksumfiles = options.getTrustChecksumFiles();
+		if (trustchecksumfiles != null) {
+			builder.setTrustChecksumFiles(trustchecksumfiles);
+		}
+		String materializationstrategy = options.getMaterializationStrategy();
+		if (materializationstrategy != null) {
+			if (!ALLOWED_MATERIALIZATION_STRATEGIES.contains(materializationstrategy)) {
+				throw new IllegalArgumentException("Invalid materialization strategy: " + materializationstrategy
+						+ " allowed: " + StringUtils.toStringJoin(", ", ALLOWED_MATERIALIZATION_STRATEGIES));
+			}
+			builder.setMaterializationStrategy(materializationstrategy);
+		}
+		DownloadCachePathTaskOption downloadcachepath = options.getDownloadCachePath();
+		if (downloadcachepath != null) {
+			builder.setDownloadCachePath(downloadcachepath.getPath());
+		}
+		Collection<LocalRepositoryPathTaskOption> baserepopaths = options.getBaseRepositoryPaths();
+		if (baserepopaths != null) {
+			List<SakerPath> basepaths = new ArrayList<>();
+			for (LocalRepositoryPathTaskOption baserepopath : baserepopaths) {
+				if (baserepopath == null) {
+					continue;
+				}
+				basepaths.add(baserepopath.getPath());
+			}
+			builder.setBaseRepositoryPaths(basepaths);
+		}
+		Boolean simplelocalrepomanager = options.getSimpleLocalRepositoryManager();
+		if (simplelocalrepomanager != null) {
+			builder.setSimpleLocalRepositoryManager(simplelocalrepomanager);
+		}
+		Boolean localrepocatalog = options.getLocalRepositoryCatalog();
+		if (localrepocatalog != null) {
+			builder.setLocalRepositoryCatalog(localrepocatalog);
+		}
+		Boolean clusterartifactsharing = options.getClusterArtifactSharing();
+		if (clusterartifactsharing != null) {
+			builder.setClusterArtifactSharing(clusterartifactsharing);
+		}
+		Boolean relocatablelocalization = options.getRelocatableLocalization();
+		if (relocatablelocalization != null) {
+			builder.setRelocatableLocalization(relocatablelocalization);
+		}
+		Boolean resumablehttpdownloads = options.getResumableHttpDownloads();
+		if (resumablehttpdownloads != null) {
+			builder.setResumableHttpDownloads(resumablehttpdownloads);
+		}
 		return builder.build();
 	}
 
@@ -82,14 +169,31 @@ public class MavenOperationConfigurationTaskOptionUtils {
 		}
 
 		RepositoryConfiguration repoconfig = new RepositoryConfiguration(repooptions.getId(), repooptions.getLayout(),
-				repooptions.getUrl(), snapshotpolicy, releasepolicy, auth);
+				repooptions.getUrl(), snapshotpolicy, releasepolicy, auth,
+				requireTimeout(repooptions.getConnectTimeout(), "connect"),
+				requireTimeout(repooptions.getReadTimeout(), "read"));
 		return repoconfig;
 	}
 
+	private static int requireTimeout(Integer timeout, String name) {
+		if (timeout == null) {
+			return -1;
+		}
+		if (timeout < 0) {
+			throw new IllegalArgumentException("Invalid " + name + " timeout: " + timeout);
+		}
+		return timeout;
+	}
+
 	private static final Set<String> ALLOWED_CHECKSUM_POLICIES = ImmutableUtils
 			.makeImmutableNavigableSet(new String[] { RepositoryPolicy.CHECKSUM_POLICY_FAIL,
 					RepositoryPolicy.CHECKSUM_POLICY_IGNORE, RepositoryPolicy.CHECKSUM_POLICY_WARN });
 
+	private static final Set<String> ALLOWED_MATERIALIZATION_STRATEGIES = ImmutableUtils
+			.makeImmutableNavigableSet(new String[] { MavenUtils.MATERIALIZATION_STRATEGY_COPY,
+					MavenUtils.MATERIALIZATION_STRATEGY_HARDLINK, MavenUtils.MATERIALIZATION_STRATEGY_TRANSFER,
+					MavenUtils.MATERIALIZATION_STRATEGY_SYMLINK });
+
 	private static final Set<String> ALLOWED_UPDATE_POLICIES = ImmutableUtils
 			.makeImmutableNavigableSet(new String[] { RepositoryPolicy.UPDATE_POLICY_ALWAYS,
 					RepositoryPolicy.UPDATE_POLICY_DAILY, RepositoryPolicy.UPDATE_POLICY_NEVER });
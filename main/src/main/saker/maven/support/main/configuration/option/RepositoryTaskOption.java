@@ -31,7 +31,11 @@ import saker.nest.scriptinfo.reflection.annot.NestTypeUsage;
 				+ "Serves the same purpose as the <id/> element in the pom.xml <repository/> configuration."))
 @NestFieldInformation(value = "Url",
 		type = @NestTypeUsage(String.class),
-		info = @NestInformation("Specifies the location and transfer protocol to interact with the repository."))
+		info = @NestInformation("Specifies the location and transfer protocol to interact with the repository.\n"
+				+ "A file: URL may point to a .zip or .jar bundle that contains artifacts in the Maven layout. "
+				+ "The artifacts are read from the bundle without extracting it. If the repository is in a "
+				+ "subdirectory of the bundle, it can be specified after a !/ separator. E.g. "
+				+ "file:///path/to/bundle.zip!/repository"))
 @NestFieldInformation(value = "Layout",
 		type = @NestTypeUsage(DocRepositoryLayout.class),
 		info = @NestInformation("Specifies the layout structure of the repository.\n"
@@ -50,6 +54,14 @@ import saker.nest.scriptinfo.reflection.annot.NestTypeUsage;
 @NestFieldInformation(value = "Authentication",
 		type = @NestTypeUsage(AuthenticationTaskOption.class),
 		info = @NestInformation("Specifies the authentication configuration that should be used for this repository."))
+@NestFieldInformation(value = "ConnectTimeout",
+		type = @NestTypeUsage(int.class),
+		info = @NestInformation("Specifies the timeout in milliseconds for establishing a connection to the repository.\n"
+				+ "If not specified, the default of the Maven Resolver is used."))
+@NestFieldInformation(value = "ReadTimeout",
+		type = @NestTypeUsage(int.class),
+		info = @NestInformation("Specifies the timeout in milliseconds for waiting on data from the repository.\n"
+				+ "If not specified, the default of the Maven Resolver is used."))
 public interface RepositoryTaskOption {
 	public String getId();
 
@@ -63,6 +75,14 @@ public interface RepositoryTaskOption {
 
 	public AuthenticationTaskOption getAuthentication();
 
+	public default Integer getConnectTimeout() {
+		return null;
+	}
+
+	public default Integer getReadTimeout() {
+		return null;
+	}
+
 	public static RepositoryTaskOption valueOf(RepositoryConfiguration input) {
 		return new RepositoryTaskOption() {
 			@Override
@@ -94,6 +114,18 @@ public interface RepositoryTaskOption {
 			public AuthenticationTaskOption getAuthentication() {
 				return AuthenticationTaskOption.valueOf(input.getAuthentication());
 			}
+
+			@Override
+			public Integer getConnectTimeout() {
+				int timeout = input.getConnectTimeout();
+				return timeout < 0 ? null : timeout;
+			}
+
+			@Override
+			public Integer getReadTimeout() {
+				int timeout = input.getReadTimeout();
+				return timeout < 0 ? null : timeout;
+			}
 		};
 	}
 }
\ No newline at end of file
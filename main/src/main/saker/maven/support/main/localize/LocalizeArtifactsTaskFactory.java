@@ -17,8 +17,10 @@ package saker.maven.support.main.localize;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
@@ -71,6 +73,9 @@ import saker.nest.utils.FrontendTaskFactory;
 @NestParameterInformation(value = "Configuration",
 		type = @NestTypeUsage(MavenConfigurationTaskOption.class),
 		info = @NestInformation(TaskDocs.PARAM_CONFIGURATION))
+@NestParameterInformation(value = "Priority",
+		type = @NestTypeUsage(int.class),
+		info = @NestInformation(TaskDocs.PARAM_TRANSFER_PRIORITY))
 public class LocalizeArtifactsTaskFactory extends FrontendTaskFactory<Object> {
 	//TODO this class has a lot of common with DownloadArtifactsTaskFactory
 	private static final long serialVersionUID = 1L;
@@ -86,6 +91,9 @@ public class LocalizeArtifactsTaskFactory extends FrontendTaskFactory<Object> {
 			@SakerInput(value = { "Configuration" })
 			public MavenConfigurationTaskOption configuration;
 
+			@SakerInput(value = { "Priority" })
+			public Integer priority;
+
 			@Override
 			public Object run(TaskContext taskcontext) throws Exception {
 				if (artifacts instanceof StructuredTaskResult) {
@@ -107,7 +115,7 @@ public class LocalizeArtifactsTaskFactory extends FrontendTaskFactory<Object> {
 							}
 						}
 						return handleArtifactCoordinates(taskcontext, getRepositoryOperationConfiguration(taskcontext),
-								coordinates);
+								coordinates, getPriority(), null);
 					}
 					StructuredTaskResult structuredartifacts = (StructuredTaskResult) artifacts;
 					artifacts = structuredartifacts.toResult(taskcontext);
@@ -132,7 +140,7 @@ public class LocalizeArtifactsTaskFactory extends FrontendTaskFactory<Object> {
 						}
 					}
 					return handleArtifactCoordinates(taskcontext, getRepositoryOperationConfiguration(taskcontext),
-							coordinates);
+							coordinates, getPriority(), null);
 				}
 
 				//TODO handle artifact localization result?
@@ -141,12 +149,21 @@ public class LocalizeArtifactsTaskFactory extends FrontendTaskFactory<Object> {
 					MavenDependencyResolutionTaskOutput depoutput = (MavenDependencyResolutionTaskOutput) artifacts;
 					Set<ArtifactCoordinates> coordinates = ImmutableUtils
 							.makeImmutableLinkedHashSet(depoutput.getArtifactCoordinates());
-					return handleArtifactCoordinates(taskcontext, depoutput.getConfiguration(), coordinates);
+					Map<ArtifactCoordinates, String> scopes = new HashMap<>();
+					Collection<ResolvedDependencyArtifact> resolvedartifacts = depoutput.getResolvedArtifacts();
+					if (resolvedartifacts != null) {
+						for (ResolvedDependencyArtifact resolvedartifact : resolvedartifacts) {
+							scopes.put(resolvedartifact.getCoordinates(), resolvedartifact.getScope());
+						}
+					}
+					return handleArtifactCoordinates(taskcontext, depoutput.getConfiguration(), coordinates,
+							getPriority(), scopes);
 				}
 				if (artifacts instanceof ResolvedDependencyArtifact) {
 					ResolvedDependencyArtifact resolvedartifact = (ResolvedDependencyArtifact) artifacts;
 					return handleArtifactCoordinates(taskcontext, resolvedartifact.getConfiguration(),
-							ImmutableUtils.singletonSet(resolvedartifact.getCoordinates()));
+							ImmutableUtils.singletonSet(resolvedartifact.getCoordinates()), getPriority(),
+							Collections.singletonMap(resolvedartifact.getCoordinates(), resolvedartifact.getScope()));
 				}
 
 				String coordsstr = Objects.toString(artifacts, null);
@@ -157,13 +174,17 @@ public class LocalizeArtifactsTaskFactory extends FrontendTaskFactory<Object> {
 				}
 				try {
 					return handleArtifactCoordinates(taskcontext, getRepositoryOperationConfiguration(taskcontext),
-							Collections.singleton(ArtifactCoordinates.valueOf(coordsstr)));
+							Collections.singleton(ArtifactCoordinates.valueOf(coordsstr)), getPriority(), null);
 				} catch (IllegalArgumentException e) {
 					taskcontext.abortExecution(e);
 					return null;
 				}
 			}
 
+			private int getPriority() {
+				return ObjectUtils.defaultize(priority, 0);
+			}
+
 			private MavenOperationConfiguration getRepositoryOperationConfiguration(TaskContext taskcontext) {
 				MavenOperationConfiguration config = MavenOperationConfigurationTaskOptionUtils
 						.createConfiguration(taskcontext, this.configuration);
@@ -173,9 +194,9 @@ public class LocalizeArtifactsTaskFactory extends FrontendTaskFactory<Object> {
 	}
 
 	private static Object handleArtifactCoordinates(TaskContext taskcontext, MavenOperationConfiguration config,
-			Set<ArtifactCoordinates> coordinates) {
+			Set<ArtifactCoordinates> coordinates, int priority, Map<ArtifactCoordinates, String> scopes) {
 		TaskFactory<? extends ArtifactLocalizationTaskOutput> dltaskfactory = MavenSupportImpl
-				.createLocalizeArtifactsTaskFactory(config, coordinates);
+				.createLocalizeArtifactsTaskFactory(config, coordinates, priority, scopes);
 		TaskIdentifier dltaskid = MavenSupportImpl.createLocalizeArtifactsTaskIdentifier(config, coordinates);
 
 		taskcontext.startTask(dltaskid, dltaskfactory, null);
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.maven.support.main.prune;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import saker.build.file.path.SakerPath;
+import saker.build.runtime.execution.ExecutionContext;
+import saker.build.task.ParameterizableTask;
+import saker.build.task.TaskContext;
+import saker.build.task.identifier.TaskIdentifier;
+import saker.build.task.utils.SimpleStructuredObjectTaskResult;
+import saker.build.task.utils.annot.SakerInput;
+import saker.build.task.utils.dependencies.EqualityTaskOutputChangeDetector;
+import saker.maven.support.api.MavenOperationConfiguration;
+import saker.maven.support.impl.prune.LocalRepositoryPruneWorkerTaskFactory;
+import saker.maven.support.main.TaskDocs;
+import saker.maven.support.main.TaskDocs.DocLocalRepositoryPruneTaskOutput;
+import saker.maven.support.main.configuration.option.MavenConfigurationTaskOption;
+import saker.maven.support.main.configuration.option.MavenOperationConfigurationTaskOptionUtils;
+import saker.nest.scriptinfo.reflection.annot.NestInformation;
+import saker.nest.scriptinfo.reflection.annot.NestParameterInformation;
+import saker.nest.scriptinfo.reflection.annot.NestTaskInformation;
+import saker.nest.scriptinfo.reflection.annot.NestTypeUsage;
+import saker.nest.utils.FrontendTaskFactory;
+
+@NestTaskInformation(returnType = @NestTypeUsage(DocLocalRepositoryPruneTaskOutput.class))
+@NestInformation("Removes the least recently used artifact versions from the local Maven repository.\n"
+		+ "The last use of the artifacts is recorded by the download and localization tasks. The versions that "
+		+ "haven't been used for the specified number of days are removed, and the least recently used versions are "
+		+ "removed while the size of the repository exceeds the specified budget.\n"
+		+ "The artifacts that were used during the current build, and the artifacts specified in KeepArtifacts are "
+		+ "never removed. The artifacts of the download and localization tasks that are up-to-date are recorded as "
+		+ "used as well. The pruning waits for the download and localization tasks that are running on the "
+		+ "repository. The task runs in every build.\n"
+		+ "The use of the artifacts is only recorded for repositories that are pruned. When the task runs for a "
+		+ "repository the first time, it enables the recording, and only starts removing artifacts in the next "
+		+ "build.\n"
+		+ "The local repository path can be configured as other saker.maven tasks. Remote repository "
+		+ "configurations are ignored.")
+
+@NestParameterInformation(value = "SizeBudget",
+		type = @NestTypeUsage(long.class),
+		info = @NestInformation("The maximum size of the local repository in bytes.\n"
+				+ "The least recently used artifact versions are removed until the size of the repository is below "
+				+ "the budget.\n"
+				+ "At least one of SizeBudget or MaxUnusedDays must be specified."))
+@NestParameterInformation(value = "MaxUnusedDays",
+		type = @NestTypeUsage(int.class),
+		info = @NestInformation("The number of days after which an unused artifact version is removed.\n"
+				+ "At least one of SizeBudget or MaxUnusedDays must be specified."))
+@NestParameterInformation(value = "KeepArtifacts",
+		type = @NestTypeUsage(value = Collection.class, elementTypes = SakerPath.class),
+		info = @NestInformation("Local file system paths of artifacts in the repository that shouldn't be removed.\n"
+				+ "The versions that contain the specified artifacts are kept. The artifacts used by the current "
+				+ "build are kept without specifying them. Use it to protect the artifacts that are not used by the "
+				+ "build, but referenced by other means."))
+@NestParameterInformation(value = "Configuration",
+		type = @NestTypeUsage(MavenConfigurationTaskOption.class),
+		info = @NestInformation(TaskDocs.PARAM_CONFIGURATION))
+public class PruneLocalRepositoryTaskFactory extends FrontendTaskFactory<Object> {
+	private static final long serialVersionUID = 1L;
+
+	public static final String TASK_NAME = "saker.maven.prune";
+
+	@Override
+	public ParameterizableTask<? extends Object> createTask(ExecutionContext executioncontext) {
+		return new ParameterizableTask<Object>() {
+
+			@SakerInput(value = { "SizeBudget" })
+			public Long sizeBudgetOption;
+			@SakerInput(value = { "MaxUnusedDays" })
+			public Integer maxUnusedDaysOption;
+			@SakerInput(value = { "KeepArtifacts" })
+			public Collection<SakerPath> keepArtifactsOption;
+
+			@SakerInput(value = { "Configuration" })
+			public MavenConfigurationTaskOption configurationOption;
+
+			@Override
+			public Object run(TaskContext taskcontext) throws Exception {
+				if (sizeBudgetOption == null && maxUnusedDaysOption == null) {
+					taskcontext.abortExecution(
+							new IllegalArgumentException("At least one of SizeBudget or MaxUnusedDays is required."));
+					return null;
+				}
+				if (sizeBudgetOption != null && sizeBudgetOption < 0) {
+					taskcontext.abortExecution(
+							new IllegalArgumentException("Invalid size budget: " + sizeBudgetOption));
+					return null;
+				}
+				if (maxUnusedDaysOption != null && maxUnusedDaysOption < 0) {
+					taskcontext.abortExecution(
+							new IllegalArgumentException("Invalid max unused days: " + maxUnusedDaysOption));
+					return null;
+				}
+				List<SakerPath> keeppaths = new ArrayList<>();
+				if (keepArtifactsOption != null) {
+					for (SakerPath keeppath : keepArtifactsOption) {
+						if (keeppath == null) {
+							continue;
+						}
+						if (!keeppath.isAbsolute()) {
+							taskcontext.abortExecution(
+									new IllegalArgumentException("KeepArtifacts path must be absolute: " + keeppath));
+							return null;
+						}
+						keeppaths.add(keeppath);
+					}
+				}
+				MavenOperationConfiguration configuration = MavenOperationConfigurationTaskOptionUtils
+						.createConfiguration(taskcontext, configurationOption);
+				LocalRepositoryPruneWorkerTaskFactory task = new LocalRepositoryPruneWorkerTaskFactory(configuration,
+						sizeBudgetOption == null ? -1 : sizeBudgetOption,
+						maxUnusedDaysOption == null ? -1 : maxUnusedDaysOption, keeppaths);
+				TaskIdentifier taskid = task.createTaskIdentifier();
+				taskcontext.startTask(taskid, task, null);
+
+				SimpleStructuredObjectTaskResult result = new SimpleStructuredObjectTaskResult(taskid);
+				taskcontext.reportSelfTaskOutputChangeDetector(new EqualityTaskOutputChangeDetector(result));
+				return result;
+			}
+		};
+	}
+
+}